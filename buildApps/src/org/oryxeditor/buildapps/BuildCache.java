@@ -0,0 +1,148 @@
+package org.oryxeditor.buildapps;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * A directory of build results that are named by a hash of their inputs, so
+ * that the next build can reuse them as long as the inputs did not change.
+ * Results are written to a temporary file first and then renamed, so that
+ * parallel builds never read a partially written result. Old results are not
+ * removed; the directory is deleted with the build directory.
+ */
+public class BuildCache {
+
+	private final File directory;
+	private final AtomicInteger tempFiles = new AtomicInteger();
+
+	public BuildCache(File directory) throws IOException {
+		this.directory = directory;
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cache directory " + directory.getPath() + " could not be created.");
+	}
+
+	/**
+	 * @return The cached result with the given name or null if there is none
+	 */
+	public File get(String name) {
+		File file = new File(directory, name);
+		return file.isFile() ? file : null;
+	}
+
+	/**
+	 * @return A new temporary file to write the result with the given name
+	 *         to, see {@link #put(String, File)}
+	 */
+	public File createTempFile(String name) throws IOException {
+		// not File.createTempFile, which initializes a SecureRandom first
+		while (true) {
+			File file = new File(directory, name + "." + System.nanoTime() + "." + tempFiles.incrementAndGet() + ".tmp");
+			if (file.createNewFile())
+				return file;
+		}
+	}
+
+	/**
+	 * Stores a result written to a file of {@link #createTempFile(String)}
+	 * under the given name.
+	 * 
+	 * @return The cached result
+	 */
+	public File put(String name, File tempFile) throws IOException {
+		File file = new File(directory, name);
+		if (!tempFile.renameTo(file)) {
+			// another thread or build stored the same result first
+			if (!file.isFile())
+				copy(tempFile, file);
+			tempFile.delete();
+		}
+		return file;
+	}
+
+	public static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] buffer = new byte[65536];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					out.write(buffer, 0, read);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	public static byte[] read(File file) throws IOException {
+		byte[] data = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < data.length) {
+				int count = in.read(data, read, data.length - read);
+				if (count == -1)
+					throw new IOException("File " + file.getPath() + " changed while it was read.");
+				read += count;
+			}
+		} finally {
+			in.close();
+		}
+		return data;
+	}
+
+	/**
+	 * The name of a result: a SHA-1 hash of the version of the build step
+	 * and of all inputs that were added.
+	 */
+	public static class Key {
+
+		private final MessageDigest digest;
+
+		public Key(String version) {
+			try {
+				digest = MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-1 is not available", e);
+			}
+			add(version);
+		}
+
+		public Key add(String value) {
+			try {
+				return add(value.getBytes("utf-8"));
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public Key add(byte[] value) {
+			// the length separates this input from the next one
+			int length = value.length;
+			digest.update(new byte[] { (byte) (length >> 24), (byte) (length >> 16), (byte) (length >> 8),
+					(byte) length });
+			digest.update(value);
+			return this;
+		}
+
+		/**
+		 * @return The hash in hexadecimal digits, no inputs can be added
+		 *         afterwards
+		 */
+		public String getHash() {
+			return new String(Hex.encodeHex(digest.digest()));
+		}
+	}
+}
@@ -1,16 +1,28 @@
 package org.oryxeditor.buildapps;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -42,6 +54,9 @@ import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
  * 
  */
 public class ProfileCreator {
+	/* The compressor and its options, so that results of others are not taken from the cache */
+	private static final String COMPRESSOR_VERSION = "yuicompressor-2.4.2 linebreak=1 munge";
+
 	/**
 	 * @param args
 	 *            path to plugin dir and output dir
@@ -52,7 +67,7 @@ public class ProfileCreator {
 	 */
 	public static void main(String[] args) throws IOException,
 	ParserConfigurationException, SAXException, JSONException {
-		if (args.length != 2) {
+		if (args.length != 2 && args.length != 3) {
 			System.err.println("Wrong Number of Arguments!");
 			System.err.println(usage());
 			return;
@@ -64,37 +79,193 @@ public class ProfileCreator {
 		String outputPath = args[1];
 		File outDir = new File(outputPath);
 		outDir.mkdir();
+		BuildCache cache = args.length == 3 ? new BuildCache(new File(args[2])) : null;
 		HashMap<String, String> nameSrc = new HashMap<String, String>();
 		HashMap<String, ArrayList<String>> profilName = new HashMap<String, ArrayList<String>>();
 		ArrayList<String> coreNames = new ArrayList<String>();
 
+		long start = System.currentTimeMillis();
 		extractPluginData(pluginXMLPath, nameSrc, coreNames);
 		//HasMap profilName contains the name of the profile
 		//as key and an ArrayList of the names of the pluins contained
 		//within that profile
 		extractProfileData(profilePath, profilName);
+		/*
+		 * collect the javascript files of all plugins used by a profile
+		 */
+		Set<String> sources = new LinkedHashSet<String>();
 		for (String key : profilName.keySet()) {
 			ArrayList<String> pluginNames = profilName.get(key);
 			//add core plugins to each profile
 			pluginNames.addAll(coreNames);
+			for (String name : pluginNames) {
+				String source = nameSrc.get(name);
+				/*
+				 * if no path is found, an error in the plugin xml exists
+				 */
+				if(source==null)
+					throw new IllegalArgumentException("In profile '"+key+"' an unknown plugin is referenced named '"+ name+"'");
+				sources.add(source);
+			}
+		}
+		System.out.println("Read " + nameSrc.size() + " plugins and " + profilName.size() + " profiles in "
+				+ (System.currentTimeMillis() - start) + " ms");
 
-			writeProfileJS(pluginDirPath, outputPath, nameSrc, key, pluginNames);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			start = System.currentTimeMillis();
+			AtomicInteger cached = new AtomicInteger();
+			Map<String, PluginScript> scripts = compressPlugins(executor, pluginDirPath, sources, cache, cached);
+			System.out.println("Compressed " + scripts.size() + " plugin scripts in "
+					+ (System.currentTimeMillis() - start) + " ms, " + cached + " of them from the cache");
+
+			start = System.currentTimeMillis();
+			ArrayList<Future<Object>> profiles = new ArrayList<Future<Object>>();
+			for (String key : profilName.keySet()) {
+				profiles.add(executor.submit(createProfileTask(pluginXMLPath, profilePath, outputPath, nameSrc,
+						scripts, key, profilName.get(key))));
+			}
+			for (Future<Object> profile : profiles)
+				getResult(profile);
+			System.out.println("Wrote " + profiles.size() + " profiles in " + (System.currentTimeMillis() - start)
+					+ " ms");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The javascript of a plugin as it is and compressed.
+	 */
+	private static class PluginScript {
+		final String source;
+		final String compressed;
+
+		PluginScript(String source, String compressed) {
+			this.source = source;
+			this.compressed = compressed;
+		}
+	}
+
+	/**
+	 * Compresses the javascript files of the plugins in parallel, each once,
+	 * no matter how many profiles include it. The compressed javascript is
+	 * taken from the cache if the file did not change since it was cached.
+	 * 
+	 * @param cache
+	 *            cache of compressed javascript or null
+	 * @param cached
+	 *            counts the files taken from the cache
+	 * @return plugin javascript by the source path of the plugin
+	 */
+	private static Map<String, PluginScript> compressPlugins(ExecutorService executor, final String pluginDirPath,
+			Set<String> sources, final BuildCache cache, final AtomicInteger cached) throws IOException,
+			JSONException {
+		Map<String, Future<PluginScript>> results = new LinkedHashMap<String, Future<PluginScript>>();
+		for (final String source : sources) {
+			results.put(source, executor.submit(new Callable<PluginScript>() {
+				public PluginScript call() throws IOException {
+					return compressPlugin(new File(pluginDirPath + File.separator + source), cache, cached);
+				}
+			}));
+		}
+		Map<String, PluginScript> scripts = new HashMap<String, PluginScript>();
+		for (Map.Entry<String, Future<PluginScript>> result : results.entrySet())
+			scripts.put(result.getKey(), getResult(result.getValue()));
+		return scripts;
+	}
 
-			writeProfileXML(pluginXMLPath, profilePath, outputPath, key,
-					pluginNames);
+	private static PluginScript compressPlugin(File file, BuildCache cache, AtomicInteger cached)
+			throws IOException {
+		byte[] bytes = BuildCache.read(file);
+		String source = new String(bytes, "UTF8");
+		String cacheName = null;
+		if (cache != null) {
+			cacheName = new BuildCache.Key(COMPRESSOR_VERSION).add(bytes).getHash() + ".js";
+			File cachedFile = cache.get(cacheName);
+			if (cachedFile != null) {
+				cached.incrementAndGet();
+				return new PluginScript(source, new String(BuildCache.read(cachedFile), "UTF8"));
+			}
 		}
+		
+		StringWriter compressed = new StringWriter();
+		try{
+			JavaScriptCompressor x= new JavaScriptCompressor(new StringReader(source), null);
+			x.compress(compressed, 1, true, false, false, false);
+		}catch (Exception e) {
+			/*
+			 * Fallback if yui compression fails, not cached so that the
+			 * failure is reported by the next build again
+			 */
+			System.err.println("Plugin Compression failed! plugin: "+file.getAbsolutePath()+ " uncompressed version is used, please ensure javascript correctness and compatibility of YUI compressor with your system");
+			e.printStackTrace();
+			return new PluginScript(source, source);
+		}
+		
+		if (cache != null) {
+			File tempFile = cache.createTempFile(cacheName);
+			Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF8");
+			try {
+				writer.write(compressed.toString());
+			} finally {
+				writer.close();
+			}
+			cache.put(cacheName, tempFile);
+		}
+		return new PluginScript(source, compressed.toString());
+	}
+
+	private static Callable<Object> createProfileTask(final String pluginXMLPath, final String profilePath,
+			final String outputPath, final HashMap<String, String> nameSrc, final Map<String, PluginScript> scripts,
+			final String profileName, final ArrayList<String> pluginNames) {
+		return new Callable<Object>() {
+			public Object call() throws IOException, JSONException {
+				writeProfileJS(outputPath, nameSrc, scripts, profileName, pluginNames);
 
+				writeProfileXML(pluginXMLPath, profilePath, outputPath, profileName,
+						pluginNames);
+				return null;
+			}
+		};
 	}
 
 	/**
-	 * Create the profileName.js by reading all path out of the nameSrc Hashmap, the required names
-	 * are given
-	 * @param pluginDirPath 
-	 * 			  path where all plugin-source-paths are relative to
+	 * Waits for the result of a task and throws its exception.
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException, JSONException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof JSONException)
+				throw (JSONException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			IOException exception = new IOException(cause.getMessage());
+			exception.initCause(cause);
+			throw exception;
+		} catch (InterruptedException e) {
+			IOException exception = new IOException("Interrupted while creating the profiles");
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Create the profileName.js by joining the compressed javascript of the
+	 * required plugins, and profileNameUncompressed.js by joining their
+	 * javascript files
 	 * @param outputPath 
 	 * 			  location of the generated pfrofile javascript file
 	 * @param nameSrc
 	 *            plugin name to js source file
+	 * @param scripts
+	 *            js source file to its javascript
 	 * @param profileName
 	 *            name of the profile, serve as name for the js file
 	 * @param pluginNames
@@ -102,71 +273,39 @@ public class ProfileCreator {
 	 * @throws IOException
 	 * @throws FileNotFoundException
 	 */
-	private static void writeProfileJS(String pluginDirPath, String outputPath,
-			HashMap<String, String> nameSrc, String profileName,
+	private static void writeProfileJS(String outputPath,
+			HashMap<String, String> nameSrc, Map<String, PluginScript> scripts, String profileName,
 			ArrayList<String> pluginNames) throws IOException,
 			FileNotFoundException {
 		/*
-		 * create a unique set of all plugin names
-		 */
-		ArrayList<String> pluginNameSet = new ArrayList<String>();
-		pluginNameSet.addAll(pluginNames);
-		/*
-		 * create the output profile file and open a writer
+		 * create the output profile files and open a writer for each
 		 */
 		File profileFile = new File(outputPath + File.separator + profileName +"Uncompressed.js");
-		profileFile.createNewFile();
-		OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(profileFile),"UTF8");
-		for (String name : pluginNameSet) {
-			/*
-			 * lookup the javascript file path of each plugin
-			 */
-			String source = nameSrc.get(name);
-			/*
-			 * if no path is found, an error in the plugin xml exists
-			 */
-			if(source==null)
-				throw new IllegalArgumentException("In profile '"+profileName+"' an unknown plugin is referenced named '"+ name+"'");
-			
-			/*
-			 * open the javascript file and append the whole plugin javascript to the profiles javascript file
-			 */
-			InputStreamReader reader = new InputStreamReader(new FileInputStream(pluginDirPath + File.separator + source),"UTF8");
-
-			writer.append(FileCopyUtils.copyToString(reader));
-		}
-		writer.close();
-
-		/*
-		 * creqate a new file for the compressed version of the profile file
-		 */
 		File compressOut=new File(outputPath + File.separator + profileName +".js");
-		InputStreamReader reader = new InputStreamReader(new FileInputStream(profileFile),"UTF8");
-		OutputStreamWriter writer2 = new OutputStreamWriter(new FileOutputStream(compressOut),"UTF8");
-		/*
-		 * start YUI compression with the concatinated profile javascript file as input and the compress out file as output
-		 */
-		try{
-			com.yahoo.platform.yui.compressor.JavaScriptCompressor x= new JavaScriptCompressor(reader, null);
-			x.compress(writer2, 1, true, false, false, false);
-			writer2.close();
-			reader.close();
-
-		}catch (Exception e) {
-			/*
-			 * Fallback if yui compression fails
-			 */
-			System.err.println("Profile Compression failed! profile: "+compressOut.getAbsolutePath()+ " uncompressed version is used, please ensure javascript correctness and compatibility of YUI compressor with your system");
-			e.printStackTrace();
-			writer2.close();
-			reader.close();
-			
-			OutputStreamWriter writer3 = new OutputStreamWriter(new FileOutputStream(outputPath + File.separator + profileName +".js"),"UTF8");
-			InputStreamReader reader1 = new InputStreamReader(new FileInputStream(profileFile),"UTF8");
-			FileCopyUtils.copy(reader1, writer3);
-			reader1.close();
-			writer3.close();
-
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(profileFile),"UTF8"));
+		try {
+			Writer writer2 = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(compressOut),"UTF8"));
+			try {
+				for (String name : pluginNames) {
+					/*
+					 * lookup the javascript of each plugin and append it to the profile's javascript files
+					 */
+					PluginScript script = scripts.get(nameSrc.get(name));
+					writer.write(script.source);
+					writer2.write(script.compressed);
+					/*
+					 * the plugins are compressed one by one, so the last
+					 * statement of each one is terminated here
+					 */
+					if (!script.compressed.endsWith(";"))
+						writer2.write(';');
+					writer2.write('\n');
+				}
+			} finally {
+				writer2.close();
+			}
+		} finally {
+			writer.close();
 		}
 	}
 
@@ -632,7 +771,9 @@ public class ProfileCreator {
 			+ "Use to parse the profiles.xml and creates\n"
 			+ "for each profile an .js-source. Therefore additional\n"
 			+ "information from the plugins.xml is required.\n"
-			+ "usage:\n" + "java ProfileCreator pluginPath outputDir";
+			+ "The compressed javascript of the plugins is kept in\n"
+			+ "the optional cache directory for the next run.\n"
+			+ "usage:\n" + "java ProfileCreator pluginPath outputDir [cacheDir]";
 		return use;
 	}
 
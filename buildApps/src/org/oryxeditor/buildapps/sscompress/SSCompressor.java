@@ -1,22 +1,59 @@
 package org.oryxeditor.buildapps.sscompress;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.oryxeditor.buildapps.BuildCache;
 
 
-
+/**
+ * Includes the SVG files referenced as view of the stencils into the stencil
+ * set files and stores the original stencil set files with postfix '-nosvg'.
+ * 
+ * The stencil sets are compressed in parallel. If a cache directory is given,
+ * the compressed stencil sets are kept there by a hash of the stencil set file
+ * and of the SVG files it references, and reused by the next build as long as
+ * none of these files changed. The same holds for the '-nosvg' copies and the
+ * lists of referenced SVG files, which only depend on the stencil set file.
+ */
 public class SSCompressor {
 
+	/* Changes with the output format, so that older cached results are not used */
+	private static final String VERSION = "sscompress-1";
+
+	private static final Pattern VIEW_PROPERTY = Pattern.compile("[\"\']view[\"\']\\s*:\\s*[\"\']\\S+[\"\']");
+	private static final Pattern VIEW_PROPERTY_START = Pattern.compile("[\"\']view[\"\']\\s*:\\s*[\"\']");
+
+	private final BuildCache cache;
+
+	/**
+	 * @param cache
+	 *            The cache of compressed stencil sets or null
+	 */
+	public SSCompressor(BuildCache cache) {
+		this.cache = cache;
+	}
+
 	/**
 	 * @param args
 	 * @throws Exception 
@@ -24,8 +61,10 @@ public class SSCompressor {
 	public static void main(String[] args) throws Exception {
 		
 		if(args.length < 1)
-			throw new Exception("Missing argument! Usage: java SSCompressor <SSDirectory>");
+			throw new Exception("Missing argument! Usage: java SSCompressor <SSDirectory> [<CacheDirectory>]");
 		
+		long start = System.currentTimeMillis();
+
 		//get stencil set directory from arguments
 		String ssDirString = args[0];
 		
@@ -36,15 +75,13 @@ public class SSCompressor {
 			throw new Exception("File " + ssDirString + "/stencilsets.json does not exist.");
 
 		//read stencil set configuration
-		StringBuffer jsonObjStr = readFile(ssConf);
-
-		JSONArray jsonObj = new JSONArray(jsonObjStr.toString());
+		JSONArray jsonObj = new JSONArray(new String(BuildCache.read(ssConf), "utf-8"));
 		
-		//iterate all stencil set configurations
+		//collect all stencil set locations, each stencil set is compressed once
+		Set<File> ssFiles = new LinkedHashSet<File>();
 		for(int i = 0; i < jsonObj.length(); i++) {
 			JSONObject ssObj = jsonObj.getJSONObject(i);
 			
-			//get stencil set location
 			if(ssObj.has("uri")) {
 				String ssUri = ssObj.getString("uri");
 				
@@ -53,146 +90,244 @@ public class SSCompressor {
 				if(!ssFile.exists())
 					throw new Exception("Stencil set " + ssDirString + ssUri + " that is referenced in stencil set configuration file does not exist.");
 				
-				String ssDir = ssFile.getParent();
-				
-				//read stencil set file
-				StringBuffer ssString = readFile(ssFile);
-				
-				// store copy of original stencilset file (w/o SVG includes) with postfix '-nosvg'
-				int pIdx = ssUri.lastIndexOf('.');
-				File ssNoSvgFile = new File(ssDirString + ssUri.substring(0, pIdx) + "-nosvg" + ssUri.substring(pIdx));
-				writeFile(ssNoSvgFile, ssString.toString());
-				
-				//***include svg files***
-				
-				//get view property
-				Pattern pattern = Pattern.compile("[\"\']view[\"\']\\s*:\\s*[\"\']\\S+[\"\']");
-				
-				Matcher matcher = pattern.matcher(ssString);
-				
-				StringBuffer tempSS = new StringBuffer();
-				
-				int lastIndex = 0;
-				
-				//iterate all view properties
-				while(matcher.find()) {
-					tempSS.append(ssString.substring(lastIndex, matcher.start()));
-					
-					lastIndex = matcher.end();
-					
-					//get svg file name
-					String filename = matcher.group().replaceFirst("[\"\']view[\"\']\\s*:\\s*[\"\']", "");
-					filename = filename.substring(0, filename.length()-1);
-					
-					//get svg file
-					File svgFile = new File(ssDir + "/view/" + filename);
-					
-					if(!svgFile.exists())
-						throw new Exception("SVG File " + svgFile.getPath() + " does not exists!. Compressing stencil sets aborted!");
-					
-					StringBuffer svgString = readFile(svgFile);
-					
-					//check, if svgString is a valid xml file
-					/*try {
-						DocumentBuilderFactory builder = DocumentBuilderFactory.newInstance();
-						DocumentBuilder document = builder.newDocumentBuilder();
-						document.parse(svgString.toString());
-					} catch(Exception e) {
-						throw new Exception("File " + svgFile.getCanonicalPath() + " is not a valid XML file: " + e.getMessage());
-					}*/
-					
-					
-					//append file content to output json file (replacing existing json file)
-					tempSS.append("\"view\":\"");
-					tempSS.append(svgString.toString().replaceAll("[\\t\\n\\x0B\\f\\r]", " ").replaceAll("\"", "\\\\\""));
-					//newSS.append(filename);
-					tempSS.append("\"");
-				}
-				
-				tempSS.append(ssString.substring(lastIndex));
-				//***end include svg files***
-				
-				/*
-				 * BAD IDEA, BECAUSE IT INCREASES THROUGHPUT
-				
-				//***include png files
-				//get icon property
-				pattern = Pattern.compile("[\"\']icon[\"\']\\s*:\\s*[\"\']\\S+[\"\']");
-				
-				matcher = pattern.matcher(tempSS);
-				
-				StringBuffer finalSS = new StringBuffer();
-				
-				lastIndex = 0;
-				
-				//iterate all icon properties
-				while(matcher.find()) {
-					finalSS.append(tempSS.substring(lastIndex, matcher.start()));
-					
-					lastIndex = matcher.end();
-					
-					//get icon file name
-					String filename = matcher.group().replaceFirst("[\"\']icon[\"\']\\s*:\\s*[\"\']", "");
-					filename = filename.substring(0, filename.length()-1);
-					
-					//get icon file
-					File pngFile = new File(ssDir + "/icons/" + filename);
-					
-					if(!pngFile.exists())
-						throw new Exception("SVG File " + pngFile.getPath() + " does not exists!. Compressing stencil sets aborted!");
-					
-					StringBuffer pngString = readFile(pngFile);
-					
-					//append file content to output json file (replacing existing json file)
-					finalSS.append("\"icon\":\"javascript:");
-					finalSS.append(encodeBase64(pngString.toString()));
-					finalSS.append("\"");
+				ssFiles.add(ssFile.getCanonicalFile());
+			}
+		}
+
+		final SSCompressor compressor = new SSCompressor(args.length > 1 ? new BuildCache(new File(args[1])) : null);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			Map<File, Future<Boolean>> results = new LinkedHashMap<File, Future<Boolean>>();
+			for(final File ssFile : ssFiles) {
+				results.put(ssFile, executor.submit(new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						return compressor.compress(ssFile);
+					}
+				}));
+			}
+			
+			int cached = 0;
+			for(Map.Entry<File, Future<Boolean>> result : results.entrySet()) {
+				boolean fromCache;
+				try {
+					fromCache = result.getValue().get();
+				} catch(ExecutionException e) {
+					if(e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
 				}
-				
-				finalSS.append(tempSS.substring(lastIndex));
-				//***end include png files
-				*/
-				//write compressed stencil set file
-				writeFile(ssFile, tempSS.toString());
-				
-				System.out.println("Compressed stencil set file " + ssFile.getCanonicalPath());
+				if(fromCache)
+					cached++;
+				System.out.println("Compressed stencil set file " + result.getKey().getPath() + (fromCache ? " (cached)" : ""));
 			}
+			
+			System.out.println("Compressed " + ssFiles.size() + " stencil sets in " + (System.currentTimeMillis() - start)
+					+ " ms, " + cached + " of them from the cache.");
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	private static StringBuffer readFile(File file) throws Exception {
-		FileInputStream fin =  new FileInputStream(file);
-		StringBuffer result = new StringBuffer();
-
-		String thisLine = "";
-		BufferedReader myInput = new BufferedReader(new InputStreamReader(fin, "utf-8"));
+	/**
+	 * Compresses a stencil set file in place and writes its '-nosvg' copy.
+	 * 
+	 * @return Whether the compressed stencil set was taken from the cache
+	 */
+	public boolean compress(File ssFile) throws Exception {
+		byte[] ssBytes = BuildCache.read(ssFile);
+		String ssDir = ssFile.getParent();
+		String ssName = ssFile.getName();
+		int pIdx = ssName.lastIndexOf('.');
+		File ssNoSvgFile = new File(ssDir, ssName.substring(0, pIdx) + "-nosvg" + ssName.substring(pIdx));
 		
-		while ((thisLine = myInput.readLine()) != null) {
-			result.append(thisLine);
-			result.append("\n");
-		}
+		// the '-nosvg' copy and the referenced svg files only depend on the stencil set file
+		String ssHash = new BuildCache.Key(VERSION).add(ssBytes).getHash();
+		File cachedNoSvgFile = cache != null ? cache.get(ssHash + "-nosvg.json") : null;
+		File cachedViews = cache != null ? cache.get(ssHash + ".views") : null;
 		
-		myInput.close();
-		fin.close();
+		String ssString = null;
+		List<String> views;
+		if(cachedNoSvgFile != null && cachedViews != null) {
+			BuildCache.copy(cachedNoSvgFile, ssNoSvgFile);
+			views = Arrays.asList(new String(BuildCache.read(cachedViews), "utf-8").split("\n", -1));
+			views = views.subList(0, views.size() - 1);
+		} else {
+			String original = new String(ssBytes, "utf-8");
+			ssString = normalizeLineBreaks(original);
+			
+			// store copy of original stencilset file (w/o SVG includes) with postfix '-nosvg'
+			if(ssString == original) {
+				OutputStream noSvgOutput = new FileOutputStream(ssNoSvgFile);
+				try {
+					noSvgOutput.write(ssBytes);
+				} finally {
+					noSvgOutput.close();
+				}
+			} else {
+				Writer noSvgOutput = openFile(ssNoSvgFile);
+				try {
+					noSvgOutput.write(ssString);
+				} finally {
+					noSvgOutput.close();
+				}
+			}
+			
+			views = new ArrayList<String>();
+			Matcher matcher = VIEW_PROPERTY.matcher(ssString);
+			while(matcher.find())
+				views.add(getViewFilename(matcher.group()));
+			
+			if(cache != null) {
+				File tempFile = cache.createTempFile(ssHash + "-nosvg.json");
+				BuildCache.copy(ssNoSvgFile, tempFile);
+				cache.put(ssHash + "-nosvg.json", tempFile);
+				tempFile = cache.createTempFile(ssHash + ".views");
+				Writer viewsOutput = openFile(tempFile);
+				try {
+					for(String view : views)
+						viewsOutput.write(view + "\n");
+				} finally {
+					viewsOutput.close();
+				}
+				cache.put(ssHash + ".views", tempFile);
+			}
+		}
 		
-		return result;
-	}
-	
-	private static void writeFile(File file, String text) throws Exception {
-		FileOutputStream fos =  new FileOutputStream(file);
+		//read the referenced svg files, each once
+		Map<String, byte[]> svgFiles = new LinkedHashMap<String, byte[]>();
+		for(String filename : views) {
+			if(svgFiles.containsKey(filename))
+				continue;
+			
+			File svgFile = new File(ssDir + "/view/" + filename);
+			
+			if(!svgFile.exists())
+				throw new Exception("SVG File " + svgFile.getPath() + " does not exists!. Compressing stencil sets aborted!");
+			
+			svgFiles.put(filename, BuildCache.read(svgFile));
+		}
 		
-		BufferedWriter myOutput = new BufferedWriter(new OutputStreamWriter(fos, "utf-8"));
+		if(cache == null) {
+			writeCompressed(ssFile, ssString, svgFiles);
+			return false;
+		}
 		
-		myOutput.write(text);
-		myOutput.flush();
+		BuildCache.Key key = new BuildCache.Key(VERSION).add(ssHash);
+		for(Map.Entry<String, byte[]> svgFile : svgFiles.entrySet())
+			key.add(svgFile.getKey()).add(svgFile.getValue());
+		String name = key.getHash() + ".json";
 		
-		myOutput.close();
-		fos.close();
+		File cached = cache.get(name);
+		boolean fromCache = cached != null;
+		if(!fromCache) {
+			if(ssString == null)
+				ssString = normalizeLineBreaks(new String(ssBytes, "utf-8"));
+			File tempFile = cache.createTempFile(name);
+			writeCompressed(tempFile, ssString, svgFiles);
+			cached = cache.put(name, tempFile);
+		}
+		BuildCache.copy(cached, ssFile);
+		return fromCache;
+	}
+
+	/**
+	 * Writes the stencil set with the content of the svg files as views.
+	 */
+	private static void writeCompressed(File file, String ssString, Map<String, byte[]> svgFiles) throws Exception {
+		Writer output = openFile(file);
+		try {
+			Matcher matcher = VIEW_PROPERTY.matcher(ssString);
+			int lastIndex = 0;
+			
+			//iterate all view properties
+			while(matcher.find()) {
+				output.write(ssString, lastIndex, matcher.start() - lastIndex);
+				
+				lastIndex = matcher.end();
+				
+				//append file content to output json file (replacing existing json file)
+				output.write("\"view\":\"");
+				writeSvg(output, new String(svgFiles.get(getViewFilename(matcher.group())), "utf-8"));
+				output.write("\"");
+			}
+			
+			output.write(ssString, lastIndex, ssString.length() - lastIndex);
+			
+			// png icons are not included, because it increases the throughput
+		} finally {
+			output.close();
+		}
+	}
+
+	private static String getViewFilename(String viewProperty) {
+		String filename = VIEW_PROPERTY_START.matcher(viewProperty).replaceFirst("");
+		return filename.substring(0, filename.length()-1);
+	}
+
+	/**
+	 * Writes the svg as one line of a JSON string: line breaks and other
+	 * whitespace become spaces and quotes are escaped. As before, each line
+	 * ends with a space, also the last one.
+	 */
+	private static void writeSvg(Writer output, String svg) throws Exception {
+		int length = svg.length();
+		for(int i = 0; i < length; i++) {
+			char c = svg.charAt(i);
+			switch(c) {
+			case '\r':
+				if(i + 1 < length && svg.charAt(i + 1) == '\n')
+					i++;
+				output.write(' ');
+				break;
+			case '\n':
+			case '\t':
+			case '\u000B':
+			case '\f':
+				output.write(' ');
+				break;
+			case '"':
+				output.write("\\\"");
+				break;
+			default:
+				output.write(c);
+			}
+		}
+		if(length > 0 && !endsWithLineBreak(svg))
+			output.write(' ');
+	}
+
+	/**
+	 * Terminates each line of the text with '\n', like the former reading of
+	 * the files line by line did.
+	 * 
+	 * @return The text itself if its lines are terminated like this
+	 */
+	private static String normalizeLineBreaks(String text) {
+		if(text.indexOf('\r') == -1 && (text.length() == 0 || endsWithLineBreak(text)))
+			return text;
+		StringBuilder result = new StringBuilder(text.length() + 1);
+		int length = text.length();
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if(c == '\r') {
+				if(i + 1 < length && text.charAt(i + 1) == '\n')
+					i++;
+				c = '\n';
+			}
+			result.append(c);
+		}
+		if(length > 0 && !endsWithLineBreak(text))
+			result.append('\n');
+		return result.toString();
+	}
+
+	private static boolean endsWithLineBreak(String text) {
+		char last = text.charAt(text.length() - 1);
+		return last == '\n' || last == '\r';
+	}
+
+	private static Writer openFile(File file) throws Exception {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf-8"), 65536);
 	}
-	
-	/*private static String encodeBase64(String text) {
-		byte[] encoded = Base64.encodeBase64(text.getBytes());
-		
-		return new String(encoded);
-	}*/
 }
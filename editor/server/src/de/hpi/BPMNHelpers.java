@@ -7,7 +7,6 @@ import java.io.RandomAccessFile;
 import java.io.StringWriter;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.xml.serialize.OutputFormat;
@@ -23,12 +22,12 @@ import de.hpi.bpmn.rdf.BPMNRDFImporter;
 import de.hpi.bpmn2pn.converter.HighConverter;
 import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.serialization.PetriNetPNMLExporter;
+import de.hpi.util.XMLFactories;
 
 public class BPMNHelpers {
 	public static void printBPMN(BPMNDiagram diagram){
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 			Document pnmlDoc = builder.newDocument();
 			PetriNet net = new HighConverter(diagram).convert();
 			PetriNetPNMLExporter exp = new PetriNetPNMLExporter();
@@ -57,8 +56,7 @@ public class BPMNHelpers {
 				rdf += zeile;
 			}
 			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
 			BPMNRDFImporter importer = new BPMNRDFImporter(document);
 			BPMNDiagram diagram = (BPMNDiagram) importer.loadBPMN();
@@ -22,6 +22,8 @@ import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.SAXException;
 
+import de.hpi.util.XMLFactories;
+
 /**
  * Parses the BPEL file and does the XML validation. In case validation is not
  * successful the private member validationException is set.
@@ -41,6 +43,18 @@ public class BPELParser {
 	protected static final String FILENAME_BPEL_ABSTRACT_SCHEMA = System.getProperty("catalina.home") + PATH_TO_LIB_DIR + "ws-bpel_abstract.xsd";
 	protected static final String FILENAME_XML_DEFINITION_SCHEMA = System.getProperty("catalina.home") + PATH_TO_LIB_DIR + "xml.xsd";
 		
+	/**
+	 * Namespace aware and ignoring comments; validation is turned off, we
+	 * use the new validation package
+	 */
+	private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+	
+	static {
+		factory.setValidating(false);
+		factory.setIgnoringComments(true);
+		factory.setNamespaceAware(true);
+	}
+	
 	protected boolean successfulValidation = false;
 
 	protected String validationException = "";
@@ -102,21 +116,11 @@ public class BPELParser {
 	
        // System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
 
-       // Get Document Builder Factory
-       DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-              
-       // turn off validation, we use the new validation package
-       factory.setValidating(false);
-       // ignore comments
-       factory.setIgnoringComments(true);
-       // turn on namespaces
-       factory.setNamespaceAware(true);
-       
        Document doc = null;
        
         try {
         	
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = XMLFactories.getDocumentBuilder(factory);
             doc = builder.parse(bpelStream);
             
             if (doc != null) {
@@ -16,6 +16,7 @@ import org.xml.sax.SAXParseException;
 import de.hpi.bpel4chor.util.Output;
 
 import de.hpi.bpel4chor.model.Diagram;
+import de.hpi.util.XMLFactories;
 
 /**
  * Parses the given XPDL4Chor diagram to the internal diagram representation.
@@ -23,6 +24,23 @@ import de.hpi.bpel4chor.model.Diagram;
  */
 public class Parser {
 	
+	/* Namespace aware factories with and without schema validation */
+	private static final DocumentBuilderFactory FACTORY = createFactory(false);
+	private static final DocumentBuilderFactory VALIDATING_FACTORY = createFactory(true);
+	
+	private static DocumentBuilderFactory createFactory(boolean validate) {
+		DocumentBuilderFactory factory = 
+			DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		
+		factory.setValidating(validate);				
+		
+		factory.setAttribute(
+			    "http://java.sun.com/xml/jaxp/properties/schemaLanguage",
+			    "http://www.w3.org/2001/XMLSchema");
+		return factory;
+	}
+	
 	/**
 	 * Sets up the document builder for parsing the XPDL4Chor.
 	 *  
@@ -33,18 +51,9 @@ public class Parser {
 	 * @return The document builder
 	 */
 	private static DocumentBuilder setUpBuilder(boolean validate, final Output output) {
-		DocumentBuilderFactory factory = 
-			DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		
-		factory.setValidating(validate);				
-		
-		factory.setAttribute(
-			    "http://java.sun.com/xml/jaxp/properties/schemaLanguage",
-			    "http://www.w3.org/2001/XMLSchema");
-		
 		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder(
+					validate ? VALIDATING_FACTORY : FACTORY);
 			builder.setErrorHandler(new ErrorHandler() {
 				public void error(SAXParseException exception) {
 					output.addError(exception);
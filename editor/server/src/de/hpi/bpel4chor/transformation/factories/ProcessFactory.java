@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import de.hpi.bpel4chor.model.Diagram;
 import de.hpi.bpel4chor.model.Process;
@@ -22,6 +21,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import de.hpi.bpel4chor.util.BPELUtil;
 import de.hpi.bpel4chor.util.Output;
+import de.hpi.util.XMLFactories;
 
 /**
  * This factory generates the abstract BPEL processes from the processes
@@ -346,7 +346,7 @@ public class ProcessFactory {
 	public Document transformProcess(Swimlane swimlane, Output output) {
 		DocumentBuilder builder;
 		try {
-			builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document process = builder.newDocument();
 			
 			Element processElement = createProcessElement(process, swimlane, output);
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import de.hpi.bpel4chor.model.Diagram;
 import de.hpi.bpel4chor.model.Pool;
@@ -23,6 +22,7 @@ import org.w3c.dom.Element;
 
 import de.hpi.bpel4chor.util.ListUtil;
 import de.hpi.bpel4chor.util.Output;
+import de.hpi.util.XMLFactories;
 
 /**
  * This factory generates the BPEL4Chor topology with the participant types
@@ -1194,7 +1194,7 @@ public class TopologyFactory {
 	public Document transformTopology() {
 		DocumentBuilder builder;
 		try {
-			builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			
 			Document topology = builder.newDocument();
 			
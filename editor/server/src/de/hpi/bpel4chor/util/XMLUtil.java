@@ -4,13 +4,13 @@ import java.io.StringWriter;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import de.hpi.util.XMLFactories;
 
 /**
  * This class provides helper methods for handling XML documents.
@@ -30,7 +30,7 @@ public class XMLUtil {
 	public static String nodeToString(Node node) throws 
 			TransformerFactoryConfigurationError, TransformerException {
 		Transformer transformer = 
-			TransformerFactory.newInstance().newTransformer();
+			XMLFactories.getTransformer();
 		transformer.setOutputProperty("omit-xml-declaration", "yes"); 
 		StringWriter sw = new StringWriter();
 		transformer.transform(new DOMSource(node), new StreamResult(sw));
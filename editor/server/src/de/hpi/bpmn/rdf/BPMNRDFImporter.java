@@ -1,11 +1,15 @@
 package de.hpi.bpmn.rdf;
 
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.Text;
@@ -57,6 +61,7 @@ import de.hpi.bpmn.XORDataBasedGateway;
 import de.hpi.bpmn.XOREventBasedGateway;
 import de.hpi.bpmn.Activity.LoopType;
 import de.hpi.bpmn.exec.ExecDataObject;
+import de.hpi.util.RDFStreamReader;
 
 /**
  * Copyright (c) 2008 Gero Decker
@@ -106,6 +111,12 @@ public class BPMNRDFImporter {
 		// resource id
 	}
 
+	/**
+	 * Creates an importer for {@link #loadBPMN(Reader)}.
+	 */
+	public BPMNRDFImporter() {
+	}
+
 	public BPMNRDFImporter(Document doc) {
 		this.doc = doc;
 	}
@@ -115,6 +126,54 @@ public class BPMNRDFImporter {
 		if (root == null)
 			return null;
 
+		ImportContext c = createImportContext();
+		List<Node> edges = new ArrayList<Node>();
+
+		// handle nodes
+		if (root.hasChildNodes()) {
+			Node node = root.getFirstChild();
+			while ((node = node.getNextSibling()) != null) {
+				handleNode(node, c, edges);
+			}
+		}
+
+		return completeImport(c, edges);
+	}
+
+	/**
+	 * Builds the diagram while the RDF document is read, without loading
+	 * the whole document into a DOM first. The result is the same as
+	 * parsing the document and calling {@link #loadBPMN()}.
+	 * 
+	 * @param rdf the RDF document
+	 * @return the diagram or null if the document is not RDF
+	 * @throws XMLStreamException
+	 * @throws ParserConfigurationException
+	 */
+	public BPMNDiagram loadBPMN(Reader rdf) throws XMLStreamException, ParserConfigurationException {
+		RDFStreamReader reader = new RDFStreamReader(rdf);
+		try {
+			if (!reader.isRDF())
+				return null;
+
+			ImportContext c = createImportContext();
+			List<Node> edges = new ArrayList<Node>();
+
+			// handle nodes, the first child is skipped like in loadBPMN()
+			Node node = reader.nextNode();
+			if (node != null) {
+				while ((node = reader.nextNode()) != null) {
+					handleNode(node, c, edges);
+				}
+			}
+
+			return completeImport(c, edges);
+		} finally {
+			reader.close();
+		}
+	}
+
+	protected ImportContext createImportContext() {
 		// TODO: find out the type of BPMN
 		factory = new BPMNFactory(); // for the moment: assume plain BPMN
 
@@ -125,118 +184,119 @@ public class BPMNRDFImporter {
 		c.connections = new HashMap<String, de.hpi.bpmn.DiagramObject> (); // key = to resource id, value = from
 		// node
 		c.parentRelationships = new HashMap<de.hpi.bpmn.Node, String>();
+		return c;
+	}
 
-		List<Node> edges = new ArrayList<Node>();
-
-		// handle nodes
-		if (root.hasChildNodes()) {
-			Node node = root.getFirstChild();
-			while ((node = node.getNextSibling()) != null) {
-				if (node instanceof Text)
-					continue;
-
-				String type = getType(node);
-				if (type == null)
-					continue;
-
-				if (type.equals("BPMNDiagram")) {
-					handleDiagram(node, c);
-				} else if (type.equals("Pool")) {
-					addPool(node, c);
-				} else if (type.equals("Lane")) {
-					addLane(node, c);
-				} else if (type.equals("Task")) {
-					addTask(node, c);
-				} else if (type.equals("Subprocess")) {
-					addSubProcess(node, c);
-
-				} else if (type.equals("StartEvent")) {
-					addStartPlainEvent(node, c);
-				} else if (type.equals("StartMessageEvent")) {
-					addStartMessageEvent(node, c);
-				} else if (type.equals("StartTimerEvent")) {
-					addStartTimerEvent(node, c);
-				} else if (type.equals("StartRuleEvent")) {
-					addStartRuleEvent(node, c);
-				} else if (type.equals("StartLinkEvent")) {
-					addStartLinkEvent(node, c);
-				} else if (type.equals("StartMultipleEvent")) {
-					addStartMultipleEvent(node, c);
-
-				} else if (type.equals("IntermediateEvent")) {
-					addIntermediatePlainEvent(node, c);
-				} else if (type.equals("IntermediateMessageEvent")) {
-					addIntermediateMessageEvent(node, c);
-				} else if (type.equals("IntermediateErrorEvent")) {
-					addIntermediateErrorEvent(node, c);
-				} else if (type.equals("IntermediateTimerEvent")) {
-					addIntermediateTimerEvent(node, c);
-				} else if (type.equals("IntermediateCancelEvent")) {
-					addIntermediateCancelEvent(node, c);
-				} else if (type.equals("IntermediateCompensationEvent")) {
-					addIntermediateCompensationEvent(node, c);
-				} else if (type.equals("IntermediateRuleEvent")) {
-					addIntermediateRuleEvent(node, c);
-				} else if (type.equals("IntermediateLinkEvent")) {
-					addIntermediateLinkEvent(node, c);
-				} else if (type.equals("IntermediateMultipleEvent")) {
-					addIntermediateMultipleEvent(node, c);
-
-					// TODO: talk to Martin regarding other end events...
-				} else if (type.equals("EndEvent")) {
-					String result = getContent(getChild(node, "result"));
-					if (result.equals("None")) {
-						addEndPlainEvent(node, c);
-					} else if (result.equals("Cancel")) {
-						addEndCancelEvent(node, c);
-					} else if (result.equals("Compensation")) {
-						addEndCompensationEvent(node, c);
-					} else if (result.equals("Message")) {
-						addEndMessageEvent(node, c);
-					} else if (result.equals("Terminate")) {
-						addEndTerminateEvent(node, c);
-					} else if (result.equals("Error")) {
-						addEndErrorEvent(node, c);
-					}
-
-				} else if (type.equals("Exclusive_Databased_Gateway")) {
-					addXORDataBasedGateway(node, c);
-				} else if (type.equals("Exclusive_Eventbased_Gateway")) {
-					addXOREventBasedGateway(node, c);
-				} else if (type.equals("AND_Gateway")) {
-					addANDGateway(node, c);
-				} else if (type.equals("Complex_Gateway")) {
-					addComplexGateway(node, c);
-				} else if (type.equals("OR_Gateway")) {
-					addORGateway(node, c);
-
-				} else if (type.equals("DataObject")) {
-					addDataObject(node, c);
-				} else if (type.equals("TextAnnotation")) {
-					addTextAnnotation(node, c);
-
-				} else if (type.equals("SequenceFlow")) {
-					edges.add(node);
-				} else if (type.equals("MessageFlow")) {
-					edges.add(node);
-				} else if (type.equals("DefaultFlow")) {
-					edges.add(node);
-				} else if (type.equals("ConditionalFlow")) {
-					edges.add(node);
-				} else if (type.equals("Association_Unidirectional")) {
-					edges.add(node);
-				} else if (type.equals("Association_Bidirectional")) {
-					edges.add(node);
-				} else if (type.equals("Association_Undirected")) {
-					edges.add(node);
-					// } else if (type.equals("Association_Unidirectional")) {
-					// addAssociation_Unidirectional(diagram, node, map);
-					// } else if (type.equals("Association_Undirected")) {
-					// addAssociation_Undirected(diagram, node, map);
-				}
+	/**
+	 * Handles a child of the rdf:RDF element. Edges are collected and added
+	 * by {@link #completeImport(ImportContext, List)} once all nodes are known.
+	 */
+	protected void handleNode(Node node, ImportContext c, List<Node> edges) {
+		if (node instanceof Text)
+			return;
+
+		String type = getType(node);
+		if (type == null)
+			return;
+
+		if (type.equals("BPMNDiagram")) {
+			handleDiagram(node, c);
+		} else if (type.equals("Pool")) {
+			addPool(node, c);
+		} else if (type.equals("Lane")) {
+			addLane(node, c);
+		} else if (type.equals("Task")) {
+			addTask(node, c);
+		} else if (type.equals("Subprocess")) {
+			addSubProcess(node, c);
+
+		} else if (type.equals("StartEvent")) {
+			addStartPlainEvent(node, c);
+		} else if (type.equals("StartMessageEvent")) {
+			addStartMessageEvent(node, c);
+		} else if (type.equals("StartTimerEvent")) {
+			addStartTimerEvent(node, c);
+		} else if (type.equals("StartRuleEvent")) {
+			addStartRuleEvent(node, c);
+		} else if (type.equals("StartLinkEvent")) {
+			addStartLinkEvent(node, c);
+		} else if (type.equals("StartMultipleEvent")) {
+			addStartMultipleEvent(node, c);
+
+		} else if (type.equals("IntermediateEvent")) {
+			addIntermediatePlainEvent(node, c);
+		} else if (type.equals("IntermediateMessageEvent")) {
+			addIntermediateMessageEvent(node, c);
+		} else if (type.equals("IntermediateErrorEvent")) {
+			addIntermediateErrorEvent(node, c);
+		} else if (type.equals("IntermediateTimerEvent")) {
+			addIntermediateTimerEvent(node, c);
+		} else if (type.equals("IntermediateCancelEvent")) {
+			addIntermediateCancelEvent(node, c);
+		} else if (type.equals("IntermediateCompensationEvent")) {
+			addIntermediateCompensationEvent(node, c);
+		} else if (type.equals("IntermediateRuleEvent")) {
+			addIntermediateRuleEvent(node, c);
+		} else if (type.equals("IntermediateLinkEvent")) {
+			addIntermediateLinkEvent(node, c);
+		} else if (type.equals("IntermediateMultipleEvent")) {
+			addIntermediateMultipleEvent(node, c);
+
+			// TODO: talk to Martin regarding other end events...
+		} else if (type.equals("EndEvent")) {
+			String result = getContent(getChild(node, "result"));
+			if (result.equals("None")) {
+				addEndPlainEvent(node, c);
+			} else if (result.equals("Cancel")) {
+				addEndCancelEvent(node, c);
+			} else if (result.equals("Compensation")) {
+				addEndCompensationEvent(node, c);
+			} else if (result.equals("Message")) {
+				addEndMessageEvent(node, c);
+			} else if (result.equals("Terminate")) {
+				addEndTerminateEvent(node, c);
+			} else if (result.equals("Error")) {
+				addEndErrorEvent(node, c);
 			}
+
+		} else if (type.equals("Exclusive_Databased_Gateway")) {
+			addXORDataBasedGateway(node, c);
+		} else if (type.equals("Exclusive_Eventbased_Gateway")) {
+			addXOREventBasedGateway(node, c);
+		} else if (type.equals("AND_Gateway")) {
+			addANDGateway(node, c);
+		} else if (type.equals("Complex_Gateway")) {
+			addComplexGateway(node, c);
+		} else if (type.equals("OR_Gateway")) {
+			addORGateway(node, c);
+
+		} else if (type.equals("DataObject")) {
+			addDataObject(node, c);
+		} else if (type.equals("TextAnnotation")) {
+			addTextAnnotation(node, c);
+
+		} else if (type.equals("SequenceFlow")) {
+			edges.add(node);
+		} else if (type.equals("MessageFlow")) {
+			edges.add(node);
+		} else if (type.equals("DefaultFlow")) {
+			edges.add(node);
+		} else if (type.equals("ConditionalFlow")) {
+			edges.add(node);
+		} else if (type.equals("Association_Unidirectional")) {
+			edges.add(node);
+		} else if (type.equals("Association_Bidirectional")) {
+			edges.add(node);
+		} else if (type.equals("Association_Undirected")) {
+			edges.add(node);
+			// } else if (type.equals("Association_Unidirectional")) {
+			// addAssociation_Unidirectional(diagram, node, map);
+			// } else if (type.equals("Association_Undirected")) {
+			// addAssociation_Undirected(diagram, node, map);
 		}
+	}
 
+	protected BPMNDiagram completeImport(ImportContext c, List<Node> edges) {
 		// handle edges (except undirected associations)
 		for (Node edgeNode : edges) {
 			String type = getType(edgeNode);
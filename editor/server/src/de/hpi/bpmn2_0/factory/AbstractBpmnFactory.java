@@ -25,12 +25,9 @@ package de.hpi.bpmn2_0.factory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
 
 import org.oryxeditor.server.diagram.Shape;
 
-import de.hpi.bpmn2_0.annotations.Property;
-import de.hpi.bpmn2_0.annotations.StencilId;
 import de.hpi.bpmn2_0.exceptions.BpmnConverterException;
 import de.hpi.bpmn2_0.model.BaseElement;
 import de.hpi.bpmn2_0.model.Documentation;
@@ -111,20 +108,16 @@ public abstract class AbstractBpmnFactory {
 			InvocationTargetException, BpmnConverterException {
 
 		/* Retrieve the method to create the process element */
-		for (Method method : Arrays
-				.asList(this.getClass().getDeclaredMethods())) {
-			StencilId stencilIdA = method.getAnnotation(StencilId.class);
-			if (stencilIdA != null
-					&& Arrays.asList(stencilIdA.value()).contains(
-							shape.getStencilId())) {
-				/* Create element with appropriate method */
-				BaseElement createdElement = (BaseElement) method.invoke(this,
-						shape);
-				/* Invoke generalized method to set common element attributes */
-				this.setCommonAttributes(createdElement, shape);
-				
-				return createdElement;
-			}
+		Method method = CreatorMethodRegistry.getCreatorMethods(this.getClass())
+				.getByStencilId(shape.getStencilId());
+		if (method != null) {
+			/* Create element with appropriate method */
+			BaseElement createdElement = (BaseElement) method.invoke(this,
+					shape);
+			/* Invoke generalized method to set common element attributes */
+			this.setCommonAttributes(createdElement, shape);
+
+			return createdElement;
 		}
 
 		throw new BpmnConverterException("Creator method for shape with id "
@@ -135,22 +128,16 @@ public abstract class AbstractBpmnFactory {
 			throws BpmnConverterException, IllegalArgumentException,
 			IllegalAccessException, InvocationTargetException {
 
-		for (Method method : Arrays
-				.asList(this.getClass().getMethods())) {
-			Property property = method.getAnnotation(Property.class);
-
-			if (property != null
-					&& Arrays.asList(property.value()).contains(
-							shape.getProperty(property.name()))) {
-				
-				/* Create element */
-				BaseElement createdElement = (BaseElement) method.invoke(this,
-						shape);
-				/* Invoke generalized method to set common element attributes */
-				this.setCommonAttributes(createdElement, shape);
-				
-				return createdElement;
-			}
+		Method method = CreatorMethodRegistry.getCreatorMethods(this.getClass())
+				.getByProperty(shape);
+		if (method != null) {
+			/* Create element */
+			BaseElement createdElement = (BaseElement) method.invoke(this,
+					shape);
+			/* Invoke generalized method to set common element attributes */
+			this.setCommonAttributes(createdElement, shape);
+
+			return createdElement;
 		}
 
 		throw new BpmnConverterException("Creator method for shape with id "
@@ -0,0 +1,160 @@
+package de.hpi.bpmn2_0.factory;
+
+/**
+ * Copyright (c) 2010
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.oryxeditor.server.diagram.Shape;
+
+import de.hpi.bpmn2_0.annotations.Property;
+import de.hpi.bpmn2_0.annotations.StencilId;
+
+/**
+ * Dispatch tables of the creator methods of the BPMN 2.0 factories.
+ *
+ * The annotations {@link StencilId} and {@link Property} of a factory class
+ * are read once, afterwards the creator method for a shape is found with a
+ * hash lookup instead of a walk over all methods of the factory.
+ */
+public class CreatorMethodRegistry {
+
+	private static final Map<Class<?>, CreatorMethods> registry = new ConcurrentHashMap<Class<?>, CreatorMethods>();
+
+	/**
+	 * Builds the dispatch tables of the given factory classes in advance.
+	 *
+	 * @param factoryClasses
+	 *            The factory classes
+	 */
+	public static void register(
+			List<Class<? extends AbstractBpmnFactory>> factoryClasses) {
+		for (Class<? extends AbstractBpmnFactory> factoryClass : factoryClasses) {
+			getCreatorMethods(factoryClass);
+		}
+	}
+
+	/**
+	 * Returns the dispatch tables of a factory class, they are built on first
+	 * access.
+	 *
+	 * @param factoryClass
+	 *            The factory class
+	 * @return The creator methods of the factory
+	 */
+	public static CreatorMethods getCreatorMethods(Class<?> factoryClass) {
+		CreatorMethods methods = registry.get(factoryClass);
+		if (methods == null) {
+			methods = new CreatorMethods(factoryClass);
+			registry.put(factoryClass, methods);
+		}
+		return methods;
+	}
+
+	/**
+	 * The creator methods of a single factory class.
+	 */
+	public static class CreatorMethods {
+
+		/* Stencil id -> creator method, from the declared methods */
+		private final Map<String, Method> byStencilId;
+
+		/*
+		 * Property name -> (property value -> creator method), from the public
+		 * methods
+		 */
+		private final Map<String, Map<String, Method>> byProperty;
+
+		private CreatorMethods(Class<?> factoryClass) {
+			Map<String, Method> stencilMethods = new HashMap<String, Method>();
+			for (Method method : factoryClass.getDeclaredMethods()) {
+				StencilId stencilIdA = method.getAnnotation(StencilId.class);
+				if (stencilIdA == null)
+					continue;
+
+				method.setAccessible(true);
+				for (String stencilId : stencilIdA.value()) {
+					if (!stencilMethods.containsKey(stencilId))
+						stencilMethods.put(stencilId, method);
+				}
+			}
+
+			Map<String, Map<String, Method>> propertyMethods = new LinkedHashMap<String, Map<String, Method>>();
+			for (Method method : factoryClass.getMethods()) {
+				Property property = method.getAnnotation(Property.class);
+				if (property == null)
+					continue;
+
+				Map<String, Method> byValue = propertyMethods.get(property
+						.name());
+				if (byValue == null) {
+					byValue = new HashMap<String, Method>();
+					propertyMethods.put(property.name(), byValue);
+				}
+				for (String value : Arrays.asList(property.value())) {
+					if (!byValue.containsKey(value))
+						byValue.put(value, method);
+				}
+			}
+
+			this.byStencilId = Collections.unmodifiableMap(stencilMethods);
+			this.byProperty = Collections.unmodifiableMap(propertyMethods);
+		}
+
+		/**
+		 * @param stencilId
+		 *            The stencil id of a shape
+		 * @return The creator method annotated with the stencil id or
+		 *         <code>null</code>
+		 */
+		public Method getByStencilId(String stencilId) {
+			return byStencilId.get(stencilId);
+		}
+
+		/**
+		 * @param shape
+		 *            The resource shape
+		 * @return The creator method whose {@link Property} annotation
+		 *         matches a property value of the shape or <code>null</code>
+		 */
+		public Method getByProperty(Shape shape) {
+			for (Map.Entry<String, Map<String, Method>> entry : byProperty
+					.entrySet()) {
+				String value = shape.getProperty(entry.getKey());
+				if (value == null)
+					continue;
+
+				Method method = entry.getValue().get(value);
+				if (method != null)
+					return method;
+			}
+			return null;
+		}
+	}
+}
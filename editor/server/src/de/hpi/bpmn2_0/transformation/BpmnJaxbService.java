@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2010
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.hpi.bpmn2_0.transformation;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.servlet.ServletContext;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+
+import de.hpi.bpmn2_0.model.Definitions;
+
+/**
+ * Application wide access point to the JAXB binding of the BPMN 2.0 model.
+ *
+ * Creating the {@link JAXBContext} for {@link Definitions} and compiling the
+ * BPMN 2.0 XML schema are by far the most expensive steps of an import or
+ * export. Both are done once per service instance, the created
+ * {@link Marshaller} and {@link Unmarshaller} objects are kept in bounded
+ * pools and reused by subsequent requests.
+ *
+ * Schema validation is optional for each call. Pass a
+ * {@link ValidationEventHandler} to validate against the BPMN 2.0 schema, or
+ * <code>null</code> to skip validation. A service without a schema serves
+ * the calls that skip validation, a call that requests validation fails
+ * instead of silently skipping it.
+ */
+public class BpmnJaxbService {
+
+	/**
+	 * Name of the servlet context attribute holding the shared instance
+	 */
+	public static final String CONTEXT_ATTRIBUTE = BpmnJaxbService.class.getName();
+
+	/**
+	 * Location of the BPMN 2.0 schema inside the web application
+	 */
+	public static final String SCHEMA_PATH = "/WEB-INF/lib/xsd/bpmn20/BPMN20.xsd";
+
+	/**
+	 * Default number of idle marshallers and unmarshallers kept per pool
+	 */
+	public static final int DEFAULT_POOL_SIZE = 16;
+
+	private final JAXBContext context;
+	private final Schema schema;
+
+	private final BlockingQueue<Marshaller> marshallers;
+	private final BlockingQueue<Unmarshaller> unmarshallers;
+
+	/**
+	 * Returns the service instance shared by all servlets of the given web
+	 * application. The instance is created on first access, without a schema
+	 * if {@link #SCHEMA_PATH} is missing. Servlets that validate check
+	 * {@link #getSchema()} when they start.
+	 *
+	 * @param servletContext
+	 *            The servlet context of the web application
+	 * @return The shared service
+	 * @throws JAXBException
+	 *             The JAXB context could not be created
+	 * @throws SAXException
+	 *             The BPMN 2.0 schema could not be compiled
+	 */
+	public static BpmnJaxbService getInstance(ServletContext servletContext)
+			throws JAXBException, SAXException {
+		synchronized (servletContext) {
+			BpmnJaxbService service = (BpmnJaxbService) servletContext
+					.getAttribute(CONTEXT_ATTRIBUTE);
+			if (service == null) {
+				URL schemaUrl;
+				try {
+					schemaUrl = servletContext.getResource(SCHEMA_PATH);
+				} catch (MalformedURLException e) {
+					throw new SAXException(e);
+				}
+				service = new BpmnJaxbService(schemaUrl, DEFAULT_POOL_SIZE);
+				servletContext.setAttribute(CONTEXT_ATTRIBUTE, service);
+			}
+			return service;
+		}
+	}
+
+	/**
+	 * @param schemaFile
+	 *            The BPMN 2.0 XML schema, may be <code>null</code> if
+	 *            validation is never requested
+	 * @param poolSize
+	 *            Maximum number of idle marshallers and unmarshallers kept
+	 *            for reuse
+	 * @throws JAXBException
+	 * @throws SAXException
+	 *             The schema file does not exist or could not be compiled
+	 */
+	public BpmnJaxbService(File schemaFile, int poolSize) throws JAXBException,
+			SAXException {
+		this(compile(schemaFile), poolSize);
+	}
+
+	/**
+	 * @param schemaUrl
+	 *            The location of the BPMN 2.0 XML schema, may be
+	 *            <code>null</code> if validation is never requested
+	 * @param poolSize
+	 *            Maximum number of idle marshallers and unmarshallers kept
+	 *            for reuse
+	 * @throws JAXBException
+	 * @throws SAXException
+	 *             The schema could not be read or compiled
+	 */
+	public BpmnJaxbService(URL schemaUrl, int poolSize) throws JAXBException,
+			SAXException {
+		this(schemaUrl != null ? newSchemaFactory().newSchema(schemaUrl) : null,
+				poolSize);
+	}
+
+	private BpmnJaxbService(Schema schema, int poolSize) throws JAXBException {
+		this.context = JAXBContext.newInstance(Definitions.class);
+		this.schema = schema;
+
+		this.marshallers = new ArrayBlockingQueue<Marshaller>(poolSize);
+		this.unmarshallers = new ArrayBlockingQueue<Unmarshaller>(poolSize);
+	}
+
+	private static Schema compile(File schemaFile) throws SAXException {
+		if (schemaFile == null)
+			return null;
+		if (!schemaFile.exists())
+			throw new SAXException("The BPMN 2.0 schema " + schemaFile
+					+ " does not exist");
+		return newSchemaFactory().newSchema(schemaFile);
+	}
+
+	private static SchemaFactory newSchemaFactory() {
+		return SchemaFactory
+				.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
+	}
+
+	/**
+	 * @return The JAXB context of the BPMN 2.0 model
+	 */
+	public JAXBContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return The compiled BPMN 2.0 schema or <code>null</code> if the
+	 *         service was created without one
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Writes the BPMN 2.0 XML of the given definitions.
+	 *
+	 * @param definitions
+	 *            The BPMN 2.0 model
+	 * @param writer
+	 *            The target of the XML document
+	 * @param validationHandler
+	 *            Receives schema validation events, <code>null</code>
+	 *            disables schema validation
+	 * @throws JAXBException
+	 */
+	public void marshal(Definitions definitions, Writer writer,
+			ValidationEventHandler validationHandler) throws JAXBException {
+		if (validationHandler != null)
+			requireSchema();
+		Marshaller marshaller = borrowMarshaller();
+		try {
+			if (validationHandler != null) {
+				marshaller.setSchema(schema);
+				marshaller.setEventHandler(validationHandler);
+			}
+			marshaller.marshal(definitions, writer);
+		} finally {
+			releaseMarshaller(marshaller);
+		}
+	}
+
+	/**
+	 * Reads BPMN 2.0 XML into the model.
+	 *
+	 * @param reader
+	 *            The source of the XML document
+	 * @param validationHandler
+	 *            Receives schema validation events, <code>null</code>
+	 *            disables schema validation
+	 * @return The BPMN 2.0 definitions
+	 * @throws JAXBException
+	 */
+	public Definitions unmarshal(Reader reader,
+			ValidationEventHandler validationHandler) throws JAXBException {
+		if (validationHandler != null)
+			requireSchema();
+		Unmarshaller unmarshaller = borrowUnmarshaller();
+		try {
+			if (validationHandler != null) {
+				unmarshaller.setSchema(schema);
+				unmarshaller.setEventHandler(validationHandler);
+			}
+			return (Definitions) unmarshaller.unmarshal(reader);
+		} finally {
+			releaseUnmarshaller(unmarshaller);
+		}
+	}
+
+	private void requireSchema() throws JAXBException {
+		if (schema == null)
+			throw new JAXBException(
+					"Validation was requested, but the service has no BPMN 2.0 schema");
+	}
+
+	private Marshaller borrowMarshaller() throws JAXBException {
+		Marshaller marshaller = marshallers.poll();
+		if (marshaller == null) {
+			marshaller = context.createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT,
+					Boolean.TRUE);
+			marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper",
+					new BPMNPrefixMapper());
+		}
+		return marshaller;
+	}
+
+	private void releaseMarshaller(Marshaller marshaller) {
+		try {
+			/* Reset per call settings before the marshaller is reused */
+			marshaller.setSchema(null);
+			marshaller.setEventHandler(null);
+		} catch (JAXBException e) {
+			/* Do not reuse a marshaller in an unknown state */
+			return;
+		}
+		marshallers.offer(marshaller);
+	}
+
+	private Unmarshaller borrowUnmarshaller() throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		if (unmarshaller == null) {
+			unmarshaller = context.createUnmarshaller();
+		}
+		return unmarshaller;
+	}
+
+	private void releaseUnmarshaller(Unmarshaller unmarshaller) {
+		try {
+			unmarshaller.setSchema(null);
+			unmarshaller.setEventHandler(null);
+		} catch (JAXBException e) {
+			return;
+		}
+		unmarshallers.offer(unmarshaller);
+	}
+}
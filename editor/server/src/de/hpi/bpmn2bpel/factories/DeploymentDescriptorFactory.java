@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -15,6 +14,7 @@ import de.hpi.bpmn.Container;
 import de.hpi.bpmn.Process;
 import de.hpi.bpmn.Task;
 import de.hpi.bpmn2bpel.model.Container4BPEL;
+import de.hpi.util.XMLFactories;
 
 /**
  * This class creates the deployment descriptor for the Apache ODE BPEL-Engine.
@@ -50,7 +50,7 @@ public class DeploymentDescriptorFactory {
 	public Document generateDeploymentDescriptor() {
 		DocumentBuilder builder;
 		try {
-			builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.newDocument();
 			
 			/* Create deploy root element */
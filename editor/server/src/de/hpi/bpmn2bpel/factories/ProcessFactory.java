@@ -2,8 +2,6 @@ package de.hpi.bpmn2bpel.factories;
 
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -16,6 +14,7 @@ import de.hpi.bpmn.BPMNDiagram;
 import de.hpi.bpmn.Container;
 import de.hpi.bpmn.Pool;
 import de.hpi.bpmn2bpel.model.Container4BPEL;
+import de.hpi.util.XMLFactories;
 
 /**
  * This factory generates the abstract BPEL processes from the processes
@@ -364,15 +363,8 @@ public class ProcessFactory {
 	 * {@link ParserConfigurationException} occurred.
 	 */
 	public Document transformProcess(Pool pool, Output output) {
-		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		documentBuilderFactory.setNamespaceAware(true);
-		documentBuilderFactory.setValidating(false);
-		
-		DocumentBuilder builder;
 		try {
-			builder = documentBuilderFactory.newDocumentBuilder();
-			
-			Document process = builder.newDocument();
+			Document process = XMLFactories.getNamespaceAwareDocumentBuilder().newDocument();
 			
 			Element processElement = createProcessElement(process, pool, output);
 			
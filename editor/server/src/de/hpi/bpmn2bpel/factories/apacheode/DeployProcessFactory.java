@@ -13,7 +13,6 @@ import java.util.List;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.log4j.Logger;
@@ -28,6 +27,7 @@ import de.hpi.bpmn2bpel.TransformationResult;
 import de.hpi.bpmn2bpel.TransformationResult.Type;
 import de.hpi.bpmn2bpel.factories.apacheode.deploymentservice.DeploymentServiceLayer;
 import de.hpi.bpmn2bpel.factories.apacheode.deploymentservice.stub.DeployUnit;
+import de.hpi.util.XMLFactories;
 
 /**
  * This class provides methods to create the process WSDL and the deployment
@@ -79,9 +79,7 @@ public class DeployProcessFactory {
 		/* document builder */
 		DocumentBuilder builder = null;
 		try {
-			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-			documentBuilderFactory.setNamespaceAware(true);
-			builder = documentBuilderFactory.newDocumentBuilder();
+			builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 		} catch (ParserConfigurationException e) {
 			logger.error(e.getMessage(), e);
 		}
@@ -610,16 +608,10 @@ public class DeployProcessFactory {
 		
 		/* Wrap WSDL string in an InputSource for the DocumentBuilder */
 		InputSource stringSource         = new InputSource(new StringReader(stringVar));
-		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		
-		/* Activate validation and namespace support */
-		documentBuilderFactory.setValidating(false);
-		documentBuilderFactory.setNamespaceAware(true);
-		
-		/* Create the w3c.dom.Document */
+		/* Create the w3c.dom.Document, without validation and with namespace support */
 		Document docDocument = null;
 		try {
-			docDocument = documentBuilderFactory.newDocumentBuilder().parse(stringSource);
+			docDocument = XMLFactories.getNamespaceAwareDocumentBuilder().parse(stringSource);
 		} catch (Exception e) {
 			logger.error("Cannnot create document from string", e);
 		} 	
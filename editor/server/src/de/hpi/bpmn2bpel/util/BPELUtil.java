@@ -6,7 +6,6 @@ import java.util.List;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -16,6 +15,7 @@ import de.hpi.bpel4chor.model.activities.Activity;
 import de.hpi.bpel4chor.model.supporting.Correlation;
 import de.hpi.bpmn.Node;
 import de.hpi.bpmn.Task;
+import de.hpi.util.XMLFactories;
 
 /**
  * This class provides helper methods for generating the BPEL4Chor elements.
@@ -168,8 +168,7 @@ public class BPELUtil {
 		String xmlString = null;
 		
 		try {
-			Transformer transformer = TransformerFactory.newInstance()
-					.newTransformer();
+			Transformer transformer = XMLFactories.getTransformer();
 			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
 			transformer.setOutputProperty(OutputKeys.METHOD, "xml");
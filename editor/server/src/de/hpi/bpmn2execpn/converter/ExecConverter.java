@@ -24,7 +24,6 @@ import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -65,6 +64,7 @@ import de.hpi.petrinet.FlowRelationship;
 import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.Place;
 import de.hpi.petrinet.Transition;
+import de.hpi.util.XMLFactories;
 
 public class ExecConverter extends Converter {
 
@@ -1372,8 +1372,7 @@ public class ExecConverter extends Converter {
 
 	            // Write the DOM document to the file
 	            // Get Transformer
-	            Transformer transformer = TransformerFactory.newInstance()
-	                    .newTransformer();
+	            Transformer transformer = XMLFactories.getTransformer();
 	            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
 
 	            // Write to a String
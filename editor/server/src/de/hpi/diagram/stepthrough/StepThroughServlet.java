@@ -9,7 +9,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -32,6 +31,7 @@ import de.hpi.epc.stepthrough.StepThroughEPCSyntaxChecker;
 import de.hpi.petrinet.stepthrough.AutoSwitchLevel;
 import de.hpi.petrinet.stepthrough.STMapper;
 import de.hpi.petrinet.stepthrough.STSyntaxChecker;
+import de.hpi.util.XMLFactories;
 
 public class StepThroughServlet extends HttpServlet {
 	// The servlet is responsible for getting the Ajax request,
@@ -49,8 +49,7 @@ public class StepThroughServlet extends HttpServlet {
 			// Load rdf and convert it to a BPMNDiagram
 			String rdf = req.getParameter("rdf");
 			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
 			
 			processDocument(document, req, res);
@@ -1,11 +1,15 @@
 package de.hpi.ibpmn.rdf;
 
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.Text;
@@ -37,6 +41,7 @@ import de.hpi.ibpmn.IntermediateInteraction;
 import de.hpi.ibpmn.OwnedNode;
 import de.hpi.ibpmn.Pool;
 import de.hpi.ibpmn.StartInteraction;
+import de.hpi.util.RDFStreamReader;
 
 /**
  * main method: loadBPMN()
@@ -61,6 +66,12 @@ public class IBPMNRDFImporter {
 		Map<de.hpi.bpmn.DiagramObject,String[]> owningRolesMap = new HashMap<de.hpi.bpmn.DiagramObject, String[]>(); // key = node, value = list of roles
 	}
 	
+	/**
+	 * Creates an importer for {@link #loadIBPMN(Reader)}.
+	 */
+	public IBPMNRDFImporter() {
+	}
+	
 	public IBPMNRDFImporter(Document doc) {
 		this.doc = doc;
 	}
@@ -69,101 +80,146 @@ public class IBPMNRDFImporter {
 		Node root = getRootNode(doc);
 		if (root == null) return null;
 		
-		factory = new IBPMNFactory(); // for the moment: assume plain BPMN
-		
-		ImportContext c = new ImportContext();
-		c.diagram = factory.createIBPMNDiagram();
-		
+		ImportContext c = createImportContext();
 		List<Node> edges = new ArrayList<Node>();
 		
 		// handle nodes
 		for (Node node=root.getFirstChild(); node != null; node=node.getNextSibling()) {
-			if (node instanceof Text) continue;
+			handleNode(node, c, edges);
+		}
+		
+		return completeImport(c, edges);
+	}
+	
+	/**
+	 * Builds the diagram while the RDF document is read, without loading
+	 * the whole document into a DOM first. The result is the same as
+	 * parsing the document and calling {@link #loadIBPMN()}.
+	 * 
+	 * @param rdf the RDF document
+	 * @return the diagram or null if the document is not RDF
+	 * @throws XMLStreamException
+	 * @throws ParserConfigurationException
+	 */
+	public IBPMNDiagram loadIBPMN(Reader rdf) throws XMLStreamException, ParserConfigurationException {
+		RDFStreamReader reader = new RDFStreamReader(rdf);
+		try {
+			if (!reader.isRDF()) return null;
 			
-			String type = getType(node);
-			if (type == null) continue;
+			ImportContext c = createImportContext();
+			List<Node> edges = new ArrayList<Node>();
 			
-			if (type.equals("IBPMNDiagram")) {
-				handleDiagram(node, c);
-			} else if (type.equals("Pool")) {
-				addPool(node, c, false);
-			} else if (type.equals("PoolSet")) { 
-				addPool(node, c, true);
-			} else if (type.equals("ComplexInteraction")) {
-				addComplexInteraction(node, c);
-			} else if (type.equals("ComplexInteractionCollapsed")) {
-				addComplexInteraction(node, c);
-				
-			} else if (type.equals("StartEvent")) {
-				addStartPlainEvent(node, c);
-			} else if (type.equals("StartInteraction")) {
-				addStartInteraction(node, c);
-			} else if (type.equals("StartTimerEvent")) {
-				addStartTimerEvent(node, c);
-//			} else if (type.equals("StartRuleEvent")) {
-//				addStartRuleEvent(node, c);
-//			} else if (type.equals("StartLinkEvent")) {
-//				addStartLinkEvent(node, c);
-//			} else if (type.equals("StartMultipleEvent")) {
-//				addStartMultipleEvent(node, c);
-				
-//			} else if (type.equals("IntermediateEvent")) {
-//				addIntermediatePlainEvent(node, c);
-			} else if (type.equals("IntermediateInteraction")) {
-				addIntermediateInteraction(node, c);
-//			} else if (type.equals("IntermediateErrorEvent")) {
-//				addIntermediateErrorEvent(node, c);
-			} else if (type.equals("IntermediateTimerEvent")) {
-				addIntermediateTimerEvent(node, c);
-//			} else if (type.equals("IntermediateCancelEvent")) {
-//				addIntermediateCancelEvent(node, c);
-//			} else if (type.equals("IntermediateCompensationEvent")) {
-//				addIntermediateCompensationEvent(node, c);
-//			} else if (type.equals("IntermediateRuleEvent")) {
-//				addIntermediateRuleEvent(node, c);
-//			} else if (type.equals("IntermediateLinkEvent")) {
-//				addIntermediateLinkEvent(node, c);
-//			} else if (type.equals("IntermediateMultipleEvent")) {
-//				addIntermediateMultipleEvent(node, c);
-				
-			} else if (type.equals("EndEvent")) {
-				addEndPlainEvent(node, c);
-//			} else if (type.equals("EndCancelEvent")) {
-//				addEndCancelEvent(node, c);
-//			} else if (type.equals("EndLinkEvent")) {
-//				addEndLinkEvent(node, c);
-				
-			} else if (type.equals("Exclusive_Databased_Gateway")) {
-				addXORDataBasedGateway(node, c);
-			} else if (type.equals("Exclusive_Eventbased_Gateway")) {
-				addXOREventBasedGateway(node, c);
-			} else if (type.equals("AND_Gateway")) {
-				addANDGateway(node, c);
-//			} else if (type.equals("Complex_Gateway")) {
-//				addComplexGateway(node, c);
-//			} else if (type.equals("OR_Gateway")) {
-//				addORGateway(node, c);
-				
-//			} else if (type.equals("DataObject")) {
-//				addDataObject(node, c);
-//			} else if (type.equals("TextAnnotation")) {
-//				addTextAnnotation(node, c);
-				
-			} else if (type.equals("SequenceFlow")) {
-				edges.add(node);
-			} else if (type.equals("MessageFlowFrom")) {
-				edges.add(node);
-			} else if (type.equals("MessageFlowTo")) {
-				edges.add(node);
-//			} else if (type.equals("Association_Unidirectional")) {
-//				edges.add(node);
-//			} else if (type.equals("Association_Bidirectional")) {
-//				edges.add(node);
-//			} else if (type.equals("Association_Undirected")) {
-//				edges.add(node);
+			// handle nodes
+			for (Node node=reader.nextNode(); node != null; node=reader.nextNode()) {
+				handleNode(node, c, edges);
 			}
+			
+			return completeImport(c, edges);
+		} finally {
+			reader.close();
 		}
+	}
+	
+	protected ImportContext createImportContext() {
+		factory = new IBPMNFactory(); // for the moment: assume plain BPMN
+		
+		ImportContext c = new ImportContext();
+		c.diagram = factory.createIBPMNDiagram();
+		return c;
+	}
+	
+	/**
+	 * Handles a child of the rdf:RDF element. Edges are collected and added
+	 * by {@link #completeImport(ImportContext, List)} once all nodes are known.
+	 */
+	protected void handleNode(Node node, ImportContext c, List<Node> edges) {
+		if (node instanceof Text) return;
+		
+		String type = getType(node);
+		if (type == null) return;
 		
+		if (type.equals("IBPMNDiagram")) {
+			handleDiagram(node, c);
+		} else if (type.equals("Pool")) {
+			addPool(node, c, false);
+		} else if (type.equals("PoolSet")) { 
+			addPool(node, c, true);
+		} else if (type.equals("ComplexInteraction")) {
+			addComplexInteraction(node, c);
+		} else if (type.equals("ComplexInteractionCollapsed")) {
+			addComplexInteraction(node, c);
+			
+		} else if (type.equals("StartEvent")) {
+			addStartPlainEvent(node, c);
+		} else if (type.equals("StartInteraction")) {
+			addStartInteraction(node, c);
+		} else if (type.equals("StartTimerEvent")) {
+			addStartTimerEvent(node, c);
+//		} else if (type.equals("StartRuleEvent")) {
+//			addStartRuleEvent(node, c);
+//		} else if (type.equals("StartLinkEvent")) {
+//			addStartLinkEvent(node, c);
+//		} else if (type.equals("StartMultipleEvent")) {
+//			addStartMultipleEvent(node, c);
+			
+//		} else if (type.equals("IntermediateEvent")) {
+//			addIntermediatePlainEvent(node, c);
+		} else if (type.equals("IntermediateInteraction")) {
+			addIntermediateInteraction(node, c);
+//		} else if (type.equals("IntermediateErrorEvent")) {
+//			addIntermediateErrorEvent(node, c);
+		} else if (type.equals("IntermediateTimerEvent")) {
+			addIntermediateTimerEvent(node, c);
+//		} else if (type.equals("IntermediateCancelEvent")) {
+//			addIntermediateCancelEvent(node, c);
+//		} else if (type.equals("IntermediateCompensationEvent")) {
+//			addIntermediateCompensationEvent(node, c);
+//		} else if (type.equals("IntermediateRuleEvent")) {
+//			addIntermediateRuleEvent(node, c);
+//		} else if (type.equals("IntermediateLinkEvent")) {
+//			addIntermediateLinkEvent(node, c);
+//		} else if (type.equals("IntermediateMultipleEvent")) {
+//			addIntermediateMultipleEvent(node, c);
+			
+		} else if (type.equals("EndEvent")) {
+			addEndPlainEvent(node, c);
+//		} else if (type.equals("EndCancelEvent")) {
+//			addEndCancelEvent(node, c);
+//		} else if (type.equals("EndLinkEvent")) {
+//			addEndLinkEvent(node, c);
+			
+		} else if (type.equals("Exclusive_Databased_Gateway")) {
+			addXORDataBasedGateway(node, c);
+		} else if (type.equals("Exclusive_Eventbased_Gateway")) {
+			addXOREventBasedGateway(node, c);
+		} else if (type.equals("AND_Gateway")) {
+			addANDGateway(node, c);
+//		} else if (type.equals("Complex_Gateway")) {
+//			addComplexGateway(node, c);
+//		} else if (type.equals("OR_Gateway")) {
+//			addORGateway(node, c);
+			
+//		} else if (type.equals("DataObject")) {
+//			addDataObject(node, c);
+//		} else if (type.equals("TextAnnotation")) {
+//			addTextAnnotation(node, c);
+			
+		} else if (type.equals("SequenceFlow")) {
+			edges.add(node);
+		} else if (type.equals("MessageFlowFrom")) {
+			edges.add(node);
+		} else if (type.equals("MessageFlowTo")) {
+			edges.add(node);
+//		} else if (type.equals("Association_Unidirectional")) {
+//			edges.add(node);
+//		} else if (type.equals("Association_Bidirectional")) {
+//			edges.add(node);
+//		} else if (type.equals("Association_Undirected")) {
+//			edges.add(node);
+		}
+	}
+	
+	protected IBPMNDiagram completeImport(ImportContext c, List<Node> edges) {
 		// handle edges (except undirected associations)
 		for (Node node: edges) {
 			String type = getType(node);
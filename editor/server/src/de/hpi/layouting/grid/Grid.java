@@ -23,8 +23,10 @@
 package de.hpi.layouting.grid;
 
 import java.awt.Point;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 /**
  * A 2d-datastructure holding <tt>Cell</tt>'s in <tt>Row</tt>'s and Columns.
@@ -33,15 +35,19 @@ import java.util.Map;
  * <tt>cell</tt>s relationship to each other. Eg two <tt>cell</tt>'s stay
  * always verticaly adjacent if you insert a column and they will always
  * stay horizontal adjacent if you insert a <tt>Row</tt>
- * 
+ *
+ * The rows of the grid and the cells of a row are kept in arrays and know
+ * their position, so positional access and <code>find</code> take constant
+ * time. Inserting a row or column shifts the following rows or cells.
+ *
  * @author Team Royal Fawn
- * 
+ *
  * @param <T>
  *            The type of the values in the cells
  */
 public class Grid<T> implements Iterable<Grid.Row<T>> {
 
-	
+
 	/**
 	 * A <tt>Row</tt> in the <tt>Grid</tt>. Holds a set of <tt>Cell</tt>s
 	 * @author Team Royal Fawn
@@ -51,25 +57,23 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	public static class Row<T> implements Iterable<Grid.Cell<T>> {
 
 		private Grid<T> parent;
-		private Cell<T> firstCell;
-		private Cell<T> lastCell;
-		private Row<T> prevRow;
-		private Row<T> nextRow;
+		private List<Cell<T>> cells;
+		/**
+		 * position in the rows of the parent
+		 */
+		private int index;
 
 		/**
 		 * @param parent
-		 * @param prevRow
-		 * @param nextRow
+		 * @param index
 		 */
-		private Row(Grid<T> parent, Row<T> prevRow, Row<T> nextRow) {
+		private Row(Grid<T> parent, int index) {
 			super();
 			this.parent = parent;
-			this.prevRow = prevRow;
-			this.nextRow = nextRow;
-			firstCell = new Cell<T>(this, null, null);
-			lastCell = firstCell;
-			for (int i = 1; i < parent.width; i++) {
-				lastCell._insertCellAfter();
+			this.index = index;
+			this.cells = new ArrayList<Cell<T>>(parent.width);
+			for (int i = 0; i < parent.width; i++) {
+				cells.add(new Cell<T>(this, i));
 			}
 		}
 
@@ -84,43 +88,31 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		 * @return the prevRow
 		 */
 		public Row<T> getPrevRow() {
-			return prevRow;
+			return parent == null ? null : parent.get(index - 1);
 		}
 
 		/**
 		 * @return the nextRow
 		 */
 		public Row<T> getNextRow() {
-			return nextRow;
+			return parent == null ? null : parent.get(index + 1);
 		}
 
 		public Row<T> insertRowAbove() {
-			Row<T> newRow = new Row<T>(parent, prevRow, this);
-			if (prevRow == null) {
-				parent.firstRow = newRow;
-			} else {
-				getPrevRow().nextRow = newRow;
-			}
-			parent.height++;
-			prevRow = newRow;
+			Row<T> newRow = new Row<T>(parent, index);
+			parent.insertRow(newRow);
 			return newRow;
 		}
 
 		public Row<T> insertRowBeneath() {
-			Row<T> newRow = new Row<T>(parent, this, nextRow);
-			if (nextRow == null) {
-				parent.lastRow = newRow;
-			} else {
-				getNextRow().prevRow = newRow;
-			}
-			parent.height++;
-			nextRow = newRow;
+			Row<T> newRow = new Row<T>(parent, index + 1);
+			parent.insertRow(newRow);
 			return newRow;
 		}
 
 		/**
 		 * Will create a new row above <code>this</code> if not existant
-		 * 
+		 *
 		 * @return the row above <code>this</code>
 		 */
 		public Row<T> above() {
@@ -134,7 +126,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 
 		/**
 		 * Will create a new row beneath <code>this</code> if not existant
-		 * 
+		 *
 		 * @return the row beneath <code>this</code>
 		 */
 		public Row<T> beneath() {
@@ -152,9 +144,8 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 			} else if (other.getNextRow() != this && other.getPrevRow() != this) {
 				return false;
 			}
-			Iterator<Cell<T>> oIt = other.iterator();
-			for (Cell<T> c : this) {
-				if (oIt.next().isUnpackable() && c.isUnpackable()) {
+			for (int i = 0; i < cells.size(); i++) {
+				if (other.cells.get(i).isUnpackable() && cells.get(i).isUnpackable()) {
 					return false;
 				}
 			}
@@ -162,69 +153,38 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		}
 
 		public boolean tryInterleaveWith(Row<T> other) {
-			//System.out.println("Try to interleave " + this);
-			//System.out.print("             with " + other);
 			if (!isInterleaveableWith(other)) {
-				//System.out.println(": failed");
 				return false;
 			}
 
-			Iterator<Cell<T>> oIt = other.iterator();
-			for (Cell<T> c : this) {
-				Cell<T> oC = oIt.next();
+			for (int i = 0; i < cells.size(); i++) {
+				Cell<T> c = cells.get(i);
+				Cell<T> oC = other.cells.get(i);
 				if (c.isFilled()) {
-					if (oC.prevCell == null) {
-						oC.parent.firstCell = c;
-					} else {
-						oC.prevCell.nextCell = c;
-					}
-					if (oC.nextCell == null) {
-						oC.parent.lastCell = c;
-					} else {
-						oC.nextCell.prevCell = c;
-					}
-
-					c.prevCell = oC.prevCell;
-					c.nextCell = oC.nextCell;
-					c.parent = oC.parent;
-					oC.nextCell = null;
-					oC.prevCell = null;
+					// move the cell into the other row
+					other.cells.set(i, c);
+					c.parent = other;
 					oC.parent = null;
 				} else if (c.isUnpackable()) {
 					oC.setPackable(false);
 				}
 			}
 			this._remove();
-			//System.out.println(": done");
 			return true;
 		}
 
 		private void _remove() {
-			this.parent.height--;
-			if (prevRow == null) {
-				parent.firstRow = nextRow;
-			} else {
-				this.prevRow.nextRow = nextRow;
-			}
-			if (nextRow == null) {
-				parent.lastRow = prevRow;
-			} else {
-				this.nextRow.prevRow = prevRow;
-			}
-
-			this.firstCell = null;
-			this.lastCell = null;
-			this.prevRow = null;
-			this.nextRow = null;
+			this.parent.removeRow(this);
+			this.cells = new ArrayList<Cell<T>>(0);
 			this.parent = null;
 		}
 
 		/**
 		 * @return
-		 * 
+		 *
 		 */
 		public boolean isFilled() {
-			for (Cell<T> c : this) {
+			for (Cell<T> c : cells) {
 				if (c.isFilled()) {
 					return true;
 				}
@@ -233,28 +193,26 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		}
 
 		public int find(Cell<T> target) {
-			int i = 0;
-			for (Cell<T> c : this) {
-				if (c == target) {
-					return i;
-				}
-				i++;
+			if (target == null || target.parent != this || parent == null) {
+				return -1;
 			}
-			return -1;
+			return target.index;
 		}
 
 		public Cell<T> get(int i) {
-			for (Cell<T> c : this) {
-				if (i-- == 0) {
-					return c;
-				}
+			if (i < 0 || i >= cells.size()) {
+				return null;
 			}
-			return null;
+			return cells.get(i);
 		}
 
+		/**
+		 * Iterates over the cells, also if cells are moved to another row or
+		 * <code>this</code> is removed while iterating.
+		 */
 		public Iterator<Cell<T>> iterator() {
 			return new Iterator<Cell<T>>() {
-				private Cell<T> next = firstCell;
+				private Cell<T> next = getFirstCell();
 
 				public boolean hasNext() {
 					return next != null;
@@ -277,19 +235,35 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		 * @return the firstCell
 		 */
 		public Cell<T> getFirstCell() {
-			return firstCell;
+			return get(0);
 		}
 
 		/**
 		 * @return the lastCell
 		 */
 		public Cell<T> getLastCell() {
-			return lastCell;
+			return get(cells.size() - 1);
+		}
+
+		/**
+		 * Inserts an empty cell at the position and shifts the following cells
+		 */
+		private Cell<T> insertCell(int i) {
+			Cell<T> newCell = new Cell<T>(this, i);
+			cells.add(i, newCell);
+			renumberCells(i + 1);
+			return newCell;
+		}
+
+		private void renumberCells(int from) {
+			for (int i = from; i < cells.size(); i++) {
+				cells.get(i).index = i;
+			}
 		}
 
 		/*
 		 * (non-Javadoc)
-		 * 
+		 *
 		 * @see java.lang.Object#toString()
 		 */
 		@Override
@@ -318,7 +292,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 
 		/*
 		 * (non-Javadoc)
-		 * 
+		 *
 		 * @see java.lang.Object#toString()
 		 */
 		@Override
@@ -330,22 +304,21 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		}
 
 		private Row<T> parent;
-		private Cell<T> prevCell;
-		private Cell<T> nextCell;
+		/**
+		 * position in the cells of the parent
+		 */
+		private int index;
 		private T value;
 		private boolean packable;
 
 		/**
 		 * @param parent
-		 * @param prevCell
-		 * @param nextCell
-		 * @param value
+		 * @param index
 		 */
-		private Cell(Row<T> parent, Cell<T> prevCell, Cell<T> nextCell) {
+		private Cell(Row<T> parent, int index) {
 			super();
 			this.parent = parent;
-			this.prevCell = prevCell;
-			this.nextCell = nextCell;
+			this.index = index;
 			this.value = null;
 			this.packable = true;
 		}
@@ -392,90 +365,65 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		 * @return the prevCell
 		 */
 		public Cell<T> getPrevCell() {
-			return prevCell;
+			return parent == null ? null : parent.get(index - 1);
 		}
 
 		/**
 		 * @return the nextCell
 		 */
 		public Cell<T> getNextCell() {
-			return nextCell;
-		}
-
-		private Cell<T> _insertCellBefore() {
-			Cell<T> newCell = new Cell<T>(parent, prevCell, this);
-			if (prevCell == null) {
-				parent.firstCell = newCell;
-			} else {
-				prevCell.nextCell = newCell;
-			}
-			prevCell = newCell;
-			return newCell;
-		}
-
-		private Cell<T> _insertCellAfter() {
-			Cell<T> newCell = new Cell<T>(parent, this, nextCell);
-			if (nextCell == null) {
-				parent.lastCell = newCell;
-			} else {
-				nextCell.prevCell = newCell;
-			}
-			nextCell = newCell;
-			return newCell;
+			return parent == null ? null : parent.get(index + 1);
 		}
 
 		public Cell<T> insertCellBefore() {
 			// Make sure first cell is empty
-			if (parent.firstCell.isFilled()) {
+			if (parent.getFirstCell().isFilled()) {
 				parent.parent.addFirstColumn();
 			}
-			_insertCellBefore();
+			parent.insertCell(index);
 			// Trim beginning of row
-			parent.firstCell.getNextCell().prevCell = null;
-			parent.firstCell = parent.firstCell.getNextCell();
+			parent.cells.remove(0);
+			parent.renumberCells(0);
 			return getPrevCell();
 		}
 
 		public Cell<T> insertCellAfter() {
 			// Make sure last cell is empty
-			if (parent.lastCell.isFilled()) {
+			if (parent.getLastCell().isFilled()) {
 				parent.parent.addLastColumn();
 			}
-			_insertCellAfter();
+			parent.insertCell(index + 1);
 			// Trim end of row
-			parent.lastCell.getPrevCell().nextCell = null;
-			parent.lastCell = parent.lastCell.getPrevCell();
+			parent.cells.remove(parent.cells.size() - 1);
 			return getNextCell();
 		}
 
 		/**
 		 * will create a new column before <code>this</code>
-		 * 
+		 *
 		 * @param value
 		 *            the value of the new cell
 		 * @return the new cell before <code>this</code>
 		 */
 		public Cell<T> insertColumnBefore() {
-			int i = parent.find(this);
-			parent.parent.insertColumnBefore(i);
-			return prevCell;
+			parent.parent.insertColumnBefore(index);
+			return getPrevCell();
 		}
 
 		/**
 		 * will create a new column after <code>this</code>
-		 * 
+		 *
 		 * @return the new cell after <code>this</code>
 		 */
 		public Cell<T> insertColumnAfter() {
-			int i = parent.find(this);
-			parent.parent.insertColumnAfter(i);
-			return nextCell;
+			parent.parent.insertColumnAfter(index);
+			return getNextCell();
 		}
 
 		/**
 		 * Always returns the Cell before <code>this</code>. Will create a new
 		 * Column if <code>this</code> is the first cell.
-		 * 
+		 *
 		 * @return the Cell after this Cell.
 		 */
 		public Cell<T> before() {
@@ -489,7 +437,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		/**
 		 * Always returns the Cell after <code>this</code>. Will create a new
 		 * Column if <code>this</code> is the last cell.
-		 * 
+		 *
 		 * @return the Cell after this Cell.
 		 */
 		public Cell<T> after() {
@@ -501,19 +449,17 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		}
 
 		public Cell<T> above() {
-			return parent.above().get(parent.find(this));
+			return parent.above().get(index);
 		}
 
 		public Cell<T> beneath() {
-			return parent.beneath().get(parent.find(this));
+			return parent.beneath().get(index);
 		}
 	}
 
 	private SuperGrid<T> parent;
-	private Row<T> firstRow;
-	private Row<T> lastRow;
+	private List<Row<T>> rows;
 	private int width;
-	private int height;
 	private Map<T, Cell<T>> cellOfItem;
 
 	/**
@@ -522,10 +468,9 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	public Grid() {
 		super();
 		width = 1;
-		height = 1;
 		cellOfItem = new HashMap<T, Cell<T>>();
-		firstRow = new Row<T>(this, null, null);
-		lastRow = firstRow;
+		rows = new ArrayList<Row<T>>();
+		rows.add(new Row<T>(this, 0));
 	}
 
 	public Grid(SuperGrid<T> parent) {
@@ -537,7 +482,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	 * @return the height
 	 */
 	public int getHeight() {
-		return height;
+		return rows.size();
 	}
 
 	/**
@@ -551,14 +496,14 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	 * @return the firstRow
 	 */
 	public Row<T> getFirstRow() {
-		return firstRow;
+		return get(0);
 	}
 
 	/**
 	 * @return the lastRow
 	 */
 	public Row<T> getLastRow() {
-		return lastRow;
+		return get(rows.size() - 1);
 	}
 
 	/**
@@ -583,7 +528,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 
 	/**
 	 * Setter must not be called from anyone but SuperGrid
-	 * 
+	 *
 	 * @param parent
 	 */
 	void _setParent(SuperGrid<T> parent) {
@@ -591,37 +536,25 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	}
 
 	public int find(Row<T> target) {
-		int i = 0;
-		for (Row<T> row : this) {
-			if (row == target) {
-				return i;
-			}
-			i++;
+		if (target == null || target.parent != this) {
+			return -1;
 		}
-		return -1;
+		return target.index;
 	}
 
 	public Point find(Cell<T> target) {
-		if (target == null) {
+		if (target == null || target.parent == null
+				|| target.parent.parent != this) {
 			return null;
 		}
-		int i = 0;
-		for (Row<T> row : this) {
-			if (row == target.getParent()) {
-				return new Point(row.find(target), i);
-			}
-			i++;
-		}
-		return null;
+		return new Point(target.index, target.parent.index);
 	}
 
 	public Row<T> get(int i) {
-		for (Row<T> row : this) {
-			if (i-- == 0) {
-				return row;
-			}
+		if (i < 0 || i >= rows.size()) {
+			return null;
 		}
-		return null;
+		return rows.get(i);
 	}
 
 	public void insertColumnBefore(int col) {
@@ -629,14 +562,8 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 			throw new IllegalArgumentException("Column #" + col
 					+ " does not exist");
 		}
-		if (col == width) {
-			for (Row<T> row : this) {
-				row.lastCell._insertCellAfter();
-			}
-		} else {
-			for (Row<T> row : this) {
-				row.get(col)._insertCellBefore();
-			}
+		for (Row<T> row : rows) {
+			row.insertCell(col);
 		}
 		width++;
 		if (parent != null) {
@@ -657,11 +584,11 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	}
 
 	public Row<T> addFirstRow() {
-		return insertRowAbove(firstRow);
+		return insertRowAbove(getFirstRow());
 	}
 
 	public Row<T> addLastRow() {
-		return insertRowBeneath(lastRow);
+		return insertRowBeneath(getLastRow());
 	}
 
 	public Row<T> insertRowAbove(Row<T> row) {
@@ -672,10 +599,29 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		return row.insertRowBeneath();
 	}
 
+	/**
+	 * Inserts the row at its index and shifts the following rows
+	 */
+	private void insertRow(Row<T> row) {
+		rows.add(row.index, row);
+		renumberRows(row.index + 1);
+	}
+
+	private void removeRow(Row<T> row) {
+		rows.remove(row.index);
+		renumberRows(row.index);
+	}
+
+	private void renumberRows(int from) {
+		for (int i = from; i < rows.size(); i++) {
+			rows.get(i).index = i;
+		}
+	}
+
 	/**
 	 * Returns the Cell of the Item. The cell must not necessarily have the item
 	 * as value.
-	 * 
+	 *
 	 * @param item
 	 *            the item to get the cell from
 	 * @return the cell
@@ -687,7 +633,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	/**
 	 * Sets the cell of the item. The cell must not necessarily have the item as
 	 * value.
-	 * 
+	 *
 	 * @param item
 	 * @param cell
 	 */
@@ -698,7 +644,7 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 	/**
 	 * Removes the cell of the item. The cell must not necessarily have the item
 	 * as value.
-	 * 
+	 *
 	 * @param item
 	 * @param cell
 	 */
@@ -706,9 +652,13 @@ public class Grid<T> implements Iterable<Grid.Row<T>> {
 		this.cellOfItem.remove(item);
 	}
 
+	/**
+	 * Iterates over the rows, also if the current row is removed while
+	 * iterating, e.g. by {@link #pack()}.
+	 */
 	public Iterator<Row<T>> iterator() {
 		return new Iterator<Row<T>>() {
-			private Row<T> next = firstRow;
+			private Row<T> next = getFirstRow();
 
 			public boolean hasNext() {
 				return next != null;
@@ -22,6 +22,7 @@
  **/
 package de.hpi.layouting.grid;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -91,7 +92,7 @@ public class SuperGrid<T> implements Iterable<Row<T>> {
 	 **/
 	public SuperGrid() {
 		super();
-		this.grids = new LinkedList<Grid<T>>();
+		this.grids = new ArrayList<Grid<T>>();
 	}
 
 	/**
@@ -23,11 +23,15 @@
 package de.hpi.layouting.topologicalsort;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import de.hpi.layouting.model.LayoutingDiagram;
 import de.hpi.layouting.model.LayoutingElement;
@@ -44,8 +48,11 @@ public abstract class TopologicalSorter {
 		this.diagram = diagram;
 		// First step to find loops and backpatch backwards edges
 		prepareDataAndSort(parent, true);
-		// Second step to get the real sorting
-		prepareDataAndSort(parent, false);
+		// Second step to get the real sorting, without loops the first step
+		// did not change the diagram and already is the real sorting
+		if (!backwardsEdges.isEmpty()) {
+			prepareDataAndSort(parent, false);
+		}
 	}
 
 	protected void prepareDataAndSort(LayoutingElement parent, boolean shouldBackpatch) {
@@ -56,19 +63,26 @@ public abstract class TopologicalSorter {
 		// create global start
 		LayoutingElement globalStartDummyElement = new LayoutingElementImpl();
 		globalStartDummyElement.setId("#####Global-Start#####");
-		
-		// cache start events
+
+		addAllChilds(parent);
+
+		// link the global start only to the start events that are sorted, the
+		// start events of other (sub)processes stay untouched, so that they
+		// can be sorted at the same time
 		List<LayoutingElement> startEvents = new ArrayList<LayoutingElement>();
 		for (LayoutingElement startElement : this.diagram.getStartEvents()) {
+			if (!elementsToSort.containsKey(startElement.getId())) {
+				continue;
+			}
 			globalStartDummyElement.addOutgoingLink(startElement);
 			startElement.addIncomingLink(globalStartDummyElement);
 			startEvents.add(startElement);
+			elementsToSort.put(startElement.getId(),
+					new SortableLayoutingElement(startElement));
 		}
 		elementsToSort.put(globalStartDummyElement.getId(),
 				new SortableLayoutingElement(globalStartDummyElement));
 
-		addAllChilds(parent);
-
 		topologicalSort();
 
 		if (shouldBackpatch) {
@@ -95,70 +109,120 @@ public abstract class TopologicalSorter {
 		return this.sortetElements;
 	}
 
+	/**
+	 * Sorts the elements in rounds like Kahn's algorithm: every round appends
+	 * the elements that became free in the round before, in the iteration
+	 * order of <code>elementsToSort</code>. If no element is free, the
+	 * incoming links of a loop entry point are reversed and recorded as
+	 * backwards edges. The free elements and the loop entry candidates are
+	 * kept up to date while links are removed, so a sort takes O(n + e log n)
+	 * instead of a scan of all remaining elements per round.
+	 */
 	protected void topologicalSort() {
+		// the order of a scan of elementsToSort, removals keep it
+		final Map<String, Integer> rank = new HashMap<String, Integer>();
+		for (String id : elementsToSort.keySet()) {
+			rank.put(id, rank.size());
+		}
+		Comparator<SortableLayoutingElement> byRank = new Comparator<SortableLayoutingElement>() {
+			public int compare(SortableLayoutingElement o1,
+					SortableLayoutingElement o2) {
+				return rank.get(o1.getId()) - rank.get(o2.getId());
+			}
+		};
+		// joins that lost incoming links
+		SortedSet<SortableLayoutingElement> loopEntryCandidates = new TreeSet<SortableLayoutingElement>(
+				byRank);
+
+		List<SortableLayoutingElement> freeElements = new ArrayList<SortableLayoutingElement>();
+		for (SortableLayoutingElement element : elementsToSort.values()) {
+			if (element.isFree()) {
+				freeElements.add(element);
+			}
+		}
+
 		while (!elementsToSort.isEmpty()) {
-			List<SortableLayoutingElement> freeElements = getFreeElements();
 			if (freeElements.size() > 0) {
+				List<SortableLayoutingElement> nextFreeElements = new ArrayList<SortableLayoutingElement>();
 				for (SortableLayoutingElement freeElement : freeElements) {
 					sortetElements.add((LayoutingElement)freeElement.getLayoutingElement());
-					freeElementsFrom(freeElement);
+					freeElementsFrom(freeElement, nextFreeElements,
+							loopEntryCandidates);
 					elementsToSort.remove(freeElement.getId());
+					loopEntryCandidates.remove(freeElement);
 				}
+				Collections.sort(nextFreeElements, byRank);
+				freeElements = nextFreeElements;
 			} else { // loops
-				SortableLayoutingElement entry = getLoopEntryPoint();
+				SortableLayoutingElement entry = getLoopEntryPoint(loopEntryCandidates);
 				for (String backId : entry.getIncomingLinks().toArray(
 						new String[0])) {
 					entry.reverseIncomingLinkFrom(backId);
 					SortableLayoutingElement e = elementsToSort.get(backId);
 					e.reverseOutgoingLinkTo(entry.getId());
+					updateLoopEntryCandidate(e, loopEntryCandidates);
 					backwardsEdges
 							.add(new BackwardsEdge(backId, entry.getId()));
 				}
+				if (entry.isFree()) {
+					freeElements.add(entry);
+				}
 			}
 		}
 	}
 
-	protected SortableLayoutingElement getLoopEntryPoint()
+	/**
+	 * @return the first candidate in the order of <code>elementsToSort</code>
+	 */
+	protected SortableLayoutingElement getLoopEntryPoint(
+			SortedSet<SortableLayoutingElement> candidates)
 			throws IllegalStateException {
-		for (SortableLayoutingElement candidate : elementsToSort.values()) {
-			if (candidate.isJoin()
-					&& candidate.getOldInCount() > candidate.getIncomingLinks()
-							.size()) {
-				return candidate;
-			}
+		if (candidates.isEmpty()) {
+			throw new IllegalStateException(
+					"Could not find a valid loop entry point");
 		}
-		/*for (LayoutingElement e : this.sortetElements) {
-			System.out.println(e.getId());
-		}*/
-		throw new IllegalStateException(
-				"Could not find a valid loop entry point");
+		return candidates.first();
 	}
 
-	protected void freeElementsFrom(SortableLayoutingElement freeElement) {
+	/**
+	 * Removes the links to the successors of the element and collects the
+	 * successors that become free
+	 */
+	protected void freeElementsFrom(SortableLayoutingElement freeElement,
+			List<SortableLayoutingElement> nextFreeElements,
+			SortedSet<SortableLayoutingElement> loopEntryCandidates) {
 		for (String id : freeElement.getOutgoingLinks()) {
 			SortableLayoutingElement element = elementsToSort.get(id);
-			if (element != null) {
+			if (element != null && !element.isFree()) {
 				element.removeIncomingLinkFrom(freeElement.getId());
+				if (element.isFree()) {
+					nextFreeElements.add(element);
+				}
+				updateLoopEntryCandidate(element, loopEntryCandidates);
 			}
 		}
 
 	}
 
-	protected List<SortableLayoutingElement> getFreeElements() {
-		List<SortableLayoutingElement> freeElements = new LinkedList<SortableLayoutingElement>();
-
-		for (String id : elementsToSort.keySet()) {
-			SortableLayoutingElement sortableLayoutingElement = elementsToSort.get(id);
-			if (sortableLayoutingElement.isFree()) {
-				freeElements.add(sortableLayoutingElement);
-			}
+	private static void updateLoopEntryCandidate(
+			SortableLayoutingElement candidate,
+			SortedSet<SortableLayoutingElement> loopEntryCandidates) {
+		if (candidate.isJoin()
+				&& candidate.getOldInCount() > candidate.getIncomingLinks()
+						.size()) {
+			loopEntryCandidates.add(candidate);
+		} else {
+			loopEntryCandidates.remove(candidate);
 		}
-
-		return freeElements;
 	}
 
 	protected void reverseBackwardsEdges() {
-		List<LayoutingElement> edges = this.diagram.getConnectingElements();
+		if (this.backwardsEdges.isEmpty()) {
+			// acyclic diagrams need no index of the edges
+			return;
+		}
+		Map<LayoutingElement, Integer> edges = indexEdges(this.diagram
+				.getConnectingElements());
 		for (BackwardsEdge backwardsEdge : this.backwardsEdges) {
 			String sourceId = backwardsEdge.getSource();
 			String targetId = backwardsEdge.getTarget();
@@ -206,15 +270,37 @@ public abstract class TopologicalSorter {
 
 	}
 
-	protected static LayoutingElement getEdge(List<LayoutingElement> edges,
-			LayoutingElement sourceElement, LayoutingElement targetElement) {
+	/**
+	 * @return the position of each edge in the list
+	 */
+	protected static Map<LayoutingElement, Integer> indexEdges(
+			List<LayoutingElement> edges) {
+		Map<LayoutingElement, Integer> result = new HashMap<LayoutingElement, Integer>();
 		for (LayoutingElement edge : edges) {
-			if (edge.getIncomingLinks().contains(sourceElement)
-					&& edge.getOutgoingLinks().contains(targetElement)) {
-				return edge;
+			result.put(edge, result.size());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first edge from the source to the target in the order of
+	 * {@link #indexEdges(List)}. Only the outgoing links of the source are
+	 * looked at.
+	 */
+	protected static LayoutingElement getEdge(
+			Map<LayoutingElement, Integer> edges,
+			LayoutingElement sourceElement, LayoutingElement targetElement) {
+		LayoutingElement result = null;
+		for (LayoutingElement edge : sourceElement.getOutgoingLinks()) {
+			Integer position = edges.get(edge);
+			if (position != null
+					&& edge.getIncomingLinks().contains(sourceElement)
+					&& edge.getOutgoingLinks().contains(targetElement)
+					&& (result == null || position < edges.get(result))) {
+				result = edge;
 			}
 		}
-		return null;
+		return result;
 	}
 
 
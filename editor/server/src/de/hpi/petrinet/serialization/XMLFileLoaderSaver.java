@@ -7,17 +7,16 @@ import java.io.IOException;
 import java.io.StringWriter;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Gero Decker
@@ -43,22 +42,20 @@ import org.xml.sax.SAXException;
 public class XMLFileLoaderSaver {
 
     public Document loadDocumentFromFile(String fileName) throws ParserConfigurationException, SAXException, IOException {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = factory.newDocumentBuilder();
+		DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 		Document document = builder.parse(new File(fileName));
 
 		return document;
 	}
     
     public Document createNewDocument() throws ParserConfigurationException {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = factory.newDocumentBuilder();
+		DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 		Document document = builder.newDocument();
     	return document;
     }
 	
 	public void saveDocumentToFile(Document doc, String fileName) throws TransformerFactoryConfigurationError, FileNotFoundException, TransformerException {
-		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		Transformer transformer = XMLFactories.getTransformer();
 		DOMSource        source = new DOMSource( doc );
 		FileOutputStream os     = new FileOutputStream( new File(fileName) );
 		StreamResult     result = new StreamResult( os );
@@ -66,7 +63,7 @@ public class XMLFileLoaderSaver {
 	}
 
 	public String serializeToString(Document doc) throws TransformerFactoryConfigurationError, TransformerException {
-		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		Transformer transformer = XMLFactories.getTransformer();
 		DOMSource source = new DOMSource(doc);
 		StringWriter writer = new StringWriter();
 		StreamResult result = new StreamResult(writer);
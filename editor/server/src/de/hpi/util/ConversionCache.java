@@ -0,0 +1,437 @@
+package de.hpi.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Caches the results of model conversions, e.g. BPMN to Petri net or XPDL.
+ *
+ * Results are stored under a hash of the converter id, its options and the
+ * canonical form of the diagram, so exporting an unchanged model again does
+ * not repeat the conversion. The hash also covers the version of the
+ * deployed converters, so a redeployment does not serve results of the
+ * previous converters from disk. The most recently used results are kept in
+ * memory up to a configured number of bytes. If a directory is configured,
+ * every result is also written there and survives evictions and restarts.
+ *
+ * The cache of a web application is configured with the context parameters
+ * CONVERSION_CACHE_MEMORY_MB (default 32, 0 disables the memory tier) and
+ * CONVERSION_CACHE_DIRECTORY (default none, disables the disk tier). The
+ * version of the converters is the context parameter CONVERSION_CACHE_VERSION
+ * or, by default, the time of the latest change of the classes and libraries
+ * of the web application.
+ */
+public class ConversionCache {
+
+	public static final String MEMORY_PARAMETER = "CONVERSION_CACHE_MEMORY_MB";
+	public static final String DIRECTORY_PARAMETER = "CONVERSION_CACHE_DIRECTORY";
+	public static final String VERSION_PARAMETER = "CONVERSION_CACHE_VERSION";
+
+	/* Changes with the format of the keys and the cached results */
+	private static final String VERSION = "conversioncache-2";
+	private static final String ATTRIBUTE = ConversionCache.class.getName();
+	private static final int DEFAULT_MEMORY_MB = 32;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final long maxBytes;
+	private final File directory;
+	private final String version;
+
+	/* Least recently used entry first */
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(64, 0.75f, true);
+	private long bytes = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Returns the cache of the web application and creates it on first use.
+	 *
+	 * @param context
+	 *            The servlet context that holds the cache and its
+	 *            configuration
+	 * @return The shared conversion cache
+	 */
+	public static ConversionCache getInstance(ServletContext context) {
+		synchronized (context) {
+			ConversionCache cache = (ConversionCache) context.getAttribute(ATTRIBUTE);
+			if (cache == null) {
+				long memory = DEFAULT_MEMORY_MB;
+				String memoryParameter = context.getInitParameter(MEMORY_PARAMETER);
+				if (memoryParameter != null && memoryParameter.trim().length() > 0)
+					memory = Long.parseLong(memoryParameter.trim());
+
+				File directory = null;
+				String directoryParameter = context.getInitParameter(DIRECTORY_PARAMETER);
+				if (directoryParameter != null && directoryParameter.trim().length() > 0)
+					directory = new File(directoryParameter.trim());
+
+				String version = context.getInitParameter(VERSION_PARAMETER);
+				if (version == null || version.trim().length() == 0) {
+					String classes = context.getRealPath("/WEB-INF/classes");
+					String lib = context.getRealPath("/WEB-INF/lib");
+					version = "deployed-" + Math.max(classes != null ? lastModified(new File(classes)) : 0,
+							lib != null ? lastModified(new File(lib)) : 0);
+				}
+
+				cache = new ConversionCache(memory * 1024 * 1024, directory, version.trim());
+				context.setAttribute(ATTRIBUTE, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * @param maxBytes
+	 *            The number of bytes of results kept in memory
+	 * @param directory
+	 *            The directory of the disk tier or <code>null</code>
+	 */
+	public ConversionCache(long maxBytes, File directory) {
+		this(maxBytes, directory, "");
+	}
+
+	/**
+	 * @param maxBytes
+	 *            The number of bytes of results kept in memory
+	 * @param directory
+	 *            The directory of the disk tier or <code>null</code>
+	 * @param version
+	 *            The version of the converters, results of other versions are
+	 *            not found
+	 */
+	public ConversionCache(long maxBytes, File directory, String version) {
+		this.maxBytes = maxBytes;
+		this.directory = directory;
+		this.version = version;
+		if (directory != null)
+			directory.mkdirs();
+	}
+
+	/**
+	 * Returns the latest modification time of the file or of the files below
+	 * the directory.
+	 */
+	static long lastModified(File file) {
+		long lastModified = file.lastModified();
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				lastModified = Math.max(lastModified, lastModified(child));
+		}
+		return lastModified;
+	}
+
+	/**
+	 * Computes the key of a conversion.
+	 *
+	 * @param converter
+	 *            Identifies the converter and its output format
+	 * @param diagram
+	 *            The diagram as sent by the editor (RDF or JSON)
+	 * @param options
+	 *            Everything else the result depends on
+	 * @return The key of the conversion result
+	 */
+	public String key(String converter, String diagram, String... options) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		update(digest, VERSION);
+		update(digest, version);
+		update(digest, converter);
+		for (String option : options)
+			update(digest, option);
+		update(digest, canonicalize(diagram));
+
+		byte[] hash = digest.digest();
+		char[] key = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			key[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+			key[2 * i + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(key);
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		try {
+			if (value != null)
+				digest.update(value.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		/* Separates the parts, so "a" + "bc" differs from "ab" + "c" */
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Removes differences that do not change the diagram: line endings and
+	 * surrounding whitespace, and for JSON documents also the formatting and
+	 * the order of object members.
+	 */
+	static String canonicalize(String diagram) {
+		if (diagram == null)
+			return "";
+		String canonical = diagram.replace("\r\n", "\n").trim();
+		if (canonical.startsWith("{")) {
+			try {
+				StringBuilder json = new StringBuilder(canonical.length());
+				writeCanonical(new JSONObject(canonical), json);
+				return json.toString();
+			} catch (JSONException e) {
+				/* Not JSON after all, use the text as it is */
+			}
+		}
+		return canonical;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeCanonical(Object value, StringBuilder out) throws JSONException {
+		if (value instanceof JSONObject) {
+			JSONObject object = (JSONObject) value;
+			List<String> names = new ArrayList<String>();
+			Iterator<String> keys = object.keys();
+			while (keys.hasNext())
+				names.add(keys.next());
+			Collections.sort(names);
+
+			out.append('{');
+			for (int i = 0; i < names.size(); i++) {
+				if (i > 0)
+					out.append(',');
+				out.append(JSONObject.quote(names.get(i))).append(':');
+				writeCanonical(object.get(names.get(i)), out);
+			}
+			out.append('}');
+		} else if (value instanceof JSONArray) {
+			JSONArray array = (JSONArray) value;
+			out.append('[');
+			for (int i = 0; i < array.length(); i++) {
+				if (i > 0)
+					out.append(',');
+				writeCanonical(array.get(i), out);
+			}
+			out.append(']');
+		} else if (value instanceof String) {
+			out.append(JSONObject.quote((String) value));
+		} else {
+			out.append(String.valueOf(value));
+		}
+	}
+
+	/**
+	 * @param key
+	 *            The key of the conversion
+	 * @return The cached result or <code>null</code> if the conversion has
+	 *         to be done
+	 */
+	public byte[] get(String key) {
+		synchronized (entries) {
+			byte[] value = entries.get(key);
+			if (value != null) {
+				hits.incrementAndGet();
+				return value;
+			}
+		}
+
+		byte[] value = readFile(key);
+		if (value != null) {
+			diskHits.incrementAndGet();
+			remember(key, value);
+			return value;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * @param key
+	 *            The key of the conversion
+	 * @return The cached result decoded as UTF-8 or <code>null</code> if the
+	 *         conversion has to be done
+	 */
+	public String getString(String key) {
+		byte[] value = get(key);
+		if (value == null)
+			return null;
+		try {
+			return new String(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Stores the result of a successful conversion. Error messages must not
+	 * be stored, the conversion would never be tried again.
+	 *
+	 * @param key
+	 *            The key of the conversion
+	 * @param value
+	 *            The result, it must not be modified afterwards
+	 */
+	public void put(String key, byte[] value) {
+		remember(key, value);
+		writeFile(key, value);
+	}
+
+	/**
+	 * Stores the result of a successful conversion encoded as UTF-8.
+	 *
+	 * @param key
+	 *            The key of the conversion
+	 * @param value
+	 *            The result
+	 */
+	public void putString(String key, String value) {
+		try {
+			put(key, value.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void remember(String key, byte[] value) {
+		/* A single large result would displace everything else */
+		if (value.length > maxBytes / 4)
+			return;
+
+		synchronized (entries) {
+			byte[] previous = entries.put(key, value);
+			if (previous != null)
+				bytes -= previous.length;
+			bytes += value.length;
+
+			Iterator<byte[]> eldest = entries.values().iterator();
+			while (bytes > maxBytes && eldest.hasNext()) {
+				bytes -= eldest.next().length;
+				eldest.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes all results from memory and disk.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+		if (directory != null) {
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (file.getName().endsWith(".cache"))
+						file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of results served from memory and disk, the number
+	 *         of conversions that had to be done, the number of evictions from
+	 *         memory and the current memory usage
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+		statistics.put("hits", hits.get());
+		statistics.put("diskHits", diskHits.get());
+		statistics.put("misses", misses.get());
+		statistics.put("evictions", evictions.get());
+		synchronized (entries) {
+			statistics.put("entries", (long) entries.size());
+			statistics.put("bytes", bytes);
+		}
+		statistics.put("maxBytes", maxBytes);
+		return statistics;
+	}
+
+	private File getFile(String key) {
+		return new File(directory, key + ".cache");
+	}
+
+	private byte[] readFile(String key) {
+		if (directory == null)
+			return null;
+		File file = getFile(key);
+		if (!file.isFile())
+			return null;
+
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				byte[] value = new byte[(int) file.length()];
+				int offset = 0;
+				while (offset < value.length) {
+					int read = in.read(value, offset, value.length - offset);
+					if (read < 0)
+						return null;
+					offset += read;
+				}
+				return value;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void writeFile(String key, byte[] value) {
+		if (directory == null)
+			return;
+
+		/*
+		 * Written under a temporary name first, readers never see partial
+		 * results
+		 */
+		File file = getFile(key);
+		File temporary = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			OutputStream out = new FileOutputStream(temporary);
+			try {
+				out.write(value);
+			} finally {
+				out.close();
+			}
+			if (!temporary.renameTo(file)) {
+				file.delete();
+				temporary.renameTo(file);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			temporary.delete();
+		}
+	}
+}
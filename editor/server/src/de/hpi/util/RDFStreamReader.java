@@ -0,0 +1,238 @@
+package de.hpi.util;
+
+import java.io.Reader;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads an Oryx RDF document in a single pass.
+ *
+ * The children of the rdf:RDF root element (usually one rdf:Description per
+ * shape and the whitespace between them) are returned one at a time as
+ * detached DOM nodes. They look exactly like the children of the document
+ * element after a DOM parse, including text nodes and qualified node names,
+ * so the importers can hand them to their existing handlers. Only the node
+ * currently being read is kept in memory, the document itself is never
+ * built.
+ */
+public class RDFStreamReader {
+
+	private static final XMLInputFactory inputFactory;
+
+	static {
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	private final XMLStreamReader reader;
+	private final Document owner;
+	private final String rootName;
+
+	/* Pending text that belongs in front of the next node */
+	private StringBuilder text = new StringBuilder();
+
+	private boolean finished = false;
+
+	/**
+	 * Opens the RDF document and moves to its root element.
+	 *
+	 * @param rdf
+	 *            The RDF document
+	 * @throws XMLStreamException
+	 * @throws ParserConfigurationException
+	 */
+	public RDFStreamReader(Reader rdf) throws XMLStreamException, ParserConfigurationException {
+		synchronized (inputFactory) {
+			this.reader = inputFactory.createXMLStreamReader(rdf);
+		}
+		this.owner = XMLFactories.getDocumentBuilder().newDocument();
+
+		while (reader.hasNext() && reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+			reader.next();
+		if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+			this.rootName = qualifiedName(reader.getPrefix(), reader.getLocalName());
+			reader.next();
+		} else {
+			this.rootName = null;
+			this.finished = true;
+		}
+	}
+
+	/**
+	 * @return The qualified name of the document element, e.g. "rdf:RDF", or
+	 *         <code>null</code> if the document is empty
+	 */
+	public String getRootName() {
+		return rootName;
+	}
+
+	/**
+	 * @return <code>true</code> if the document element is rdf:RDF
+	 */
+	public boolean isRDF() {
+		return "rdf:RDF".equals(rootName);
+	}
+
+	/**
+	 * Reads the next child of the document element.
+	 *
+	 * @return The next child as detached node or <code>null</code> if all
+	 *         children have been read
+	 * @throws XMLStreamException
+	 */
+	public Node nextNode() throws XMLStreamException {
+		if (finished)
+			return null;
+
+		while (true) {
+			int event = reader.getEventType();
+			switch (event) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				text.append(reader.getText());
+				reader.next();
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.COMMENT:
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				if (text.length() > 0)
+					return flushText();
+				return readNode();
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.END_DOCUMENT:
+				if (text.length() > 0)
+					return flushText();
+				finished = true;
+				reader.close();
+				return null;
+			default:
+				reader.next();
+			}
+		}
+	}
+
+	/**
+	 * Closes the underlying stream reader.
+	 *
+	 * @throws XMLStreamException
+	 */
+	public void close() throws XMLStreamException {
+		finished = true;
+		reader.close();
+	}
+
+	private Node flushText() {
+		Node node = owner.createTextNode(text.toString());
+		text = new StringBuilder();
+		return node;
+	}
+
+	/*
+	 * Reads the node at the current position including its subtree and moves
+	 * behind it.
+	 */
+	private Node readNode() throws XMLStreamException {
+		switch (reader.getEventType()) {
+		case XMLStreamConstants.CDATA:
+			Node cdata = owner.createCDATASection(reader.getText());
+			reader.next();
+			return cdata;
+		case XMLStreamConstants.COMMENT:
+			Node comment = owner.createComment(reader.getText());
+			reader.next();
+			return comment;
+		case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			Node pi = owner.createProcessingInstruction(reader.getPITarget(), reader.getPIData());
+			reader.next();
+			return pi;
+		}
+
+		Element element = createElement();
+		reader.next();
+
+		Node parent = element;
+		StringBuilder content = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.getEventType();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE
+					|| event == XMLStreamConstants.ENTITY_REFERENCE) {
+				content.append(reader.getText());
+			} else {
+				/* Adjacent text events form a single text node as in the DOM */
+				if (content.length() > 0) {
+					parent.appendChild(owner.createTextNode(content.toString()));
+					content.setLength(0);
+				}
+				switch (event) {
+				case XMLStreamConstants.START_ELEMENT:
+					Element child = createElement();
+					parent.appendChild(child);
+					parent = child;
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					parent = parent.getParentNode();
+					depth--;
+					break;
+				case XMLStreamConstants.CDATA:
+					parent.appendChild(owner.createCDATASection(reader.getText()));
+					break;
+				case XMLStreamConstants.COMMENT:
+					parent.appendChild(owner.createComment(reader.getText()));
+					break;
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+					parent.appendChild(owner.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+					break;
+				}
+			}
+			reader.next();
+		}
+		return element;
+	}
+
+	/*
+	 * Creates the element at the current start tag with the attributes and
+	 * namespace declarations a DOM parser would have created.
+	 */
+	private Element createElement() {
+		Element element = owner.createElementNS(emptyToNull(reader.getNamespaceURI()), qualifiedName(reader
+				.getPrefix(), reader.getLocalName()));
+
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, qualifiedName(
+					prefix != null && prefix.length() > 0 ? XMLConstants.XMLNS_ATTRIBUTE : null,
+					prefix != null && prefix.length() > 0 ? prefix : XMLConstants.XMLNS_ATTRIBUTE), reader
+					.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)), qualifiedName(reader
+					.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+		}
+		return element;
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.length() == 0)
+			return localName;
+		return prefix + ":" + localName;
+	}
+
+	private static String emptyToNull(String s) {
+		return s == null || s.length() == 0 ? null : s;
+	}
+}
@@ -0,0 +1,217 @@
+package de.hpi.util;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Shared XML infrastructure for the importers and exporters.
+ *
+ * Looking up and configuring the JAXP factories is expensive and was done
+ * for every request. This class creates each factory once, keeps one
+ * {@link DocumentBuilder}, {@link SAXParser} and identity
+ * {@link Transformer} per thread and caches compiled XSLT stylesheets as
+ * {@link Templates}.
+ *
+ * The per thread objects are reset before they are handed out. Use them
+ * right away and do not keep references across calls into other code that
+ * may ask for the same object.
+ */
+public class XMLFactories {
+
+	private static final DocumentBuilderFactory documentBuilderFactory;
+	private static final DocumentBuilderFactory namespaceAwareDocumentBuilderFactory;
+	private static final SAXParserFactory saxParserFactory;
+	private static final TransformerFactory transformerFactory;
+
+	static {
+		documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		namespaceAwareDocumentBuilderFactory = DocumentBuilderFactory.newInstance();
+		namespaceAwareDocumentBuilderFactory.setNamespaceAware(true);
+		saxParserFactory = SAXParserFactory.newInstance();
+		transformerFactory = TransformerFactory.newInstance();
+	}
+
+	private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>();
+	private static final ThreadLocal<DocumentBuilder> namespaceAwareDocumentBuilder = new ThreadLocal<DocumentBuilder>();
+	private static final ThreadLocal<SAXParser> saxParser = new ThreadLocal<SAXParser>();
+	private static final ThreadLocal<Transformer> identityTransformer = new ThreadLocal<Transformer>();
+
+	/* Document builders of factories with their own configuration */
+	private static final ThreadLocal<Map<DocumentBuilderFactory, DocumentBuilder>> configuredDocumentBuilders =
+		new ThreadLocal<Map<DocumentBuilderFactory, DocumentBuilder>>() {
+			protected Map<DocumentBuilderFactory, DocumentBuilder> initialValue() {
+				return new HashMap<DocumentBuilderFactory, DocumentBuilder>();
+			}
+		};
+
+	/* Compiled stylesheets, keyed by their location */
+	private static final Map<String, CachedTemplates> templates = new ConcurrentHashMap<String, CachedTemplates>();
+
+	/**
+	 * @return A document builder with the default JAXP configuration (not
+	 *         namespace aware) owned by the calling thread
+	 * @throws ParserConfigurationException
+	 */
+	public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+		return getDocumentBuilder(documentBuilder, documentBuilderFactory);
+	}
+
+	/**
+	 * @return A namespace aware document builder owned by the calling thread
+	 * @throws ParserConfigurationException
+	 */
+	public static DocumentBuilder getNamespaceAwareDocumentBuilder() throws ParserConfigurationException {
+		return getDocumentBuilder(namespaceAwareDocumentBuilder, namespaceAwareDocumentBuilderFactory);
+	}
+
+	/**
+	 * For parsers that need their own configuration, e.g. validation or
+	 * ignoring comments. The caller configures the factory once, keeps it in
+	 * a constant and must not change it afterwards.
+	 *
+	 * @param factory
+	 *            The configured factory
+	 * @return A document builder of the factory owned by the calling thread
+	 * @throws ParserConfigurationException
+	 */
+	public static DocumentBuilder getDocumentBuilder(DocumentBuilderFactory factory)
+			throws ParserConfigurationException {
+		Map<DocumentBuilderFactory, DocumentBuilder> builders = configuredDocumentBuilders.get();
+		DocumentBuilder builder = builders.get(factory);
+		if (builder == null) {
+			synchronized (factory) {
+				builder = factory.newDocumentBuilder();
+			}
+			builders.put(factory, builder);
+		} else {
+			builder.reset();
+		}
+		return builder;
+	}
+
+	private static DocumentBuilder getDocumentBuilder(ThreadLocal<DocumentBuilder> local,
+			DocumentBuilderFactory factory) throws ParserConfigurationException {
+		DocumentBuilder builder = local.get();
+		if (builder == null) {
+			synchronized (factory) {
+				builder = factory.newDocumentBuilder();
+			}
+			local.set(builder);
+		} else {
+			builder.reset();
+		}
+		return builder;
+	}
+
+	/**
+	 * @return A SAX parser with the default JAXP configuration owned by the
+	 *         calling thread
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	public static SAXParser getSAXParser() throws ParserConfigurationException, SAXException {
+		SAXParser parser = saxParser.get();
+		if (parser == null) {
+			synchronized (saxParserFactory) {
+				parser = saxParserFactory.newSAXParser();
+			}
+			saxParser.set(parser);
+		} else {
+			parser.reset();
+		}
+		return parser;
+	}
+
+	/**
+	 * @return An identity transformer without output properties owned by the
+	 *         calling thread
+	 * @throws TransformerConfigurationException
+	 */
+	public static Transformer getTransformer() throws TransformerConfigurationException {
+		Transformer transformer = identityTransformer.get();
+		if (transformer == null) {
+			synchronized (transformerFactory) {
+				transformer = transformerFactory.newTransformer();
+			}
+			identityTransformer.set(transformer);
+		} else {
+			transformer.reset();
+		}
+		return transformer;
+	}
+
+	/**
+	 * Creates a new transformer for the XSLT stylesheet in the given file.
+	 * The stylesheet is compiled on first use and again only if the file has
+	 * been modified since.
+	 *
+	 * @param stylesheet
+	 *            The XSLT file
+	 * @return A new transformer, it is not shared with other callers
+	 * @throws TransformerConfigurationException
+	 */
+	public static Transformer newTransformer(File stylesheet) throws TransformerConfigurationException {
+		String key = stylesheet.getAbsolutePath();
+		long lastModified = stylesheet.lastModified();
+
+		CachedTemplates cached = templates.get(key);
+		if (cached == null || cached.lastModified != lastModified) {
+			cached = new CachedTemplates(compile(new StreamSource(stylesheet)), lastModified);
+			templates.put(key, cached);
+		}
+		return cached.templates.newTransformer();
+	}
+
+	/**
+	 * Creates a new transformer for the XSLT stylesheet at the given URL, e.g.
+	 * a resource of the servlet context. The stylesheet is compiled on first
+	 * use only.
+	 *
+	 * @param stylesheet
+	 *            The location of the XSLT stylesheet
+	 * @return A new transformer, it is not shared with other callers
+	 * @throws TransformerConfigurationException
+	 */
+	public static Transformer newTransformer(URL stylesheet) throws TransformerConfigurationException {
+		String key = stylesheet.toExternalForm();
+
+		CachedTemplates cached = templates.get(key);
+		if (cached == null) {
+			cached = new CachedTemplates(compile(new StreamSource(key)), 0);
+			templates.put(key, cached);
+		}
+		return cached.templates.newTransformer();
+	}
+
+	private static Templates compile(StreamSource source) throws TransformerConfigurationException {
+		synchronized (transformerFactory) {
+			return transformerFactory.newTemplates(source);
+		}
+	}
+
+	private static class CachedTemplates {
+		final Templates templates;
+		final long lastModified;
+
+		CachedTemplates(Templates templates, long lastModified) {
+			this.templates = templates;
+			this.lastModified = lastModified;
+		}
+	}
+}
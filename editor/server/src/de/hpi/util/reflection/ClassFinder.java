@@ -1,13 +1,103 @@
 package de.hpi.util.reflection;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletContext;
 
 public class ClassFinder {
 
+	/**
+	 * Name of the index file generated during the build into a package
+	 * directory. It lists the fully qualified names of all classes of the
+	 * package and its sub packages, one per line.
+	 */
+	public static final String INDEX_FILE = "classes.index";
+
+	/* Results of earlier lookups, keyed by super class and package name */
+	private static final Map<String, List<?>> cache = new ConcurrentHashMap<String, List<?>>();
+
+	/** Returns all classes of the specified package, who are subclasses of the given super class.
+	 * The package is only searched on the first call for a super class and package, later calls 
+	 * return the same result without accessing the file system. The build time generated 
+	 * {@link #INDEX_FILE} is preferred over walking WEB-INF/classes.
+	 * 
+	 * @param <T>
+	 * @param T superclass of results
+	 * @param pckgname package to search in
+	 * @return unmodifiable list of subclasses of the given super class in the given package
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<Class<? extends T>> getCachedClassesByPackageName(Class<T> superclass, String pckgname, ServletContext servletContext) throws ClassNotFoundException {
+		String key = superclass.getName() + "@" + pckgname;
+		List<Class<? extends T>> classes = (List<Class<? extends T>>) cache.get(key);
+		if (classes == null) {
+			classes = getClassesFromIndex(superclass, pckgname, servletContext);
+			if (classes == null) {
+				classes = getClassesByPackageName(superclass, pckgname, servletContext);
+			}
+			classes = Collections.unmodifiableList(classes);
+			cache.put(key, classes);
+		}
+		return classes;
+	}
+
+	/** Returns all classes listed in the {@link #INDEX_FILE} of the package, who are subclasses 
+	 * of the given super class.
+	 * 
+	 * @return subclasses of the given super class or <code>null</code> if there is no index
+	 * @throws ClassNotFoundException
+	 */
+	public static <T> List<Class<? extends T>> getClassesFromIndex(Class<T> superclass, String pckgname, ServletContext servletContext) throws ClassNotFoundException {
+		InputStream in = servletContext.getResourceAsStream("/WEB-INF/classes/" + pckgname.replace('.', '/') + "/" + INDEX_FILE);
+		if (in == null) {
+			return null;
+		}
+		try {
+			return getClassesFromIndex(superclass, in);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/** Reads the class names from an index and returns all of them, who are subclasses of the
+	 * given super class.
+	 * 
+	 * @throws ClassNotFoundException
+	 * @throws IOException 
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<Class<? extends T>> getClassesFromIndex(Class<T> superclass, InputStream index) throws ClassNotFoundException, IOException {
+		ArrayList<Class<? extends T>> classes = new ArrayList<Class<? extends T>>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(index, "UTF-8"));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String className = line.trim();
+			if (className.length() == 0 || className.startsWith("#")) {
+				continue;
+			}
+			Class<? extends Object> cls = Class.forName(className);
+			if( superclass.isAssignableFrom(cls) ){
+				classes.add( (Class<? extends T>) cls );
+			}
+		}
+		return classes;
+	}
+
 	/** Returns all classes of the specified package, who are subclasses of the given super class
 	 * 
 	 * @param <T>
@@ -16,12 +106,30 @@ public class ClassFinder {
 	 * @return subclasses of the given super class in the given package
 	 * @throws ClassNotFoundException
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T> List<Class<? extends T>> getClassesByPackageName(Class<T> superclass, String pckgname, ServletContext servletContext) throws ClassNotFoundException {
+		String realPath = servletContext.getRealPath("WEB-INF/classes/");
+		if (realPath == null) {
+			throw new ClassNotFoundException(pckgname + " (WEB-INF/classes) does not appear to be a valid package");
+		}
+		return getClassesByPackageName(superclass, pckgname, new File(realPath));
+	}
+
+	/** Returns all classes of the specified package below the given class path directory, who 
+	 * are subclasses of the given super class
+	 * 
+	 * @param <T>
+	 * @param T superclass of results
+	 * @param pckgname package to search in
+	 * @param classesRoot class path directory, e.g. WEB-INF/classes
+	 * @return subclasses of the given super class in the given package
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<Class<? extends T>> getClassesByPackageName(Class<T> superclass, String pckgname, File classesRoot) throws ClassNotFoundException {
 		// This will hold a list of directories matching the packagename. There may be more than one if a package is split over multiple jars/paths
       	String path = pckgname.replace('.', '/');
         
-      	File directory = new File(servletContext.getRealPath("WEB-INF/classes/" + path));
+      	File directory = new File(classesRoot, path);
 
         ArrayList<Class<? extends T>> classes = new ArrayList<Class<? extends T>>();
         // For every directory identified capture all the .class files
@@ -40,7 +148,7 @@ public class ClassFinder {
         			}
         		} else if( file.isDirectory() ) { 
         			// Add recursive all child packages
-        			List<Class<? extends T>> childPackages = ClassFinder.getClassesByPackageName(superclass, pckgname + '.' + file.getName(), servletContext );
+        			List<Class<? extends T>> childPackages = ClassFinder.getClassesByPackageName(superclass, pckgname + '.' + file.getName(), classesRoot );
         			classes.addAll( childPackages );
         		}
         	}
@@ -7,6 +7,7 @@ import de.hpi.visio.data.Page;
 import de.hpi.visio.data.Shape;
 import de.hpi.visio.util.ImportConfigurationUtil;
 import de.hpi.visio.util.VisioShapeDistanceUtil;
+import de.hpi.visio.util.VisioShapeIndex;
 
 /**
  * HeuristicVisioEdgeInterpreter interprets all shapes, that are defined as edges - flow.
@@ -34,9 +35,10 @@ public class HeuristicVisioEdgeInterpreter {
 	private List<Shape> assignAllEdges(Page page) {
 		List<Shape> shapes = page.getShapes();
 		List<Shape> edges = getAllEdges(shapes);
+		VisioShapeIndex index = new VisioShapeIndex(shapes);
 		for (Shape edge : edges) {
-			Shape source = shapeUtil.getNearestPreferedShapeToPointWithinThreshold(edge, edge.getStartPoint(), shapes);
-			Shape target = shapeUtil.getNearestPreferedShapeToPointWithinThreshold(edge, edge.getEndPoint(), shapes);
+			Shape source = shapeUtil.getNearestPreferedShapeToPointWithinThreshold(edge, edge.getStartPoint(), index);
+			Shape target = shapeUtil.getNearestPreferedShapeToPointWithinThreshold(edge, edge.getEndPoint(), index);
 			if (source != null) {
 				edge.setSource(source);
 				source.addOutgoing(edge);
@@ -1,7 +1,7 @@
 package de.hpi.visio;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +12,7 @@ import de.hpi.visio.data.Shape;
 import de.hpi.visio.util.DistanceToShapeComparator;
 import de.hpi.visio.util.ImportConfigurationUtil;
 import de.hpi.visio.util.VisioShapeDistanceUtil;
+import de.hpi.visio.util.VisioShapeIndex;
 import java.util.Collections;
 
 /**
@@ -40,6 +41,7 @@ public class HeuristicVisioFreeTextInterpreter {
 		Boolean isInSimpleInterpretationMode = importUtil.getHeuristic("labelOnlyInterpretationMode").equalsIgnoreCase(
 				"simple");
 		String defaultTypeWithLabel = importUtil.getStencilSetConfig("unknownNameUButWithLabelType");
+		VisioShapeIndex index = null;
 		for (Shape shape : visioPage.getShapes()) {
 			if (shape.name == null || shape.name.equals("")) {
 				if (shape.getLabel() != null && shape.getLabel() != "") {
@@ -49,7 +51,9 @@ public class HeuristicVisioFreeTextInterpreter {
 						shape.setName(defaultTypeWithLabel);
 
 					} else {
-						interpreteShapeWithoutNameButWithLabelHeuristic(shape, visioPage, shapesWithNames);
+						if (index == null)
+							index = new VisioShapeIndex(visioPage.getShapes());
+						interpreteShapeWithoutNameButWithLabelHeuristic(shape, index, shapesWithNames);
 						continue;
 					}
 				}
@@ -60,14 +64,15 @@ public class HeuristicVisioFreeTextInterpreter {
 		return visioPage;
 	}
 
-	private void interpreteShapeWithoutNameButWithLabelHeuristic(Shape freeTextShape, Page visioPage, List<Shape> shapesWithNames) {
+	private void interpreteShapeWithoutNameButWithLabelHeuristic(Shape freeTextShape, VisioShapeIndex index, List<Shape> shapesWithNames) {
 		Double isLabelThreshold = Double.valueOf(importUtil.getHeuristic("labelOnlyIsLabelForAnotherShapeThreshold"));
 		Double isAnnotationThreshold = Double.valueOf(importUtil.getHeuristic("labelOnlyIsAnnotationToAnotherShapeThreshold"));
 		String annotationType = importUtil.getStencilSetConfig("labelOnlyAnnotationType");
-		Map<Shape, Double> labelThresholdShapes = new HashMap<Shape, Double>();
-		Map<Shape, Double> annotationThresholdShapes = new HashMap<Shape, Double>();
-		for (Shape otherShape : getNotExcludedShapesWithType(visioPage)) {
-			if (freeTextShape == otherShape)
+		Map<Shape, Double> labelThresholdShapes = new LinkedHashMap<Shape, Double>();
+		Map<Shape, Double> annotationThresholdShapes = new LinkedHashMap<Shape, Double>();
+		Double threshold = Math.max(isLabelThreshold, isAnnotationThreshold);
+		for (Shape otherShape : index.getShapesNear(freeTextShape, threshold)) {
+			if (freeTextShape == otherShape || !isNotExcludedShapeWithType(otherShape))
 				continue;
 			Double currentDistance = shapeUtil.getAroundMinimalDistanceBetweenTwoShapeBorders(freeTextShape, otherShape);
 			if (currentDistance < isLabelThreshold)
@@ -101,27 +106,19 @@ public class HeuristicVisioFreeTextInterpreter {
 		}
 	}
 
-	private List<Shape> getNotExcludedShapesWithType(Page visioPage) {
-		List<Shape> shapesWithType = new ArrayList<Shape>();
+	private Boolean isNotExcludedShapeWithType(Shape shape) {
 		String excludedStencilsString = importUtil.getStencilSetConfig("FromFreeTextInterpretationExcludedStencils");
 		String[] excludedStencils = excludedStencilsString.split(",");
-		for (Shape shape : visioPage.getShapes()) {
-			String configuredStencilId = importUtil.getStencilIdForName(shape.getName());
-			if (configuredStencilId == null || "".equals(configuredStencilId))
-				continue;
-			Boolean isExcluded = false;
-			if (excludedStencilsString != null && !"".equals(excludedStencilsString)) {
-				for (String excludedStencil : excludedStencils) {
-					if (excludedStencil.equalsIgnoreCase(configuredStencilId))
-						isExcluded = true;
-				}
-			}
-			if (!isExcluded) {
-				shapesWithType.add(shape);
+		String configuredStencilId = importUtil.getStencilIdForName(shape.getName());
+		if (configuredStencilId == null || "".equals(configuredStencilId))
+			return false;
+		if (excludedStencilsString != null && !"".equals(excludedStencilsString)) {
+			for (String excludedStencil : excludedStencils) {
+				if (excludedStencil.equalsIgnoreCase(configuredStencilId))
+					return false;
 			}
 		}
-
-		return shapesWithType;
+		return true;
 	}
 
 	private Shape createAssociationBetween(Shape shape, Shape annotation) {
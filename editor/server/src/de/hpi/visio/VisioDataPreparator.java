@@ -10,6 +10,7 @@ import de.hpi.visio.data.VisioDocument;
 import de.hpi.visio.data.XForm;
 import de.hpi.visio.util.ImportConfigurationUtil;
 import de.hpi.visio.util.VisioShapeDistanceUtil;
+import de.hpi.visio.util.VisioShapeIndex;
 
 /**
  * The VisioDataCleaner prepares the xmappr-generated Java classes to be mapped
@@ -143,19 +144,21 @@ public class VisioDataPreparator {
 		String propertyElementsString = importUtil.getMappingConfig("areOnlyProperties");
 		if (propertyElementsString != null && !"".equals(propertyElementsString)) {
 			String[] propertyElements = propertyElementsString.split(",");
+			VisioShapeIndex index = new VisioShapeIndex(page.getShapes());
 			Shape resultingShape = null;
 			for (String propertyElementName : propertyElements) {
 				List<Shape> propertyShapes = page.getShapesByName(propertyElementName);
 				for (Shape propertyShape : propertyShapes) {
-					Shape containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(page.getShapes(), propertyShape, "Task");
+					Shape containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(index, propertyShape, "Task");
 					if (containingShape == null)
-						containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(page.getShapes(), propertyShape, "Subprocess");
+						containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(index, propertyShape, "Subprocess");
 					if (containingShape == null)
-						containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(page.getShapes(), propertyShape, "CollapsedSubprocess");
+						containingShape = shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(index, propertyShape, "CollapsedSubprocess");
 					if (containingShape != null) {
 						resultingShape = containingShape;
 					}
 					page.removeShape(propertyShape);
+					index.remove(propertyShape);
 					String propertyKey = importUtil.getMappingConfig("Properties." + propertyElementName + ".key");
 					String propertyValue = importUtil.getMappingConfig("Properties." + propertyElementName + ".value");
 					if (resultingShape != null && propertyKey != null && propertyValue != null) {
@@ -188,13 +191,15 @@ public class VisioDataPreparator {
 
 	private Page convertTaskWithMarkerToSubprocesses(Page page) {
 		List<Shape> subprocessMarkers = page.getShapesByName("Collapsed Subprocess Marker");
+		VisioShapeIndex index = new VisioShapeIndex(page.getShapes());
 		for (Shape marker : subprocessMarkers) {
 			Shape containingShape = 
-				shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(page.getShapes(), marker, "Task");
+				shapeUtil.getFirstShapeOfStencilThatContainsTheGivenShape(index, marker, "Task");
 			if (containingShape != null) {
 				containingShape.setName(importUtil.getMappingConfig("taskWithSubprocessMarker"));
 			}
 			page.removeShape(marker);
+			index.remove(marker);
 		}
 		return page;
 	}
@@ -1,8 +1,11 @@
 package de.hpi.visio;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.oryxeditor.server.diagram.Diagram;
 import org.oryxeditor.server.diagram.JSONBuilder;
 import org.xmappr.Xmappr;
@@ -28,10 +31,15 @@ public class VisioToJSONConverter {
 	 * @return
 	 */
 	public String importVisioData(String xml, String stencilSet) {
-		VisioXmlPreparator preparator = new VisioXmlPreparator();
-		String preparedXml = preparator.prepareXML(xml);
+		return importVisioData(new StringReader(xml), stencilSet);
+	}
 
-		VisioDocument visioDocument = getVisioDocumentFromXML(stencilSet, preparedXml);
+	/**
+	 * Imports the visio data while reading it: the xml is prepared for xmappr
+	 * on the fly (see VisioXmlStreamPreparator) and never held as a whole.
+	 */
+	public String importVisioData(Reader xml, String stencilSet) {
+		VisioDocument visioDocument = getVisioDocumentFromXML(stencilSet, xml);
 
 		VisioDataToDiagramTransformator transformator = new VisioDataToDiagramTransformator(contextPath, visioDocument.getStencilSet());
 		Diagram diagram = transformator.createDiagram(visioDocument);
@@ -39,12 +47,25 @@ public class VisioToJSONConverter {
 		return getJSONForDiagram(diagram);
 	}
 
-	private VisioDocument getVisioDocumentFromXML(String stencilSet, String preparedXml) {
-		Reader reader = new StringReader(preparedXml);
-		Xmappr xmappr = new Xmappr(VisioDocument.class);
-		VisioDocument visioDocument = (VisioDocument) xmappr.fromXML(reader);
-		visioDocument.setStencilSet(stencilSet);
-		return visioDocument;
+	private VisioDocument getVisioDocumentFromXML(String stencilSet, Reader xml) {
+		VisioXmlStreamPreparator reader;
+		try {
+			reader = new VisioXmlStreamPreparator(xml);
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Wasn't possible to read the given visio xml.", e);
+		}
+		try {
+			Xmappr xmappr = new Xmappr(VisioDocument.class);
+			VisioDocument visioDocument = (VisioDocument) xmappr.fromXML(reader);
+			visioDocument.setStencilSet(stencilSet);
+			return visioDocument;
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// the document has been read already
+			}
+		}
 	}
 
 	private String getJSONForDiagram(Diagram diagram) {
@@ -6,6 +6,8 @@ package de.hpi.visio;
  * - removes the xml-declaration 
  * - removes all attributes from the root-element 
  * - removes all child-elements in <Text></Text>-Elements
+ * The import itself uses the VisioXmlStreamPreparator, that does the same
+ * while reading the xml.
  * 
  * @author Thamsen
  */
@@ -0,0 +1,210 @@
+package de.hpi.visio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming version of the VisioXmlPreparator: a reader that returns the
+ * cleaned visio vdx-xml while it reads the original one, so that xmappr can
+ * map it without the whole document being held as strings:
+ * - removes the namespaces of Visio 2010
+ * - removes the xml-declaration, comments and processing instructions
+ * - removes all attributes from the root-element
+ * - removes all child-elements in <Text></Text>-Elements
+ *
+ * Only the events of one chunk of the document are kept in memory.
+ */
+public class VisioXmlStreamPreparator extends Reader {
+
+	private static final XMLInputFactory inputFactory;
+
+	static {
+		// not namespace aware: element and attribute names are kept as they
+		// are written, so that prefixes can be removed like in the text
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	// v14 as office number - namespace - is used in visio 2010 only and can't
+	// be parsed by xmappr
+	private static final Pattern VISIO_2010_NAMESPACE = Pattern.compile(":v14|v14:");
+
+	private static final String ROOT_ELEMENT = "VisioDocument";
+	private static final String TEXT_ELEMENT = "Text";
+
+	// the cleaned xml is produced in chunks of about this size
+	private static final int CHUNK_SIZE = 8192;
+
+	private final XMLStreamReader reader;
+	private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE * 2);
+	private int position = 0;
+
+	private int depth = 0;
+	// depth of the <Text>-element whose children are removed, 0 if outside
+	private int textDepth = 0;
+	private boolean finished = false;
+
+	public VisioXmlStreamPreparator(Reader xml) throws XMLStreamException {
+		synchronized (inputFactory) {
+			reader = inputFactory.createXMLStreamReader(xml);
+		}
+	}
+
+	/**
+	 * Reads the xml from a stream in the encoding of its xml-declaration.
+	 */
+	public VisioXmlStreamPreparator(InputStream xml) throws XMLStreamException {
+		synchronized (inputFactory) {
+			reader = inputFactory.createXMLStreamReader(xml);
+		}
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		while (position == chunk.length()) {
+			if (finished)
+				return -1;
+			chunk.setLength(0);
+			position = 0;
+			try {
+				readChunk();
+			} catch (XMLStreamException e) {
+				IOException exception = new IOException("Wasn't possible to read the given visio xml.");
+				exception.initCause(e);
+				throw exception;
+			}
+		}
+		int count = Math.min(length, chunk.length() - position);
+		chunk.getChars(position, position + count, buffer, offset);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			IOException exception = new IOException("Wasn't possible to close the given visio xml.");
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private void readChunk() throws XMLStreamException {
+		while (chunk.length() < CHUNK_SIZE && !finished) {
+			if (!reader.hasNext()) {
+				finished = true;
+				break;
+			}
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				startElement();
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				endElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				// text outside of the root-element is dropped
+				if (depth > 0)
+					appendEscaped(removeVisio2010Namespaces(reader.getText()), false);
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				finished = true;
+				break;
+			default:
+				// xml-declaration, comments, processing instructions
+				break;
+			}
+		}
+	}
+
+	private void startElement() {
+		depth++;
+		if (textDepth > 0)
+			return;
+		if (depth == 1) {
+			// so that there will be a mapping with the declared xmappr-root
+			// reason: if the root-element has a lot of attributes xmappr tends
+			// to not recognize it
+			chunk.append('<').append(ROOT_ELEMENT).append('>');
+			return;
+		}
+		String name = removeVisio2010Namespaces(reader.getLocalName());
+		chunk.append('<').append(name);
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String prefix = reader.getAttributePrefix(i);
+			String attribute = reader.getAttributeLocalName(i);
+			if (prefix != null && prefix.length() > 0)
+				attribute = prefix + ":" + attribute;
+			chunk.append(' ').append(removeVisio2010Namespaces(attribute)).append("=\"");
+			appendEscaped(removeVisio2010Namespaces(reader.getAttributeValue(i)), true);
+			chunk.append('"');
+		}
+		chunk.append('>');
+		// It's possible that the <Text>-elements in Visio have own children,
+		// but xMappr needs plainText-<Text>-elements to convert to String
+		// member.
+		if (TEXT_ELEMENT.equals(name))
+			textDepth = depth;
+	}
+
+	private void endElement() {
+		if (textDepth == 0 || depth == textDepth) {
+			textDepth = 0;
+			if (depth == 1) {
+				chunk.append("</").append(ROOT_ELEMENT).append('>');
+				finished = true;
+			} else {
+				chunk.append("</").append(removeVisio2010Namespaces(reader.getLocalName())).append('>');
+			}
+		}
+		depth--;
+	}
+
+	private String removeVisio2010Namespaces(String text) {
+		if (text.indexOf("v14") == -1)
+			return text;
+		return VISIO_2010_NAMESPACE.matcher(text).replaceAll("");
+	}
+
+	private void appendEscaped(String text, boolean isAttribute) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				chunk.append("&amp;");
+				break;
+			case '<':
+				chunk.append("&lt;");
+				break;
+			case '>':
+				chunk.append("&gt;");
+				break;
+			case '"':
+				if (isAttribute)
+					chunk.append("&quot;");
+				else
+					chunk.append(c);
+				break;
+			default:
+				chunk.append(c);
+			}
+		}
+	}
+
+}
@@ -57,6 +57,15 @@ public class XForm {
 		return new Point(lowerRightX, lowerRightY);
 	}
 
+	/**
+	 * @return whether the central pin, the width and the height are given,
+	 *         which the boundaries are computed from
+	 */
+	public boolean hasBounds() {
+		return positionX != null && positionX.getX() != null && positionY != null && positionY.getY() != null
+				&& width != null && width.getWidth() != null && height != null && height.getHeight() != null;
+	}
+
 	public Double getHeight() {
 		swapWidthAndHeightIfThereIsAnAngle();
 		return height.getHeight();
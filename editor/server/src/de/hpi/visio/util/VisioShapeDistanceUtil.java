@@ -1,7 +1,7 @@
 package de.hpi.visio.util;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +43,15 @@ public class VisioShapeDistanceUtil {
 		return null;
 	}
 
+	/**
+	 * Same as above, but only looks at the shapes of the index that are under
+	 * the central pin of the specific shape.
+	 */
+	public Shape getFirstShapeOfStencilThatContainsTheGivenShape(VisioShapeIndex index, Shape givenShape, String stencilId) {
+		return getFirstShapeOfStencilThatContainsTheGivenShape(index.getShapesContaining(givenShape.getCentralPin()),
+				givenShape, stencilId);
+	}
+
 	public Shape getFirstShapeThatContainsTheGivenShape(List<Shape> shapes, Shape givenShape) {
 		for (Shape currentShape : shapes) {
 			if (isFirstShapeOnSecondShape(givenShape, currentShape) && givenShape != currentShape)
@@ -51,6 +60,10 @@ public class VisioShapeDistanceUtil {
 		return null;
 	}
 
+	public Shape getFirstShapeThatContainsTheGivenShape(VisioShapeIndex index, Shape givenShape) {
+		return getFirstShapeThatContainsTheGivenShape(index.getShapesContaining(givenShape.getCentralPin()), givenShape);
+	}
+
 	private Boolean isFirstShapeOnSecondShape(Shape firstShape, Shape secondShape) {
 		Boolean result = isAPointInsideBounds(firstShape.getCentralPin(), secondShape.getVisioBounds());
 		return result;
@@ -65,6 +78,16 @@ public class VisioShapeDistanceUtil {
 		return false;
 	}
 
+	/**
+	 * Same as getNearestPreferedShapeToPointWithinThreshold for a list of
+	 * shapes, but only looks at the shapes of the index that are within the
+	 * threshold of the point.
+	 */
+	public Shape getNearestPreferedShapeToPointWithinThreshold(Shape self, Point point, VisioShapeIndex index) {
+		return getNearestPreferedShapeToPointWithinThreshold(self, point,
+				index.getShapesNear(point, maxDistanceThresholdInVisioUnit));
+	}
+
 	public Shape getNearestPreferedShapeToPointWithinThreshold(Shape self, Point point, List<Shape> shapes) {
 		// anti prefered stencils: e.g. pools, because the distance is nearly
 		// always 0.0,
@@ -73,7 +96,9 @@ public class VisioShapeDistanceUtil {
 		// win in that comparison
 		String[] antiPreferedStencils = importUtil.getStencilSetConfig("antiPreferForEdgeAssignment").split(",");
 		if (shapes.size() > 0) {
-			Map<Shape, Double> shapesWithinThresholdMap = new HashMap<Shape, Double>();
+			// ordered like the shapes, so that equally distant shapes are
+			// always preferred the same way
+			Map<Shape, Double> shapesWithinThresholdMap = new LinkedHashMap<Shape, Double>();
 			for (Shape shape : shapes) {
 				if (shape == self)
 					continue;
@@ -0,0 +1,214 @@
+package de.hpi.visio.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.oryxeditor.server.diagram.Point;
+
+import de.hpi.visio.data.Shape;
+import de.hpi.visio.data.XForm;
+
+/**
+ * Spatial index over the bounding boxes of visio shapes: a uniform grid
+ * with cells about as large as an average shape. It answers which shapes
+ * are near a point or a shape and which shapes contain a point without
+ * looking at all shapes of the page. Shapes spanning many cells (e.g. pools)
+ * and shapes without complete or with flipped bounds are kept aside and are
+ * candidates of every query.
+ *
+ * The results are candidates in the order the shapes were added: they are
+ * a superset of the shapes the exact checks of the VisioShapeDistanceUtil
+ * accept, so these checks still have to be applied to them. An index is not
+ * thread safe.
+ */
+public class VisioShapeIndex {
+
+	private static final int MAX_CELLS_PER_SHAPE = 64;
+
+	private double cellSize;
+	private Map<Long, List<Entry>> cells = new HashMap<Long, List<Entry>>();
+	private List<Entry> largeEntries = new ArrayList<Entry>();
+	private Map<Shape, Entry> entries = new IdentityHashMap<Shape, Entry>();
+	private int nextOrder;
+	private int query;
+
+	public VisioShapeIndex(List<Shape> shapes) {
+		List<Entry> newEntries = new ArrayList<Entry>(shapes.size());
+		for (Shape shape : shapes) {
+			newEntries.add(new Entry(shape, nextOrder++));
+		}
+		cellSize = getAverageSize(newEntries);
+		for (Entry entry : newEntries) {
+			add(entry);
+		}
+	}
+
+	public void add(Shape shape) {
+		add(new Entry(shape, nextOrder++));
+	}
+
+	private void add(Entry entry) {
+		entries.put(entry.shape, entry);
+		if (!entry.hasBounds || getCellCount(entry.minX, entry.minY, entry.maxX, entry.maxY) > MAX_CELLS_PER_SHAPE) {
+			largeEntries.add(entry);
+			return;
+		}
+		for (long x = getCell(entry.minX); x <= getCell(entry.maxX); x++) {
+			for (long y = getCell(entry.minY); y <= getCell(entry.maxY); y++) {
+				Long key = getKey(x, y);
+				List<Entry> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Entry>();
+					cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	public void remove(Shape shape) {
+		Entry entry = entries.remove(shape);
+		if (entry != null)
+			entry.removed = true;
+	}
+
+	/**
+	 * Returns the shapes whose bounds might contain the given point.
+	 */
+	public List<Shape> getShapesContaining(Point point) {
+		return getShapesNear(point, 0.0);
+	}
+
+	/**
+	 * Returns the shapes whose bounds might be within the given distance to
+	 * the point.
+	 */
+	public List<Shape> getShapesNear(Point point, double distance) {
+		return getShapesOverlapping(point.getX() - distance, point.getY() - distance, point.getX() + distance,
+				point.getY() + distance);
+	}
+
+	/**
+	 * Returns the shapes whose bounds might be within the given distance to
+	 * the bounds of the given shape.
+	 */
+	public List<Shape> getShapesNear(Shape shape, double distance) {
+		double x = shape.getCentralPin().getX();
+		double y = shape.getCentralPin().getY();
+		double halfWidth = shape.getWidth() / 2 + distance;
+		double halfHeight = shape.getHeight() / 2 + distance;
+		return getShapesOverlapping(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight);
+	}
+
+	private List<Shape> getShapesOverlapping(double minX, double minY, double maxX, double maxY) {
+		query++;
+		List<Entry> found = new ArrayList<Entry>();
+		for (Entry entry : largeEntries) {
+			collect(entry, minX, minY, maxX, maxY, found);
+		}
+		if (getCellCount(minX, minY, maxX, maxY) > cells.size()) {
+			for (List<Entry> cell : cells.values()) {
+				for (Entry entry : cell)
+					collect(entry, minX, minY, maxX, maxY, found);
+			}
+		} else {
+			for (long x = getCell(minX); x <= getCell(maxX); x++) {
+				for (long y = getCell(minY); y <= getCell(maxY); y++) {
+					List<Entry> cell = cells.get(getKey(x, y));
+					if (cell == null)
+						continue;
+					for (Entry entry : cell)
+						collect(entry, minX, minY, maxX, maxY, found);
+				}
+			}
+		}
+		Collections.sort(found, new Comparator<Entry>() {
+			public int compare(Entry e1, Entry e2) {
+				return e1.order < e2.order ? -1 : (e1.order == e2.order ? 0 : 1);
+			}
+		});
+		List<Shape> shapes = new ArrayList<Shape>(found.size());
+		for (Entry entry : found) {
+			shapes.add(entry.shape);
+		}
+		return shapes;
+	}
+
+	private void collect(Entry entry, double minX, double minY, double maxX, double maxY, List<Entry> found) {
+		if (entry.removed || entry.query == query)
+			return;
+		entry.query = query;
+		if (!entry.hasBounds
+				|| (entry.minX <= maxX && minX <= entry.maxX && entry.minY <= maxY && minY <= entry.maxY))
+			found.add(entry);
+	}
+
+	private long getCell(double coordinate) {
+		return (long) Math.floor(coordinate / cellSize);
+	}
+
+	private long getCellCount(double minX, double minY, double maxX, double maxY) {
+		return (getCell(maxX) - getCell(minX) + 1) * (getCell(maxY) - getCell(minY) + 1);
+	}
+
+	private Long getKey(long x, long y) {
+		return (x << 32) ^ (y & 0xffffffffL);
+	}
+
+	private double getAverageSize(List<Entry> entries) {
+		double size = 0.0;
+		int count = 0;
+		for (Entry entry : entries) {
+			if (entry.hasBounds) {
+				size += Math.max(entry.maxX - entry.minX, entry.maxY - entry.minY);
+				count++;
+			}
+		}
+		if (count == 0 || !(size > 0.0))
+			return 1.0;
+		return size / count;
+	}
+
+	/**
+	 * A shape with its bounding box in visio coordinates, y pointing upwards.
+	 */
+	private static class Entry {
+
+		private Shape shape;
+		private int order;
+		private boolean hasBounds;
+		private double minX;
+		private double minY;
+		private double maxX;
+		private double maxY;
+		private boolean removed;
+		private int query;
+
+		private Entry(Shape shape, int order) {
+			this.shape = shape;
+			this.order = order;
+			XForm xForm = shape.getXForm();
+			if (xForm == null || !xForm.hasBounds()) {
+				// incomplete xForm, the shape is a candidate of every query
+				hasBounds = false;
+				return;
+			}
+			Point upperLeft = xForm.getUpperLeftVisioPoint();
+			Point lowerRight = xForm.getLowerRightVisioPoint();
+			minX = upperLeft.getX();
+			maxX = lowerRight.getX();
+			minY = lowerRight.getY();
+			maxY = upperLeft.getY();
+			// the distances to flipped bounds (negative width or height)
+			// are not the distances to the box
+			hasBounds = minX <= maxX && minY <= maxY && !Double.isInfinite(maxX - minX)
+					&& !Double.isInfinite(maxY - minY);
+		}
+	}
+
+}
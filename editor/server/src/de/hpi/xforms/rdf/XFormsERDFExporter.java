@@ -12,8 +12,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.xml.serialize.XMLSerializer;
@@ -45,6 +43,7 @@ import de.hpi.xforms.Value;
 import de.hpi.xforms.XForm;
 import de.hpi.xforms.XFormsElement;
 import de.hpi.xforms.XFormsUIElement;
+import de.hpi.util.XMLFactories;
 
 /**
  * 
@@ -435,11 +434,8 @@ public class XFormsERDFExporter {
 			e.printStackTrace();
 		}
 		
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
 		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			return builder.parse(new ByteArrayInputStream(svg.getBytes()));
+			return XMLFactories.getNamespaceAwareDocumentBuilder().parse(new ByteArrayInputStream(svg.getBytes()));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -1,12 +1,12 @@
 package de.hpi.xforms.rdf;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.json.JSONArray;
@@ -18,6 +18,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.Text;
 import org.xml.sax.InputSource;
 
+import de.hpi.util.RDFStreamReader;
+import de.hpi.util.XMLFactories;
 import de.hpi.xforms.*;
 
 /**
@@ -42,6 +44,13 @@ public class XFormsRDFImporter {
 		Map<XFormsElement, Bind> bindings; // key = xforms element, value = associated bind element
 	}
 
+	/**
+	 * Creates an importer for {@link #loadXForm(Reader)}.
+	 */
+	public XFormsRDFImporter() {
+		super();
+	}
+	
 	public XFormsRDFImporter(Document doc) {
 		super();
 		this.doc = doc;
@@ -59,6 +68,51 @@ public class XFormsRDFImporter {
 		if (root == null)
 			return null;
 
+		ImportContext c = createImportContext();
+
+		if(root.hasChildNodes()) {
+			createInstanceModel();
+			for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+				handleNode(node, c);
+			}
+		}
+		
+		return completeImport(c);
+	}
+	
+	/**
+	 * Builds the form while the RDF document is read, without loading the
+	 * whole document into a DOM first. The result is the same as parsing the
+	 * document and calling {@link #loadXForm()}.
+	 * 
+	 * @param rdf the RDF document
+	 * @return the form or null if the document is not RDF
+	 * @throws XMLStreamException
+	 * @throws ParserConfigurationException
+	 */
+	public XForm loadXForm(Reader rdf) throws XMLStreamException, ParserConfigurationException {
+		RDFStreamReader reader = new RDFStreamReader(rdf);
+		try {
+			if (!reader.isRDF())
+				return null;
+
+			ImportContext c = createImportContext();
+
+			Node node = reader.nextNode();
+			if(node != null) {
+				createInstanceModel();
+				for (; node != null; node = reader.nextNode()) {
+					handleNode(node, c);
+				}
+			}
+
+			return completeImport(c);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	protected ImportContext createImportContext() {
 		factory = new XFormsFactory();
 
 		ImportContext c = new ImportContext();
@@ -69,111 +123,111 @@ public class XFormsRDFImporter {
 		c.form.setModel(factory.createModel());
 		c.form.setResourceId("#oryx-canvas123");
 		c.objects.put("#oryx-canvas123", c.form);
-
-		if(root.hasChildNodes()) {
-			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder;
-			try {
-				builder = factory.newDocumentBuilder();
-				instanceModelDoc = builder.newDocument();
-			} catch (ParserConfigurationException e) {
-				e.printStackTrace();
-			}
-			
-			Element element = (Element) instanceModelDoc.createElement("model");
-			instanceModelDoc.appendChild(element);
-						
-			for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
-				
-				if (node instanceof Text)
-					continue;
-
-				String type = getType(node);
-				if (type == null)
-					continue;
-				
-				if (type.equals("XForm")) {
-					handleAttributes(node, c.form, c);
-				} else if (type.equals("Input")) {
-					addInput(node, c);
-				} else if (type.equals("Secret")) {
-					addSecret(node, c);
-				} else if (type.equals("Textarea")) {
-					addTextarea(node, c);
-				} else if (type.equals("Output")) {
-					addOutput(node, c);
-				} else if (type.equals("Upload")) {
-					addUpload(node, c);
-				} else if (type.equals("Range")) {
-					addRange(node, c);
-				} else if (type.equals("Trigger")) {
-					addTrigger(node, c);
-				} else if (type.equals("Submit")) {
-					addSubmit(node, c);
-				} else if (type.equals("Select")) {
-					addSelect(node, c);
-				} else if (type.equals("Select1")) {
-					addSelect1(node, c);
-				} else if (type.equals("Group")) {
-					addGroup(node, c);
-				} else if (type.equals("Repeat")) {
-					addRepeat(node, c);
-				} else if (type.equals("Switch")) {
-					addSwitch(node, c);
-				} else if (type.equals("Case")) {
-					addCase(node, c);
-				} else if (type.equals("Label")) {
-					addLabel(node, c);
-				} else if (type.equals("Help")) {
-					addHelp(node, c);
-				} else if (type.equals("Hint")) {
-					addHint(node, c);
-				} else if (type.equals("Alert")) {
-					addAlert(node, c);
-				} else if (type.equals("Item")) {
-					addItem(node, c);
-				} else if (type.equals("Itemset")) {
-					addItemset(node, c);
-				} else if (type.equals("Choices")) {
-					addChoices(node, c);
-				} else if (type.equals("Action")) {
-					addAction(node, c);
-				} else if (type.equals("SetValue")) {
-					addSetValue(node, c);
-				} else if (type.equals("Insert")) {
-					addInsert(node, c);
-				} else if (type.equals("Delete")) {
-					addDelete(node, c);
-				} else if (type.equals("SetIndex")) {
-					addSetIndex(node, c);
-				} else if (type.equals("Toggle")) {
-					addToggle(node, c);
-				} else if (type.equals("SetFocus")) {
-					addSetFocus(node, c);
-				} else if (type.equals("Dispatch")) {
-					addDispatch(node, c);
-				} else if (type.equals("Rebuild")) {
-					addRebuild(node, c);
-				} else if (type.equals("Recalculate")) {
-					addRecalculate(node, c);
-				} else if (type.equals("Revalidate")) {
-					addRevalidate(node, c);
-				} else if (type.equals("Refresh")) {
-					addRefresh(node, c);
-				} else if (type.equals("Reset")) {
-					addReset(node, c);
-				} else if (type.equals("Load")) {
-					addLoad(node, c);
-				} else if (type.equals("Send")) {
-					addSend(node, c);
-				} else if (type.equals("Message")) {
-					addMessage(node, c);
-				}          
-				
-			}
+		return c;
+	}
+	
+	protected void createInstanceModel() {
+		try {
+			instanceModelDoc = XMLFactories.getDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			e.printStackTrace();
 		}
 		
+		Element element = (Element) instanceModelDoc.createElement("model");
+		instanceModelDoc.appendChild(element);
+	}
+	
+	/**
+	 * Handles a child of the rdf:RDF element.
+	 */
+	protected void handleNode(Node node, ImportContext c) {
+		if (node instanceof Text)
+			return;
+
+		String type = getType(node);
+		if (type == null)
+			return;
+		
+		if (type.equals("XForm")) {
+			handleAttributes(node, c.form, c);
+		} else if (type.equals("Input")) {
+			addInput(node, c);
+		} else if (type.equals("Secret")) {
+			addSecret(node, c);
+		} else if (type.equals("Textarea")) {
+			addTextarea(node, c);
+		} else if (type.equals("Output")) {
+			addOutput(node, c);
+		} else if (type.equals("Upload")) {
+			addUpload(node, c);
+		} else if (type.equals("Range")) {
+			addRange(node, c);
+		} else if (type.equals("Trigger")) {
+			addTrigger(node, c);
+		} else if (type.equals("Submit")) {
+			addSubmit(node, c);
+		} else if (type.equals("Select")) {
+			addSelect(node, c);
+		} else if (type.equals("Select1")) {
+			addSelect1(node, c);
+		} else if (type.equals("Group")) {
+			addGroup(node, c);
+		} else if (type.equals("Repeat")) {
+			addRepeat(node, c);
+		} else if (type.equals("Switch")) {
+			addSwitch(node, c);
+		} else if (type.equals("Case")) {
+			addCase(node, c);
+		} else if (type.equals("Label")) {
+			addLabel(node, c);
+		} else if (type.equals("Help")) {
+			addHelp(node, c);
+		} else if (type.equals("Hint")) {
+			addHint(node, c);
+		} else if (type.equals("Alert")) {
+			addAlert(node, c);
+		} else if (type.equals("Item")) {
+			addItem(node, c);
+		} else if (type.equals("Itemset")) {
+			addItemset(node, c);
+		} else if (type.equals("Choices")) {
+			addChoices(node, c);
+		} else if (type.equals("Action")) {
+			addAction(node, c);
+		} else if (type.equals("SetValue")) {
+			addSetValue(node, c);
+		} else if (type.equals("Insert")) {
+			addInsert(node, c);
+		} else if (type.equals("Delete")) {
+			addDelete(node, c);
+		} else if (type.equals("SetIndex")) {
+			addSetIndex(node, c);
+		} else if (type.equals("Toggle")) {
+			addToggle(node, c);
+		} else if (type.equals("SetFocus")) {
+			addSetFocus(node, c);
+		} else if (type.equals("Dispatch")) {
+			addDispatch(node, c);
+		} else if (type.equals("Rebuild")) {
+			addRebuild(node, c);
+		} else if (type.equals("Recalculate")) {
+			addRecalculate(node, c);
+		} else if (type.equals("Revalidate")) {
+			addRevalidate(node, c);
+		} else if (type.equals("Refresh")) {
+			addRefresh(node, c);
+		} else if (type.equals("Reset")) {
+			addReset(node, c);
+		} else if (type.equals("Load")) {
+			addLoad(node, c);
+		} else if (type.equals("Send")) {
+			addSend(node, c);
+		} else if (type.equals("Message")) {
+			addMessage(node, c);
+		}
+	}
+	
+	protected XForm completeImport(ImportContext c) {
 		setupParentRelationships(c);
 		addModel(c);
 		setupBinds(c);
@@ -760,11 +814,8 @@ public class XFormsRDFImporter {
 	}
 	
 	private void addHead(String head, ImportContext c) {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
 		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document headDoc = builder.parse(new InputSource(new StringReader(head)));
+			Document headDoc = XMLFactories.getNamespaceAwareDocumentBuilder().parse(new InputSource(new StringReader(head)));
 			c.form.setHead(headDoc.getDocumentElement());
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -5,7 +5,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -29,6 +28,7 @@ import de.hpi.xforms.UIElementContainer;
 import de.hpi.xforms.XForm;
 import de.hpi.xforms.XFormsElement;
 import de.hpi.xforms.XFormsUIElement;
+import de.hpi.util.XMLFactories;
 
 /**
  * 
@@ -73,8 +73,7 @@ public class XFormsXHTMLExporter {
 	public Document getXHTMLDocument(String cssUrl) {
 		
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 			doc = builder.newDocument();
 			
 			Element html = doc.createElementNS("http://www.w3.org/1999/xhtml", 
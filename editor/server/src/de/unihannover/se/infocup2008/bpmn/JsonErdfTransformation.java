@@ -9,8 +9,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONArray;
@@ -25,6 +23,8 @@ import org.w3c.dom.Node;
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
 
+import de.hpi.util.XMLFactories;
+
 public class JsonErdfTransformation {
 	private JSONObject canvas;
 	private Document doc;
@@ -178,11 +178,8 @@ public class JsonErdfTransformation {
 	}
 	
 	private Document createNewDocument(){
-		DocumentBuilder builder;
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		try {
-			builder = factory.newDocumentBuilder();
-			Document doc = builder.newDocument();
+			Document doc = XMLFactories.getDocumentBuilder().newDocument();
 			return doc;
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
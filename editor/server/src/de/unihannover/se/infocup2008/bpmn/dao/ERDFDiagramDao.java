@@ -36,7 +36,6 @@ import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -55,6 +54,7 @@ import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagramERDF;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNElement;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNElementERDF;
+import de.hpi.util.XMLFactories;
 
 /**
  * This class gets eRDF from a file or a oryxid and parses it
@@ -299,8 +299,7 @@ public class ERDFDiagramDao {
 			Result result = new StreamResult(file);
 
 			// Write the DOM document to the file
-			Transformer xformer = TransformerFactory.newInstance()
-					.newTransformer();
+			Transformer xformer = XMLFactories.getTransformer();
 
 			xformer.transform(source, result);
 
@@ -323,7 +322,7 @@ public class ERDFDiagramDao {
 		// Write the DOM document to the file
 		Transformer xformer;
 		try {
-			xformer = TransformerFactory.newInstance().newTransformer();
+			xformer = XMLFactories.getTransformer();
 			xformer.transform(source, result);
 		} catch (TransformerConfigurationException e) {
 			// TODO Auto-generated catch block
@@ -0,0 +1,136 @@
+package de.unihannover.se.infocup2008.bpmn.dao;
+
+import java.io.Reader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import de.hpi.layouting.model.LayoutingBoundsImpl;
+import de.hpi.layouting.model.LayoutingDockers;
+import de.hpi.util.RDFStreamReader;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagramRDF;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNElementRDF;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Reads a BPMN diagram from the RDF the editor sends, e.g. to the auto
+ * layouter. Element ids are the resource ids of the shapes, i.e. the part of
+ * the rdf:about behind the '#'.
+ *
+ * The shapes of the BPMN 1.0 and 1.1 stencil sets have the same names, so
+ * all types are mapped to {@link BPMNType}.
+ */
+public class RDFDiagramDao {
+
+	private static final String RDF_NS = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String BPMN_NS = "http://b3mn.org/stencilset/bpmn";
+
+	/**
+	 * @param rdf
+	 *            the RDF of the diagram
+	 * @return the diagram or <code>null</code> if the RDF does not describe a
+	 *         BPMN diagram
+	 * @throws XMLStreamException
+	 * @throws ParserConfigurationException
+	 */
+	public BPMNDiagram getDiagramFromRDF(Reader rdf) throws XMLStreamException,
+			ParserConfigurationException {
+		RDFStreamReader reader = new RDFStreamReader(rdf);
+		try {
+			if (!reader.isRDF())
+				return null;
+
+			BPMNDiagramRDF diagram = new BPMNDiagramRDF();
+			boolean bpmn = false;
+			for (Node node = reader.nextNode(); node != null; node = reader.nextNode()) {
+				if (!(node instanceof Element))
+					continue;
+				String type = processDescription((Element) node, diagram);
+				if (type != null && type.startsWith(BPMN_NS))
+					bpmn = true;
+			}
+			return bpmn ? diagram : null;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Adds the shape of the description to the diagram and returns its type.
+	 * Descriptions of the model itself have no type.
+	 */
+	private String processDescription(Element description, BPMNDiagramRDF diagram) {
+		String type = null;
+		boolean canvas = false;
+		String bounds = null;
+		String dockers = null;
+		String parent = null;
+		BPMNElementRDF element = null;
+
+		String id = getResourceId(description.getAttributeNS(RDF_NS, "about"));
+		for (Node n = description.getFirstChild(); n != null; n = n.getNextSibling()) {
+			if (!(n instanceof Element))
+				continue;
+			Element property = (Element) n;
+			String name = property.getLocalName();
+
+			if (RDF_NS.equals(property.getNamespaceURI())) {
+				if (name.equals("type")
+						&& property.getAttributeNS(RDF_NS, "resource").endsWith("/canvas"))
+					canvas = true;
+			} else if (name.equals("type")) {
+				type = property.getTextContent().trim();
+			} else if (name.equals("bounds")) {
+				bounds = property.getTextContent();
+			} else if (name.equals("dockers")) {
+				dockers = property.getTextContent();
+			} else if (name.equals("parent")) {
+				parent = getResourceId(property.getAttributeNS(RDF_NS, "resource"));
+			} else if (name.equals("outgoing")) {
+				if (element == null)
+					element = (BPMNElementRDF) diagram.getElement(id);
+				BPMNElementRDF target = (BPMNElementRDF) diagram.getElement(getResourceId(property
+						.getAttributeNS(RDF_NS, "resource")));
+				element.addOutgoingLink(target);
+				target.addIncomingLink(element);
+			}
+		}
+
+		if (type == null || canvas)
+			return canvas ? type : null;
+
+		if (element == null)
+			element = (BPMNElementRDF) diagram.getElement(id);
+		element.setType(BPMNType.PREFIX + type.substring(type.indexOf('#') + 1));
+
+		// the canvas is no parent in the layouter model
+		if (parent != null && !parent.startsWith("oryx-canvas"))
+			element.setParent(diagram.getElement(parent));
+
+		if (bounds != null) {
+			String[] values = bounds.split(",");
+			double x = Double.parseDouble(values[0].trim());
+			double y = Double.parseDouble(values[1].trim());
+			element.setGeometry(new LayoutingBoundsImpl(x, y, Double.parseDouble(values[2].trim()) - x,
+					Double.parseDouble(values[3].trim()) - y));
+		}
+
+		if (dockers != null) {
+			// "x1 y1 x2 y2 ... #"
+			LayoutingDockers points = element.getDockers();
+			points.getPoints().clear();
+			String[] values = dockers.trim().split(" +");
+			for (int i = 0; i + 1 < values.length && !values[i].equals("#"); i += 2)
+				points.addPoint(Double.parseDouble(values[i]), Double.parseDouble(values[i + 1]));
+		}
+		return type;
+	}
+
+	private static String getResourceId(String uri) {
+		return uri.substring(uri.lastIndexOf('#') + 1);
+	}
+}
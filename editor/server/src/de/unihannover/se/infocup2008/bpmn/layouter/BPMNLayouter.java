@@ -0,0 +1,319 @@
+package de.unihannover.se.infocup2008.bpmn.layouter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.hpi.layouting.grid.Grid;
+import de.hpi.layouting.model.LayoutingBoundsImpl;
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.layouter.topologicalsort.TopologicalSorterBPMN;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNElement;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Lays out a whole BPMN diagram: subprocesses from the innermost to the
+ * outermost, then the main process, the docked intermediate events and
+ * finally the edges.
+ *
+ * The state of a run lives in a {@link Context}, so one layouter can lay out
+ * several diagrams at the same time with {@link #doLayout(BPMNDiagram)}. If
+ * an executor is given, the subprocesses of the same nesting depth and the
+ * edges are laid out on it in parallel. They only change their own children,
+ * so the result is the same as the one of the sequential layout. The pools
+ * and lanes of the main process share one grid and are laid out together.
+ */
+public class BPMNLayouter implements Layouter {
+
+	/**
+	 * The number of edges laid out by one task
+	 */
+	private static final int EDGES_PER_TASK = 64;
+
+	private BPMNDiagram diagram;
+
+	private final Executor executor;
+
+	public BPMNLayouter() {
+		this(null, null);
+	}
+
+	public BPMNLayouter(BPMNDiagram diagram) {
+		this(diagram, null);
+	}
+
+	/**
+	 * @param diagram
+	 *            The diagram for {@link #doLayout()}
+	 * @param executor
+	 *            The executor for the parts of the layout, <code>null</code>
+	 *            to lay out in the calling thread. The elements must update
+	 *            their data model independently of each other, which JSON and
+	 *            RDF diagrams do, but not eRDF diagrams with their shared DOM.
+	 */
+	public BPMNLayouter(BPMNDiagram diagram, Executor executor) {
+		this.diagram = diagram;
+		this.executor = executor;
+	}
+
+	public void setDiagram(BPMNDiagram diagram) {
+		this.diagram = diagram;
+	}
+
+	public void doLayout() {
+		doLayout(this.diagram);
+	}
+
+	/**
+	 * Lays out the diagram. Different diagrams may be laid out concurrently.
+	 *
+	 * @param diagram
+	 *            The diagram to lay out
+	 */
+	public void doLayout(BPMNDiagram diagram) {
+		final Context context = new Context(diagram);
+
+		preprocessHeuristics(diagram);
+
+		// Layouting subprocesses, innermost first; the ones of the same depth
+		// are independent of each other
+		List<List<BPMNElement>> levels = calcLayoutOrder(context);
+		for (int depth = levels.size() - 1; depth >= 0; depth--) {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (final BPMNElement subProcess : levels.get(depth)) {
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						layoutSubprocess(context, subProcess);
+						return null;
+					}
+				});
+			}
+			runAll(tasks);
+		}
+		for (BPMNElement subProcess : context.subprocessOrder) {
+			context.grids.putAll(context.gridLayouters.get(subProcess)
+					.getGridParentMap());
+		}
+
+		// Layouting main process
+		LeftToRightGridLayouter lToRGridLayouter = layoutProcess(diagram, null);
+		context.grids.putAll(lToRGridLayouter.getGridParentMap());
+
+		CatchingIntermediateEventLayouter
+				.setCatchingIntermediateEvents(diagram);
+
+		// Setting edges
+		List<LayoutingElement> flows = new ArrayList<LayoutingElement>(diagram
+				.getConnectingElements());
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int i = 0; i < flows.size(); i += EDGES_PER_TASK) {
+			final List<LayoutingElement> part = flows.subList(i, Math.min(
+					flows.size(), i + EDGES_PER_TASK));
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					for (LayoutingElement flow : part) {
+						new EdgeLayouter(context.grids, (BPMNElement) flow);
+					}
+					return null;
+				}
+			});
+		}
+		runAll(tasks);
+	}
+
+	private void layoutSubprocess(Context context, BPMNElement subProcess) {
+		LeftToRightGridLayouter lToRGridLayouter = layoutProcess(
+				context.diagram, subProcess);
+
+		// set bounds
+		double subprocessWidth = lToRGridLayouter.getWidthOfDiagramm();
+		double subprocessHeight = lToRGridLayouter.getHeightOfDiagramm();
+		subProcess.setGeometry(new LayoutingBoundsImpl(0, 0, subprocessWidth,
+				subprocessHeight));
+		synchronized (context.gridLayouters) {
+			context.gridLayouters.put(subProcess, lToRGridLayouter);
+		}
+	}
+
+	private LeftToRightGridLayouter layoutProcess(BPMNDiagram diagram,
+			BPMNElement parent) {
+		// Sorting elements topologicaly
+		Queue<LayoutingElement> sortedElements = new TopologicalSorterBPMN(diagram,
+				parent).getSortedElements();
+
+		// Sorted
+		List<String> sortedIds = new LinkedList<String>();
+		for (LayoutingElement element : sortedElements) {
+			sortedIds.add(element.getId());
+		}
+
+		// Layouting from left to right using grid
+		LeftToRightGridLayouter lToRGridLayouter = new LeftToRightGridLayouter(
+				sortedIds, parent);
+		lToRGridLayouter.setDiagram(diagram);
+		lToRGridLayouter.doLayout();
+
+		return lToRGridLayouter;
+	}
+
+	/**
+	 * Runs the tasks on the executor and waits for them. Tasks that no thread
+	 * has started yet are run by the calling thread, so a busy or even
+	 * saturated executor never blocks the layout.
+	 */
+	private void runAll(List<Callable<Object>> tasks) {
+		if (executor == null || tasks.size() < 2) {
+			for (Callable<Object> task : tasks) {
+				try {
+					task.call();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return;
+		}
+
+		List<FutureTask<Object>> futures = new ArrayList<FutureTask<Object>>();
+		for (Callable<Object> task : tasks) {
+			FutureTask<Object> future = new FutureTask<Object>(task);
+			futures.add(future);
+			try {
+				executor.execute(future);
+			} catch (RejectedExecutionException e) {
+				// run below
+			}
+		}
+		for (FutureTask<Object> future : futures) {
+			// does nothing if a worker has already started the task
+			future.run();
+		}
+		for (FutureTask<Object> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Layout interrupted", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	/**
+	 * calculates the nesting order of lanes and subprocesses
+	 *
+	 * @return the subprocesses of each nesting depth, the outermost first
+	 */
+	private List<List<BPMNElement>> calcLayoutOrder(Context context) {
+		List<List<BPMNElement>> levels = new ArrayList<List<BPMNElement>>();
+		processChilds(context, null, 0, levels);
+		Collections.reverse(context.subprocessOrder);
+		return levels;
+	}
+
+	/**
+	 * @see #calcLayoutOrder(Context)
+	 * @param parent
+	 *            the element to process the childs from
+	 */
+	private void processChilds(Context context, BPMNElement parent,
+			int depth, List<List<BPMNElement>> levels) {
+		for (LayoutingElement c : context.diagram.getChildElementsOf(parent)) {
+			BPMNElement child = (BPMNElement) c;
+			String childType = child.getType();
+			if (childType.equals(BPMNType.Subprocess)) {
+				context.subprocessOrder.add(child);
+				if (levels.size() == depth)
+					levels.add(new ArrayList<BPMNElement>());
+				levels.get(depth).add(child);
+				processChilds(context, child, depth + 1, levels);
+			}
+		}
+	}
+
+	private void preprocessHeuristics(BPMNDiagram diagram) {
+		// turn direction of associations to text annotations towards them
+		// so that they are right of the elements
+		for (LayoutingElement textAnnotation : diagram
+				.getElementsOfType(BPMNType.TextAnnotation)) {
+			for (BPMNElement edge : textAnnotation.getOutgoingLinks().toArray(
+					new BPMNElement[0])) {
+				BPMNElement target = (BPMNElement) edge.getOutgoingLinks().get(0);
+				// remove old connection
+				textAnnotation.removeOutgoingLink(edge);
+				target.removeIncomingLink(edge);
+
+				// reconnect properly
+				target.addOutgoingLink(textAnnotation);
+				textAnnotation.addIncomingLink(target);
+			}
+		}
+	}
+
+	/**
+	 * Creates an executor for the parts of layouts. Its daemon threads are
+	 * named after the given prefix.
+	 *
+	 * @param name
+	 *            The prefix of the thread names
+	 * @param threads
+	 *            The number of threads
+	 */
+	public static ExecutorService newExecutor(final String name, int threads) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadPoolExecutor(threads, threads, 0,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, name + "-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * The state of one layout run
+	 */
+	private static class Context {
+
+		private final BPMNDiagram diagram;
+
+		private final Map<BPMNElement, Grid<BPMNElement>> grids = new HashMap<BPMNElement, Grid<BPMNElement>>();
+
+		private final Map<BPMNElement, LeftToRightGridLayouter> gridLayouters = new HashMap<BPMNElement, LeftToRightGridLayouter>();
+
+		/**
+		 * the subprocesses in the order of the sequential layout
+		 */
+		private final List<BPMNElement> subprocessOrder = new LinkedList<BPMNElement>();
+
+		private Context(BPMNDiagram diagram) {
+			this.diagram = diagram;
+		}
+	}
+}
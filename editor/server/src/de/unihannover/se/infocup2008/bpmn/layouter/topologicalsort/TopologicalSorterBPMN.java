@@ -22,7 +22,7 @@
  **/
 package de.unihannover.se.infocup2008.bpmn.layouter.topologicalsort;
 
-import java.util.List;
+import java.util.Map;
 
 import de.hpi.layouting.model.LayoutingDiagram;
 import de.hpi.layouting.model.LayoutingElement;
@@ -101,7 +101,8 @@ public class TopologicalSorterBPMN extends TopologicalSorter {
 
 	@Override
 	protected void reverseBackwardsEdges() {
-		List<LayoutingElement> edges = this.diagram.getConnectingElements();
+		Map<LayoutingElement, Integer> edges = indexEdges(this.diagram
+				.getConnectingElements());
 		for (BackwardsEdge backwardsEdge : this.backwardsEdges) {
 			String sourceId = backwardsEdge.getSource();
 			String targetId = backwardsEdge.getTarget();
@@ -0,0 +1,11 @@
+package de.unihannover.se.infocup2008.bpmn.model;
+
+
+public class BPMNDiagramRDF extends BPMNAbstractDiagram implements BPMNDiagram {
+
+	@Override
+	protected BPMNElementRDF newElement() {
+		return new BPMNElementRDF();
+	}
+
+}
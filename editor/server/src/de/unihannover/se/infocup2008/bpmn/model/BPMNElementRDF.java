@@ -0,0 +1,12 @@
+package de.unihannover.se.infocup2008.bpmn.model;
+
+/**
+ * Element of a diagram read from RDF. The RDF is not written back, the
+ * layout is read from the geometry of the elements.
+ */
+public class BPMNElementRDF extends BPMNAbstractElement implements BPMNElement {
+
+	public void updateDataModel() {
+	}
+
+}
@@ -27,10 +27,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import de.hpi.util.XMLFactories;
 
 public class BPEL4Chor2BPEL {
 	
@@ -108,7 +108,7 @@ public class BPEL4Chor2BPEL {
 		
 		// WSDL files creation
 		for (int i = 0; i < docPBD.size(); i++){
-			DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 			Document newDoc = builder.newDocument();
 
 			//WSDL creation
@@ -16,7 +16,6 @@ import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -30,6 +29,7 @@ import org.w3c.dom.Document;
 import de.hpi.bpt.epc.EPC;
 import de.hpi.bpt.epc.aml.util.AMLParser;
 import de.hpi.bpt.epc.aml.util.OryxSerializer;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Willi Tscheschner
@@ -143,8 +143,7 @@ public class AMLSupport extends HttpServlet {
 			Source source = new DOMSource(outputDocument);
 			StringWriter stringWriter = new StringWriter();
 			Result result = new StreamResult(stringWriter);
-			TransformerFactory tfactory = TransformerFactory.newInstance();
-			Transformer transformer = tfactory.newTransformer();
+			Transformer transformer = XMLFactories.getTransformer();
 			transformer.transform(source, result);
 			docAsString = stringWriter.getBuffer().toString();
 
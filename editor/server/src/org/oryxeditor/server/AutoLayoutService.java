@@ -0,0 +1,127 @@
+package org.oryxeditor.server;
+
+import java.io.StringReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import de.hpi.layouting.model.LayoutingBounds;
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.dao.RDFDiagramDao;
+import de.unihannover.se.infocup2008.bpmn.layouter.BPMNLayouter;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Lays out BPMN diagrams for the auto layouter plugin in the JVM.
+ *
+ * Takes the RDF of a diagram and returns the new bounds of its shapes as
+ * JSON object, keyed by resource id and relative to the parent shape:
+ * <code>{"oryx_...": {"x": 10, "y": 20, "width": 100, "height": 80}, ...}</code>.
+ * This is the contract of the former Ruby layouter. Layouts run on a fixed
+ * number of worker threads, further requests wait in a bounded queue and
+ * are rejected when it is full. The subprocesses and edges of a diagram are
+ * laid out in parallel on a second pool of the same size.
+ */
+public class AutoLayoutService {
+
+	private final ThreadPoolExecutor executor;
+
+	private final ExecutorService parts;
+
+	/**
+	 * @param threads
+	 *            The number of layouts computed at the same time
+	 * @param queueSize
+	 *            The number of layouts waiting for a thread
+	 */
+	public AutoLayoutService(int threads, int queueSize) {
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "AutoLayouter-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.parts = BPMNLayouter.newExecutor("AutoLayouter-part", threads);
+	}
+
+	/**
+	 * Queues the layout of a diagram.
+	 *
+	 * @param rdf
+	 *            The RDF of the diagram
+	 * @return The layout, see {@link #layout(String)}
+	 * @throws RejectedExecutionException
+	 *             if the queue is full
+	 */
+	public Future<String> submit(final String rdf) {
+		return executor.submit(new Callable<String>() {
+			public String call() throws Exception {
+				return layout(rdf, parts);
+			}
+		});
+	}
+
+	/**
+	 * Stops the worker threads, queued layouts are discarded.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		parts.shutdownNow();
+	}
+
+	/**
+	 * Lays out a diagram in the calling thread.
+	 *
+	 * @param rdf
+	 *            The RDF of the diagram
+	 * @return The new bounds of all shapes except edges
+	 * @throws IllegalArgumentException
+	 *             if the RDF does not describe a BPMN diagram
+	 * @throws Exception
+	 *             if the RDF cannot be read
+	 */
+	public static String layout(String rdf) throws Exception {
+		return layout(rdf, null);
+	}
+
+	private static String layout(String rdf, Executor parts) throws Exception {
+		BPMNDiagram diagram = new RDFDiagramDao().getDiagramFromRDF(new StringReader(rdf));
+		if (diagram == null)
+			throw new IllegalArgumentException("Automatic layout is only available for BPMN diagrams");
+
+		new BPMNLayouter(diagram, parts).doLayout();
+
+		return toJSON(diagram).toString();
+	}
+
+	private static JSONObject toJSON(BPMNDiagram diagram) throws JSONException {
+		JSONObject layout = new JSONObject();
+		for (LayoutingElement element : diagram.getElements().values()) {
+			if (BPMNType.isAConnectingElement(element.getType()))
+				continue;
+
+			LayoutingBounds bounds = element.getGeometry();
+			JSONObject json = new JSONObject();
+			json.put("x", bounds.getX());
+			json.put("y", bounds.getY());
+			json.put("width", bounds.getWidth());
+			json.put("height", bounds.getHeight());
+			layout.put(element.getId(), json);
+		}
+		return layout;
+	}
+}
@@ -19,10 +19,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -37,6 +35,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2010 
@@ -156,11 +155,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 	   	// XSLT source
     	final String xsltFilename = contextPath + "/xslt/RDF2BPEL4Chor_Topology.xslt";
 	   	final File xsltFile = new File(xsltFilename);
-	   	final Source xsltSource = new StreamSource(xsltFile);	
 	   	
-	   	// Transformer Factory
-	   	final TransformerFactory transformerFactory = 
-	   			TransformerFactory.newInstance();
 	
 	   	// Get the rdf source
 	   	final Source rdfSource;
@@ -170,8 +165,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 	   	// Get the result string
 	   	String bufferResultString = null;
 	   	try {
-	   		Transformer transformer = transformerFactory
-	   					.newTransformer(xsltSource);
+	   		Transformer transformer = XMLFactories.newTransformer(xsltFile);
 	   		StringWriter writer = new StringWriter();
 	   		transformer.transform(rdfSource, new StreamResult(writer));
 	   		bufferResultString = writer.toString();
@@ -208,10 +202,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
  	   	StringWriter stringOut = new StringWriter();
  	   	
 		// transform string to document
-		DocumentBuilderFactory factory = 
-			DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		DocumentBuilder builder = factory.newDocumentBuilder();
+		DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 		InputStream oldResultInputStream = new ByteArrayInputStream
 							(oldString.getBytes());
 		Document oldDocument = builder.parse(oldResultInputStream);
@@ -220,8 +211,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 		Document newDocument = handleTopologyDocument(oldDocument);
 		
 		// transform document to string
-		TransformerFactory tFactory = TransformerFactory.newInstance();
-		Transformer transformer = tFactory.newTransformer();
+		Transformer transformer = XMLFactories.getTransformer();
 		DOMSource source = new DOMSource(newDocument);
 		StreamResult result = new StreamResult(stringOut);
 		transformer.transform(source, result);
@@ -759,11 +749,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 	   	// XSLT source
     	final String xsltFilename = contextPath + "/xslt/RDF2BPEL4Chor_Grounding.xslt";
 	   	final File xsltFile = new File(xsltFilename);
-	   	final Source xsltSource = new StreamSource(xsltFile);	
 	   	
-	   	// Transformer Factory
-	   	final TransformerFactory transformerFactory = 
-	   			TransformerFactory.newInstance();
 	
 	   	// Get the rdf source
 	   	final Source rdfSource;
@@ -773,8 +759,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 	   	// Get the result string
 	   	String resultString = null;
 	   	try {
-	   		Transformer transformer = transformerFactory
-	   						.newTransformer(xsltSource);
+	   		Transformer transformer = XMLFactories.newTransformer(xsltFile);
 	   		StringWriter writer = new StringWriter();
 	   		transformer.transform(rdfSource, new StreamResult(writer));
 	   		resultString = writer.toString();
@@ -798,15 +783,12 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
     	String xsltFilename = contextPath + "/xslt/RDF2BPEL.xslt";
 
     	final File xsltFile = new File(xsltFilename);
-    	final Source xsltSource = new StreamSource(xsltFile);	
 
-    	// Transformer Factory
-    	final TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
     	// Get the result string
     	Document processDoc;
     	try {
-    		Transformer transformer = transformerFactory.newTransformer(xsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(xsltFile);
     		DOMResult res = new DOMResult();
     		transformer.transform(rdfSource, res);
     		processDoc = (Document) res.getNode();
@@ -847,8 +829,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
     		Document newDocument = postprocessor.postProcessDocument(doc);
 
     		// transform document to string
-    		TransformerFactory tFactory = TransformerFactory.newInstance();
-    		Transformer transformer = tFactory.newTransformer();
+    		Transformer transformer = XMLFactories.getTransformer();
     		DOMSource source = new DOMSource(newDocument);
     		StreamResult result = new StreamResult(stringOut);
     		transformer.transform(source, result);
@@ -909,7 +890,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 
 		// transform topology and grounding string to document
 		StreamSource s = new StreamSource(new StringReader(topologyString));
-		Transformer t = TransformerFactory.newInstance().newTransformer();
+		Transformer t = XMLFactories.getTransformer();
 		DOMResult topRes = new DOMResult();
 		t.transform(s, topRes);
 		Document docTopo = (Document) topRes.getNode();
@@ -987,7 +968,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 			// transform document BPEL to string
 			StringWriter stringOutBPEL = new StringWriter();
 			
-			Transformer transformerBPEL = TransformerFactory.newInstance().newTransformer();
+			Transformer transformerBPEL = XMLFactories.getTransformer();
 			DOMSource sourceDomBPEL = new DOMSource(docPBD);
 			StreamResult resultStringBPEL = new StreamResult(stringOutBPEL);
 			transformerBPEL.transform(sourceDomBPEL, resultStringBPEL);
@@ -1009,7 +990,7 @@ public class BPEL4Chor2BPELExporter extends HttpServlet {
 			// transform document WSDL to string
 			StringWriter stringOutWSDL = new StringWriter();
 			
-			Transformer transformerWSDL = TransformerFactory.newInstance().newTransformer();
+			Transformer transformerWSDL = XMLFactories.getTransformer();
 			DOMSource sourceDomWSDL = new DOMSource(docPBD);
 			StreamResult resultStringWSDL = new StreamResult(stringOutWSDL);
 			transformerWSDL.transform(sourceDomWSDL, resultStringWSDL);
@@ -18,10 +18,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -30,6 +28,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import de.hpi.util.XMLFactories;
 
 
 
@@ -148,11 +147,7 @@ public class BPEL4ChorExporter extends HttpServlet {
 //	   	final String xsltFilename = System.getProperty("catalina.home") 
 //	   			+ "/webapps/oryx/xslt/RDF2BPEL4Chor_Topology.xslt";
 	   	final File xsltFile = new File(xsltFilename);
-	   	final Source xsltSource = new StreamSource(xsltFile);	
 	   	
-	   	// Transformer Factory
-	   	final TransformerFactory transformerFactory = 
-	   			TransformerFactory.newInstance();
 	
 	   	// Get the rdf source
 	   	final Source rdfSource;
@@ -162,8 +157,7 @@ public class BPEL4ChorExporter extends HttpServlet {
 	   	// Get the result string
 	   	String bufferResultString = null;
 	   	try {
-	   		Transformer transformer = transformerFactory
-	   					.newTransformer(xsltSource);
+	   		Transformer transformer = XMLFactories.newTransformer(xsltFile);
 	   		StringWriter writer = new StringWriter();
 	   		transformer.transform(rdfSource, new StreamResult(writer));
 	   		bufferResultString = writer.toString();
@@ -186,10 +180,7 @@ public class BPEL4ChorExporter extends HttpServlet {
  	   	StringWriter stringOut = new StringWriter();
  	   	
 		// transform string to document
-		DocumentBuilderFactory factory = 
-			DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		DocumentBuilder builder = factory.newDocumentBuilder();
+		DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 		InputStream oldResultInputStream = new ByteArrayInputStream
 							(oldString.getBytes());
 		Document oldDocument = builder.parse(oldResultInputStream);
@@ -198,8 +189,7 @@ public class BPEL4ChorExporter extends HttpServlet {
 		Document newDocument = handleTopologyDocument(oldDocument);
 		
 		// transform document to string
-		TransformerFactory tFactory = TransformerFactory.newInstance();
-		Transformer transformer = tFactory.newTransformer();
+		Transformer transformer = XMLFactories.getTransformer();
 		DOMSource source = new DOMSource(newDocument);
 		StreamResult result = new StreamResult(stringOut);
 		transformer.transform(source, result);
@@ -856,11 +846,7 @@ public class BPEL4ChorExporter extends HttpServlet {
 //	   	final String xsltFilename = System.getProperty("catalina.home") 
 //	   				+ "/webapps/oryx/xslt/RDF2BPEL4Chor_Grounding.xslt";
 	   	final File xsltFile = new File(xsltFilename);
-	   	final Source xsltSource = new StreamSource(xsltFile);	
 	   	
-	   	// Transformer Factory
-	   	final TransformerFactory transformerFactory = 
-	   			TransformerFactory.newInstance();
 	
 	   	// Get the rdf source
 	   	final Source rdfSource;
@@ -870,8 +856,7 @@ public class BPEL4ChorExporter extends HttpServlet {
 	   	// Get the result string
 	   	String resultString = null;
 	   	try {
-	   		Transformer transformer = transformerFactory
-	   						.newTransformer(xsltSource);
+	   		Transformer transformer = XMLFactories.newTransformer(xsltFile);
 	   		StringWriter writer = new StringWriter();
 	   		transformer.transform(rdfSource, new StreamResult(writer));
 	   		resultString = writer.toString();
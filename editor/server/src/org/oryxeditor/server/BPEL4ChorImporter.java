@@ -15,7 +15,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -25,6 +24,7 @@ import org.apache.commons.fileupload.FileItemFactory;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import de.hpi.util.XMLFactories;
 
 
 /**
@@ -112,15 +112,12 @@ public class BPEL4ChorImporter extends HttpServlet {
     	final String xsltFilename = getServletContext().getRealPath("/xslt/BPEL2eRDF.xslt");
 //    	final String xsltFilename = System.getProperty("catalina.home") + "/webapps/oryx/xslt/BPEL2eRDF.xslt";
     	final File bpel2eRDFxsltFile = new File(xsltFilename);
-    	final Source bpel2eRDFxsltSource = new StreamSource(bpel2eRDFxsltFile);	
     	
-    	// Transformer Factory
-    	final TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
     	// === Get the eRDF result ===
     	String resultString = null;
     	try {
-    		Transformer transformer = transformerFactory.newTransformer(bpel2eRDFxsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(bpel2eRDFxsltFile);
     		StringWriter writer = new StringWriter();
     		transformer.transform(bpelSource, new StreamResult(writer));
     		resultString = writer.toString();
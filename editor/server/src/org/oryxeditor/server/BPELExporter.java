@@ -16,16 +16,15 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.oryxeditor.bpel4chor.BPELExportPostprocessor;
 import org.w3c.dom.Document;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008-2009 
@@ -99,15 +98,12 @@ public class BPELExporter extends HttpServlet {
 		String xsltFilename = contextPath + "/xslt/RDF2BPEL.xslt";
 	   
    		final File xsltFile = new File(xsltFilename);
-   		final Source xsltSource = new StreamSource(xsltFile);	
    	
-   		// Transformer Factory
-   		final TransformerFactory transformerFactory = TransformerFactory.newInstance();
     	
    		// Get the result string
     	String resultString = null;
     	try {
-    		Transformer transformer = transformerFactory.newTransformer(xsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(xsltFile);
     		StringWriter writer = new StringWriter();
     		transformer.transform(rdfSource, new StreamResult(writer));
     		resultString = writer.toString();
@@ -156,8 +152,7 @@ public class BPELExporter extends HttpServlet {
 	   StringWriter stringOut = new StringWriter();
 	   try {
 			// transform string to document
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 			InputStream oldResultInputStream = new ByteArrayInputStream(oldString.getBytes());
 			Document oldDocument = builder.parse(oldResultInputStream);
 			
@@ -168,8 +163,7 @@ public class BPELExporter extends HttpServlet {
 			Document newDocument = postprocessor.postProcessDocument(oldDocument);
 			
 			// transform document to string
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory.newTransformer();
+			Transformer transformer = XMLFactories.getTransformer();
 			DOMSource source = new DOMSource(newDocument);
 			StreamResult result = new StreamResult(stringOut);
 			transformer.transform(source, result);
@@ -15,11 +15,9 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -30,6 +28,7 @@ import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.w3c.dom.Document;
+import de.hpi.util.XMLFactories;
 
 
 /**
@@ -132,15 +131,12 @@ public class BPELImporter extends HttpServlet {
     	final String xsltFilename = getServletContext().getRealPath("/xslt/BPEL2eRDF.xslt");
 //    	final String xsltFilename = System.getProperty("catalina.home") + "/webapps/oryx/xslt/BPEL2eRDF.xslt";
     	final File bpel2eRDFxsltFile = new File(xsltFilename);
-    	final Source bpel2eRDFxsltSource = new StreamSource(bpel2eRDFxsltFile);	
     	
-    	// Transformer Factory
-    	final TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
     	// === Get the eRDF result ===
     	String resultString = null;
     	try {
-    		Transformer transformer = transformerFactory.newTransformer(bpel2eRDFxsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(bpel2eRDFxsltFile);
     		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
     		StringWriter writer = new StringWriter();
     		transformer.transform(bpelSource, new StreamResult(writer));
@@ -171,9 +167,7 @@ public class BPELImporter extends HttpServlet {
 	   StringWriter stringOut = new StringWriter();
 	   try {
 			// transform string to document
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 			InputStream oldResultInputStream = new ByteArrayInputStream(oldString.getBytes());
 			Document oldDocument = builder.parse(oldResultInputStream);
 			
@@ -181,8 +175,7 @@ public class BPELImporter extends HttpServlet {
 			Document newDocument = preprocessor.preprocessDocument (oldDocument);
 			
 			// transform document to string
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory.newTransformer();
+			Transformer transformer = XMLFactories.getTransformer();
 			DOMSource source = new DOMSource(newDocument);
 			StreamResult result = new StreamResult(stringOut);
 			transformer.transform(source, result);
@@ -10,7 +10,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.jdom.input.DOMBuilder;
@@ -28,6 +27,8 @@ import de.hpi.bpmn.rdf.BPMNRDFImporter;
 import de.hpi.bpmn2bpel.BPMN2BPELTransformer;
 import de.hpi.bpmn2bpel.TransformationResult;
 import de.hpi.diagram.OryxUUID;
+import de.hpi.util.ConversionCache;
+import de.hpi.util.XMLFactories;
 
 public class BPMN2BPELServlet extends HttpServlet {
 
@@ -46,12 +47,26 @@ public class BPMN2BPELServlet extends HttpServlet {
 			String optionsParam = req.getParameter("options");
 			JSONObject options = new JSONObject(optionsParam);
 
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
-			
-			processDocument(document, options, res.getWriter());
+			/*
+			 * Unchanged models are not transformed again, deployments always
+			 * go to the engine
+			 */
+			boolean cacheable = "transform".equals(options.optString("action"));
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("bpmn2bpel", rdf, options.optString("action"));
+			String result = cacheable ? cache.getString(key) : null;
+			if (result == null) {
+				DocumentBuilder builder;
+				builder = XMLFactories.getDocumentBuilder();
+				Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
+
+				StringWriter writer = new StringWriter();
+				processDocument(document, options, new PrintWriter(writer));
+				result = writer.toString();
+				if (cacheable)
+					cache.putString(key, result);
+			}
+			res.getWriter().write(result);
 			
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
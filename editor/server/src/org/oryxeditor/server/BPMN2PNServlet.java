@@ -3,13 +3,13 @@ package org.oryxeditor.server;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -24,6 +24,8 @@ import de.hpi.bpmn2pn.converter.StandardConverter;
 import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.layouting.PetriNetLayouter;
 import de.hpi.petrinet.serialization.erdf.PetriNeteRDFSerializer;
+import de.hpi.util.ConversionCache;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Kai Schlichting
@@ -57,12 +59,21 @@ public class BPMN2PNServlet extends HttpServlet {
 
 			String rdf = req.getParameter("rdf");
 
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
-			
-			processDocument(document, res.getWriter());
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("bpmn2pn", rdf);
+			String erdf = cache.getString(key);
+			if (erdf == null) {
+				DocumentBuilder builder;
+				builder = XMLFactories.getDocumentBuilder();
+				Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
+
+				StringWriter writer = new StringWriter();
+				processDocument(document, new PrintWriter(writer));
+				erdf = writer.toString();
+				cache.putString(key, erdf);
+			}
+			res.getWriter().write(erdf);
 			
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
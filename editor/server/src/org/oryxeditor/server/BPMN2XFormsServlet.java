@@ -18,9 +18,9 @@ import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008-2009 Falko Menge
@@ -115,11 +115,9 @@ public class BPMN2XFormsServlet extends HttpServlet {
 			// prepare XSL transformation
 	    	final String xsltFilename = xsltPath;
 	    	final File xsltFile = new File(xsltFilename);
-	    	final Source xsltSource = new StreamSource(xsltFile);
 	    	
 	    	// perform transformation
-	    	final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-    		Transformer transformer = transformerFactory.newTransformer(xsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(xsltFile);
     		final StringWriter writer = new StringWriter();
     		transformer.transform(xmlSource, new StreamResult(writer));
     		transformationResult = writer.toString();
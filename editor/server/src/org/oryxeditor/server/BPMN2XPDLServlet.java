@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.httpclient.HttpStatus;
 
 import de.hpi.bpmn2xpdl.BPMN2XPDLConverter;
+import de.hpi.util.ConversionCache;
 
 /**
  * Copyright (c) 2010 Markus Goetz
@@ -44,9 +45,17 @@ public class BPMN2XPDLServlet extends HttpServlet {
 		String action = req.getParameter("action");
 		
 		if ("Export".equals(action)) {
-			BPMN2XPDLConverter converter = new BPMN2XPDLConverter();
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("bpmn2xpdl", data);
+			String xpdl = cache.getString(key);
 			try {
-				res.getWriter().print(converter.exportXPDL(data));
+				if (xpdl == null) {
+					BPMN2XPDLConverter converter = new BPMN2XPDLConverter();
+					xpdl = converter.exportXPDL(data);
+					cache.putString(key, xpdl);
+				}
+				res.getWriter().print(xpdl);
 			} catch (Exception e) {
 				res.setStatus(HttpStatus.SC_BAD_REQUEST);
 			}
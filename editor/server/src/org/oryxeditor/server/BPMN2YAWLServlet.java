@@ -12,7 +12,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -25,6 +24,8 @@ import de.hpi.bpmn2yawl.BPMN2YAWLConverter;
 import de.hpi.bpmn2yawl.BPMN2YAWLNormalizer;
 import de.hpi.bpmn2yawl.BPMN2YAWLResourceMapper;
 import de.hpi.bpmn2yawl.BPMN2YAWLSyntaxChecker;
+import de.hpi.util.ConversionCache;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2009
@@ -63,14 +64,20 @@ public class BPMN2YAWLServlet extends HttpServlet {
 
 			String rdf = req.getParameter("data");
 
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
-
-			byte[] array = processDocument(document, res);
-			if(array ==null )
-				return;
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("bpmn2yawl", rdf);
+			byte[] array = cache.get(key);
+			if (array == null) {
+				DocumentBuilder builder;
+				builder = XMLFactories.getDocumentBuilder();
+				Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
+
+				array = processDocument(document, res);
+				if(array ==null )
+					return;
+				cache.put(key, array);
+			}
 			ServletOutputStream out = res.getOutputStream();
 			res.setContentType("application/zip"); 
 			res.setHeader("Content-Disposition","attachment; filename=" + "yawl.zip");
@@ -33,16 +33,16 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 import org.json.JSONException;
+import org.xml.sax.SAXException;
 import org.oryxeditor.server.diagram.Diagram;
 import org.oryxeditor.server.diagram.JSONBuilder;
 
 import de.hpi.bpmn2_0.model.Definitions;
 import de.hpi.bpmn2_0.transformation.BPMN2DiagramConverter;
+import de.hpi.bpmn2_0.transformation.BpmnJaxbService;
 
 /**
  * Servlet to generate JSON from BPMN 2.0 XML
@@ -54,6 +54,17 @@ public class BPMN2_0Importer extends HttpServlet {
 
 	private static final long serialVersionUID = -8687832449710203280L;
 
+	/**
+	 * Creates the shared JAXB context at start up.
+	 */
+	public void init() throws ServletException {
+		try {
+			BpmnJaxbService.getInstance(this.getServletContext());
+		} catch (Exception e) {
+			throw new ServletException(e);
+		}
+	}
+
 	/**
 	 * The post request
 	 */
@@ -80,15 +91,14 @@ public class BPMN2_0Importer extends HttpServlet {
 
 	}
 
-	private StringWriter getJsonFromBpmn20Xml(String bpmn20Xml) throws JAXBException, JSONException {
+	private StringWriter getJsonFromBpmn20Xml(String bpmn20Xml) throws JAXBException, SAXException, JSONException {
 		StringWriter writer = new StringWriter();
 		PrintWriter out = new PrintWriter(writer);
 		
 		StringReader reader = new StringReader(bpmn20Xml);
 
-		JAXBContext context = JAXBContext.newInstance(Definitions.class);
-		Unmarshaller unmarshaller = context.createUnmarshaller();
-		Definitions def = (Definitions) unmarshaller.unmarshal(reader);
+		Definitions def = BpmnJaxbService.getInstance(this.getServletContext())
+				.unmarshal(reader, null);
 		
 		BPMN2DiagramConverter converter = new BPMN2DiagramConverter("/" + this.getServletContext().getServletContextName() + "/");
 		List<Diagram> dia = converter.getDiagramFromBpmn20(def);
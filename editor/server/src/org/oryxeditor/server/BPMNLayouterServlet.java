@@ -23,12 +23,7 @@
 package org.oryxeditor.server;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -39,22 +34,22 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import de.hpi.layouting.grid.Grid;
 import de.hpi.layouting.model.LayoutingBounds;
-import de.hpi.layouting.model.LayoutingBoundsImpl;
-import de.hpi.layouting.model.LayoutingElement;
 import de.hpi.layouting.model.LayoutingDockers.Point;
 import de.unihannover.se.infocup2008.bpmn.JsonErdfTransformation;
-import de.unihannover.se.infocup2008.bpmn.dao.ERDFDiagramDao;
 import de.unihannover.se.infocup2008.bpmn.dao.JSONDiagramDao;
-import de.unihannover.se.infocup2008.bpmn.layouter.CatchingIntermediateEventLayouter;
-import de.unihannover.se.infocup2008.bpmn.layouter.EdgeLayouter;
-import de.unihannover.se.infocup2008.bpmn.layouter.LeftToRightGridLayouter;
-import de.unihannover.se.infocup2008.bpmn.layouter.topologicalsort.TopologicalSorterBPMN;
+import de.unihannover.se.infocup2008.bpmn.layouter.BPMNLayouter;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNElement;
 import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
 
+/**
+ * Lays out the BPMN diagram in the parameter "data". The diagram of a request
+ * lives in local variables only, so requests are laid out concurrently. The
+ * subprocesses and edges of a diagram are laid out in parallel on a pool
+ * shared by all requests, its size is the init parameter "threads" (default:
+ * number of processors).
+ */
 public class BPMNLayouterServlet extends HttpServlet {
 
 	/**
@@ -62,19 +57,23 @@ public class BPMNLayouterServlet extends HttpServlet {
 	 */
 	private static final long serialVersionUID = -5881072861254329384L;
 
-	protected BPMNDiagram diagram;
-
-	protected ERDFDiagramDao dao;
+	private transient ExecutorService executor;
 
-	private Map<BPMNElement, Grid<BPMNElement>> grids;
+	public void init() throws ServletException {
+		String threads = getInitParameter("threads");
+		executor = BPMNLayouter.newExecutor("BPMNLayouter",
+				threads == null || threads.trim().length() == 0 ? Runtime
+						.getRuntime().availableProcessors() : Integer
+						.parseInt(threads.trim()));
+	}
 
-	private List<BPMNElement> subprocessOrder;
+	public void destroy() {
+		executor.shutdownNow();
+	}
 
 	protected void doPost(HttpServletRequest request,
 			HttpServletResponse response) throws ServletException, IOException {
 
-		grids = new HashMap<BPMNElement, Grid<BPMNElement>>();
-
 		request.setCharacterEncoding("UTF-8");
 		// String eRDF = request.getParameter("data");
 
@@ -88,9 +87,10 @@ public class BPMNLayouterServlet extends HttpServlet {
 		// this.diagram = dao.getBPMNDiagramFromString(eRDF);
 
 		JSONObject jsonModel;
+		BPMNDiagram diagram;
 		try {
 			jsonModel = new JSONObject(jsonmodel);
-			this.diagram = new JSONDiagramDao().getDiagramFromJSON(jsonModel);
+			diagram = new JSONDiagramDao().getDiagramFromJSON(jsonModel);
 		} catch (JSONException e1) {
 			//throw new ServletException(e1);
 			response.setStatus(500);
@@ -99,14 +99,14 @@ public class BPMNLayouterServlet extends HttpServlet {
 			return;
 		}
 
-		if (this.diagram == null) {
+		if (diagram == null) {
 			response.setStatus(500);
 			response.getWriter().print("import failed");
 			return;
 		}
 
 		try {
-			doLayoutAlgorithm();
+			doLayoutAlgorithm(diagram);
 		} catch (Exception e) {
 			response.setStatus(500);
 			response.getWriter().print("layout failed:");
@@ -122,8 +122,8 @@ public class BPMNLayouterServlet extends HttpServlet {
 			JSONArray json = new JSONArray();
 	
 			try {
-				for (String id : this.diagram.getElements().keySet()) {
-					BPMNElement element = (BPMNElement) this.diagram.getElement(id);
+				for (String id : diagram.getElements().keySet()) {
+					BPMNElement element = (BPMNElement) diagram.getElement(id);
 					JSONObject obj = new JSONObject();
 					obj.put("id", id);
 	
@@ -184,112 +184,10 @@ public class BPMNLayouterServlet extends HttpServlet {
 //		return dockersString;
 //	}
 
-	protected void doLayoutAlgorithm() {
-		preprocessHeuristics();
-
-		// Layouting subprocesses
-		calcLayoutOrder();
-		for (BPMNElement subProcess : subprocessOrder) {
-
-			LeftToRightGridLayouter lToRGridLayouter = layoutProcess(subProcess);
-
-			// set bounds
-			double subprocessWidth = lToRGridLayouter.getWidthOfDiagramm();
-			double subprocessHeight = lToRGridLayouter.getHeightOfDiagramm();
-			subProcess.setGeometry(new LayoutingBoundsImpl(0, 0, subprocessWidth,
-					subprocessHeight));
-			grids.putAll(lToRGridLayouter.getGridParentMap());
-		}
-
-		// Layouting main process
-		LeftToRightGridLayouter lToRGridLayouter = layoutProcess(null);
-		grids.putAll(lToRGridLayouter.getGridParentMap());
-		calcLayoutOrder();
-
-		CatchingIntermediateEventLayouter
-				.setCatchingIntermediateEvents(diagram);
-
-		// Setting edges
-		List<LayoutingElement> flows = diagram.getConnectingElements();
-		for (LayoutingElement flow : flows) {
-			new EdgeLayouter(this.grids, (BPMNElement)flow);
-		}
-	}
-
-	private LeftToRightGridLayouter layoutProcess(BPMNElement parent) {
-		// Sorting elements topologicaly
-		Queue<LayoutingElement> sortedElements = new TopologicalSorterBPMN(diagram,
-				parent).getSortedElements();
-
-		// Sorted
-		int count = 0;
-		List<String> sortedIds = new LinkedList<String>();
-		for (LayoutingElement element : sortedElements) {
-			sortedIds.add(element.getId());
-			count++;
-		}
-
-		// Layouting from left to right using grid
-		LeftToRightGridLayouter lToRGridLayouter = new LeftToRightGridLayouter(
-				sortedIds, parent);
-		lToRGridLayouter.setDiagram(diagram);
-		lToRGridLayouter.doLayout();
-
-		return lToRGridLayouter;
+	protected void doLayoutAlgorithm(BPMNDiagram diagram) {
+		new BPMNLayouter(diagram, executor).doLayout();
 	}
 
-	/**
-	 * calculates the nesting order of lanes and subprocesses
-	 */
-	private void calcLayoutOrder() {
-		subprocessOrder = new LinkedList<BPMNElement>();
-		processChilds(null);
-		Collections.reverse(subprocessOrder);
-	}
-
-	/**
-	 * @see TopologicalAlgorithm.calcLayoutOrder()
-	 * @param parent
-	 *            the element to process the childs from
-	 */
-	private void processChilds(BPMNElement parent) {
-		for (LayoutingElement c : this.diagram.getChildElementsOf(parent)) {
-			BPMNElement child = (BPMNElement) c;			
-			String childType = child.getType();
-			if (childType.equals(BPMNType.Subprocess)) {
-				subprocessOrder.add(child);
-				processChilds(child);
-			}
-		}
-	}
-
-	private void preprocessHeuristics() {
-		// turn direction of associations to text annotations towards them
-		// so that they are right of the elements
-		for (LayoutingElement textAnnotation : this.diagram
-				.getElementsOfType(BPMNType.TextAnnotation)) {
-			for (BPMNElement edge : textAnnotation.getOutgoingLinks().toArray(
-					new BPMNElement[0])) {
-				BPMNElement target = (BPMNElement) edge.getOutgoingLinks().get(0);
-				// remove old connection
-				textAnnotation.removeOutgoingLink(edge);
-				// edge.removeIncomingLink(textAnnotation);
-
-				// edge.removeOutgoingLink(target);
-				target.removeIncomingLink(edge);
-
-				// reconnect properly
-				target.addOutgoingLink(textAnnotation);
-				// edge.addIncomingLink(target);
-
-				// edge.addOutgoingLink(textAnnotation);
-				textAnnotation.addIncomingLink(target);
-			}
-		}
-	}
-
-	
-
 	protected static String jsonToErdf(String json) {
 		JsonErdfTransformation trans = new JsonErdfTransformation(json);
 
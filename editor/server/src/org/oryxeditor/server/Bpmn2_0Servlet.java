@@ -24,7 +24,6 @@ package org.oryxeditor.server;
  * SOFTWARE.
  */
 
-import java.io.File;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
@@ -33,22 +32,17 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.ValidationEvent;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
 import org.json.JSONObject;
 import org.oryxeditor.server.diagram.Diagram;
 import org.oryxeditor.server.diagram.DiagramBuilder;
 
-import com.sun.xml.bind.marshaller.NamespacePrefixMapper;
-
 import de.hpi.bpmn2_0.ExportValidationEventCollector;
 import de.hpi.bpmn2_0.factory.AbstractBpmnFactory;
+import de.hpi.bpmn2_0.factory.CreatorMethodRegistry;
 import de.hpi.bpmn2_0.model.Definitions;
-import de.hpi.bpmn2_0.transformation.BPMNPrefixMapper;
+import de.hpi.bpmn2_0.transformation.BpmnJaxbService;
 import de.hpi.bpmn2_0.transformation.Diagram2BpmnConverter;
 import de.hpi.util.reflection.ClassFinder;
 
@@ -62,6 +56,26 @@ public class Bpmn2_0Servlet extends HttpServlet {
 
     private static final long serialVersionUID = -4308758083419724953L;
 
+    /**
+     * Creates the shared JAXB context and schema and discovers the BPMN 2.0
+     * factories at start up.
+     */
+    public void init() throws ServletException {
+        BpmnJaxbService jaxbService;
+        try {
+            jaxbService = BpmnJaxbService.getInstance(this.getServletContext());
+            CreatorMethodRegistry.register(ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class,
+                    "de.hpi.bpmn2_0.factory", this.getServletContext()));
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+
+        /* The export validates against the schema */
+        if (jaxbService.getSchema() == null) {
+            throw new ServletException("The BPMN 2.0 schema " + BpmnJaxbService.SCHEMA_PATH + " is missing");
+        }
+    }
+
     /**
      * The post request
      */
@@ -71,7 +85,7 @@ public class Bpmn2_0Servlet extends HttpServlet {
 
         /* Transform and return from DI */
         try {
-            List<Class<? extends AbstractBpmnFactory>> factoryClasses = ClassFinder.getClassesByPackageName(AbstractBpmnFactory.class,
+            List<Class<? extends AbstractBpmnFactory>> factoryClasses = ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class,
                     "de.hpi.bpmn2_0.factory", this.getServletContext());
 
             StringWriter output = this.performTransformationToDi(json, asXML, factoryClasses);
@@ -114,27 +128,12 @@ public class Bpmn2_0Servlet extends HttpServlet {
         Diagram2BpmnConverter converter = new Diagram2BpmnConverter(diagram, factoryClasses);
         Definitions bpmnDefinitions = converter.getDefinitionsFromDiagram();
 
-        /* Perform XML creation */
-        JAXBContext context = JAXBContext.newInstance(Definitions.class);
-        Marshaller marshaller = context.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-        NamespacePrefixMapper nsp = new BPMNPrefixMapper();
-        marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", nsp);
-
-        /* Set Schema validation properties */
-        SchemaFactory sf = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
-
-        String xsdPath = this.getServletContext().getRealPath("/WEB-INF/lib/xsd/bpmn20/BPMN20.xsd");
-
-        Schema schema = sf.newSchema(new File(xsdPath));
-        marshaller.setSchema(schema);
-
+        /* Perform XML creation with schema validation */
+        BpmnJaxbService jaxbService = BpmnJaxbService.getInstance(this.getServletContext());
         ExportValidationEventCollector vec = new ExportValidationEventCollector();
-        marshaller.setEventHandler(vec);
 
         /* Marshal BPMN 2.0 XML */
-        marshaller.marshal(bpmnDefinitions, writer);
+        jaxbService.marshal(bpmnDefinitions, writer, vec);
 
         if (asXML) {
             return writer;
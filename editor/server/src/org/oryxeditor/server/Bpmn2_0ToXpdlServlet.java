@@ -24,7 +24,6 @@
 
 package org.oryxeditor.server;
 
-import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.List;
@@ -33,12 +32,8 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamSource;
 
 import org.jdom.Document;
 import org.jdom.input.SAXBuilder;
@@ -48,12 +43,12 @@ import org.jdom.transform.JDOMSource;
 import org.oryxeditor.server.diagram.Diagram;
 import org.oryxeditor.server.diagram.DiagramBuilder;
 
-import com.sun.xml.bind.marshaller.NamespacePrefixMapper;
-
 import de.hpi.bpmn2_0.factory.AbstractBpmnFactory;
 import de.hpi.bpmn2_0.model.Definitions;
-import de.hpi.bpmn2_0.transformation.BPMNPrefixMapper;
+import de.hpi.bpmn2_0.transformation.BpmnJaxbService;
 import de.hpi.bpmn2_0.transformation.Diagram2BpmnConverter;
+import de.hpi.util.ConversionCache;
+import de.hpi.util.XMLFactories;
 import de.hpi.util.reflection.ClassFinder;
 
 /**
@@ -67,6 +62,20 @@ public class Bpmn2_0ToXpdlServlet extends HttpServlet {
 
 	private static final long serialVersionUID = 5410535711130039207L;
 
+	/**
+	 * Creates the shared JAXB context and discovers the BPMN 2.0 factories at
+	 * start up.
+	 */
+	public void init() throws ServletException {
+		try {
+			BpmnJaxbService.getInstance(this.getServletContext());
+			ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class,
+					"de.hpi.bpmn2_0.factory", this.getServletContext());
+		} catch (Exception e) {
+			throw new ServletException(e);
+		}
+	}
+
 	/**
 	 * The post request
 	 */
@@ -76,31 +85,35 @@ public class Bpmn2_0ToXpdlServlet extends HttpServlet {
 
 		/* Transform and return from DI */
 		try {
-			List<Class<? extends AbstractBpmnFactory>> factoryClasses = ClassFinder
-			.getClassesByPackageName(AbstractBpmnFactory.class,
-					"de.hpi.bpmn2_0.factory", this.getServletContext());
-			
-			StringWriter output = this.performTransformationToDi(json, factoryClasses);
-
-			StringReader reader = new StringReader(output.toString());
-
-			Document doc = new SAXBuilder().build(reader);
-			Source xmlFile = new JDOMSource(doc);
-			JDOMResult xpdlResult = new JDOMResult();
-
-			InputStream xsltStream = this.getServletContext()
-					.getResourceAsStream("/WEB-INF/lib/bpmn2xpdl.xsl");
-
-			Transformer transformer = TransformerFactory.newInstance()
-					.newTransformer(
-							new StreamSource(xsltStream));
-			transformer.transform(xmlFile, xpdlResult);
-
-			XMLOutputter xmlOutputter = new XMLOutputter();
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(this.getServletContext());
+			String key = cache.key("bpmn2_0xpdl", json);
+			String xpdl = cache.getString(key);
+			if (xpdl == null) {
+				List<Class<? extends AbstractBpmnFactory>> factoryClasses = ClassFinder
+				.getCachedClassesByPackageName(AbstractBpmnFactory.class,
+						"de.hpi.bpmn2_0.factory", this.getServletContext());
+
+				StringWriter output = this.performTransformationToDi(json, factoryClasses);
+
+				StringReader reader = new StringReader(output.toString());
+
+				Document doc = new SAXBuilder().build(reader);
+				Source xmlFile = new JDOMSource(doc);
+				JDOMResult xpdlResult = new JDOMResult();
+
+				Transformer transformer = XMLFactories.newTransformer(this
+						.getServletContext().getResource("/WEB-INF/lib/bpmn2xpdl.xsl"));
+				transformer.transform(xmlFile, xpdlResult);
+
+				XMLOutputter xmlOutputter = new XMLOutputter();
+				xpdl = xmlOutputter.outputString(xpdlResult.getDocument());
+				cache.putString(key, xpdl);
+			}
 
 			res.setContentType("application/xml");
 			res.setStatus(200);
-			xmlOutputter.output(xpdlResult.getDocument(), res.getWriter());
+			res.getWriter().write(xpdl);
 		} catch (Exception e) {
 			try {
 				e.printStackTrace();
@@ -137,15 +150,9 @@ public class Bpmn2_0ToXpdlServlet extends HttpServlet {
 		Diagram2BpmnConverter converter = new Diagram2BpmnConverter(diagram, factoryClasses);
 		Definitions bpmnDefinitions = converter.getDefinitionsFromDiagram();
 
-		/* Perform XML creation */
-		JAXBContext context = JAXBContext.newInstance(Definitions.class);
-		Marshaller marshaller = context.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-		NamespacePrefixMapper nsp = new BPMNPrefixMapper();
-		marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", nsp);
-
-		marshaller.marshal(bpmnDefinitions, writer);
+		/* Perform XML creation, the XSLT does not need schema validation */
+		BpmnJaxbService.getInstance(this.getServletContext()).marshal(
+				bpmnDefinitions, writer, null);
 
 		return writer;
 	}
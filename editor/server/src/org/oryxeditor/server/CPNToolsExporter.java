@@ -9,6 +9,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import de.hpi.cpn.converter.CPNConverter;
+import de.hpi.util.ConversionCache;
 
 
 public class CPNToolsExporter extends HttpServlet
@@ -27,7 +28,16 @@ public class CPNToolsExporter extends HttpServlet
 			
 			String json = request.getParameter("data");		
 		
-			String cpnfileString = CPNConverter.convertToCPNFile(json);
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("cpn", json);
+			String cpnfileString = cache.getString(key);
+			if (cpnfileString == null)
+			{
+				cpnfileString = CPNConverter.convertToCPNFile(json);
+				if (!cpnfileString.startsWith("error:"))
+					cache.putString(key, cpnfileString);
+			}
 			
 			if (cpnfileString.startsWith("error:"))
 			{
@@ -0,0 +1,60 @@
+package org.oryxeditor.server;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.JSONObject;
+
+import de.hpi.util.ConversionCache;
+
+/**
+ * Reports the hits and misses of the {@link ConversionCache} used by the
+ * export servlets. A POST with action=clear empties the cache. If the context
+ * parameter CONVERSION_CACHE_TOKEN is set, clearing needs the parameter token
+ * with its value, otherwise it is only accepted from the server itself.
+ */
+public class ConversionCacheServlet extends HttpServlet {
+	private static final long serialVersionUID = 2417880313460955532L;
+
+	public static final String TOKEN_PARAMETER = "CONVERSION_CACHE_TOKEN";
+
+	protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+		ConversionCache cache = ConversionCache.getInstance(getServletContext());
+
+		res.setContentType("application/json");
+		res.setCharacterEncoding("UTF-8");
+		res.getWriter().print(new JSONObject(cache.getStatistics()).toString());
+	}
+
+	protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+		if ("clear".equals(req.getParameter("action"))) {
+			if (!isAuthorized(req)) {
+				res.sendError(HttpServletResponse.SC_FORBIDDEN, "The cache may only be cleared by an administrator");
+				return;
+			}
+			ConversionCache.getInstance(getServletContext()).clear();
+		}
+		doGet(req, res);
+	}
+
+	private boolean isAuthorized(HttpServletRequest req) throws UnsupportedEncodingException {
+		String token = getServletContext().getInitParameter(TOKEN_PARAMETER);
+		if (token != null && token.length() > 0) {
+			String given = req.getParameter("token");
+			return given != null && MessageDigest.isEqual(token.getBytes("UTF-8"), given.getBytes("UTF-8"));
+		}
+		try {
+			return InetAddress.getByName(req.getRemoteAddr()).isLoopbackAddress();
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+}
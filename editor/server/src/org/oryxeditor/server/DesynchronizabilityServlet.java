@@ -12,7 +12,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -28,6 +27,7 @@ import de.hpi.interactionnet.InteractionNet;
 import de.hpi.interactionnet.localmodelgeneration.DesynchronizabilityChecker;
 import de.hpi.interactionnet.serialization.InteractionNetRDFImporter;
 import de.hpi.petrinet.Transition;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Gero Decker
@@ -61,8 +61,7 @@ public class DesynchronizabilityServlet extends HttpServlet {
 			String rdf = req.getParameter("data");
 
 			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
 			
 			processDocument(document, res.getWriter());
@@ -13,7 +13,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -22,6 +21,7 @@ import org.apache.commons.fileupload.FileItemFactory;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import de.hpi.util.XMLFactories;
 
 
 /**
@@ -99,10 +99,7 @@ public class EPCUpload extends HttpServlet {
     	final String xsltFilename = getServletContext().getRealPath("/xslt/EPML2eRDF.xslt");
 //    	final String xsltFilename = System.getProperty("catalina.home") + "/webapps/oryx/xslt/EPML2eRDF.xslt";
     	final File epml2eRDFxsltFile = new File(xsltFilename);
-    	final Source epml2eRDFxsltSource = new StreamSource(epml2eRDFxsltFile);	
 
-    	// Transformer Factory
-    	final TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
     	// Get the epml source
     	final Source epmlSource;
@@ -117,7 +114,7 @@ public class EPCUpload extends HttpServlet {
     	// Get the result string
     	String resultString = null;
     	try {
-    		Transformer transformer = transformerFactory.newTransformer(epml2eRDFxsltSource);
+    		Transformer transformer = XMLFactories.newTransformer(epml2eRDFxsltFile);
     		StringWriter writer = new StringWriter();
     		transformer.transform(epmlSource, new StreamResult(writer));
     		resultString = writer.toString();
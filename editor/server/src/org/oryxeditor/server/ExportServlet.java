@@ -1,10 +1,10 @@
 package org.oryxeditor.server;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
@@ -15,16 +15,14 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
@@ -35,6 +33,7 @@ import de.hpi.bpmn2execpn.converter.ExecConverter;
 import de.hpi.execpn.ExecPetriNet;
 import de.hpi.execpn.pnml.ExecPNPNMLExporter;
 import de.hpi.petrinet.PetriNet;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2007 Alexander Koglin Copyright (c) 2008 Lutz Gericke
@@ -82,14 +81,10 @@ public class ExportServlet extends HttpServlet {
 		String rdf = req.getParameter("data");
 		String diagramTitle = req.getParameter("title");
 
-		DocumentBuilder builder;
 		BPMNDiagram diagram;
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
-			BPMNRDFImporter importer = new BPMNRDFImporter(document);
-			diagram = (BPMNDiagram) importer.loadBPMN();
+			BPMNRDFImporter importer = new BPMNRDFImporter();
+			diagram = (BPMNDiagram) importer.loadBPMN(new StringReader(rdf));
 
 			String basefilename = String.valueOf(System.currentTimeMillis());
 			String tmpPNMLFile = this.getServletContext().getRealPath("/") + "tmp" + File.separator + basefilename + ".pnml";
@@ -100,7 +95,7 @@ public class ExportServlet extends HttpServlet {
 			converter.setBaseFileName(this.getServletContext().getRealPath("/") + "tmp" + File.separator + basefilename);
 			PetriNet net = converter.convert();		
 			ExecPetriNet execnet = (ExecPetriNet)net;
-			Document pnmlDoc = builder.newDocument();
+			Document pnmlDoc = XMLFactories.getDocumentBuilder().newDocument();
 			
 			ExecPNPNMLExporter exp = new ExecPNPNMLExporter();
 			execnet.setName(diagramTitle);
@@ -158,7 +153,7 @@ public class ExportServlet extends HttpServlet {
 
 		} catch (ParserConfigurationException e1) {
 			res.getWriter().println(e1.getMessage());
-		} catch (SAXException e1) {
+		} catch (XMLStreamException e1) {
 			res.getWriter().println(e1.getMessage());
 		}
 
@@ -1,18 +1,14 @@
 package org.oryxeditor.server;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 import de.hpi.bpmn.BPMNDiagram;
 import de.hpi.bpmn.serialization.erdf.BPMNeRDFSerializer;
@@ -52,13 +48,8 @@ public class IBPMN2BPMNServlet extends HttpServlet {
 
 			String rdf = req.getParameter("data");
 
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document ibpmnDoc = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
-			
 			// retrieve IBPMN diagram from RDF
-			IBPMNDiagram ibpmn = new IBPMNRDFImporter(ibpmnDoc).loadIBPMN();
+			IBPMNDiagram ibpmn = new IBPMNRDFImporter().loadIBPMN(new StringReader(rdf));
 			
 			// do conversion
 			BPMNDiagram bpmn = new IBPMN2BPMNConverter(ibpmn).convert();
@@ -72,7 +63,7 @@ public class IBPMN2BPMNServlet extends HttpServlet {
 			res.getWriter().println(e.getMessage());
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
-		} catch (SAXException e) {
+		} catch (XMLStreamException e) {
 			e.printStackTrace();
 		}
 	}
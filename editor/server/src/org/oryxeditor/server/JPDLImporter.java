@@ -9,10 +9,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import de.hpi.jbpm.JpdlToJson;
 import org.w3c.dom.Document;
+import de.hpi.util.XMLFactories;
 
 
 /**
@@ -55,9 +55,7 @@ public class JPDLImporter extends HttpServlet {
 			PrintWriter out = res.getWriter();
 			String jpdlRepresentation = req.getParameter("data");
 			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 			Document jpdlDoc = builder.parse(new ByteArrayInputStream(jpdlRepresentation.getBytes()));
 			
 			String result = "";
@@ -0,0 +1,237 @@
+package org.oryxeditor.server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of JDBC connections. At most the given number of
+ * connections are open at the same time; a request for a connection waits
+ * until one is released or the timeout passed. Each pooled connection keeps
+ * its prepared statements, so that a statement is prepared once per
+ * connection instead of once per request.
+ *
+ * A connection is used by one thread between {@link #getConnection()} and
+ * {@link #release(PooledConnection, boolean)}, which must be called in a
+ * finally block.
+ *
+ * Idle connections may be closed by the database or a firewall. Before an
+ * idle connection is handed out again, it is closed if it was idle longer
+ * than the maximum idle time or if the driver reports it as no longer
+ * valid, and a new connection is opened instead.
+ */
+public class JdbcConnectionPool {
+
+	/** The milliseconds a connection may be idle before it is closed */
+	public static final long DEFAULT_MAX_IDLE = 5 * 60 * 1000;
+
+	/** The seconds to wait for the validation of an idle connection */
+	public static final int VALIDATION_TIMEOUT = 5;
+
+	private final String url;
+	private final String username;
+	private final String password;
+	private final long timeout;
+	private final long maxIdle;
+
+	private final Semaphore permits;
+	private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+	private volatile boolean closed = false;
+
+	/**
+	 * @param maxConnections
+	 *            The maximum number of open connections
+	 * @param timeout
+	 *            The milliseconds to wait for a connection
+	 */
+	public JdbcConnectionPool(String url, String username, String password, int maxConnections, long timeout) {
+		this(url, username, password, maxConnections, timeout, DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * @param maxConnections
+	 *            The maximum number of open connections
+	 * @param timeout
+	 *            The milliseconds to wait for a connection
+	 * @param maxIdle
+	 *            The milliseconds a connection may be idle before it is
+	 *            closed instead of being used again
+	 */
+	public JdbcConnectionPool(String url, String username, String password, int maxConnections, long timeout,
+			long maxIdle) {
+		if (maxConnections < 1)
+			throw new IllegalArgumentException("A pool needs at least one connection");
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.timeout = timeout;
+		this.maxIdle = maxIdle;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	/**
+	 * Returns a valid idle connection or opens a new one.
+	 *
+	 * @throws SQLException
+	 *             If no connection could be opened or none was released in
+	 *             time
+	 */
+	public PooledConnection getConnection() throws SQLException {
+		if (closed)
+			throw new SQLException("The connection pool is closed");
+		try {
+			if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+				throw new SQLException("No database connection was released within " + timeout + " ms");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection");
+		}
+		boolean acquired = false;
+		try {
+			PooledConnection result = null;
+			while (result == null) {
+				PooledConnection connection;
+				synchronized (idle) {
+					if (idle.isEmpty())
+						break;
+					connection = idle.removeFirst();
+				}
+				if (connection.isUsable(maxIdle))
+					result = connection;
+				else
+					connection.close();
+			}
+			if (result == null)
+				result = new PooledConnection(DriverManager.getConnection(url, username, password));
+			acquired = true;
+			return result;
+		} finally {
+			// also for errors of the driver, otherwise the permit would be lost
+			if (!acquired)
+				permits.release();
+		}
+	}
+
+	/**
+	 * Returns a connection to the pool.
+	 *
+	 * @param broken
+	 *            Whether the connection failed while it was used, it is
+	 *            closed then instead of being used again
+	 */
+	public void release(PooledConnection connection, boolean broken) {
+		try {
+			if (broken || closed) {
+				connection.close();
+			} else {
+				connection.released = System.currentTimeMillis();
+				synchronized (idle) {
+					idle.addFirst(connection);
+				}
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes the idle connections, connections in use are closed when they
+	 * are released.
+	 */
+	public void close() {
+		closed = true;
+		synchronized (idle) {
+			for (PooledConnection connection : idle)
+				connection.close();
+			idle.clear();
+		}
+	}
+
+	/**
+	 * A connection of the pool with its prepared statements.
+	 */
+	public static class PooledConnection {
+
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+		private long released;
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Returns the statement prepared for the given SQL before, or
+		 * prepares it. The parameters of a statement that was used before
+		 * are cleared.
+		 */
+		public PreparedStatement prepareStatement(String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			} else {
+				statement.clearParameters();
+			}
+			return statement;
+		}
+
+		/**
+		 * Whether the connection was idle at most the given milliseconds and
+		 * still works. Drivers before JDBC 4 (e.g. the JDBC 3 PostgreSQL
+		 * driver) lack {@link Connection#isValid(int)}, their connections are
+		 * checked with a query instead.
+		 */
+		boolean isUsable(long maxIdle) {
+			if (System.currentTimeMillis() - released > maxIdle)
+				return false;
+			try {
+				return connection.isValid(VALIDATION_TIMEOUT);
+			} catch (AbstractMethodError e) {
+				return isAnswering();
+			} catch (Throwable e) {
+				return false;
+			}
+		}
+
+		private boolean isAnswering() {
+			try {
+				Statement statement = connection.createStatement();
+				try {
+					statement.setQueryTimeout(VALIDATION_TIMEOUT);
+					statement.execute("SELECT 1");
+					return true;
+				} finally {
+					statement.close();
+				}
+			} catch (Throwable e) {
+				return false;
+			}
+		}
+
+		void close() {
+			for (PreparedStatement statement : statements.values()) {
+				try {
+					statement.close();
+				} catch (SQLException e) { /* ignore close errors */
+				}
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (SQLException e) { /* ignore close errors */
+			}
+		}
+	}
+}
@@ -16,7 +16,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONArray;
@@ -46,6 +45,7 @@ import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.serialization.PetriNetPNMLExporter;
 import de.hpi.petrinet.serialization.PetriNetPNMLExporter.Tool;
 import de.hpi.util.LibConfigToJsonConvert;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2010 Philipp Berger
@@ -116,8 +116,7 @@ public class LolaPetrinetSoundnessChecker extends HttpServlet {
 			 * transform to xml document
 			 */
 			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
 			Document pnmlDoc = builder.newDocument();
 
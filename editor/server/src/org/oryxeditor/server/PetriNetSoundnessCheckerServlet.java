@@ -9,7 +9,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONArray;
@@ -22,6 +21,7 @@ import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.serialization.erdf.PetriNeteRDFParser;
 import de.hpi.petrinet.verification.MaxNumOfStatesReachedException;
 import de.hpi.petrinet.verification.PetriNetSoundnessChecker;
+import de.hpi.util.XMLFactories;
 
 public class PetriNetSoundnessCheckerServlet extends HttpServlet {
 	private static final long serialVersionUID = -3215102566003538575L;
@@ -35,8 +35,7 @@ public class PetriNetSoundnessCheckerServlet extends HttpServlet {
 			String rdf = req.getParameter("data");
 
 			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
 			
 			try {
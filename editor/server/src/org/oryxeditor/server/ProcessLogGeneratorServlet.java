@@ -8,7 +8,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONException;
@@ -20,6 +19,7 @@ import de.hpi.processLogGeneration.petrinetTimeAndPropability.PTNetRDFImporter;
 import de.hpi.petrinet.PetriNet;
 import de.hpi.processLogGeneration.CompletenessOption;
 import de.hpi.processLogGeneration.ProcessLogGenerator;
+import de.hpi.util.XMLFactories;
 
 /**
  * This servlet acts as the interface for generating ProcessLogs from Petrinets.
@@ -74,8 +74,7 @@ public class ProcessLogGeneratorServlet extends HttpServlet{
 			IOException, ParserConfigurationException {
 		String rdf =req.getParameter("model");
 		DocumentBuilder builder;
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		builder = factory.newDocumentBuilder();
+		builder = XMLFactories.getDocumentBuilder();
 		byte[] bytes = rdf.getBytes();
 		Document document = builder.parse(new ByteArrayInputStream(bytes));
 		return document;
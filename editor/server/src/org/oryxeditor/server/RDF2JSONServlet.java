@@ -10,9 +10,9 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.w3c.dom.Document;
+import de.hpi.util.XMLFactories;
 
 public class RDF2JSONServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
@@ -31,9 +31,7 @@ public class RDF2JSONServlet extends HttpServlet {
   			PrintWriter out = res.getWriter();
   			String rdfRepresentation = req.getParameter("rdf"); 
   			
-  			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-  			factory.setNamespaceAware(true);
-  			DocumentBuilder builder = factory.newDocumentBuilder();
+  			DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
   			Document rdfDoc = builder.parse(new ByteArrayInputStream(rdfRepresentation.getBytes("UTF-8")));
   			
   			String jsonRepresentation = RdfJsonTransformation.toJson(rdfDoc, serverUrl.toString()).toString();
@@ -35,20 +35,18 @@ package org.oryxeditor.server;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.net.MalformedURLException;
 import java.util.List;
 import java.util.ListIterator;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -58,6 +56,7 @@ import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.w3c.dom.Document;
+import de.hpi.util.XMLFactories;
 
 public class Repository {
 
@@ -413,9 +412,7 @@ public class Repository {
 	protected String erdfToJson(String erdf, ServletContext context) {
 		try {
 			String rdf = erdfToRdf(erdf, context);
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 			Document rdfDoc = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
 			return RdfJsonTransformation.toJson(rdfDoc, "").toString();
 		} catch (Exception e) {
@@ -424,7 +421,7 @@ public class Repository {
 		return "";
 	}
 	
-	protected String erdfToRdf(String erdf, ServletContext context) throws TransformerException{
+	protected String erdfToRdf(String erdf, ServletContext context) throws TransformerException, MalformedURLException{
 		String serializedDOM = "<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
 		"<html xmlns=\"http://www.w3.org/1999/xhtml\" " +
 		"xmlns:b3mn=\"http://b3mn.org/2007/b3mn\" " +
@@ -439,13 +436,9 @@ public class Repository {
 		"<link rel=\"schema.raziel\" href=\"http://raziel.org/\" />" +
 		"</head><body>" + erdf + "</body></html>";
         
-		InputStream xsltStream = context.getResourceAsStream("/WEB-INF/lib/extract-rdf.xsl");
-        Source xsltSource = new StreamSource(xsltStream);
         Source erdfSource = new StreamSource(new StringReader(serializedDOM));
 
-        TransformerFactory transFact =
-                TransformerFactory.newInstance();
-        Transformer trans = transFact.newTransformer(xsltSource);
+        Transformer trans = XMLFactories.newTransformer(context.getResource("/WEB-INF/lib/extract-rdf.xsl"));
         StringWriter output = new StringWriter();
         trans.transform(erdfSource, new StreamResult(output));
 		return output.toString();
@@ -9,7 +9,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -35,6 +34,8 @@ import de.hpi.interactionnet.serialization.InteractionNetRDFImporter;
 import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.serialization.PetriNetPNMLExporter;
 import de.hpi.petrinet.serialization.PetriNetPNMLExporter.Tool;
+import de.hpi.util.ConversionCache;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Lutz Gericke, Gero Decker
@@ -70,23 +71,31 @@ public class SimplePNMLExporter extends HttpServlet {
 			String tool = req.getParameter("tool");
 			if(tool!=null && tool.equals("lola"))
 				this.setTool( PetriNetPNMLExporter.Tool.LOLA);
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
-
-			Document pnmlDoc = builder.newDocument();
-			
-			processDocument(document, pnmlDoc);
-	
-			OutputFormat format = new OutputFormat(pnmlDoc);
 
-			StringWriter stringOut = new StringWriter();
-			XMLSerializer serial2 = new XMLSerializer(stringOut, format);
-			serial2.asDOMSerializer();
+			/* Unchanged models are not converted again */
+			ConversionCache cache = ConversionCache.getInstance(getServletContext());
+			String key = cache.key("pnml", rdf, String.valueOf(getTool()));
+			String pnml = cache.getString(key);
+			if (pnml == null) {
+				DocumentBuilder builder;
+				builder = XMLFactories.getDocumentBuilder();
+				Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes()));
+
+				Document pnmlDoc = builder.newDocument();
+
+				processDocument(document, pnmlDoc);
+
+				OutputFormat format = new OutputFormat(pnmlDoc);
+
+				StringWriter stringOut = new StringWriter();
+				XMLSerializer serial2 = new XMLSerializer(stringOut, format);
+				serial2.asDOMSerializer();
 
-			serial2.serialize(pnmlDoc.getDocumentElement());
-			res.getWriter().print(stringOut.toString());
+				serial2.serialize(pnmlDoc.getDocumentElement());
+				pnml = stringOut.toString();
+				cache.putString(key, pnml);
+			}
+			res.getWriter().print(pnml);
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
 		} catch (SAXException e) {
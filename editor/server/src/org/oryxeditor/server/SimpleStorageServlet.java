@@ -6,12 +6,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletException;
@@ -51,12 +48,23 @@ public class SimpleStorageServlet extends HttpServlet {
     private static boolean DEBUG = false;
 
     private static Configuration config = null;
-    private Connection database = null;
-    private String currentResource = null;
 
-    private void prepare(HttpServletRequest req, HttpServletResponse res)
-	    throws InstantiationException, IllegalAccessException,
-	    ClassNotFoundException, SQLException, ConfigurationException {
+    // shared by all requests, the request state is passed as parameters.
+    private JdbcConnectionPool pool = null;
+    private SitesDao sites = null;
+
+    /**
+     * Returns the access to the sites table, creating the connection pool
+     * on first use. Besides the connection, database.properties may set
+     * db.pool.size (default 8 connections) and db.pool.timeout (default
+     * 10000 ms to wait for a connection).
+     */
+    protected synchronized SitesDao getSites() throws InstantiationException,
+	    IllegalAccessException, ClassNotFoundException,
+	    ConfigurationException {
+
+	if (this.sites != null)
+	    return this.sites;
 
 	if (SimpleStorageServlet.config == null)
 	    SimpleStorageServlet.config = new PropertiesConfiguration(
@@ -67,11 +75,21 @@ public class SimpleStorageServlet extends HttpServlet {
 	String url = SimpleStorageServlet.config.getString("db.url");
 	String username = SimpleStorageServlet.config.getString("db.username");
 	String password = SimpleStorageServlet.config.getString("db.password");
+	int poolSize = SimpleStorageServlet.config.getInt("db.pool.size", 8);
+	long timeout = SimpleStorageServlet.config.getLong("db.pool.timeout",
+		10000);
 
 	Class.forName(connector).newInstance();
-	this.database = DriverManager.getConnection(url, username, password);
+	this.pool = new JdbcConnectionPool(url, username, password, poolSize,
+		timeout);
+	this.sites = new SitesDao(this.pool);
+	return this.sites;
+    }
 
-	this.currentResource = req.getParameter("resource");
+    public synchronized void destroy() {
+	if (this.pool != null)
+	    this.pool.close();
+	super.destroy();
     }
 
     private void process(boolean isPost, HttpServletRequest req,
@@ -79,20 +97,21 @@ public class SimpleStorageServlet extends HttpServlet {
 
 	try {
 
-	    prepare(req, res);
+	    SitesDao sites = getSites();
+	    String resource = req.getParameter("resource");
 
 	    if (isPost) {
 
-		this.storeResource(req, res);
+		this.storeResource(sites, resource, req, res);
 
-	    } else if (this.currentResource == null)
+	    } else if (resource == null)
 
-		this.showProcessList(req, res);
+		this.showProcessList(sites, req, res);
 
 	    else {
 
 		String stencilsetURL = req.getParameter("stencilset");
-		this.showResource(req, res, stencilsetURL);
+		this.showResource(sites, resource, req, res, stencilsetURL);
 
 	    }
 
@@ -100,14 +119,6 @@ public class SimpleStorageServlet extends HttpServlet {
 
 	    this.showError(e, res);
 
-	} finally {
-
-	    if (database != null) {
-		try {
-		    database.close();
-		} catch (Exception e) { /* ignore close errors */
-		}
-	    }
 	}
     }
 
@@ -123,52 +134,24 @@ public class SimpleStorageServlet extends HttpServlet {
 	this.process(true, req, res);
     }
 
-    protected void storeResource(HttpServletRequest req, HttpServletResponse res)
+    protected void storeResource(SitesDao sites, String resource,
+	    HttpServletRequest req, HttpServletResponse res)
 	    throws SQLException {
 
 	String data = req.getParameter("data");
 
-	PreparedStatement stmt = database
-		.prepareStatement("SELECT ID FROM sites WHERE Name = ?");
-	stmt.setString(1, this.currentResource);
-
-	if (stmt.executeQuery().next()) {
-
-	    PreparedStatement store = database
-		    .prepareStatement("UPDATE sites SET Site = ? WHERE Name = ?");
-	    store.setString(1, data);
-	    store.setString(2, this.currentResource);
-	    store.execute();
-
-	} else {
-
-	    PreparedStatement store = database
-		    .prepareStatement("INSERT INTO sites (Name, Site) VALUES (?, ?)");
-	    store.setString(2, data);
-	    store.setString(1, this.currentResource);
-	    store.execute();
-	}
+	sites.storeSite(resource, data);
     }
 
-    public void showResource(HttpServletRequest req, HttpServletResponse res,
+    public void showResource(SitesDao sites, String resource,
+	    HttpServletRequest req, HttpServletResponse res,
 	    String stencilsetURL) throws SQLException {
 
 	res.setContentType("application/xhtml+xml");
 
-	PreparedStatement stmt = database
-		.prepareStatement("SELECT ID, Site FROM sites WHERE Name = ?");
-	stmt.setString(1, this.currentResource);
-
-	stmt.execute();
-
-	ResultSet rs = stmt.getResultSet();
-	String result;
-
-	if (rs.next())
-
-	    result = rs.getString(2);
+	String result = sites.getSite(resource);
 
-	else {
+	if (result == null) {
 
 	    result = "<div class=\"-oryx-canvas\" id=\"oryx-canvas123\" style=\"width:1200px; height:600px;\">";
 	    result += "<a href=\"" + stencilsetURL
@@ -178,12 +161,12 @@ public class SimpleStorageServlet extends HttpServlet {
 	    result += "</div>";
 	}
 
-	this.template(req, res, result);
+	this.template(resource, req, res, result);
 
     }
 
-    public void template(HttpServletRequest req, HttpServletResponse res,
-	    String resource) throws SQLException {
+    public void template(String name, HttpServletRequest req,
+	    HttpServletResponse res, String resource) throws SQLException {
 
 	PrintWriter out;
 	try {
@@ -203,7 +186,7 @@ public class SimpleStorageServlet extends HttpServlet {
 
 	out.println("<head profile=\"http://purl.org/NET/erdf/profile\">");
 
-	out.println("<title>" + this.currentResource + " - Oryx</title>");
+	out.println("<title>" + name + " - Oryx</title>");
 
 	out.println("<!-- libraries -->");
 	out
@@ -335,11 +318,11 @@ public class SimpleStorageServlet extends HttpServlet {
 	return name.substring(0, name.length() - 5);
     }
 
-    public void showProcessList(HttpServletRequest req, HttpServletResponse res)
-	    throws SQLException, MalformedURLException {
+    public void showProcessList(SitesDao sites, HttpServletRequest req,
+	    HttpServletResponse res) throws SQLException,
+	    MalformedURLException {
 
-	PreparedStatement stmt = database
-		.prepareStatement("SELECT ID, Name FROM sites");
+	List<String> names = sites.getSiteNames();
 
 	PrintWriter out;
 	try {
@@ -391,22 +374,21 @@ public class SimpleStorageServlet extends HttpServlet {
 	out.println("</form>");
 	out.println("</p>");
 
-	if (stmt.execute()) {
+	if (!names.isEmpty()) {
 
-	    ResultSet rs = stmt.getResultSet();
 	    out
 		    .println("<div style='text-align:left; float: clear;'>Or review an existing one:<br/></div>");
 
-	    while (rs.next()) {
+	    for (String name : names) {
 
 		out
 			.println("<div style='padding: 16px; display: inline; float: left;'>");
 		out.println("<div>");
 		out.println("<a href='" + req.getRequestURL() + "?resource="
-			+ rs.getString(2) + "' style='text-decoration: none'>");
+			+ name + "' style='text-decoration: none'>");
 		out
 			.println("<img src='./images/crystal/misc.png' border='0' width='128' height='128'/><br/>");
-		out.println(rs.getString(2));
+		out.println(name);
 		out.println("</a>");
 		out.println("</div>");
 		out.println("</div>");
@@ -0,0 +1,96 @@
+package org.oryxeditor.server;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.oryxeditor.server.JdbcConnectionPool.PooledConnection;
+
+/**
+ * Access to the "sites" table of the {@link SimpleStorageServlet}: the
+ * stored processes by name. Each call borrows a connection of the pool for
+ * its own statements and returns it before it returns, so that the DAO can
+ * be shared by all requests.
+ */
+public class SitesDao {
+
+	private static final String SELECT_SITE = "SELECT ID, Site FROM sites WHERE Name = ?";
+	private static final String SELECT_NAMES = "SELECT ID, Name FROM sites";
+	private static final String UPDATE_SITE = "UPDATE sites SET Site = ? WHERE Name = ?";
+	private static final String INSERT_SITE = "INSERT INTO sites (Name, Site) VALUES (?, ?)";
+
+	private final JdbcConnectionPool pool;
+
+	public SitesDao(JdbcConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return The stored site or null if there is no site with the name
+	 */
+	public String getSite(String name) throws SQLException {
+		PooledConnection connection = pool.getConnection();
+		boolean broken = true;
+		try {
+			PreparedStatement statement = connection.prepareStatement(SELECT_SITE);
+			statement.setString(1, name);
+			ResultSet result = statement.executeQuery();
+			String site;
+			try {
+				site = result.next() ? result.getString(2) : null;
+			} finally {
+				result.close();
+			}
+			broken = false;
+			return site;
+		} finally {
+			pool.release(connection, broken);
+		}
+	}
+
+	/**
+	 * @return The names of all stored sites
+	 */
+	public List<String> getSiteNames() throws SQLException {
+		PooledConnection connection = pool.getConnection();
+		boolean broken = true;
+		try {
+			ResultSet result = connection.prepareStatement(SELECT_NAMES).executeQuery();
+			List<String> names = new ArrayList<String>();
+			try {
+				while (result.next())
+					names.add(result.getString(2));
+			} finally {
+				result.close();
+			}
+			broken = false;
+			return names;
+		} finally {
+			pool.release(connection, broken);
+		}
+	}
+
+	/**
+	 * Replaces the site with the given name or adds it.
+	 */
+	public void storeSite(String name, String site) throws SQLException {
+		PooledConnection connection = pool.getConnection();
+		boolean broken = true;
+		try {
+			PreparedStatement update = connection.prepareStatement(UPDATE_SITE);
+			update.setString(1, site);
+			update.setString(2, name);
+			if (update.executeUpdate() == 0) {
+				PreparedStatement insert = connection.prepareStatement(INSERT_SITE);
+				insert.setString(1, name);
+				insert.setString(2, site);
+				insert.executeUpdate();
+			}
+			broken = false;
+		} finally {
+			pool.release(connection, broken);
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package org.oryxeditor.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keeps the stencil sets and stencil set extensions delivered by the
+ * {@link StencilSetJSONPServlet} in memory.
+ *
+ * Each requested stencil set (with or without embedded SVG) and each
+ * extension is read once and kept as a {@link Representation}: the bytes of
+ * the JSON file, the same bytes gzip compressed (also prepared for JSONP
+ * callbacks), and a strong ETag. The files are watched: a representation
+ * that has not been checked for the configured interval is compared with its
+ * file (which file, its modification time and length) on the next request
+ * and reloaded if it changed. The same holds for the namespace index of extensions.json.
+ *
+ * The representations are kept by the canonical path of their file, so
+ * different spellings of a request share one representation. The requests
+ * only remember which representation they resolved to. Both maps are bounded
+ * and drop their least recently used entries.
+ */
+public class StencilSetCache {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** The maximum number of files kept in memory */
+	public static final int MAX_REPRESENTATIONS = 256;
+	/** The maximum number of requests whose resolution is remembered */
+	public static final int MAX_ALIASES = 1024;
+
+	private final File directory;
+	private final long checkInterval;
+
+	/* canonical path -> representation */
+	private final Map<String, Representation> representations = lru(MAX_REPRESENTATIONS);
+	/* request -> the representation it resolved to */
+	private final Map<String, Representation> aliases = lru(MAX_ALIASES);
+	private volatile Extensions extensions;
+
+	/**
+	 * @param directory
+	 *            The stencilsets directory of the web application
+	 * @param checkInterval
+	 *            The milliseconds a representation is served without looking
+	 *            at its file, 0 to look on every request
+	 */
+	public StencilSetCache(File directory, long checkInterval) {
+		this.directory = directory;
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Returns a stencil set, by default its -nosvg variant if there is one.
+	 *
+	 * @param resource
+	 *            The path of the stencil set JSON below the stencilsets
+	 *            directory, optionally starting with "/" or "stencilsets/"
+	 * @param embedSvg
+	 *            Whether the variant with embedded SVG is requested
+	 * @return The stencil set or null if there is no such file
+	 * @throws IOException
+	 */
+	public Representation getStencilSet(String resource, boolean embedSvg) throws IOException {
+		String key = (embedSvg ? "svg:" : "nosvg:") + resource;
+		Representation cached = aliases.get(key);
+		if (cached != null && !cached.isDue(checkInterval))
+			return cached;
+		return refresh(key, resolveStencilSet(resource, embedSvg));
+	}
+
+	/**
+	 * Returns the stencil set extension with the given namespace as listed in
+	 * extensions/extensions.json.
+	 *
+	 * @return The extension or null if there is no such extension
+	 * @throws IOException
+	 * @throws JSONException
+	 *             If extensions.json is not valid
+	 */
+	public Representation getExtension(String namespace) throws IOException, JSONException {
+		String key = "extension:" + namespace;
+		Representation cached = aliases.get(key);
+		if (cached != null && !cached.isDue(checkInterval))
+			return cached;
+		return refresh(key, resolveExtension(namespace));
+	}
+
+	/*
+	 * Returns the representation of the canonical file, loading it if it is
+	 * new or modified, and remembers it for the request.
+	 */
+	private Representation refresh(String key, File file) throws IOException {
+		if (file == null) {
+			aliases.remove(key);
+			return null;
+		}
+		Representation representation = representations.get(file.getPath());
+		if (representation != null && !representation.isModified(file)) {
+			representation.checked();
+		} else {
+			representation = new Representation(file);
+			representations.put(file.getPath(), representation);
+		}
+		aliases.put(key, representation);
+		return representation;
+	}
+
+	private File resolveStencilSet(String resource, boolean embedSvg) throws IOException {
+		if (resource == null)
+			return null;
+		if (resource.startsWith("/"))
+			resource = resource.substring(1);
+		// ignore stencilset/ at beginning of path reference
+		if (resource.startsWith("stencilsets/"))
+			resource = resource.substring("stencilsets/".length());
+
+		if (!embedSvg) {
+			// try to find stencilset nosvg representation
+			int index = resource.lastIndexOf('.');
+			if (index > 0) {
+				File file = resolve(resource.substring(0, index) + "-nosvg" + resource.substring(index));
+				if (file != null)
+					return file;
+			}
+		}
+		return resolve(resource);
+	}
+
+	private File resolveExtension(String namespace) throws IOException, JSONException {
+		Extensions current = extensions;
+		File file = new File(directory, "extensions/extensions.json");
+		if (current == null || (current.isDue(checkInterval) && current.isModified(file))) {
+			if (!file.isFile())
+				return null;
+			current = new Extensions(file);
+			extensions = current;
+		} else if (current.isDue(checkInterval)) {
+			current.checked();
+		}
+		String definition = current.definitions.get(namespace);
+		if (definition == null)
+			return null;
+		return resolve("extensions/" + definition);
+	}
+
+	/**
+	 * Returns the file with the given path, if it is inside the stencilsets
+	 * directory.
+	 */
+	private File resolve(String path) throws IOException {
+		File file = new File(directory, path).getCanonicalFile();
+		String root = directory.getCanonicalPath() + File.separator;
+		if (!file.getPath().startsWith(root) || !file.isFile())
+			return null;
+		return file;
+	}
+
+	/**
+	 * A file whose contents have been loaded and that is checked for
+	 * modifications from time to time.
+	 */
+	private static abstract class Loaded {
+
+		final File file;
+		final long lastModified;
+		final long length;
+		private volatile long checked;
+
+		Loaded(File file) {
+			this.file = file;
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+			this.checked = System.currentTimeMillis();
+		}
+
+		boolean isDue(long checkInterval) {
+			return System.currentTimeMillis() - checked >= checkInterval;
+		}
+
+		boolean isModified(File file) {
+			return !file.equals(this.file) || file.lastModified() != lastModified || file.length() != length;
+		}
+
+		void checked() {
+			checked = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * A stencil set or extension JSON file, ready to be sent.
+	 */
+	public static class Representation extends Loaded {
+
+		private static final byte[] JSONP_SUFFIX = { ')', ';' };
+
+		/* The header of GZIPOutputStream: deflate, no name, no time */
+		private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+		private final byte[] json;
+		private final byte[] gzippedJson;
+		private final byte[] deflatedJsonpEnd;
+		private final String eTag;
+
+		Representation(File file) throws IOException {
+			super(file);
+			json = read(file);
+			ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4);
+			GZIPOutputStream out = new GZIPOutputStream(gzipped);
+			out.write(json);
+			out.close();
+			gzippedJson = gzipped.toByteArray();
+
+			// the JSON and the end of the JSONP wrapping as raw deflate data
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			deflater.setInput(concat(json, JSONP_SUFFIX));
+			deflater.finish();
+			ByteArrayOutputStream deflated = new ByteArrayOutputStream(json.length / 4);
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished())
+				deflated.write(buffer, 0, deflater.deflate(buffer));
+			deflater.end();
+			deflatedJsonpEnd = deflated.toByteArray();
+
+			eTag = hash(json);
+		}
+
+		/**
+		 * Returns the JSON wrapped in the given JSONP callback, gzip
+		 * compressed. Only the callback is new: it is put into an
+		 * uncompressed deflate block in front of the compressed JSON.
+		 */
+		public byte[] getGzippedJSONP(String callback) throws IOException {
+			byte[] start = (callback + "(").getBytes("UTF-8");
+			if (start.length > 0xffff) {
+				// does not fit into a single uncompressed block
+				ByteArrayOutputStream gzipped = new ByteArrayOutputStream(gzippedJson.length + start.length);
+				GZIPOutputStream out = new GZIPOutputStream(gzipped);
+				out.write(start);
+				out.write(json);
+				out.write(JSONP_SUFFIX);
+				out.close();
+				return gzipped.toByteArray();
+			}
+			CRC32 crc = new CRC32();
+			crc.update(start);
+			crc.update(json);
+			crc.update(JSONP_SUFFIX);
+			long size = start.length + json.length + JSONP_SUFFIX.length;
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream(GZIP_HEADER.length + 5 + start.length
+					+ deflatedJsonpEnd.length + 8);
+			out.write(GZIP_HEADER);
+			// not the final block, not compressed, followed by its length
+			// and the length's complement
+			out.write(0);
+			out.write(start.length & 0xff);
+			out.write(start.length >> 8);
+			out.write(~start.length & 0xff);
+			out.write((~start.length >> 8) & 0xff);
+			out.write(start);
+			out.write(deflatedJsonpEnd);
+			writeInt(out, crc.getValue());
+			writeInt(out, size);
+			return out.toByteArray();
+		}
+
+		/**
+		 * @return The contents of the file, not to be modified
+		 */
+		public byte[] getJSON() {
+			return json;
+		}
+
+		/**
+		 * @return The contents of the file gzip compressed, not to be
+		 *         modified
+		 */
+		public byte[] getGzippedJSON() {
+			return gzippedJson;
+		}
+
+		/**
+		 * @return The hash of the contents, which only changes with them
+		 */
+		public String getETag() {
+			return eTag;
+		}
+	}
+
+	/**
+	 * The definition files of the extensions by namespace.
+	 */
+	private static class Extensions extends Loaded {
+
+		final Map<String, String> definitions = new HashMap<String, String>();
+
+		Extensions(File file) throws IOException, JSONException {
+			super(file);
+			JSONArray array = new JSONObject(new String(read(file), "UTF-8")).getJSONArray("extensions");
+			for (int i = array.length() - 1; i >= 0; i--) {
+				// the first extension of a namespace wins
+				JSONObject extension = array.getJSONObject(i);
+				definitions.put(extension.getString("namespace"), extension.getString("definition"));
+			}
+		}
+	}
+
+	private static <K, V> Map<K, V> lru(final int maxSize) {
+		return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		});
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	/* Writes the lower 32 bits in little endian order, like the gzip trailer */
+	private static void writeInt(ByteArrayOutputStream out, long value) {
+		for (int i = 0; i < 4; i++)
+			out.write((int) (value >> (8 * i)) & 0xff);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String hash(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+				hex[2 * i + 1] = HEX[digest[i] & 0xf];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+}
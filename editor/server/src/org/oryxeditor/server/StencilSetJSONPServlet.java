@@ -1,21 +1,23 @@
 package org.oryxeditor.server;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 
 /**
+ * Delivers stencil sets and stencil set extensions, optionally wrapped in a
+ * JSONP callback. The files are kept in a {@link StencilSetCache}; responses
+ * carry a strong ETag, conditional requests are answered with 304 and
+ * clients that accept gzip get the precompressed JSON.
+ *
+ * The init parameter checkInterval sets the milliseconds between two checks
+ * of a file for modifications (default 2000).
  * 
  * @author jan-felix.schwarz@student.hpi.uni-potsdam.de
  *
@@ -24,9 +26,22 @@ public class StencilSetJSONPServlet extends HttpServlet {
 	
 	private static final long serialVersionUID = 6084194342174761093L;
 
+	private static final long DEFAULT_CHECK_INTERVAL = 2000;
+
+	private StencilSetCache cache;
+
+	public void init() throws ServletException {
+		long checkInterval = DEFAULT_CHECK_INTERVAL;
+		String parameter = getInitParameter("checkInterval");
+		if (parameter != null && parameter.trim().length() > 0)
+			checkInterval = Long.parseLong(parameter.trim());
+		cache = new StencilSetCache(new File(getServletContext().getRealPath("/stencilsets")), checkInterval);
+	}
+
 	protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
 
 		res.setContentType("application/json");
+		res.setCharacterEncoding("UTF-8");
 		
 		String resource = req.getParameter("resource");
 		String type = req.getParameter("type");
@@ -34,72 +49,22 @@ public class StencilSetJSONPServlet extends HttpServlet {
 		String embedSvg = req.getParameter("embedsvg");
 
 		try {
-			PrintWriter out = res.getWriter();
-			
-			
 			// also allow to request stencil set extensions (specified by namespace)
 			if(type!=null && type.equals("ssextension")) {
-				
-				File extensionsFile = new File(getServletContext().getRealPath("/stencilsets/extensions/extensions.json"));
-				BufferedReader reader = new BufferedReader(new FileReader(extensionsFile));
-				String line = null; String jsonString = "";
-				while (( line = reader.readLine()) != null){
-			          jsonString += line;
-			    }
-				JSONObject jsonObj = new JSONObject(jsonString);
-				JSONArray extArr = jsonObj.getJSONArray("extensions");
-				for(int i=0; i<extArr.length(); i++) {
-					if(extArr.getJSONObject(i).getString("namespace").equals(resource)) {
-						String definition = extArr.getJSONObject(i).getString("definition");
-						File jsonFile = new File(getServletContext().getRealPath("/stencilsets/extensions/"+definition));
-						if(jsonp!=null) out.append(jsonp + "(");
-						BufferedReader reader2 = new BufferedReader(new FileReader(jsonFile));
-						String line2 = null;
-						while (( line2 = reader2.readLine()) != null){
-					          out.append(line2);
-					          out.append(System.getProperty("line.separator"));
-					    }
-						if(jsonp!=null) out.append(");");
-					}
-				}
+				StencilSetCache.Representation extension = cache.getExtension(resource);
+				if(extension != null)
+					send(req, res, extension, jsonp);
 				
 			} else { // standard stencil set requested (specified by path)
-				
-				resource.replace("..", ""); // don't allow to leave stencilset dir
-				
-				if(resource.startsWith("/"))
-					resource = resource.substring(1);
-				
-				if(resource.startsWith("stencilsets/")) // ignore stencilset/ at beginning of path reference
-					resource = resource.substring(12);
-
-				File jsonFile;
-				if(embedSvg!=null && embedSvg.equals("true")) { // SVG embedding
-					jsonFile = new File(getServletContext().getRealPath("/stencilsets/" + resource));
-				} else { // no SVG embedding (default)
-					// try to find stencilset nosvg representation
-					int pIdx = resource.lastIndexOf('.');
-					jsonFile = new File(getServletContext().getRealPath("/stencilsets/" + 
-							resource.substring(0, pIdx) + "-nosvg" + resource.substring(pIdx)));
-					if(!jsonFile.exists())
-						jsonFile = new File(getServletContext().getRealPath("/stencilsets/" + resource));
-				}
-				
-				if(!jsonFile.exists()) {
-					if(jsonp!=null) out.write(jsonp + "({ \"error\":\"resource not found\" })");
-					else out.write("{ \"error\":\"resource not found\" }");
+				StencilSetCache.Representation stencilSet = cache.getStencilSet(resource, 
+						embedSvg!=null && embedSvg.equals("true"));
+				if(stencilSet == null) {
+					String error = "{ \"error\":\"resource not found\" }";
+					if(jsonp!=null) error = jsonp + "(" + error + ")";
+					res.getOutputStream().write(error.getBytes("UTF-8"));
+				} else {
+					send(req, res, stencilSet, jsonp);
 				}
-					
-				if(jsonp!=null) out.append(jsonp + "(");
-				
-				BufferedReader reader = new BufferedReader(new FileReader(jsonFile));
-				String line = null;
-				while (( line = reader.readLine()) != null){
-			          out.append(line);
-			          out.append(System.getProperty("line.separator"));
-			    }
-				if(jsonp!=null) out.append(");");
-				
 			}
 			
 		} catch (Exception e) {
@@ -107,4 +72,62 @@ public class StencilSetJSONPServlet extends HttpServlet {
 		}
 		
 	}
+
+	private void send(HttpServletRequest req, HttpServletResponse res, StencilSetCache.Representation representation,
+			String jsonp) throws IOException {
+		boolean gzip = acceptsGzip(req.getHeader("Accept-Encoding"));
+		// a strong ETag is specific to the content coding
+		String eTag = "\"" + representation.getETag() + (gzip ? "-gzip\"" : "\"");
+		res.setHeader("ETag", eTag);
+		res.setHeader("Vary", "Accept-Encoding");
+		if (matches(req.getHeader("If-None-Match"), eTag)) {
+			res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		if (gzip)
+			res.setHeader("Content-Encoding", "gzip");
+
+		if (jsonp == null || gzip) {
+			byte[] body = jsonp == null ? (gzip ? representation.getGzippedJSON() : representation.getJSON())
+					: representation.getGzippedJSONP(jsonp);
+			res.setContentLength(body.length);
+			res.getOutputStream().write(body);
+		} else {
+			OutputStream out = res.getOutputStream();
+			out.write((jsonp + "(").getBytes("UTF-8"));
+			out.write(representation.getJSON());
+			out.write(");".getBytes("UTF-8"));
+		}
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null)
+			return false;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			if (!parts[0].trim().equalsIgnoreCase("gzip"))
+				continue;
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].replace(" ", "");
+				if (parameter.matches("q=0(\\.0*)?"))
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean matches(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null)
+			return false;
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			// If-None-Match uses the weak comparison
+			if (candidate.startsWith("W/"))
+				candidate = candidate.substring(2);
+			if (candidate.equals("*") || candidate.equals(eTag))
+				return true;
+		}
+		return false;
+	}
 }
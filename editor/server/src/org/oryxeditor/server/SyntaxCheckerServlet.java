@@ -11,7 +11,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
@@ -43,6 +42,7 @@ import de.hpi.petrinet.PetriNet;
 import de.hpi.petrinet.serialization.erdf.PetriNeteRDFParser;
 import de.hpi.petrinet.verification.PetriNetSyntaxChecker;
 import de.hpi.util.reflection.ClassFinder;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Gero Decker
@@ -74,6 +74,20 @@ public class SyntaxCheckerServlet extends HttpServlet {
 	*/ 
 	private String context;
 	
+	/**
+	 * Discovers the BPMN 2.0 factories at start up instead of on the first
+	 * request.
+	 */
+	public void init() throws ServletException {
+		try {
+			ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class,
+					"de.hpi.bpmn2_0.factory", this.getServletContext());
+		} catch (ClassNotFoundException e) {
+			/* Classes are not deployed unpacked, discovery fails on request */
+			e.printStackTrace();
+		}
+	}
+	
 	protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
 
 		try {
@@ -85,7 +99,7 @@ public class SyntaxCheckerServlet extends HttpServlet {
 				String json = req.getParameter("data");
 				
 				List<Class<? extends AbstractBpmnFactory>> factoryClasses = ClassFinder
-				.getClassesByPackageName(AbstractBpmnFactory.class,
+				.getCachedClassesByPackageName(AbstractBpmnFactory.class,
 						"de.hpi.bpmn2_0.factory", this.getServletContext());
 				
 				processDocument(json, res.getWriter(), factoryClasses);
@@ -95,8 +109,7 @@ public class SyntaxCheckerServlet extends HttpServlet {
 				context = req.getParameter("context");
 				
 				DocumentBuilder builder;
-				DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-				builder = factory.newDocumentBuilder();
+				builder = XMLFactories.getDocumentBuilder();
 				Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
 				
 				processDocument(document, res.getWriter());			
@@ -10,7 +10,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONArray;
@@ -30,6 +29,7 @@ import de.hpi.bpt.process.epc.IEPC;
 import de.hpi.bpt.process.epc.util.OryxParser;
 import de.hpi.epc.Marking;
 import de.hpi.epc.validation.EPCSoundnessChecker;
+import de.hpi.util.XMLFactories;
 
 /**
  * Copyright (c) 2008 Kai Schlichting
@@ -62,9 +62,7 @@ public class ValidatorServlet extends HttpServlet {
 
 			String rdf = req.getParameter("data");
 
-			DocumentBuilder builder;
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
 			
 			processDocument(document, res.getWriter());
@@ -1,6 +1,8 @@
 package org.oryxeditor.server;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.List;
 
 import javax.servlet.ServletException;
@@ -28,12 +30,18 @@ public class VisioImporter extends HttpServlet {
 
 			List<FileItem> items = new ServletFileUpload(factory).parseRequest(request);
 			
-			String data = items.get(0).getString("UTF-8");
 			String stencil = items.get(1).getString("UTF-8");
 		
 			VisioToJSONConverter converter = new VisioToJSONConverter(this.getServletContext().getRealPath("/"));
 			
-			String result = converter.importVisioData(data, stencil);
+			// the upload is read while it is imported
+			Reader data = new InputStreamReader(items.get(0).getInputStream(), "UTF-8");
+			String result;
+			try {
+				result = converter.importVisioData(data, stencil);
+			} finally {
+				data.close();
+			}
 			response.setContentType("text/plain");
 			response.setCharacterEncoding("UTF-8");
 			response.getWriter().print(result);
@@ -1,15 +1,13 @@
 package org.oryxeditor.server;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
@@ -45,16 +43,7 @@ public class XFormsExportServlet extends HttpServlet {
 			cssUrl = baseUrl + EditorHandler.oryx_path + "/css/xforms_default.css";
 		}
 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf
-					.getBytes()));
-			res.getWriter().write(exportForm(document, cssUrl));
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		res.getWriter().write(exportForm(rdf, cssUrl));
 
 	}
 
@@ -83,24 +72,15 @@ public class XFormsExportServlet extends HttpServlet {
 		Repository repo = new Repository(Repository.getBaseUrl(req));
 		String rdf = repo.getModel(path, "rdf");
 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document document = builder.parse(new ByteArrayInputStream(rdf
-					.getBytes()));
-			res.getWriter().write(exportForm(document, cssUrl));
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		res.getWriter().write(exportForm(rdf, cssUrl));
 	}
 
-	private String exportForm(Document document, String cssUrl) {
+	private String exportForm(String rdf, String cssUrl) {
 
 		try {
 
-			XFormsRDFImporter importer = new XFormsRDFImporter(document);
-			XForm form = importer.loadXForm();
+			XFormsRDFImporter importer = new XFormsRDFImporter();
+			XForm form = importer.loadXForm(new StringReader(rdf));
 
 			XFormsXHTMLExporter exporter = new XFormsXHTMLExporter(form);
 			Document xhtmlDoc = exporter.getXHTMLDocument(cssUrl);
@@ -2,10 +2,10 @@ package org.oryxeditor.server;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.MalformedURLException;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -13,12 +13,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -29,6 +27,7 @@ import org.xml.sax.SAXException;
 import de.hpi.xforms.XForm;
 import de.hpi.xforms.rdf.XFormsERDFExporter;
 import de.hpi.xforms.serialization.XFormsXHTMLImporter;
+import de.hpi.util.XMLFactories;
 
 /**
  * 
@@ -47,9 +46,7 @@ public class XFormsImportServlet extends HttpServlet {
 		
 		try {
 			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XMLFactories.getNamespaceAwareDocumentBuilder();
 			Document document = builder.parse(new ByteArrayInputStream(xhtml.getBytes()));
 			
 			XFormsXHTMLImporter importer = new XFormsXHTMLImporter(document);
@@ -77,7 +74,7 @@ public class XFormsImportServlet extends HttpServlet {
 		
 	}
 	
-	protected static String erdfToRdf(String erdf, ServletContext context) throws TransformerException{
+	protected static String erdfToRdf(String erdf, ServletContext context) throws TransformerException, MalformedURLException{
 		String serializedDOM = "<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
 		"<html xmlns=\"http://www.w3.org/1999/xhtml\" " +
 		"xmlns:b3mn=\"http://b3mn.org/2007/b3mn\" " +
@@ -92,13 +89,9 @@ public class XFormsImportServlet extends HttpServlet {
 		"<link rel=\"schema.raziel\" href=\"http://raziel.org/\" />" +
 		"</head><body>" + erdf + "</body></html>";
         
-		InputStream xsltStream = context.getResourceAsStream("/WEB-INF/lib/extract-rdf.xsl");
-        Source xsltSource = new StreamSource(xsltStream);
         Source erdfSource = new StreamSource(new StringReader(serializedDOM));
 
-        TransformerFactory transFact =
-                TransformerFactory.newInstance();
-        Transformer trans = transFact.newTransformer(xsltSource);
+        Transformer trans = XMLFactories.newTransformer(context.getResource("/WEB-INF/lib/extract-rdf.xsl"));
         StringWriter output = new StringWriter();
         trans.transform(erdfSource, new StreamResult(output));
 		return output.toString();
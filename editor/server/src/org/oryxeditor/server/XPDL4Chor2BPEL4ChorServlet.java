@@ -14,7 +14,6 @@ import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -25,6 +24,7 @@ import de.hpi.bpel4chor.transformation.TransformationResult;
 import de.hpi.bpel4chor.transformation.TransformationResult.Type;
 import de.hpi.bpel4chor.util.Output;
 import de.hpi.bpel4chor.util.OutputElement;
+import de.hpi.util.XMLFactories;
 
 
 /**
@@ -85,8 +85,7 @@ public class XPDL4Chor2BPEL4ChorServlet extends HttpServlet {
 	public static String domToString(Document document) {
 		Source source = new DOMSource(document);
 		try {
-			TransformerFactory factory = TransformerFactory.newInstance();
-			Transformer transformer = factory.newTransformer();
+			Transformer transformer = XMLFactories.getTransformer();
 			transformer.setOutputProperty(OutputKeys. INDENT, "yes");
 			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "1");
 			
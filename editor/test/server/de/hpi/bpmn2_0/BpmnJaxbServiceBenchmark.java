@@ -0,0 +1,109 @@
+package de.hpi.bpmn2_0;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import de.hpi.bpmn2_0.model.Definitions;
+import de.hpi.bpmn2_0.transformation.BPMNPrefixMapper;
+import de.hpi.bpmn2_0.transformation.BpmnJaxbService;
+
+/**
+ * Compares the throughput of BPMN 2.0 XML round trips (unmarshal, validating
+ * marshal) with a JAXB context and schema created per request against the
+ * shared {@link BpmnJaxbService}.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.bpmn2_0.BpmnJaxbServiceBenchmark [tasks] [rounds]</code>
+ */
+public class BpmnJaxbServiceBenchmark {
+
+	private static final File SCHEMA = new File("editor/lib/xsd/bpmn20/BPMN20.xsd");
+
+	public static void main(String[] args) throws Exception {
+		int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		String xml = createProcess(tasks);
+
+		/* Warm up class loading for both variants */
+		roundTripPerRequest(xml);
+		BpmnJaxbService service = new BpmnJaxbService(SCHEMA, BpmnJaxbService.DEFAULT_POOL_SIZE);
+		roundTripPooled(service, xml);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			roundTripPerRequest(xml);
+		}
+		long perRequest = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			roundTripPooled(service, xml);
+		}
+		long pooled = System.nanoTime() - start;
+
+		System.out.println("Round trips of a process with " + tasks + " tasks, " + rounds + " rounds");
+		print("per request context", perRequest, rounds);
+		print("pooled service", pooled, rounds);
+	}
+
+	private static void print(String label, long nanos, int rounds) {
+		double ms = nanos / 1000000.0 / rounds;
+		System.out.println(String.format("  %-22s %8.2f ms/round trip %8.1f round trips/s", label, ms, 1000.0 / ms));
+	}
+
+	private static String roundTripPerRequest(String xml) throws Exception {
+		JAXBContext context = JAXBContext.newInstance(Definitions.class);
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		Definitions def = (Definitions) unmarshaller.unmarshal(new StringReader(xml));
+
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+		marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", new BPMNPrefixMapper());
+		SchemaFactory sf = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		Schema schema = sf.newSchema(SCHEMA);
+		marshaller.setSchema(schema);
+		marshaller.setEventHandler(new ExportValidationEventCollector());
+
+		StringWriter writer = new StringWriter();
+		marshaller.marshal(def, writer);
+		return writer.toString();
+	}
+
+	private static String roundTripPooled(BpmnJaxbService service, String xml) throws Exception {
+		Definitions def = service.unmarshal(new StringReader(xml), null);
+		StringWriter writer = new StringWriter();
+		service.marshal(def, writer, new ExportValidationEventCollector());
+		return writer.toString();
+	}
+
+	/**
+	 * Creates a sequential process of the given number of tasks
+	 */
+	private static String createProcess(int tasks) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<definitions xmlns=\"http://schema.omg.org/spec/BPMN/2.0\" id=\"defs\" targetNamespace=\"http://www.example.org/bench\">\n");
+		xml.append("<process id=\"process\">\n");
+		xml.append("<startEvent id=\"start\"/>\n");
+		String previous = "start";
+		for (int i = 0; i < tasks; i++) {
+			String id = "task" + i;
+			xml.append("<task id=\"" + id + "\" name=\"Task " + i + "\"/>\n");
+			xml.append("<sequenceFlow id=\"flow" + i + "\" sourceRef=\"" + previous + "\" targetRef=\"" + id + "\"/>\n");
+			previous = id;
+		}
+		xml.append("<endEvent id=\"end\"/>\n");
+		xml.append("<sequenceFlow id=\"flowEnd\" sourceRef=\"" + previous + "\" targetRef=\"end\"/>\n");
+		xml.append("</process>\n");
+		xml.append("</definitions>\n");
+		return xml.toString();
+	}
+}
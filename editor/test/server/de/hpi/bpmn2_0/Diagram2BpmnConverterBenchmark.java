@@ -0,0 +1,174 @@
+package de.hpi.bpmn2_0;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.oryxeditor.server.diagram.Diagram;
+import org.oryxeditor.server.diagram.DiagramBuilder;
+import org.oryxeditor.server.diagram.Shape;
+
+import de.hpi.bpmn2_0.annotations.StencilId;
+import de.hpi.bpmn2_0.factory.*;
+import de.hpi.bpmn2_0.model.Definitions;
+import de.hpi.bpmn2_0.transformation.Diagram2BpmnConverter;
+
+/**
+ * Measures the Diagram to BPMN 2.0 conversion of large diagrams and compares
+ * the creator method lookup through {@link CreatorMethodRegistry} with the
+ * former walk over the declared methods of a factory.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.bpmn2_0.Diagram2BpmnConverterBenchmark [elements...]</code>
+ */
+public class Diagram2BpmnConverterBenchmark {
+
+	private static final String[] TASK_TYPES = { "None", "User", "Service", "Manual", "Script", "Send", "Receive" };
+	private static final String[] GATEWAYS = { "Exclusive_Databased_Gateway", "ParallelGateway", "InclusiveGateway" };
+
+	@SuppressWarnings("unchecked")
+	public static final List<Class<? extends AbstractBpmnFactory>> FACTORY_CLASSES = Arrays.asList(
+			AssociationFactory.class, ChoreographyActivityFactory.class, ChoreographyParticipantFactory.class,
+			ConversationFactory.class, ConversationLinkFactory.class, ConversationParticipantFactory.class,
+			DataObjectFactory.class, DataStoreFactory.class, EndEventFactory.class, GatewayFactory.class,
+			GroupFactory.class, ITSystemFactory.class, IntermediateCatchEventFactory.class,
+			IntermediateThrowEventFactory.class, LaneFactory.class, MessageFactory.class, MessageFlowFactory.class,
+			ParticipantFactory.class, ProcessParticipantFactory.class, SequenceFlowFactory.class,
+			StartEventFactory.class, SubprocessFactory.class, TaskFactory.class, TextannotationFactory.class);
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 1000, 2500, 5000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		/* Warm up */
+		convert(createDiagram(500));
+
+		for (int size : sizes) {
+			String json = createDiagram(size);
+			Diagram diagram = DiagramBuilder.parseJson(json);
+
+			long start = System.nanoTime();
+			Definitions definitions = convert(json);
+			long conversion = System.nanoTime() - start;
+
+			List<Shape> shapes = diagram.getChildShapes();
+			start = System.nanoTime();
+			int found = 0;
+			for (Shape shape : shapes) {
+				if (CreatorMethodRegistry.getCreatorMethods(GatewayFactory.class).getByStencilId(
+						shape.getStencilId()) != null)
+					found++;
+			}
+			long registryLookup = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int foundByScan = 0;
+			for (Shape shape : shapes) {
+				if (scanDeclaredMethods(GatewayFactory.class, shape.getStencilId()) != null)
+					foundByScan++;
+			}
+			long scanLookup = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"%5d elements: conversion %8.2f ms (%d root elements), lookup registry %6.2f ms (%d) / method scan %6.2f ms (%d)",
+					shapes.size(), conversion / 1e6, definitions.getRootElement().size(),
+					registryLookup / 1e6, found, scanLookup / 1e6, foundByScan));
+		}
+	}
+
+	private static Definitions convert(String json) throws Exception {
+		Diagram diagram = DiagramBuilder.parseJson(json);
+		Diagram2BpmnConverter converter = new Diagram2BpmnConverter(diagram, FACTORY_CLASSES);
+		return converter.getDefinitionsFromDiagram();
+	}
+
+	/**
+	 * The creator method lookup as done before the registry existed
+	 */
+	private static Method scanDeclaredMethods(Class<?> factoryClass, String stencilId) {
+		for (Method method : Arrays.asList(factoryClass.getDeclaredMethods())) {
+			StencilId stencilIdA = method.getAnnotation(StencilId.class);
+			if (stencilIdA != null && Arrays.asList(stencilIdA.value()).contains(stencilId))
+				return method;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a diagram of sequences of tasks and gateways, each starting with
+	 * a start event and finished by an end event, connected by sequence flows.
+	 * The sequences are kept short because the converter collects the nodes
+	 * of a process recursively.
+	 */
+	public static String createDiagram(int nodes) throws JSONException {
+		JSONArray childShapes = new JSONArray();
+		int chainLength = 25;
+
+		for (int chain = 0; chain * chainLength < nodes; chain++) {
+			List<JSONObject> chainNodes = new ArrayList<JSONObject>();
+			chainNodes.add(createNode("start" + chain, "StartNoneEvent", chain, null));
+			for (int i = chain * chainLength; i < Math.min(nodes, (chain + 1) * chainLength); i++) {
+				if (i % 4 == 3) {
+					chainNodes.add(createNode("node" + i, GATEWAYS[i % GATEWAYS.length], i, null));
+				} else {
+					chainNodes.add(createNode("node" + i, "Task", i, TASK_TYPES[i % TASK_TYPES.length]));
+				}
+			}
+			chainNodes.add(createNode("end" + chain, "EndNoneEvent", chain, null));
+
+			for (int i = 0; i < chainNodes.size() - 1; i++) {
+				JSONObject source = chainNodes.get(i);
+				String targetId = chainNodes.get(i + 1).getString("resourceId");
+				String flowId = "flow" + source.getString("resourceId");
+
+				JSONObject flow = createShape(flowId, "SequenceFlow", i);
+				flow.put("outgoing", new JSONArray().put(new JSONObject().put("resourceId", targetId)));
+				flow.put("target", new JSONObject().put("resourceId", targetId));
+				flow.put("dockers", new JSONArray().put(new JSONObject().put("x", 15).put("y", 15)).put(
+						new JSONObject().put("x", 50).put("y", 40)));
+				source.put("outgoing", new JSONArray().put(new JSONObject().put("resourceId", flowId)));
+				childShapes.put(flow);
+			}
+			for (JSONObject node : chainNodes)
+				childShapes.put(node);
+		}
+
+		JSONObject canvas = createShape("canvas", "BPMNDiagram", 0);
+		canvas.getJSONObject("properties").put("targetnamespace", "http://www.omg.org/bpmn20");
+		canvas.put("childShapes", childShapes);
+		canvas.put("stencilset", new JSONObject().put("url", "/oryx/stencilsets/bpmn2.0/bpmn2.0.json").put(
+				"namespace", "http://b3mn.org/stencilset/bpmn2.0#"));
+		canvas.put("ssextensions", new JSONArray());
+		return canvas.toString();
+	}
+
+	private static JSONObject createNode(String id, String stencilId, int position, String taskType)
+			throws JSONException {
+		JSONObject node = createShape(id, stencilId, position);
+		if (taskType != null)
+			node.getJSONObject("properties").put("tasktype", taskType);
+		return node;
+	}
+
+	private static JSONObject createShape(String id, String stencilId, int position) throws JSONException {
+		JSONObject shape = new JSONObject();
+		shape.put("resourceId", id);
+		shape.put("properties", new JSONObject().put("name", id).put("documentation", ""));
+		shape.put("stencil", new JSONObject().put("id", stencilId));
+		shape.put("childShapes", new JSONArray());
+		shape.put("outgoing", new JSONArray());
+		shape.put("dockers", new JSONArray());
+		int x = 150 * (position % 50), y = 120 * (position / 50);
+		shape.put("bounds", new JSONObject().put("upperLeft", new JSONObject().put("x", x).put("y", y)).put(
+				"lowerRight", new JSONObject().put("x", x + 100).put("y", y + 80)));
+		return shape;
+	}
+}
@@ -0,0 +1,157 @@
+package de.hpi.layouting.grid;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import de.hpi.epc.layouting.EPCEdgeLayouter;
+import de.hpi.epc.layouting.EPCTopToBottomGridLayouter;
+import de.hpi.epc.layouting.TopologicalSorterEPC;
+import de.hpi.epc.layouting.model.EPCDiagram;
+import de.hpi.epc.layouting.model.EPCDiagramImpl;
+import de.hpi.epc.layouting.model.EPCType;
+import de.hpi.layouting.model.LayoutingBoundsImpl;
+import de.hpi.layouting.model.LayoutingDiagram;
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.layouter.BPMNLayouter;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagramRDF;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Measures the grid layouters, which place every element with lookups in
+ * the {@link Grid}, on block structured BPMN and EPC models of 500 to 5000
+ * nodes.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.layouting.grid.GridBenchmark [nodes...]</code>
+ */
+public class GridBenchmark {
+
+	/**
+	 * The parallel branches of a block
+	 */
+	private static final int BRANCHES = 4;
+
+	/**
+	 * The nodes of a branch
+	 */
+	private static final int LENGTH = 5;
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 500, 1000, 2500, 5000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		/* Warm up */
+		for (int i = 0; i < 5; i++) {
+			new BPMNLayouter(createBPMN(500)).doLayout();
+			layoutEPC(createEPC(500));
+		}
+
+		for (int size : sizes) {
+			int rounds = Math.max(2, 5000 / size);
+
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				new BPMNLayouter(createBPMN(size)).doLayout();
+			long bpmn = (System.nanoTime() - start) / rounds;
+
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				layoutEPC(createEPC(size));
+			long epc = (System.nanoTime() - start) / rounds;
+
+			System.out.println(String.format("%5d nodes: BPMN %9.2f ms, EPC %9.2f ms", size, bpmn / 1e6, epc / 1e6));
+		}
+	}
+
+	/**
+	 * Lays out an EPC like the EPCLayoutServlet.
+	 */
+	public static void layoutEPC(EPCDiagram diagram) {
+		List<String> sortedIds = new LinkedList<String>();
+		for (LayoutingElement element : new TopologicalSorterEPC(diagram, null).getSortedElements())
+			sortedIds.add(element.getId());
+
+		EPCTopToBottomGridLayouter gridLayouter = new EPCTopToBottomGridLayouter(sortedIds);
+		gridLayouter.setDiagram(diagram);
+		gridLayouter.doLayout();
+
+		for (LayoutingElement flow : diagram.getConnectingElements())
+			new EPCEdgeLayouter(gridLayouter.getGrid(), flow);
+	}
+
+	/**
+	 * Creates a process of about the given number of nodes: a sequence of
+	 * blocks, each a parallel split into branches of tasks and a join.
+	 */
+	public static BPMNDiagram createBPMN(int nodes) {
+		BPMNDiagramRDF diagram = new BPMNDiagramRDF();
+		LayoutingElement last = node(diagram, "start", BPMNType.StartEvent, 30, 30);
+		for (int b = 0; b * (BRANCHES * LENGTH + 2) < nodes; b++) {
+			LayoutingElement split = node(diagram, "split" + b, BPMNType.AND_Gateway, 40, 40);
+			LayoutingElement join = node(diagram, "join" + b, BPMNType.AND_Gateway, 40, 40);
+			flow(diagram, BPMNType.SequenceFlow, last, split);
+			for (int i = 0; i < BRANCHES; i++) {
+				LayoutingElement previous = split;
+				for (int j = 0; j < LENGTH; j++) {
+					LayoutingElement task = node(diagram, "task" + b + "_" + i + "_" + j, BPMNType.Task, 100, 80);
+					flow(diagram, BPMNType.SequenceFlow, previous, task);
+					previous = task;
+				}
+				flow(diagram, BPMNType.SequenceFlow, previous, join);
+			}
+			last = join;
+		}
+		flow(diagram, BPMNType.SequenceFlow, last, node(diagram, "end", BPMNType.EndEvent, 30, 30));
+		return diagram;
+	}
+
+	/**
+	 * Creates an EPC of about the given number of nodes: a sequence of
+	 * blocks, each an XOR split into branches of functions and events and a
+	 * join.
+	 */
+	public static EPCDiagram createEPC(int nodes) {
+		EPCDiagramImpl diagram = new EPCDiagramImpl();
+		LayoutingElement last = node(diagram, "start", EPCType.Event, 100, 60);
+		for (int b = 0; b * (BRANCHES * LENGTH + 2) < nodes; b++) {
+			LayoutingElement split = node(diagram, "split" + b, EPCType.XorConnector, 30, 30);
+			LayoutingElement join = node(diagram, "join" + b, EPCType.XorConnector, 30, 30);
+			flow(diagram, EPCType.ControlFlow, last, split);
+			for (int i = 0; i < BRANCHES; i++) {
+				LayoutingElement previous = split;
+				for (int j = 0; j < LENGTH; j++) {
+					String type = j % 2 == 0 ? EPCType.Event : EPCType.Function;
+					LayoutingElement node = node(diagram, "node" + b + "_" + i + "_" + j, type, 100, 60);
+					flow(diagram, EPCType.ControlFlow, previous, node);
+					previous = node;
+				}
+				flow(diagram, EPCType.ControlFlow, previous, join);
+			}
+			last = join;
+		}
+		return diagram;
+	}
+
+	private static LayoutingElement node(LayoutingDiagram diagram, String id, String type, double width,
+			double height) {
+		LayoutingElement element = diagram.getElement(id);
+		element.setType(type);
+		element.setGeometry(new LayoutingBoundsImpl(0, 0, width, height));
+		return element;
+	}
+
+	private static void flow(LayoutingDiagram diagram, String type, LayoutingElement source,
+			LayoutingElement target) {
+		LayoutingElement flow = diagram.getElement(source.getId() + "-" + target.getId());
+		flow.setType(type);
+		source.addOutgoingLink(flow);
+		flow.addIncomingLink(source);
+		flow.addOutgoingLink(target);
+		target.addIncomingLink(flow);
+	}
+}
@@ -0,0 +1,101 @@
+package de.hpi.layouting.grid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Point;
+
+import org.junit.Test;
+
+import de.hpi.layouting.grid.Grid.Cell;
+import de.hpi.layouting.grid.Grid.Row;
+
+public class GridTest {
+
+	@Test
+	public void testInsertColumnsAndRows() {
+		Grid<String> grid = new Grid<String>();
+		Cell<String> a = grid.getFirstRow().getFirstCell();
+		a.setValue("a");
+		Cell<String> b = a.after();
+		b.setValue("b");
+		Cell<String> c = b.beneath();
+		c.setValue("c");
+
+		/* A column before b keeps b above c */
+		Cell<String> inserted = b.insertColumnBefore();
+		assertEquals(3, grid.getWidth());
+		assertEquals(2, grid.getHeight());
+		assertSame(inserted, a.getNextCell());
+		assertSame(c, b.beneath());
+		assertEquals(new Point(2, 1), grid.find(c));
+
+		/* A row above the first one */
+		Row<String> first = grid.addFirstRow();
+		assertSame(first, grid.get(0));
+		assertSame(first, a.getParent().getPrevRow());
+		assertEquals(new Point(0, 1), grid.find(grid.getCellOfItem("a")));
+		assertEquals(2, grid.getLastRow().find(c));
+		assertNull(grid.get(3));
+		assertNull(c.getNextCell());
+	}
+
+	@Test
+	public void testInsertCell() {
+		Grid<String> grid = new Grid<String>();
+		grid.addLastColumn();
+		grid.addLastColumn();
+		grid.addLastColumn();
+		Row<String> row = grid.getFirstRow();
+		row.get(1).setValue("a");
+		row.get(2).setValue("b");
+
+		/* The first cell is empty, so the cells before move left */
+		Cell<String> inserted = row.get(2).insertCellBefore();
+		assertEquals(4, grid.getWidth());
+		assertSame(inserted, row.get(1));
+		assertEquals(new Point(0, 0), grid.find(grid.getCellOfItem("a")));
+		assertEquals(new Point(2, 0), grid.find(grid.getCellOfItem("b")));
+
+		/* b is moved to the last cell, inserting after it adds a column */
+		row.get(0).insertCellAfter();
+		row.get(3).insertCellAfter();
+		assertEquals(5, grid.getWidth());
+		assertEquals(new Point(3, 0), grid.find(grid.getCellOfItem("b")));
+	}
+
+	@Test
+	public void testPack() {
+		Grid<String> grid = new Grid<String>();
+		grid.addLastColumn();
+		grid.getFirstRow().get(0).setValue("a");
+		Cell<String> b = grid.addLastRow().get(1);
+		b.setValue("b");
+		grid.addLastRow();
+
+		grid.pack();
+		assertEquals(1, grid.getHeight());
+		assertSame(grid.getFirstRow(), b.getParent());
+		assertEquals(new Point(1, 0), grid.find(b));
+		assertEquals(new Point(0, 0), grid.find(grid.getCellOfItem("a")));
+	}
+
+	@Test
+	public void testSuperGrid() {
+		SuperGrid<String> superGrid = new SuperGrid<String>();
+		Grid<String> first = new Grid<String>(superGrid);
+		Grid<String> second = new Grid<String>(superGrid);
+		second.addLastRow();
+
+		/* Columns are inserted in all grids */
+		first.getFirstRow().getFirstCell().after().setValue("a");
+		assertEquals(2, second.getWidth());
+		assertEquals(3, superGrid.getHeight());
+
+		Row<String> last = second.getLastRow();
+		assertEquals(2, superGrid.findRow(last));
+		assertSame(last, superGrid.getRow(2));
+		assertSame(first.getCellOfItem("a"), superGrid.getCellOfItem("a"));
+	}
+}
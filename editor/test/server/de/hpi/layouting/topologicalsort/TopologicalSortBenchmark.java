@@ -0,0 +1,107 @@
+package de.hpi.layouting.topologicalsort;
+
+import de.hpi.epc.layouting.TopologicalSorterEPC;
+import de.hpi.epc.layouting.model.EPCDiagram;
+import de.hpi.layouting.grid.GridBenchmark;
+import de.hpi.layouting.model.LayoutingBoundsImpl;
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.layouter.topologicalsort.TopologicalSorterBPMN;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagramRDF;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Measures the sort phase of the layouters on block structured BPMN and EPC
+ * models and on BPMN models with a loop in every block. Reports the time per
+ * sort and per node, which stays about the same if the sort scales linearly.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.layouting.topologicalsort.TopologicalSortBenchmark [nodes...]</code>
+ */
+public class TopologicalSortBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 500, 1000, 2500, 5000, 10000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		/* Warm up */
+		for (int i = 0; i < 5; i++) {
+			new TopologicalSorterBPMN(GridBenchmark.createBPMN(1000), null);
+			new TopologicalSorterEPC(GridBenchmark.createEPC(1000), null);
+			new TopologicalSorterBPMN(createLoops(1000), null);
+		}
+
+		for (int size : sizes) {
+			int rounds = Math.max(2, 10000 / size);
+
+			long bpmn = 0;
+			long epc = 0;
+			long loops = 0;
+			for (int i = 0; i < rounds; i++) {
+				BPMNDiagram diagram = GridBenchmark.createBPMN(size);
+				long start = System.nanoTime();
+				new TopologicalSorterBPMN(diagram, null);
+				bpmn += System.nanoTime() - start;
+
+				EPCDiagram epcDiagram = GridBenchmark.createEPC(size);
+				start = System.nanoTime();
+				new TopologicalSorterEPC(epcDiagram, null);
+				epc += System.nanoTime() - start;
+
+				diagram = createLoops(size);
+				start = System.nanoTime();
+				new TopologicalSorterBPMN(diagram, null);
+				loops += System.nanoTime() - start;
+			}
+
+			System.out.println(String.format(
+					"%6d nodes: BPMN %8.2f ms (%5.2f us/node), EPC %8.2f ms (%5.2f us/node), "
+							+ "BPMN with loops %8.2f ms (%5.2f us/node)", size, bpmn / 1e6 / rounds, bpmn / 1e3
+							/ rounds / size, epc / 1e6 / rounds, epc / 1e3 / rounds / size, loops / 1e6 / rounds,
+					loops / 1e3 / rounds / size));
+		}
+	}
+
+	/**
+	 * Creates a sequence of loops: join, two tasks, split with a flow back to
+	 * the join.
+	 */
+	public static BPMNDiagram createLoops(int nodes) {
+		BPMNDiagramRDF diagram = new BPMNDiagramRDF();
+		LayoutingElement last = node(diagram, "start", BPMNType.StartEvent);
+		for (int i = 0; i * 4 < nodes; i++) {
+			LayoutingElement join = node(diagram, "join" + i, BPMNType.Exclusive_Databased_Gateway);
+			LayoutingElement first = node(diagram, "task" + i + "a", BPMNType.Task);
+			LayoutingElement second = node(diagram, "task" + i + "b", BPMNType.Task);
+			LayoutingElement split = node(diagram, "split" + i, BPMNType.Exclusive_Databased_Gateway);
+			flow(diagram, last, join);
+			flow(diagram, join, first);
+			flow(diagram, first, second);
+			flow(diagram, second, split);
+			flow(diagram, split, join);
+			last = split;
+		}
+		flow(diagram, last, node(diagram, "end", BPMNType.EndEvent));
+		return diagram;
+	}
+
+	private static LayoutingElement node(BPMNDiagram diagram, String id, String type) {
+		LayoutingElement element = diagram.getElement(id);
+		element.setType(type);
+		element.setGeometry(new LayoutingBoundsImpl(0, 0, 100, 80));
+		return element;
+	}
+
+	private static void flow(BPMNDiagram diagram, LayoutingElement source, LayoutingElement target) {
+		LayoutingElement flow = diagram.getElement(source.getId() + "-" + target.getId());
+		flow.setType(BPMNType.SequenceFlow);
+		source.addOutgoingLink(flow);
+		flow.addIncomingLink(source);
+		flow.addOutgoingLink(target);
+		target.addIncomingLink(flow);
+	}
+}
@@ -0,0 +1,43 @@
+package de.hpi.layouting.topologicalsort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.layouter.topologicalsort.TopologicalSorterBPMN;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+
+public class TopologicalSorterTest {
+
+	@Test
+	public void testLoops() {
+		BPMNDiagram diagram = TopologicalSortBenchmark.createLoops(8);
+		List<String> sorted = new ArrayList<String>();
+		for (LayoutingElement element : new TopologicalSorterBPMN(diagram, null).getSortedElements())
+			sorted.add(element.getId());
+
+		assertEquals("[start, join0, task0a, task0b, split0, join1, task1a, task1b, split1, end]", sorted.toString());
+
+		/* The flows back to the joins are replaced by direct links forward */
+		for (int i = 0; i < 2; i++) {
+			LayoutingElement join = diagram.getElement("join" + i);
+			LayoutingElement split = diagram.getElement("split" + i);
+			LayoutingElement flow = diagram.getElement("split" + i + "-join" + i);
+			assertTrue(join.getOutgoingLinks().contains(split));
+			assertTrue(split.getIncomingLinks().contains(join));
+			assertTrue(!split.getOutgoingLinks().contains(flow));
+			assertTrue(!join.getIncomingLinks().contains(flow));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testLargeModel() {
+		BPMNDiagram diagram = TopologicalSortBenchmark.createLoops(20000);
+		assertEquals(20002, new TopologicalSorterBPMN(diagram, null).getSortedElements().size());
+	}
+}
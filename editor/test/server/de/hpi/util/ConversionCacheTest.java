@@ -0,0 +1,117 @@
+package de.hpi.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConversionCacheTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("conversioncache", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		ConversionCache cache = new ConversionCache(1024, null);
+		String key = cache.key("bpmn2pn", "<rdf:RDF/>");
+
+		assertNull(cache.get(key));
+		cache.putString(key, "erdf");
+		assertEquals("erdf", cache.getString(key));
+
+		Map<String, Long> statistics = cache.getStatistics();
+		assertEquals(Long.valueOf(1), statistics.get("hits"));
+		assertEquals(Long.valueOf(1), statistics.get("misses"));
+		assertEquals(Long.valueOf(4), statistics.get("bytes"));
+	}
+
+	@Test
+	public void testKey() {
+		ConversionCache cache = new ConversionCache(1024, null);
+		String key = cache.key("cpn", "{\"a\": 1, \"b\": [\"x\", {\"c\": true}]}");
+
+		/* Formatting and member order do not change the diagram */
+		assertEquals(key, cache.key("cpn", "{\"b\":[\"x\",{\"c\":true}],\"a\":1}"));
+		assertEquals(key, cache.key("cpn", "\r\n{\"b\":\r\n[\"x\",{\"c\":true}],\"a\":1}\r\n"));
+
+		/* Converter, options and content do */
+		assertFalse(key.equals(cache.key("bpmn2xpdl", "{\"a\":1,\"b\":[\"x\",{\"c\":true}]}")));
+		assertFalse(key.equals(cache.key("cpn", "{\"a\":1,\"b\":[\"x\",{\"c\":true}]}", "lola")));
+		assertFalse(key.equals(cache.key("cpn", "{\"a\":1,\"b\":[{\"c\":true},\"x\"]}")));
+		assertFalse(cache.key("pnml", "x", "ab", "c").equals(cache.key("pnml", "x", "a", "bc")));
+
+		assertEquals(cache.key("pnml", "<a>\n<b/></a>"), cache.key("pnml", "<a>\r\n<b/></a>"));
+	}
+
+	@Test
+	public void testEviction() {
+		ConversionCache cache = new ConversionCache(100, null);
+		String first = cache.key("c", "1");
+		String second = cache.key("c", "2");
+		String third = cache.key("c", "3");
+
+		cache.put(first, new byte[20]);
+		cache.put(second, new byte[20]);
+		cache.get(first);
+		cache.put(third, new byte[20]);
+		cache.put(cache.key("c", "4"), new byte[20]);
+		cache.put(cache.key("c", "5"), new byte[20]);
+		cache.put(cache.key("c", "6"), new byte[20]);
+
+		/* The least recently used result goes first */
+		assertNull(cache.get(second));
+		assertEquals(20, cache.get(first).length);
+		assertEquals(Long.valueOf(1), cache.getStatistics().get("evictions"));
+		assertEquals(Long.valueOf(100), cache.getStatistics().get("bytes"));
+
+		/* Results larger than a quarter of the memory are not kept */
+		String large = cache.key("c", "large");
+		cache.put(large, new byte[30]);
+		assertNull(cache.get(large));
+	}
+
+	@Test
+	public void testDiskTier() {
+		ConversionCache cache = new ConversionCache(1024, directory);
+		String key = cache.key("bpmn2yawl", "<rdf:RDF/>");
+		byte[] zip = new byte[] { 'P', 'K', 3, 4 };
+		cache.put(key, zip);
+
+		/* A new cache, e.g. after a restart, finds the result on disk */
+		ConversionCache restarted = new ConversionCache(1024, directory);
+		assertArrayEquals(zip, restarted.get(key));
+		assertArrayEquals(zip, restarted.get(key));
+		assertEquals(Long.valueOf(1), restarted.getStatistics().get("diskHits"));
+		assertEquals(Long.valueOf(1), restarted.getStatistics().get("hits"));
+
+		/* Results of the previous converters are not found after a redeployment */
+		ConversionCache redeployed = new ConversionCache(1024, directory, "redeployed");
+		assertNull(redeployed.get(redeployed.key("bpmn2yawl", "<rdf:RDF/>")));
+
+		restarted.clear();
+		assertNull(restarted.get(key));
+		assertNull(new ConversionCache(1024, directory).get(key));
+	}
+}
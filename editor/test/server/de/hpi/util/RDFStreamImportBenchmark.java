@@ -0,0 +1,149 @@
+package de.hpi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+import de.hpi.bpmn.BPMNDiagram;
+import de.hpi.bpmn.rdf.BPMN11RDFImporter;
+
+/**
+ * Compares the import of large BPMN 1.1 RDF documents through a DOM with the
+ * streaming import of {@link BPMN11RDFImporter#loadBPMN(java.io.Reader)}.
+ * Reports the time per import and the heap held by the document while the
+ * model is built.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.util.RDFStreamImportBenchmark [tasks...]</code>
+ */
+public class RDFStreamImportBenchmark {
+
+	private static final String MODEL = "http://localhost:8180/backend/poem/model/1/self";
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 1000, 2500, 5000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		/* Warm up both variants */
+		String warmUp = createRDF(1000);
+		for (int i = 0; i < 5; i++) {
+			importDOM(warmUp);
+			importStream(warmUp);
+		}
+
+		for (int size : sizes) {
+			String rdf = createRDF(size);
+			int rounds = Math.max(3, 20000 / size);
+
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				importDOM(rdf);
+			long dom = (System.nanoTime() - start) / rounds;
+
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				importStream(rdf);
+			long stream = (System.nanoTime() - start) / rounds;
+
+			/* Heap held by the parsed document during the DOM import */
+			long before = usedHeap();
+			Document document = parse(rdf);
+			long documentHeap = usedHeap() - before;
+			document.getDocumentElement();
+
+			System.out.println(String.format(
+					"%6d tasks (%5d KB RDF): DOM %8.2f ms, stream %8.2f ms, DOM document %7d KB", size,
+					rdf.length() / 1024, dom / 1e6, stream / 1e6, documentHeap / 1024));
+		}
+	}
+
+	private static BPMNDiagram importDOM(String rdf) throws Exception {
+		return new BPMN11RDFImporter(parse(rdf)).loadBPMN();
+	}
+
+	private static BPMNDiagram importStream(String rdf) throws Exception {
+		return new BPMN11RDFImporter().loadBPMN(new StringReader(rdf));
+	}
+
+	private static Document parse(String rdf) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+				new ByteArrayInputStream(rdf.getBytes("UTF-8")));
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Creates a pool with sequences of 25 tasks connected by sequence flows,
+	 * in the format the editor stores.
+	 */
+	public static String createRDF(int tasks) {
+		StringBuilder rdf = new StringBuilder();
+		rdf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		rdf.append("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">\n");
+		rdf.append("<rdf:Description rdf:about=\"").append(MODEL).append("#oryx-canvas123\">");
+		rdf.append("<rdf:type rdf:resource=\"http://oryx-editor.org/canvas\"/>");
+		property(rdf, "type", "http://b3mn.org/stencilset/bpmn1.1#BPMNDiagram");
+		property(rdf, "name", "Generated model");
+		rdf.append("<stencilset xmlns=\"http://oryx-editor.org/\" rdf:resource=\"/oryx/stencilsets/bpmn1.1/bpmn1.1.json\"/>");
+		rdf.append("</rdf:Description>\n");
+
+		rdf.append("<rdf:Description rdf:about=\"").append(MODEL).append("#pool\">");
+		property(rdf, "type", "http://b3mn.org/stencilset/bpmn1.1#Pool");
+		property(rdf, "name", "Pool");
+		property(rdf, "bounds", "0,0,4000,4000");
+		reference(rdf, "parent", "oryx-canvas123");
+		rdf.append("</rdf:Description>\n");
+
+		for (int i = 0; i < tasks; i++) {
+			boolean last = i % 25 == 24 || i == tasks - 1;
+			rdf.append("<rdf:Description rdf:about=\"").append(MODEL).append("#task").append(i).append("\">");
+			property(rdf, "type", "http://b3mn.org/stencilset/bpmn1.1#Task");
+			property(rdf, "id", "");
+			property(rdf, "name", "Task " + i);
+			property(rdf, "documentation", "Generated task number " + i);
+			property(rdf, "looptype", "None");
+			property(rdf, "bgcolor", "#ffffcc");
+			property(rdf, "bounds", (i % 25) * 150 + ",100," + ((i % 25) * 150 + 100) + ",180");
+			if (!last)
+				reference(rdf, "outgoing", "flow" + i);
+			reference(rdf, "parent", "pool");
+			rdf.append("</rdf:Description>\n");
+
+			if (!last) {
+				rdf.append("<rdf:Description rdf:about=\"").append(MODEL).append("#flow").append(i).append("\">");
+				property(rdf, "type", "http://b3mn.org/stencilset/bpmn1.1#SequenceFlow");
+				property(rdf, "conditiontype", "None");
+				property(rdf, "bounds", "0,0,10,10");
+				property(rdf, "dockers", "50 40 50 40  # ");
+				reference(rdf, "outgoing", "task" + (i + 1));
+				reference(rdf, "parent", "pool");
+				reference(rdf, "target", "task" + (i + 1));
+				rdf.append("</rdf:Description>\n");
+			}
+		}
+		rdf.append("</rdf:RDF>\n");
+		return rdf.toString();
+	}
+
+	private static void property(StringBuilder rdf, String name, String value) {
+		rdf.append('<').append(name).append(" xmlns=\"http://oryx-editor.org/\">").append(value).append("</")
+				.append(name).append('>');
+	}
+
+	private static void reference(StringBuilder rdf, String name, String resourceId) {
+		rdf.append('<').append(name).append(" xmlns=\"http://raziel.org/\" rdf:resource=\"").append(MODEL).append(
+				'#').append(resourceId).append("\"/>");
+	}
+}
@@ -0,0 +1,285 @@
+package de.hpi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import de.hpi.bpmn.rdf.BPMN11RDFImporter;
+import de.hpi.bpmn.rdf.BPMNRDFImporter;
+import de.hpi.ibpmn.rdf.IBPMNRDFImporter;
+import de.hpi.xforms.rdf.XFormsRDFImporter;
+
+/**
+ * The streaming import of the RDF importers has to create the same models as
+ * the import from a parsed DOM document.
+ */
+public class RDFStreamImportTest {
+
+	private static final String[] FIXTURES = { "editor/test/examples/testcase-BPMN2XForms-001.rdf",
+			"editor/test/examples/testcase-BPMN2XHTML-extended.rdf" };
+
+	private static final String IBPMN = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:oryx=\"http://oryx-editor.org/\">\n"
+			+ "  <rdf:Description rdf:about=\"#canvas\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#IBPMNDiagram</oryx:type>\n"
+			+ "    <oryx:title>Order</oryx:title>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#buyer\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#Pool</oryx:type>\n"
+			+ "    <oryx:name>Buyer</oryx:name>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#seller\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#Pool</oryx:type>\n"
+			+ "    <oryx:name>Seller &amp; Co</oryx:name>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#start\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#StartEvent</oryx:type>\n"
+			+ "    <oryx:outgoing rdf:resource=\"#flow1\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#order\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#IntermediateInteraction</oryx:type>\n"
+			+ "    <oryx:sender>Buyer</oryx:sender><oryx:receiver>Seller &amp; Co</oryx:receiver>\n"
+			+ "    <oryx:name><![CDATA[place <order>]]></oryx:name>\n"
+			+ "    <oryx:outgoing rdf:resource=\"#flow2\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#end\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#EndEvent</oryx:type>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#flow1\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#SequenceFlow</oryx:type>\n"
+			+ "    <oryx:outgoing rdf:resource=\"#order\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#flow2\">\n"
+			+ "    <oryx:type>http://b3mn.org/stencilset/ibpmn#SequenceFlow</oryx:type>\n"
+			+ "    <oryx:outgoing rdf:resource=\"#end\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "</rdf:RDF>\n";
+
+	private static final String XFORMS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">\n"
+			+ "  <rdf:Description rdf:about=\"#oryx-canvas123\">\n"
+			+ "    <type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/xforms#XForm</type>\n"
+			+ "    <name xmlns=\"http://oryx-editor.org/\">Order form</name>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#group\">\n"
+			+ "    <type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/xforms#Group</type>\n"
+			+ "    <parent xmlns=\"http://oryx-editor.org/\" rdf:resource=\"#oryx-canvas123\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#input\">\n"
+			+ "    <type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/xforms#Input</type>\n"
+			+ "    <xf_ref xmlns=\"http://oryx-editor.org/\">quantity</xf_ref>\n"
+			+ "    <xf_type xmlns=\"http://oryx-editor.org/\">xs:integer</xf_type>\n"
+			+ "    <parent xmlns=\"http://oryx-editor.org/\" rdf:resource=\"#group\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#label\">\n"
+			+ "    <type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/xforms#Label</type>\n"
+			+ "    <xf_text xmlns=\"http://oryx-editor.org/\">Quantity &lt;pcs&gt;</xf_text>\n"
+			+ "    <parent xmlns=\"http://oryx-editor.org/\" rdf:resource=\"#input\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "  <rdf:Description rdf:about=\"#submit\">\n"
+			+ "    <type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/xforms#Submit</type>\n"
+			+ "    <parent xmlns=\"http://oryx-editor.org/\" rdf:resource=\"#group\"/>\n"
+			+ "  </rdf:Description>\n"
+			+ "</rdf:RDF>\n";
+
+	@Test
+	public void testBPMN11Fixtures() throws Exception {
+		for (String fixture : FIXTURES) {
+			String rdf = read(fixture);
+			Object expected = new BPMN11RDFImporter(parse(rdf)).loadBPMN();
+			Object actual = new BPMN11RDFImporter().loadBPMN(new StringReader(rdf));
+			assertNotNull(actual);
+			assertSameModel(fixture, expected, actual);
+		}
+	}
+
+	@Test
+	public void testBPMNFixtures() throws Exception {
+		for (String fixture : FIXTURES) {
+			String rdf = read(fixture);
+			Object expected = new BPMNRDFImporter(parse(rdf)).loadBPMN();
+			Object actual = new BPMNRDFImporter().loadBPMN(new StringReader(rdf));
+			assertSameModel(fixture, expected, actual);
+		}
+	}
+
+	@Test
+	public void testIBPMN() throws Exception {
+		Object expected = new IBPMNRDFImporter(parse(IBPMN)).loadIBPMN();
+		Object actual = new IBPMNRDFImporter().loadIBPMN(new StringReader(IBPMN));
+		assertSameModel("ibpmn", expected, actual);
+		assertTrue(dump(actual).contains("Seller & Co"));
+	}
+
+	@Test
+	public void testXForms() throws Exception {
+		Object expected = new XFormsRDFImporter(parse(XFORMS)).loadXForm();
+		Object actual = new XFormsRDFImporter().loadXForm(new StringReader(XFORMS));
+		assertSameModel("xforms", expected, actual);
+		assertTrue(dump(actual).contains("Quantity <pcs>"));
+	}
+
+	@Test
+	public void testNotRDF() throws Exception {
+		String xml = "<?xml version=\"1.0\"?><html><body/></html>";
+		assertEquals(null, new BPMN11RDFImporter().loadBPMN(new StringReader(xml)));
+		assertEquals(null, new IBPMNRDFImporter().loadIBPMN(new StringReader(xml)));
+		assertEquals(null, new XFormsRDFImporter().loadXForm(new StringReader(xml)));
+	}
+
+	private static Document parse(String rdf) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+				new ByteArrayInputStream(rdf.getBytes("UTF-8")));
+	}
+
+	private static String read(String fileName) throws Exception {
+		Reader reader = new InputStreamReader(new FileInputStream(new File(fileName)), "UTF-8");
+		try {
+			StringWriter writer = new StringWriter();
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) != -1)
+				writer.write(buffer, 0, read);
+			return writer.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static void assertSameModel(String name, Object expected, Object actual) throws Exception {
+		assertEquals(name, dump(expected), dump(actual));
+	}
+
+	/*
+	 * Structural dump of a model: every diagram object (identified by its
+	 * resource id) with all its fields, referenced diagram objects are
+	 * written as references. The order of child nodes is ignored, the
+	 * importers assign parents from a hash map, so it differs between two
+	 * imports of the same document.
+	 */
+	private static String dump(Object model) throws Exception {
+		if (model == null)
+			return "null";
+		List<String> objects = new ArrayList<String>();
+		Map<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+		List<Object> pending = new ArrayList<Object>();
+		pending.add(model);
+		while (!pending.isEmpty()) {
+			Object o = pending.remove(pending.size() - 1);
+			if (visited.containsKey(o))
+				continue;
+			visited.put(o, Boolean.TRUE);
+			objects.add(reference(o) + " = " + fields(o, pending, new IdentityHashMap<Object, Boolean>()));
+		}
+		Collections.sort(objects);
+		StringBuilder result = new StringBuilder();
+		for (String object : objects)
+			result.append(object).append('\n');
+		return result.toString();
+	}
+
+	private static String fields(Object o, List<Object> pending, Map<Object, Boolean> path) throws Exception {
+		if (path.containsKey(o))
+			return "<cycle " + o.getClass().getSimpleName() + ">";
+		path.put(o, Boolean.TRUE);
+		List<String> values = new ArrayList<String>();
+		for (Class<?> c = o.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+					continue;
+				field.setAccessible(true);
+				values.add(c.getSimpleName() + "." + field.getName() + "="
+						+ value(field.get(o), pending, path, field.getName().equals("childNodes")));
+			}
+		}
+		path.remove(o);
+		Collections.sort(values);
+		return o.getClass().getName() + values;
+	}
+
+	private static String value(Object v, List<Object> pending, Map<Object, Boolean> path, boolean unordered)
+			throws Exception {
+		if (v == null)
+			return "null";
+		if (v instanceof Node)
+			return node((Node) v);
+		if (v instanceof Map<?, ?>) {
+			List<String> entries = new ArrayList<String>();
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet())
+				entries.add(value(e.getKey(), pending, path, false) + ":" + value(e.getValue(), pending, path, false));
+			Collections.sort(entries);
+			return entries.toString();
+		}
+		if (v instanceof Collection<?>) {
+			List<String> items = new ArrayList<String>();
+			for (Object item : (Collection<?>) v)
+				items.add(value(item, pending, path, false));
+			if (unordered || v instanceof Set<?>)
+				Collections.sort(items);
+			return items.toString();
+		}
+		String reference = reference(v);
+		if (reference != null) {
+			pending.add(v);
+			return reference;
+		}
+		if (v.getClass().getName().startsWith("de.hpi."))
+			return fields(v, pending, path);
+		return String.valueOf(v);
+	}
+
+	private static String node(Node node) {
+		StringBuilder result = new StringBuilder(node.getNodeName());
+		if (node.getNodeValue() != null)
+			result.append('"').append(node.getNodeValue()).append('"');
+		if (node.getAttributes() != null) {
+			List<String> attributes = new ArrayList<String>();
+			for (int i = 0; i < node.getAttributes().getLength(); i++)
+				attributes.add(node(node.getAttributes().item(i)));
+			Collections.sort(attributes);
+			result.append(attributes);
+		}
+		result.append('(');
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+			result.append(node(child));
+		return result.append(')').toString();
+	}
+
+	/*
+	 * Reference to a diagram object or form element, null for values
+	 */
+	private static String reference(Object o) throws Exception {
+		if (!o.getClass().getName().startsWith("de.hpi."))
+			return null;
+		try {
+			Method getResourceId = o.getClass().getMethod("getResourceId");
+			return o.getClass().getSimpleName() + "#" + getResourceId.invoke(o);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
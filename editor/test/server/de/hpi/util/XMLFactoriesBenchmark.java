@@ -0,0 +1,70 @@
+package de.hpi.util;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Document;
+
+/**
+ * Compares creating the JAXP factories, document builders and transformers
+ * for every request, as the servlets did before, with the shared objects of
+ * {@link XMLFactories}.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.util.XMLFactoriesBenchmark [requests] [document] [stylesheet]</code>
+ */
+public class XMLFactoriesBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		File document = new File(args.length > 1 ? args[1] : "editor/test/server/de/hpi/epc/loanRequest.rdf");
+		File stylesheet = new File(args.length > 2 ? args[2] : "editor/lib/extract-rdf.xsl");
+
+		/* Warm up both variants */
+		perRequest(document, stylesheet, requests / 10);
+		shared(document, stylesheet, requests / 10);
+
+		long start = System.nanoTime();
+		perRequest(document, stylesheet, requests);
+		long perRequest = (System.nanoTime() - start) / requests;
+
+		start = System.nanoTime();
+		shared(document, stylesheet, requests);
+		long shared = (System.nanoTime() - start) / requests;
+
+		System.out.println(requests + " requests: parse " + document.getName() + ", serialize, compile and apply "
+				+ stylesheet.getName());
+		System.out.println(String.format("  new factories per request: %8.3f ms", perRequest / 1e6));
+		System.out.println(String.format("  XMLFactories:              %8.3f ms", shared / 1e6));
+	}
+
+	private static void perRequest(File document, File stylesheet, int requests) throws Exception {
+		for (int i = 0; i < requests; i++) {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			Document doc = factory.newDocumentBuilder().parse(document);
+
+			TransformerFactory transformerFactory = TransformerFactory.newInstance();
+			transformerFactory.newTransformer().transform(new DOMSource(doc), new StreamResult(new StringWriter()));
+			transformerFactory.newTransformer(new StreamSource(stylesheet)).transform(new DOMSource(doc),
+					new StreamResult(new StringWriter()));
+		}
+	}
+
+	private static void shared(File document, File stylesheet, int requests) throws Exception {
+		for (int i = 0; i < requests; i++) {
+			Document doc = XMLFactories.getNamespaceAwareDocumentBuilder().parse(document);
+
+			XMLFactories.getTransformer().transform(new DOMSource(doc), new StreamResult(new StringWriter()));
+			Transformer transformer = XMLFactories.newTransformer(stylesheet);
+			transformer.transform(new DOMSource(doc), new StreamResult(new StringWriter()));
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package de.hpi.util.reflection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+
+import de.hpi.bpmn2_0.factory.AbstractBpmnFactory;
+
+/**
+ * Compares the discovery of the BPMN 2.0 factories per request (directory
+ * walk as done by the servlets before) with the build time index and the
+ * cached result, on a cold and a warm JVM.
+ *
+ * Run from the project root after the editor has been compiled:
+ * <code>java de.hpi.util.reflection.ClassFinderBenchmark [classes dir] [requests]</code>
+ */
+public class ClassFinderBenchmark {
+
+	private static final String PACKAGE = "de.hpi.bpmn2_0.factory";
+
+	public static void main(String[] args) throws Exception {
+		File classesRoot = new File(args.length > 0 ? args[0] : "build/editor/classes");
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		File index = new File(classesRoot, PACKAGE.replace('.', '/') + "/" + ClassFinder.INDEX_FILE);
+
+		/* Cold JVM: first request of each variant */
+		long start = System.nanoTime();
+		List<Class<? extends AbstractBpmnFactory>> scanned = ClassFinder.getClassesByPackageName(
+				AbstractBpmnFactory.class, PACKAGE, classesRoot);
+		long coldScan = System.nanoTime() - start;
+
+		long coldIndex = -1;
+		if (index.exists()) {
+			start = System.nanoTime();
+			readIndex(index);
+			coldIndex = System.nanoTime() - start;
+		}
+
+		ServletContext context = createServletContext(classesRoot);
+		start = System.nanoTime();
+		ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class, PACKAGE, context);
+		long coldCached = System.nanoTime() - start;
+
+		/* Warm JVM: repeated requests */
+		start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			ClassFinder.getClassesByPackageName(AbstractBpmnFactory.class, PACKAGE, classesRoot);
+		}
+		long warmScan = (System.nanoTime() - start) / requests;
+
+		long warmIndex = -1;
+		if (index.exists()) {
+			start = System.nanoTime();
+			for (int i = 0; i < requests; i++) {
+				readIndex(index);
+			}
+			warmIndex = (System.nanoTime() - start) / requests;
+		}
+
+		start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			ClassFinder.getCachedClassesByPackageName(AbstractBpmnFactory.class, PACKAGE, context);
+		}
+		long warmCached = (System.nanoTime() - start) / requests;
+
+		System.out.println(scanned.size() + " factory classes in " + classesRoot);
+		System.out.println(String.format("  directory scan per request: cold %8.3f ms, warm %8.3f ms", coldScan / 1e6,
+				warmScan / 1e6));
+		if (index.exists()) {
+			System.out.println(String.format("  build time index:           cold %8.3f ms, warm %8.3f ms",
+					coldIndex / 1e6, warmIndex / 1e6));
+		} else {
+			System.out.println("  no " + ClassFinder.INDEX_FILE + " found, run the build-server target first");
+		}
+		System.out.println(String.format("  cached discovery:           cold %8.3f ms, warm %8.3f ms",
+				coldCached / 1e6, warmCached / 1e6));
+	}
+
+	/**
+	 * Servlet context of a web application whose WEB-INF/classes is the given
+	 * directory
+	 */
+	private static ServletContext createServletContext(final File classesRoot) {
+		return (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(),
+				new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String path = args != null && args.length > 0 ? ((String) args[0]).replaceFirst(
+								"^/?WEB-INF/classes/?", "") : null;
+						if (method.getName().equals("getRealPath"))
+							return new File(classesRoot, path).getPath();
+						if (method.getName().equals("getResourceAsStream")) {
+							File file = new File(classesRoot, path);
+							return file.exists() ? new FileInputStream(file) : null;
+						}
+						return null;
+					}
+				});
+	}
+
+	private static List<Class<? extends AbstractBpmnFactory>> readIndex(File index) throws Exception {
+		InputStream in = new FileInputStream(index);
+		try {
+			return ClassFinder.getClassesFromIndex(AbstractBpmnFactory.class, in);
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package de.hpi.visio;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.oryxeditor.server.diagram.Point;
+import org.xmappr.Xmappr;
+
+import de.hpi.visio.data.Page;
+import de.hpi.visio.data.Shape;
+import de.hpi.visio.data.VisioDocument;
+
+/**
+ * Compares the preparation of visio xml as one string (VisioXmlPreparator)
+ * with the streaming preparation (VisioXmlStreamPreparator), both followed
+ * by the xmappr mapping, on synthetic .vdx files of Visio 2010 with
+ * thousands of shapes. Reports the time and the peak heap of both, each
+ * starting from the uploaded file like the VisioImporter. The peak heap
+ * includes the mapped document; use a large -Xmx, otherwise the collector
+ * keeps the peak low at the cost of time.
+ *
+ * Run from the project root:
+ * <code>java -Xmx1g de.hpi.visio.VisioXmlPreparationBenchmark [shapes...]</code>
+ */
+public class VisioXmlPreparationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 1000, 10000, 50000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		/* Warm up */
+		File file = createVdxFile(1000);
+		for (int i = 0; i < 5; i++) {
+			mapPreparedString(readFile(file));
+			mapStreamed(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		}
+		file.delete();
+
+		for (int size : sizes) {
+			file = createVdxFile(size);
+
+			resetPeakHeap();
+			long start = System.nanoTime();
+			VisioDocument document = mapPreparedString(readFile(file));
+			long stringTime = System.nanoTime() - start;
+			long stringHeap = getPeakHeap();
+			String stringDescription = describe(document);
+			document = null;
+
+			resetPeakHeap();
+			start = System.nanoTime();
+			Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+			document = mapStreamed(reader);
+			reader.close();
+			long streamTime = System.nanoTime() - start;
+			long streamHeap = getPeakHeap();
+			if (!stringDescription.equals(describe(document)))
+				throw new IllegalStateException("The mapped documents differ");
+			document = null;
+
+			System.out.println(String.format("%6d shapes, %6.1f MB: string %8.1f ms, peak heap %6.1f MB; "
+					+ "streamed %8.1f ms, peak heap %6.1f MB", size, file.length() / 1e6, stringTime / 1e6,
+					stringHeap / 1e6, streamTime / 1e6, streamHeap / 1e6));
+			file.delete();
+		}
+	}
+
+	/**
+	 * Maps visio xml as before the streaming preparation.
+	 */
+	public static VisioDocument mapPreparedString(String xml) {
+		String preparedXml = new VisioXmlPreparator().prepareXML(xml);
+		return (VisioDocument) new Xmappr(VisioDocument.class).fromXML(new StringReader(preparedXml));
+	}
+
+	public static VisioDocument mapStreamed(Reader xml) throws Exception {
+		return (VisioDocument) new Xmappr(VisioDocument.class).fromXML(new VisioXmlStreamPreparator(xml));
+	}
+
+	/**
+	 * Lists the masters and shapes of the first page.
+	 */
+	public static String describe(VisioDocument document) {
+		StringBuilder description = new StringBuilder();
+		description.append(document.getMasterIdToNameMapping()).append('\n');
+		Page page = document.getFirstPage();
+		description.append(page.getWidth()).append(' ').append(page.getHeight()).append('\n');
+		for (Shape shape : page.getShapes()) {
+			description.append(shape.getName()).append(' ').append(shape.getMasterId()).append(' ');
+			append(description, shape.getCentralPin()).append(shape.getWidth()).append(' ');
+			description.append(shape.getHeight()).append(' ').append(shape.getLabel()).append(' ');
+			if (shape.xFormStartAndEnd != null)
+				append(append(description, shape.getStartPoint()), shape.getEndPoint());
+			description.append('\n');
+		}
+		return description.toString();
+	}
+
+	private static StringBuilder append(StringBuilder description, Point point) {
+		return description.append(point.getX()).append(',').append(point.getY()).append(' ');
+	}
+
+	/**
+	 * Creates the .vdx-xml of a Visio 2010 page with the given number of
+	 * shapes: rows of labeled tasks connected by sequence flows.
+	 */
+	public static void writeVdx(Writer writer, int shapes) throws Exception {
+		writer.write("<?xml version='1.0' encoding='utf-8' ?>\n");
+		writer.write("<VisioDocument key='C99A290682AF14E9' start='190' metric='0' DocLangID='1033' "
+				+ "version='14.0' xml:space='preserve' xmlns='http://schemas.microsoft.com/visio/2003/core' "
+				+ "xmlns:vx='http://schemas.microsoft.com/visio/2006/extension' "
+				+ "xmlns:v14='http://schemas.microsoft.com/office/visio/2010/extension'>\n");
+		writer.write("<!-- synthetic page -->\n<Masters><Master ID='1' NameU='Task'/>"
+				+ "<Master ID='2' NameU='Sequence Flow'/></Masters>\n");
+		writer.write("<Pages><Page ID='0' NameU='Page-1'><PageSheet><PageProps><PageWidth Unit='IN_F'>40"
+				+ "</PageWidth><PageHeight Unit='IN_F'>30</PageHeight></PageProps></PageSheet><Shapes>\n");
+		for (int i = 0; i < shapes; i++) {
+			double x = (i / 2) % 20 * 1.5 + 0.75;
+			double y = (i / 40) * 1.25 + 0.5;
+			if (i % 2 == 0) {
+				writer.write("<Shape ID='" + i + "' Type='Shape' Master='1'><XForm><PinX>" + x + "</PinX><PinY>" + y
+						+ "</PinY><Width>1</Width><Height>0.75</Height><Angle>0</Angle></XForm>"
+						+ "<v14:Text><cp IX='0'/><pp IX='0'/>Task " + i + " &amp; &lt;more&gt;\n</v14:Text></Shape>\n");
+			} else {
+				writer.write("<Shape ID='" + i + "' Type='Shape' Master='2'><XForm><PinX>" + (x + 0.75)
+						+ "</PinX><PinY>" + y + "</PinY><Width>0.5</Width><Height>0</Height></XForm><XForm1D>"
+						+ "<BeginX>" + (x + 0.5) + "</BeginX><BeginY>" + y + "</BeginY><EndX>" + (x + 1.0)
+						+ "</EndX><EndY>" + y + "</EndY></XForm1D><v14:Text>yes</v14:Text></Shape>\n");
+			}
+		}
+		writer.write("</Shapes></Page></Pages>\n</VisioDocument>\n");
+	}
+
+	private static File createVdxFile(int shapes) throws Exception {
+		File file = File.createTempFile("benchmark", ".vdx");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writeVdx(writer, shapes);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Reads the file into a string like the VisioImporter did.
+	 */
+	private static String readFile(File file) throws Exception {
+		byte[] data = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < data.length)
+				read += in.read(data, read, data.length - read);
+		} finally {
+			in.close();
+		}
+		return new String(data, "UTF-8");
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		}
+	}
+
+	private static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+}
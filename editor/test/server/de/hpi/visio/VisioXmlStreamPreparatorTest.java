@@ -0,0 +1,47 @@
+package de.hpi.visio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class VisioXmlStreamPreparatorTest {
+
+	@Test
+	public void testXmlPreparation() throws Exception {
+		String xml = "<?xml version='1.0' encoding='utf-8' ?>\n"
+				+ "<VisioDocument key='C99A290682AF14E9' xml:space='preserve' "
+				+ "xmlns='http://schemas.microsoft.com/visio/2003/core' "
+				+ "xmlns:v14='http://schemas.microsoft.com/office/visio/2010/extension'>..."
+				+ "<v14:Text> <cp IX='0'/> DO NOT REMOVE LABELS  <cp IX='0'/> <cp IX='0'/> <cp IX='0'/>  </v14:Text>"
+				+ "<!-- comment --><Shape NameU='a &amp; \"b\"' v14:ID='1'><Text>&lt;c&gt;</Text><Geom/></Shape>"
+				+ "</VisioDocument>\n";
+
+		assertEquals("<VisioDocument>...<Text>  DO NOT REMOVE LABELS      </Text>"
+				+ "<Shape NameU=\"a &amp; &quot;b&quot;\" ID=\"1\"><Text>&lt;c&gt;</Text><Geom></Geom></Shape>"
+				+ "</VisioDocument>", readAll(new VisioXmlStreamPreparator(new StringReader(xml))));
+	}
+
+	@Test
+	public void testMappingEqualsStringPreparation() throws Exception {
+		StringWriter vdx = new StringWriter();
+		VisioXmlPreparationBenchmark.writeVdx(vdx, 500);
+		String xml = vdx.toString();
+
+		assertEquals(VisioXmlPreparationBenchmark.describe(VisioXmlPreparationBenchmark.mapPreparedString(xml)),
+				VisioXmlPreparationBenchmark.describe(VisioXmlPreparationBenchmark
+						.mapStreamed(new StringReader(xml))));
+	}
+
+	private static String readAll(Reader reader) throws Exception {
+		StringBuilder result = new StringBuilder();
+		char[] buffer = new char[7];
+		int read;
+		while ((read = reader.read(buffer, 0, buffer.length)) != -1)
+			result.append(buffer, 0, read);
+		return result.toString();
+	}
+}
@@ -0,0 +1,141 @@
+package de.hpi.visio.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.oryxeditor.server.diagram.Point;
+
+import de.hpi.visio.data.Page;
+import de.hpi.visio.data.Shape;
+
+/**
+ * Compares the linear matching of edge ends and markers to the shapes of a
+ * visio page with the matching through a {@link VisioShapeIndex}, on
+ * synthetic pages of lanes with rows of tasks connected by sequence flows
+ * and with a loop marker in every task.
+ *
+ * Run from the project root:
+ * <code>java de.hpi.visio.util.VisioShapeIndexBenchmark [shapes...]</code>
+ */
+public class VisioShapeIndexBenchmark {
+
+	/**
+	 * The tasks in a lane
+	 */
+	private static final int TASKS_PER_LANE = 25;
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 500, 1000, 2500, 5000, 10000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		VisioShapeDistanceUtil util = new VisioShapeDistanceUtil(createImportUtil());
+
+		/* Warm up */
+		for (int i = 0; i < 3; i++) {
+			Page page = createPage(1000);
+			matchLinear(util, page);
+			matchIndexed(util, page);
+		}
+
+		for (int size : sizes) {
+			Page page = createPage(size);
+			int rounds = Math.max(1, 5000 / size);
+
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				matchLinear(util, page);
+			long linear = (System.nanoTime() - start) / rounds;
+
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+				matchIndexed(util, page);
+			long indexed = (System.nanoTime() - start) / rounds;
+
+			System.out.println(String.format("%6d shapes: linear %9.2f ms, indexed %7.2f ms", page.getShapes().size(),
+					linear / 1e6, indexed / 1e6));
+		}
+	}
+
+	public static ImportConfigurationUtil createImportUtil() {
+		return new ImportConfigurationUtil(System.getProperty("user.dir") + "/editor/data/execution/", "bpmn");
+	}
+
+	/**
+	 * Returns the source and target of every edge and the task of every
+	 * marker, as the heuristics did before the index.
+	 */
+	public static List<Shape> matchLinear(VisioShapeDistanceUtil util, Page page) {
+		List<Shape> shapes = page.getShapes();
+		List<Shape> matches = new ArrayList<Shape>();
+		for (Shape shape : shapes) {
+			if (shape.getName().startsWith("Sequence Flow")) {
+				matches.add(util.getNearestPreferedShapeToPointWithinThreshold(shape, shape.getStartPoint(), shapes));
+				matches.add(util.getNearestPreferedShapeToPointWithinThreshold(shape, shape.getEndPoint(), shapes));
+			} else if (shape.getName().equals("Loop Marker")) {
+				matches.add(util.getFirstShapeOfStencilThatContainsTheGivenShape(shapes, shape, "Task"));
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Same as {@link #matchLinear(VisioShapeDistanceUtil, Page)} with an
+	 * index over the shapes of the page.
+	 */
+	public static List<Shape> matchIndexed(VisioShapeDistanceUtil util, Page page) {
+		VisioShapeIndex index = new VisioShapeIndex(page.getShapes());
+		List<Shape> matches = new ArrayList<Shape>();
+		for (Shape shape : page.getShapes()) {
+			if (shape.getName().startsWith("Sequence Flow")) {
+				matches.add(util.getNearestPreferedShapeToPointWithinThreshold(shape, shape.getStartPoint(), index));
+				matches.add(util.getNearestPreferedShapeToPointWithinThreshold(shape, shape.getEndPoint(), index));
+			} else if (shape.getName().equals("Loop Marker")) {
+				matches.add(util.getFirstShapeOfStencilThatContainsTheGivenShape(index, shape, "Task"));
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Creates a page of about the given number of shapes: lanes, each with a
+	 * row of tasks with a marker, connected by sequence flows whose ends are
+	 * a little off the tasks' borders.
+	 */
+	public static Page createPage(int shapes) {
+		List<Shape> pageShapes = new ArrayList<Shape>();
+		int lanes = Math.max(1, shapes / (TASKS_PER_LANE * 3));
+		for (int l = 0; l < lanes; l++) {
+			double y = l * 2.0 + 1.0;
+			pageShapes.add(createShape("Pool/Lane Body", TASKS_PER_LANE * 1.5 / 2, y, TASKS_PER_LANE * 1.5, 2.0));
+			for (int t = 0; t < TASKS_PER_LANE; t++) {
+				double x = t * 1.5 + 0.75;
+				pageShapes.add(createShape("Task", x, y, 1.0, 0.75));
+				pageShapes.add(createShape("Loop Marker", x, y - 0.25, 0.1, 0.1));
+				if (t > 0) {
+					double offset = ((l * 7 + t * 3) % 10) / 200.0;
+					Shape flow = createShape("Sequence Flow", x - 0.75, y, 0.5, 0.0);
+					flow.setStartPoint(new Point(x - 1.25 + offset, y + offset));
+					flow.setEndPoint(new Point(x - 0.25 - offset, y - offset));
+					pageShapes.add(flow);
+				}
+			}
+		}
+		Page page = new Page();
+		page.setWidth(TASKS_PER_LANE * 1.5);
+		page.setHeight(lanes * 2.0);
+		page.setShapes(pageShapes);
+		return page;
+	}
+
+	private static Shape createShape(String name, double x, double y, double width, double height) {
+		Shape shape = new Shape();
+		shape.setName(name);
+		shape.setCentralPin(new Point(x, y));
+		shape.setWidth(width);
+		shape.setHeight(height);
+		return shape;
+	}
+}
@@ -0,0 +1,68 @@
+package de.hpi.visio.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.oryxeditor.server.diagram.Point;
+
+import de.hpi.visio.data.Page;
+import de.hpi.visio.data.Shape;
+
+public class VisioShapeIndexTest {
+
+	@Test
+	public void testQueries() {
+		Shape small = createShape(1.0, 1.0, 1.0, 1.0);
+		Shape large = createShape(50.0, 50.0, 100.0, 100.0);
+		Shape far = createShape(20.0, 1.0, 1.0, 1.0);
+		Shape incomplete = new Shape();
+		/* A central pin without width and height */
+		incomplete.setCentralPin(new Point(30.0, 30.0));
+		VisioShapeIndex index = new VisioShapeIndex(new ArrayList<Shape>(Arrays.asList(small, large, far,
+				incomplete)));
+
+		/* Results are in the order of the shapes */
+		assertEquals(Arrays.asList(small, large, incomplete), index.getShapesContaining(new Point(1.2, 0.8)));
+		assertEquals(Arrays.asList(large, far, incomplete), index.getShapesNear(new Point(18.0, 1.0), 1.6));
+		assertEquals(Arrays.asList(large, incomplete), index.getShapesNear(new Point(18.0, 1.0), 1.4));
+		assertEquals(Arrays.asList(small, large, far, incomplete), index.getShapesNear(far, 18.1));
+		assertEquals(Arrays.asList(large, far, incomplete), index.getShapesNear(far, 17.9));
+
+		index.remove(large);
+		index.remove(incomplete);
+		assertEquals(Arrays.asList(small), index.getShapesContaining(new Point(1.5, 1.5)));
+		assertEquals(0, index.getShapesContaining(new Point(-1.0, 1.0)).size());
+
+		Shape added = createShape(1.0, 1.0, 0.1, 0.1);
+		index.add(added);
+		assertEquals(Arrays.asList(small, added), index.getShapesContaining(new Point(1.0, 1.0)));
+	}
+
+	@Test
+	public void testIndexedEqualsLinearMatching() {
+		VisioShapeDistanceUtil util = new VisioShapeDistanceUtil(VisioShapeIndexBenchmark.createImportUtil());
+		Page page = VisioShapeIndexBenchmark.createPage(2000);
+		List<Shape> linear = VisioShapeIndexBenchmark.matchLinear(util, page);
+		List<Shape> indexed = VisioShapeIndexBenchmark.matchIndexed(util, page);
+
+		assertEquals(linear.size(), indexed.size());
+		for (int i = 0; i < linear.size(); i++)
+			assertSame(linear.get(i), indexed.get(i));
+		/* Flows are connected to the tasks, not to the lanes */
+		assertEquals("Task", linear.get(2).getName());
+		assertEquals("Task", linear.get(3).getName());
+	}
+
+	private static Shape createShape(double x, double y, double width, double height) {
+		Shape shape = new Shape();
+		shape.setCentralPin(new Point(x, y));
+		shape.setWidth(width);
+		shape.setHeight(height);
+		return shape;
+	}
+}
@@ -0,0 +1,173 @@
+package de.unihannover.se.infocup2008.bpmn.layouter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.hpi.layouting.model.LayoutingBounds;
+import de.hpi.layouting.model.LayoutingBoundsImpl;
+import de.hpi.layouting.model.LayoutingDockers.Point;
+import de.hpi.layouting.model.LayoutingElement;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagramRDF;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNElement;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNType;
+
+/**
+ * Measures the {@link BPMNLayouter} on diagrams with many subprocesses: the
+ * time of one layout in the calling thread and with its subprocesses and
+ * edges on a pool, and the throughput of concurrent layouts sharing one
+ * layouter and pool.
+ *
+ * Run from the project root:
+ * <code>java de.unihannover.se.infocup2008.bpmn.layouter.BPMNLayouterBenchmark [subprocesses...]</code>
+ */
+public class BPMNLayouterBenchmark {
+
+	private static final int TASKS = 20;
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 10, 40, 160 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = BPMNLayouter.newExecutor("BPMNLayouterBenchmark", threads);
+		try {
+			final BPMNLayouter sequential = new BPMNLayouter();
+			final BPMNLayouter parallel = new BPMNLayouter(null, executor);
+
+			/* Warm up */
+			for (int i = 0; i < 10; i++) {
+				sequential.doLayout(createDiagram(20, TASKS));
+				parallel.doLayout(createDiagram(20, TASKS));
+			}
+
+			for (final int size : sizes) {
+				int rounds = Math.max(3, 400 / size);
+
+				long start = System.nanoTime();
+				for (int i = 0; i < rounds; i++)
+					sequential.doLayout(createDiagram(size, TASKS));
+				long single = (System.nanoTime() - start) / rounds;
+
+				start = System.nanoTime();
+				for (int i = 0; i < rounds; i++)
+					parallel.doLayout(createDiagram(size, TASKS));
+				long split = (System.nanoTime() - start) / rounds;
+
+				/* Concurrent requests, each in its own thread */
+				int requests = 4 * threads;
+				List<Callable<Object>> layouts = new ArrayList<Callable<Object>>();
+				for (int i = 0; i < requests; i++) {
+					layouts.add(new Callable<Object>() {
+						public Object call() {
+							parallel.doLayout(createDiagram(size, TASKS));
+							return null;
+						}
+					});
+				}
+				ExecutorService requestThreads = BPMNLayouter.newExecutor("Request", requests);
+				start = System.nanoTime();
+				for (Future<Object> f : requestThreads.invokeAll(layouts))
+					f.get();
+				long concurrent = (System.nanoTime() - start) / requests;
+				requestThreads.shutdown();
+
+				System.out.println(String.format(
+						"%4d subprocesses (%5d elements): sequential %8.2f ms, parallel (%d threads) %8.2f ms, "
+								+ "%d concurrent requests %8.2f ms/request", size, createDiagram(size, TASKS)
+								.getElements().size(), single / 1e6, threads, split / 1e6, requests,
+						concurrent / 1e6));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a sequence of subprocesses on the canvas. Each subprocess
+	 * contains a loop over a sequence of tasks, every second one also a nested
+	 * subprocess with the same content. The layouter only lays out the content
+	 * of subprocesses outside of pools.
+	 */
+	public static BPMNDiagram createDiagram(int subprocesses, int tasks) {
+		BPMNDiagramRDF diagram = new BPMNDiagramRDF();
+		BPMNElement last = shape(diagram, "start", BPMNType.StartEvent, null, 30, 30);
+		for (int i = 0; i < subprocesses; i++) {
+			BPMNElement subprocess = shape(diagram, "sp" + i, BPMNType.Subprocess, null, 100, 80);
+			BPMNElement lastTask = createProcess(diagram, "sp" + i, subprocess, tasks);
+			if (i % 2 == 0) {
+				BPMNElement nested = shape(diagram, "sp" + i + "n", BPMNType.Subprocess, subprocess, 100, 80);
+				createProcess(diagram, "sp" + i + "n", nested, tasks);
+				flow(diagram, lastTask, nested);
+			}
+			flow(diagram, last, subprocess);
+			last = subprocess;
+		}
+		flow(diagram, last, shape(diagram, "end", BPMNType.EndEvent, null, 30, 30));
+		return diagram;
+	}
+
+	/*
+	 * start -> join -> tasks -> split -> end, split -> join; returns the
+	 * last task
+	 */
+	private static BPMNElement createProcess(BPMNDiagram diagram, String prefix, BPMNElement parent,
+			int tasks) {
+		BPMNElement start = shape(diagram, prefix + "start", BPMNType.StartEvent, parent, 30, 30);
+		BPMNElement join = shape(diagram, prefix + "join", BPMNType.Exclusive_Databased_Gateway, parent, 40, 40);
+		flow(diagram, start, join);
+		BPMNElement last = join;
+		for (int i = 0; i < tasks; i++) {
+			BPMNElement task = shape(diagram, prefix + "task" + i, BPMNType.Task, parent, 100, 80);
+			flow(diagram, last, task);
+			last = task;
+		}
+		BPMNElement split = shape(diagram, prefix + "split", BPMNType.Exclusive_Databased_Gateway, parent, 40, 40);
+		flow(diagram, last, split);
+		flow(diagram, split, join);
+		flow(diagram, split, shape(diagram, prefix + "end", BPMNType.EndEvent, parent, 30, 30));
+		return last;
+	}
+
+	private static BPMNElement shape(BPMNDiagram diagram, String id, String type, BPMNElement parent,
+			double width, double height) {
+		BPMNElement element = (BPMNElement) diagram.getElement(id);
+		element.setType(type);
+		element.setParent(parent);
+		element.setGeometry(new LayoutingBoundsImpl(0, 0, width, height));
+		return element;
+	}
+
+	private static void flow(BPMNDiagram diagram, BPMNElement source, BPMNElement target) {
+		BPMNElement flow = (BPMNElement) diagram.getElement(source.getId() + "-" + target.getId());
+		flow.setType(BPMNType.SequenceFlow);
+		flow.setParent(source.getParent());
+		source.addOutgoingLink(flow);
+		flow.addIncomingLink(source);
+		flow.addOutgoingLink(target);
+		target.addIncomingLink(flow);
+	}
+
+	/**
+	 * @return the bounds and dockers of all elements, ordered by id
+	 */
+	public static String describe(BPMNDiagram diagram) {
+		StringBuilder result = new StringBuilder();
+		for (LayoutingElement element : new TreeMap<String, LayoutingElement>(diagram.getElements()).values()) {
+			LayoutingBounds bounds = element.getGeometry();
+			result.append(element.getId()).append(": ").append(bounds.getX()).append(',').append(bounds.getY())
+					.append(',').append(bounds.getWidth()).append(',').append(bounds.getHeight());
+			for (Point p : element.getDockers().getPoints())
+				result.append(' ').append(p.x).append(',').append(p.y);
+			result.append('\n');
+		}
+		return result.toString();
+	}
+}
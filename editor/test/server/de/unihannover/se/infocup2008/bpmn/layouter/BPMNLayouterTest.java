@@ -0,0 +1,83 @@
+package de.unihannover.se.infocup2008.bpmn.layouter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import de.hpi.layouting.model.LayoutingBounds;
+import de.unihannover.se.infocup2008.bpmn.model.BPMNDiagram;
+
+public class BPMNLayouterTest {
+
+	@Test
+	public void testSubprocesses() throws Exception {
+		BPMNDiagram diagram = BPMNLayouterBenchmark.createDiagram(3, 5);
+		new BPMNLayouter(diagram).doLayout();
+
+		/* The subprocesses grow to their content and follow each other */
+		LayoutingBounds sp0 = diagram.getElement("sp0").getGeometry();
+		LayoutingBounds sp1 = diagram.getElement("sp1").getGeometry();
+		LayoutingBounds nested = diagram.getElement("sp0n").getGeometry();
+		assertTrue(sp0.getWidth() > 5 * 100);
+		assertTrue(sp0.getWidth() > nested.getWidth());
+		assertTrue(sp0.getX2() < sp1.getX());
+
+		/* The tasks of a subprocess are placed from left to right */
+		for (int i = 0; i < 4; i++) {
+			LayoutingBounds task = diagram.getElement("sp1task" + i).getGeometry();
+			LayoutingBounds next = diagram.getElement("sp1task" + (i + 1)).getGeometry();
+			assertTrue(task.getX2() < next.getX());
+		}
+	}
+
+	@Test
+	public void testParallelEqualsSequential() throws Exception {
+		BPMNDiagram expected = BPMNLayouterBenchmark.createDiagram(12, 10);
+		new BPMNLayouter(expected).doLayout();
+
+		ExecutorService executor = BPMNLayouter.newExecutor("BPMNLayouterTest", 4);
+		try {
+			BPMNDiagram diagram = BPMNLayouterBenchmark.createDiagram(12, 10);
+			new BPMNLayouter(diagram, executor).doLayout();
+			assertEquals(BPMNLayouterBenchmark.describe(expected), BPMNLayouterBenchmark.describe(diagram));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentLayouts() throws Exception {
+		BPMNDiagram diagram = BPMNLayouterBenchmark.createDiagram(8, 10);
+		new BPMNLayouter().doLayout(diagram);
+		String expected = BPMNLayouterBenchmark.describe(diagram);
+
+		/* One layouter and pool for all requests, fewer threads than tasks */
+		ExecutorService executor = BPMNLayouter.newExecutor("BPMNLayouterTest", 2);
+		ExecutorService requests = BPMNLayouter.newExecutor("Request", 8);
+		try {
+			final BPMNLayouter layouter = new BPMNLayouter(null, executor);
+			List<Callable<String>> layouts = new ArrayList<Callable<String>>();
+			for (int i = 0; i < 32; i++) {
+				layouts.add(new Callable<String>() {
+					public String call() {
+						BPMNDiagram diagram = BPMNLayouterBenchmark.createDiagram(8, 10);
+						layouter.doLayout(diagram);
+						return BPMNLayouterBenchmark.describe(diagram);
+					}
+				});
+			}
+			for (Future<String> layout : requests.invokeAll(layouts))
+				assertEquals(expected, layout.get());
+		} finally {
+			requests.shutdown();
+			executor.shutdown();
+		}
+	}
+}
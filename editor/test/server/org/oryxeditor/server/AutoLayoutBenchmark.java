@@ -0,0 +1,134 @@
+package org.oryxeditor.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.hpi.util.RDFStreamImportBenchmark;
+
+/**
+ * Compares the latency of the in-JVM {@link AutoLayoutService} with the
+ * former forked layouter: write the RDF to a temporary file, start a process
+ * and poll its output every 200 ms.
+ *
+ * If "ruby" is on the path the Ruby layouter in
+ * editor/client/scripts/Plugins/AutoLayouter is forked. Otherwise the forked
+ * process only prints the precomputed layout, which is the lower bound of
+ * the forked path.
+ *
+ * Run from the project root:
+ * <code>java org.oryxeditor.server.AutoLayoutBenchmark [tasks...]</code>
+ */
+public class AutoLayoutBenchmark {
+
+	private static final File LAYOUTER = new File("editor/client/scripts/Plugins/AutoLayouter/src/startlayout.rb");
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 10, 50, 200 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		boolean ruby = hasRuby();
+		System.out.println("Forked path: " + (ruby ? "ruby startlayout.rb" : "cat of the precomputed layout (no ruby found)"));
+
+		/* Warm up */
+		for (int i = 0; i < 20; i++)
+			AutoLayoutService.layout(RDFStreamImportBenchmark.createRDF(50));
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		AutoLayoutService service = new AutoLayoutService(threads, 1000);
+		try {
+			for (int size : sizes) {
+				String rdf = RDFStreamImportBenchmark.createRDF(size);
+				String layout = AutoLayoutService.layout(rdf);
+				int rounds = 10;
+
+				long start = System.nanoTime();
+				for (int i = 0; i < rounds; i++)
+					AutoLayoutService.layout(rdf);
+				long inJVM = (System.nanoTime() - start) / rounds;
+
+				/* Throughput with concurrent requests on the pool */
+				int requests = 4 * threads;
+				start = System.nanoTime();
+				List<Future<String>> layouts = new ArrayList<Future<String>>();
+				for (int i = 0; i < requests; i++)
+					layouts.add(service.submit(rdf));
+				for (Future<String> f : layouts)
+					f.get();
+				long pooled = (System.nanoTime() - start) / requests;
+
+				start = System.nanoTime();
+				for (int i = 0; i < rounds; i++)
+					forked(rdf, layout, ruby);
+				long forked = (System.nanoTime() - start) / rounds;
+
+				System.out.println(String.format(
+						"%5d tasks: in JVM %8.2f ms, pooled (%d threads) %8.2f ms/request, forked %8.2f ms", size,
+						inJVM / 1e6, threads, pooled / 1e6, forked / 1e6));
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	private static boolean hasRuby() {
+		try {
+			return new ProcessBuilder("ruby", "-v").start().waitFor() == 0;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/*
+	 * The steps of the former servlet: temporary file, process, output read
+	 * by a thread that sleeps 200 ms whenever no line is available
+	 */
+	private static String forked(String rdf, String layout, boolean ruby) throws Exception {
+		File file = File.createTempFile("autolayout", ".rdf");
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(file));
+			out.write(ruby ? rdf : layout);
+			out.close();
+
+			ProcessBuilder builder = ruby ? new ProcessBuilder("ruby", LAYOUTER.getPath(), file.getPath())
+					: new ProcessBuilder("cat", file.getPath());
+			builder.redirectErrorStream(true);
+			final Process p = builder.start();
+
+			final StringBuilder content = new StringBuilder();
+			final AtomicBoolean stop = new AtomicBoolean();
+			Thread reader = new Thread() {
+				public void run() {
+					try {
+						BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
+						String line;
+						while (!stop.get()) {
+							if ((line = br.readLine()) != null)
+								content.append(line);
+							else
+								sleep(200);
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			reader.start();
+			p.waitFor();
+			stop.set(true);
+			reader.join();
+			return content.toString();
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.oryxeditor.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import de.hpi.util.RDFStreamImportBenchmark;
+
+public class AutoLayoutServiceTest {
+
+	@Test
+	public void testLayout() throws Exception {
+		JSONObject layout = new JSONObject(AutoLayoutService.layout(RDFStreamImportBenchmark.createRDF(10)));
+
+		/* All shapes but the sequence flows */
+		assertEquals(11, layout.length());
+		assertTrue(layout.has("pool"));
+
+		/* The tasks of a sequence are placed from left to right */
+		for (int i = 0; i < 9; i++) {
+			JSONObject task = layout.getJSONObject("task" + i);
+			JSONObject next = layout.getJSONObject("task" + (i + 1));
+			assertEquals(100, task.getDouble("width"), 0);
+			assertEquals(80, task.getDouble("height"), 0);
+			assertTrue(task.getDouble("x") + task.getDouble("width") < next.getDouble("x"));
+			assertEquals(task.getDouble("y"), next.getDouble("y"), 0);
+		}
+	}
+
+	@Test
+	public void testLayoutExample() throws Exception {
+		String rdf = new String(readFile(new File("editor/test/examples/testcase-BPMN2XForms-001.rdf")), "UTF-8");
+		JSONObject layout = new JSONObject(AutoLayoutService.layout(rdf));
+
+		/* Start event, exclusive gateway and the first task */
+		JSONObject start = layout.getJSONObject("oryx_7590298e-6f37-4134-8af3-ba8cae040a3f");
+		JSONObject gateway = layout.getJSONObject("oryx_0BE6EC7F-03A0-4B2D-A111-815F7EC79241");
+		JSONObject task = layout.getJSONObject("oryx_E6E357E0-6407-4221-9C4F-E4CE9F5FE42F");
+		assertTrue(start.getDouble("x") < gateway.getDouble("x"));
+		assertTrue(gateway.getDouble("x") < task.getDouble("x"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotBPMN() throws Exception {
+		AutoLayoutService.layout("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">"
+				+ "<rdf:Description rdf:about=\"#oryx-canvas123\">"
+				+ "<rdf:type rdf:resource=\"http://oryx-editor.org/canvas\"/>"
+				+ "<type xmlns=\"http://oryx-editor.org/\">http://b3mn.org/stencilset/epc#Diagram</type>"
+				+ "</rdf:Description></rdf:RDF>");
+	}
+
+	@Test
+	public void testPool() throws Exception {
+		AutoLayoutService service = new AutoLayoutService(2, 4);
+		try {
+			String rdf = RDFStreamImportBenchmark.createRDF(10);
+			String expected = AutoLayoutService.layout(rdf);
+
+			List<Future<String>> layouts = new ArrayList<Future<String>>();
+			for (int i = 0; i < 6; i++)
+				layouts.add(service.submit(rdf));
+			for (Future<String> layout : layouts)
+				assertEquals(new JSONObject(expected).toString(), new JSONObject(layout.get()).toString());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testQueueFull() throws Exception {
+		AutoLayoutService service = new AutoLayoutService(1, 1);
+		try {
+			String rdf = RDFStreamImportBenchmark.createRDF(2000);
+			service.submit(rdf);
+			service.submit(rdf);
+			service.submit(rdf);
+			fail("The third layout must be rejected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	private static byte[] readFile(File file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] content = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < content.length)
+				offset += in.read(content, offset, content.length - offset);
+			return content;
+		} finally {
+			in.close();
+		}
+	}
+}
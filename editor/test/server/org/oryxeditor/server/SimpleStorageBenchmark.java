@@ -0,0 +1,398 @@
+package org.oryxeditor.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the access to the sites table of the
+ * {@link SimpleStorageServlet}: several threads read and store sites for a
+ * few seconds, once opening a connection and preparing the statements for
+ * each request like the servlet did before, once through the
+ * {@link SitesDao} and its connection pool.
+ *
+ * There is no embedded database in the libraries of the editor, so the
+ * sites table is kept by the in-memory {@link SitesDriver}, which takes a
+ * configurable time to open a connection, like a database server does for
+ * the network and the login.
+ *
+ * Run from the project root:
+ * <code>java org.oryxeditor.server.SimpleStorageBenchmark [threads] [seconds] [connect ms] [pool size]</code>
+ */
+public class SimpleStorageBenchmark {
+
+	private static final int SITES = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		final long millis = (args.length > 1 ? Integer.parseInt(args[1]) : 3) * 1000L;
+		SitesDriver.connectMillis = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int poolSize = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+		SitesDriver.register();
+		final SitesDao dao = new SitesDao(new JdbcConnectionPool(SitesDriver.URL, "oryx", "", poolSize, 10000));
+		for (int i = 0; i < SITES; i++)
+			dao.storeSite("process" + i, "<div>process " + i + "</div>");
+
+		run("connection per request", threads, millis, new Request() {
+			public void run(String name, boolean store) throws Exception {
+				Connection connection = DriverManager.getConnection(SitesDriver.URL, "oryx", "");
+				try {
+					if (store) {
+						PreparedStatement update = connection
+								.prepareStatement("UPDATE sites SET Site = ? WHERE Name = ?");
+						update.setString(1, "<div>" + name + "</div>");
+						update.setString(2, name);
+						update.execute();
+					} else {
+						PreparedStatement select = connection
+								.prepareStatement("SELECT ID, Site FROM sites WHERE Name = ?");
+						select.setString(1, name);
+						ResultSet result = select.executeQuery();
+						result.next();
+						result.getString(2);
+					}
+				} finally {
+					connection.close();
+				}
+			}
+		});
+		run("pooled DAO, " + poolSize + " connections", threads, millis, new Request() {
+			public void run(String name, boolean store) throws Exception {
+				if (store)
+					dao.storeSite(name, "<div>" + name + "</div>");
+				else
+					dao.getSite(name);
+			}
+		});
+	}
+
+	private interface Request {
+		void run(String name, boolean store) throws Exception;
+	}
+
+	/**
+	 * Runs the request in the threads, one of five requests stores a site.
+	 */
+	private static void run(String name, int threads, final long millis, final Request request) throws Exception {
+		SitesDriver.resetCounters();
+		final AtomicLong requests = new AtomicLong();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final Random random = new Random(i);
+			workers[i] = new Thread() {
+				public void run() {
+					long end = System.currentTimeMillis() + millis;
+					try {
+						while (System.currentTimeMillis() < end) {
+							request.run("process" + random.nextInt(SITES), random.nextInt(5) == 0);
+							requests.incrementAndGet();
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			workers[i].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+
+		System.out.println(String.format("%-32s %9.0f requests/s, %6d connections opened (at most %d at once), "
+				+ "%7d statements prepared, %d concurrent uses of a connection", name, requests.get() * 1000.0 / millis,
+				SitesDriver.opened.get(), SitesDriver.maxOpen.get(), SitesDriver.prepared.get(),
+				SitesDriver.interferences.get()));
+	}
+
+	/**
+	 * A JDBC driver for the URL {@link #URL} that keeps the sites table in
+	 * memory. It understands the statements of the {@link SitesDao} and the
+	 * former SimpleStorageServlet, counts the opened connections and prepared
+	 * statements, and records when a connection is used by two threads at
+	 * the same time.
+	 */
+	public static class SitesDriver implements Driver {
+
+		public static final String URL = "jdbc:oryx-sites:";
+
+		public static volatile long connectMillis = 0;
+
+		public static final AtomicInteger opened = new AtomicInteger();
+		public static final AtomicInteger open = new AtomicInteger();
+		public static final AtomicInteger maxOpen = new AtomicInteger();
+		public static final AtomicInteger prepared = new AtomicInteger();
+		public static final AtomicInteger interferences = new AtomicInteger();
+
+		/* Whether the connections lack isValid(), like a JDBC 3 driver */
+		public static volatile boolean jdbc3 = false;
+
+		/* Connections opened before the last drop are no longer valid */
+		private static final AtomicInteger drops = new AtomicInteger();
+
+		/* Name to site, in the order of insertion */
+		private static final Map<String, String> sites = new LinkedHashMap<String, String>();
+
+		private static boolean registered = false;
+
+		public static synchronized void register() throws SQLException {
+			if (!registered)
+				DriverManager.registerDriver(new SitesDriver());
+			registered = true;
+		}
+
+		/**
+		 * Empties the table and resets the counters.
+		 */
+		public static void reset() {
+			synchronized (sites) {
+				sites.clear();
+			}
+			resetCounters();
+		}
+
+		public static void resetCounters() {
+			opened.set(0);
+			open.set(0);
+			maxOpen.set(0);
+			prepared.set(0);
+			interferences.set(0);
+		}
+
+		/**
+		 * Invalidates the open connections, as a restart of the database
+		 * does it.
+		 */
+		public static void dropConnections() {
+			drops.incrementAndGet();
+		}
+
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url))
+				return null;
+			if (connectMillis > 0) {
+				try {
+					Thread.sleep(connectMillis);
+				} catch (InterruptedException e) {
+					throw new SQLException("Interrupted");
+				}
+			}
+			opened.incrementAndGet();
+			int current = open.incrementAndGet();
+			while (true) {
+				int max = maxOpen.get();
+				if (current <= max || maxOpen.compareAndSet(max, current))
+					break;
+			}
+			return (Connection) proxy(Connection.class, new ConnectionHandler());
+		}
+
+		public boolean acceptsURL(String url) {
+			return url.startsWith(URL);
+		}
+
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public java.util.logging.Logger getParentLogger() {
+			return null;
+		}
+
+		private static Object proxy(Class<?> type, InvocationHandler handler) {
+			return Proxy.newProxyInstance(SitesDriver.class.getClassLoader(), new Class<?>[] { type }, handler);
+		}
+
+		/**
+		 * A connection, its statements report calls that overlap with calls
+		 * of other threads.
+		 */
+		private static class ConnectionHandler implements InvocationHandler {
+
+			private final AtomicInteger users = new AtomicInteger();
+			private final int drop = drops.get();
+			private boolean closed = false;
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("prepareStatement")) {
+					prepared.incrementAndGet();
+					return proxy(PreparedStatement.class, new StatementHandler(this, (String) args[0]));
+				}
+				if (name.equals("close")) {
+					if (!closed)
+						open.decrementAndGet();
+					closed = true;
+					return null;
+				}
+				if (name.equals("isClosed"))
+					return closed;
+				if (name.equals("isValid")) {
+					if (jdbc3)
+						throw new AbstractMethodError("isValid");
+					return !closed && drop == drops.get();
+				}
+				if (name.equals("createStatement")) {
+					final ConnectionHandler connection = this;
+					return proxy(Statement.class, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							if (!method.getName().equals("execute"))
+								return null;
+							connection.enter();
+							connection.exit();
+							return true;
+						}
+					});
+				}
+				if (name.equals("getAutoCommit"))
+					return true;
+				if (name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (name.equals("equals"))
+					return proxy == args[0];
+				return null;
+			}
+
+			void enter() throws SQLException {
+				if (closed || drop != drops.get())
+					throw new SQLException("The connection is closed");
+				if (users.incrementAndGet() > 1)
+					interferences.incrementAndGet();
+			}
+
+			void exit() {
+				users.decrementAndGet();
+			}
+		}
+
+		private static class StatementHandler implements InvocationHandler {
+
+			private final ConnectionHandler connection;
+			private final String sql;
+			private final Map<Integer, String> parameters = new LinkedHashMap<Integer, String>();
+			private Object result;
+
+			StatementHandler(ConnectionHandler connection, String sql) {
+				this.connection = connection;
+				this.sql = sql;
+			}
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("close"))
+					return null;
+				if (name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (name.equals("equals"))
+					return proxy == args[0];
+				connection.enter();
+				try {
+					// overlapping calls of two threads become likely
+					Thread.yield();
+					if (name.equals("setString")) {
+						parameters.put((Integer) args[0], (String) args[1]);
+						return null;
+					}
+					if (name.equals("clearParameters")) {
+						parameters.clear();
+						return null;
+					}
+					if (name.equals("executeQuery") || name.equals("executeUpdate") || name.equals("execute")) {
+						result = execute();
+						return name.equals("execute") ? result instanceof ResultSet : result;
+					}
+					if (name.equals("getResultSet"))
+						return result instanceof ResultSet ? result : null;
+					if (name.equals("getUpdateCount"))
+						return result instanceof Integer ? result : -1;
+					throw new SQLException("Not supported: " + name);
+				} finally {
+					connection.exit();
+				}
+			}
+
+			private Object execute() throws SQLException {
+				synchronized (sites) {
+					if (sql.equals("SELECT ID, Site FROM sites WHERE Name = ?")) {
+						List<String[]> rows = new ArrayList<String[]>();
+						int id = 0;
+						for (Map.Entry<String, String> site : sites.entrySet()) {
+							id++;
+							if (site.getKey().equals(parameters.get(1)))
+								rows.add(new String[] { String.valueOf(id), site.getValue() });
+						}
+						return resultSet(rows);
+					}
+					if (sql.equals("SELECT ID FROM sites WHERE Name = ?")) {
+						List<String[]> rows = new ArrayList<String[]>();
+						if (sites.containsKey(parameters.get(1)))
+							rows.add(new String[] { "0" });
+						return resultSet(rows);
+					}
+					if (sql.equals("SELECT ID, Name FROM sites")) {
+						List<String[]> rows = new ArrayList<String[]>();
+						int id = 0;
+						for (String site : sites.keySet())
+							rows.add(new String[] { String.valueOf(++id), site });
+						return resultSet(rows);
+					}
+					if (sql.equals("UPDATE sites SET Site = ? WHERE Name = ?")) {
+						if (!sites.containsKey(parameters.get(2)))
+							return 0;
+						sites.put(parameters.get(2), parameters.get(1));
+						return 1;
+					}
+					if (sql.equals("INSERT INTO sites (Name, Site) VALUES (?, ?)")) {
+						sites.put(parameters.get(1), parameters.get(2));
+						return 1;
+					}
+					throw new SQLException("Unknown statement: " + sql);
+				}
+			}
+
+			private Object resultSet(final List<String[]> rows) {
+				return proxy(ResultSet.class, new InvocationHandler() {
+					private int row = -1;
+
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("next"))
+							return ++row < rows.size();
+						if (name.equals("getString"))
+							return rows.get(row)[(Integer) args[0] - 1];
+						if (name.equals("close"))
+							return null;
+						throw new SQLException("Not supported: " + name);
+					}
+				});
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package org.oryxeditor.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oryxeditor.server.SimpleStorageBenchmark.SitesDriver;
+
+public class SimpleStorageServletTest {
+
+	private static final int POOL_SIZE = 4;
+
+	private JdbcConnectionPool pool;
+	private SimpleStorageServlet servlet;
+
+	@Before
+	public void setUp() throws Exception {
+		SitesDriver.register();
+		SitesDriver.reset();
+		SitesDriver.connectMillis = 1;
+		pool = new JdbcConnectionPool(SitesDriver.URL, "oryx", "", POOL_SIZE, 10000);
+		final SitesDao sites = new SitesDao(pool);
+		servlet = new SimpleStorageServlet() {
+			protected synchronized SitesDao getSites() {
+				return sites;
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+		SitesDriver.connectMillis = 0;
+	}
+
+	@Test
+	public void testStoreAndShow() throws Exception {
+		SitesDao sites = new SitesDao(pool);
+		assertEquals(null, sites.getSite("a"));
+		sites.storeSite("a", "<div>1</div>");
+		sites.storeSite("b", "<div>2</div>");
+		sites.storeSite("a", "<div>3</div>");
+		assertEquals("<div>3</div>", sites.getSite("a"));
+		assertEquals(Arrays.asList("a", "b"), sites.getSiteNames());
+
+		String page = get("b");
+		assertTrue(page.contains("<title>b - Oryx</title>"));
+		assertTrue(page.contains("<div>2</div>"));
+		assertTrue(get("c").contains("rel=\"oryx-stencilset\""));
+	}
+
+	/**
+	 * Threads store and show their own processes at the same time: each one
+	 * gets its own process back, the pool keeps its bound, each connection
+	 * is used by one thread at a time and prepares each statement once.
+	 */
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		final List<String> failures = new ArrayList<String>();
+		Thread[] threads = new Thread[16];
+		for (int i = 0; i < threads.length; i++) {
+			final int thread = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 50; j++) {
+							String resource = "process-" + thread + "-" + j;
+							post(resource, "<div>" + resource + "</div>");
+							String page = get(resource);
+							if (!page.contains("<title>" + resource + " - Oryx</title>")
+									|| !page.contains("<div>" + resource + "</div>"))
+								throw new IllegalStateException("Wrong page for " + resource + ": " + page);
+						}
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e.toString());
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(new ArrayList<String>(), failures);
+		assertEquals(16 * 50, new SitesDao(pool).getSiteNames().size());
+		assertTrue(SitesDriver.maxOpen.get() <= POOL_SIZE);
+		assertTrue(SitesDriver.opened.get() <= POOL_SIZE);
+		// select, update, insert and the names of the last check
+		assertTrue(SitesDriver.prepared.get() <= 4 * POOL_SIZE);
+		assertEquals(0, SitesDriver.interferences.get());
+	}
+
+	/**
+	 * Idle connections that the database dropped or that were idle too long
+	 * are replaced by new ones.
+	 */
+	@Test
+	public void testStaleConnections() throws Exception {
+		post("a", "<div>1</div>");
+		SitesDriver.dropConnections();
+		SitesDriver.resetCounters();
+		assertTrue(get("a").contains("<div>1</div>"));
+		assertEquals(1, SitesDriver.opened.get());
+		assertTrue(get("a").contains("<div>1</div>"));
+		assertEquals(1, SitesDriver.opened.get());
+
+		JdbcConnectionPool shortPool = new JdbcConnectionPool(SitesDriver.URL, "oryx", "", POOL_SIZE, 10000, 20);
+		try {
+			SitesDao sites = new SitesDao(shortPool);
+			sites.getSite("a");
+			Thread.sleep(40);
+			assertEquals("<div>1</div>", sites.getSite("a"));
+			assertEquals(3, SitesDriver.opened.get());
+		} finally {
+			shortPool.close();
+		}
+	}
+
+	/**
+	 * Connections of drivers without isValid() are checked with a query, a
+	 * failing check neither loses the connection nor its permit.
+	 */
+	@Test
+	public void testJdbc3Driver() throws Exception {
+		SitesDriver.jdbc3 = true;
+		try {
+			post("a", "<div>1</div>");
+			SitesDriver.resetCounters();
+			for (int i = 0; i < 2 * POOL_SIZE; i++)
+				assertTrue(get("a").contains("<div>1</div>"));
+			assertEquals(0, SitesDriver.opened.get());
+
+			SitesDriver.dropConnections();
+			for (int i = 0; i < 2 * POOL_SIZE; i++)
+				assertTrue(get("a").contains("<div>1</div>"));
+			assertEquals(1, SitesDriver.opened.get());
+		} finally {
+			SitesDriver.jdbc3 = false;
+		}
+	}
+
+	private String get(String resource) throws Exception {
+		StringWriter page = new StringWriter();
+		servlet.doGet(request(resource, null), response(page));
+		return page.toString();
+	}
+
+	private void post(String resource, String data) throws Exception {
+		StringWriter page = new StringWriter();
+		servlet.doPost(request(resource, data), response(page));
+		if (page.getBuffer().length() > 0)
+			throw new IllegalStateException("Store failed: " + page);
+	}
+
+	private static HttpServletRequest request(String resource, String data) {
+		final Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("resource", resource);
+		parameters.put("data", data);
+		parameters.put("stencilset", "/stencilsets/bpmn2.0/bpmn2.0.json");
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getParameter"))
+							return parameters.get(args[0]);
+						if (method.getName().equals("getRequestURL"))
+							return new StringBuffer("http://localhost/oryx/server");
+						return null;
+					}
+				});
+	}
+
+	private static HttpServletResponse response(StringWriter page) {
+		final PrintWriter writer = new PrintWriter(page);
+		return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getWriter"))
+							return writer;
+						return null;
+					}
+				});
+	}
+}
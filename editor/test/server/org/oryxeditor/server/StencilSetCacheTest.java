@@ -0,0 +1,142 @@
+package org.oryxeditor.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oryxeditor.server.StencilSetJSONPBenchmark.Response;
+
+public class StencilSetCacheTest {
+
+	private File root;
+	private File stencilsets;
+
+	@Before
+	public void setUp() throws Exception {
+		root = File.createTempFile("stencilsetcache", "");
+		root.delete();
+		stencilsets = new File(root, "stencilsets");
+		write("a/a.json", "{\"svg\":true}");
+		write("a/a-nosvg.json", "{\"svg\":false}");
+		write("extensions/extensions.json", "{\"extensions\":[{\"namespace\":\"http://a#\",\"definition\":\"e/e.json\"}]}");
+		write("extensions/e/e.json", "{\"extension\":true}");
+		write("../secret.json", "{}");
+	}
+
+	@After
+	public void tearDown() {
+		delete(root);
+	}
+
+	@Test
+	public void testResolution() throws Exception {
+		StencilSetCache cache = new StencilSetCache(stencilsets, 60000);
+
+		assertEquals("{\"svg\":false}", json(cache.getStencilSet("a/a.json", false)));
+		assertEquals("{\"svg\":true}", json(cache.getStencilSet("/stencilsets/a/a.json", true)));
+		assertSame(cache.getStencilSet("a/a.json", false), cache.getStencilSet("a/a.json", false));
+		/* Other spellings of the same file share its representation */
+		assertSame(cache.getStencilSet("a/a.json", false), cache.getStencilSet("a/./a-nosvg.json", true));
+		assertSame(cache.getStencilSet("a/a.json", true), cache.getStencilSet("a//../a/a.json", true));
+		assertEquals("{\"extension\":true}", json(cache.getExtension("http://a#")));
+
+		assertNull(cache.getStencilSet("a/b.json", false));
+		assertNull(cache.getStencilSet("../secret.json", true));
+		assertNull(cache.getExtension("http://b#"));
+	}
+
+	@Test
+	public void testModification() throws Exception {
+		StencilSetCache watching = new StencilSetCache(stencilsets, 0);
+		StencilSetCache notWatching = new StencilSetCache(stencilsets, 60000);
+		String eTag = watching.getStencilSet("a/a.json", true).getETag();
+		notWatching.getStencilSet("a/a.json", true);
+		assertEquals(eTag, watching.getStencilSet("a/a.json", true).getETag());
+
+		write("a/a.json", "{\"svg\":\"changed\"}");
+		assertEquals("{\"svg\":\"changed\"}", json(watching.getStencilSet("a/a.json", true)));
+		assertFalse(eTag.equals(watching.getStencilSet("a/a.json", true).getETag()));
+		assertEquals("{\"svg\":true}", json(notWatching.getStencilSet("a/a.json", true)));
+
+		/* Extensions follow their new definition */
+		write("extensions/extensions.json", "{\"extensions\":[{\"namespace\":\"http://a#\",\"definition\":\"a.json\"}]}");
+		write("extensions/a.json", "{\"moved\":true}");
+		assertEquals("{\"moved\":true}", json(watching.getExtension("http://a#")));
+	}
+
+	@Test
+	public void testConditionalGzipRequests() throws Exception {
+		StencilSetJSONPServlet servlet = StencilSetJSONPBenchmark.createServlet(root, 60000);
+
+		Response plain = StencilSetJSONPBenchmark.get(servlet, StencilSetJSONPBenchmark.request("a/a.json", null,
+				null, null));
+		assertEquals("{\"svg\":false}", new String(plain.body, "UTF-8"));
+		assertNull(plain.headers.get("Content-Encoding"));
+
+		Response gzipped = StencilSetJSONPBenchmark.get(servlet, StencilSetJSONPBenchmark.request("a/a.json", "cb",
+				"deflate, gzip;q=0.5", null));
+		assertEquals("gzip", gzipped.headers.get("Content-Encoding"));
+		assertEquals("cb({\"svg\":false});", gunzip(gzipped.body));
+		assertFalse(plain.headers.get("ETag").equals(gzipped.headers.get("ETag")));
+		StringBuilder callback = new StringBuilder("cb");
+		while (callback.length() <= 0xffff)
+			callback.append(callback);
+		assertEquals(callback + "({\"svg\":false});", gunzip(StencilSetJSONPBenchmark.get(servlet,
+				StencilSetJSONPBenchmark.request("a/a.json", callback.toString(), "gzip", null)).body));
+
+		Response notModified = StencilSetJSONPBenchmark.get(servlet, StencilSetJSONPBenchmark.request("a/a.json",
+				null, "gzip", "\"x\", " + gzipped.headers.get("ETag")));
+		assertEquals(304, notModified.status);
+		assertEquals(0, notModified.body.length);
+
+		Response modified = StencilSetJSONPBenchmark.get(servlet, StencilSetJSONPBenchmark.request("a/a.json", null,
+				"gzip;q=0", "\"other\""));
+		assertEquals(200, modified.status);
+		assertEquals("{\"svg\":false}", new String(modified.body, "UTF-8"));
+
+		Response missing = StencilSetJSONPBenchmark.get(servlet, StencilSetJSONPBenchmark.request("b.json", null,
+				"gzip", null));
+		assertEquals("{ \"error\":\"resource not found\" }", new String(missing.body, "UTF-8"));
+	}
+
+	private static String json(StencilSetCache.Representation representation) throws Exception {
+		return new String(representation.getJSON(), "UTF-8");
+	}
+
+	private static String gunzip(byte[] data) throws Exception {
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int read;
+		while ((read = in.read()) != -1)
+			out.write(read);
+		return new String(out.toByteArray(), "UTF-8");
+	}
+
+	private void write(String path, String content) throws Exception {
+		File file = new File(stencilsets, path);
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes("UTF-8"));
+		out.close();
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				delete(child);
+		}
+		file.delete();
+	}
+}
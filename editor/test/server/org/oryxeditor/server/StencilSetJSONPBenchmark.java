@@ -0,0 +1,217 @@
+package org.oryxeditor.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Load test of the {@link StencilSetJSONPServlet}: several threads request
+ * the BPMN 2.0 stencil set for a few seconds. Compares the former reading of
+ * the file line by line on every request with the cached delivery, plain,
+ * gzip compressed, wrapped in a JSONP callback and as conditional request.
+ *
+ * Run from the project root:
+ * <code>java org.oryxeditor.server.StencilSetJSONPBenchmark [threads] [seconds]</code>
+ */
+public class StencilSetJSONPBenchmark {
+
+	private static final File ROOT = new File("editor/data");
+
+	private static final String RESOURCE = "/stencilsets/bpmn2.0/bpmn2.0.json";
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		final long millis = (args.length > 1 ? Integer.parseInt(args[1]) : 3) * 1000L;
+
+		final StencilSetJSONPServlet servlet = createServlet(ROOT, 2000);
+		final String eTag = get(servlet, request(RESOURCE, null, "gzip", null)).headers.get("ETag");
+
+		run("former line by line read", threads, millis, new Request() {
+			public int run() throws Exception {
+				return readLineByLine(new File(ROOT, RESOURCE));
+			}
+		});
+		run("cached", threads, millis, new Request() {
+			public int run() throws Exception {
+				return get(servlet, request(RESOURCE, null, null, null)).body.length;
+			}
+		});
+		run("cached, gzip", threads, millis, new Request() {
+			public int run() throws Exception {
+				return get(servlet, request(RESOURCE, null, "gzip, deflate", null)).body.length;
+			}
+		});
+		run("cached, JSONP, gzip", threads, millis, new Request() {
+			public int run() throws Exception {
+				return get(servlet, request(RESOURCE, "callback17", "gzip, deflate", null)).body.length;
+			}
+		});
+		run("cached, conditional", threads, millis, new Request() {
+			public int run() throws Exception {
+				return get(servlet, request(RESOURCE, null, "gzip, deflate", eTag)).body.length;
+			}
+		});
+	}
+
+	private interface Request {
+		/**
+		 * @return The number of bytes sent
+		 */
+		int run() throws Exception;
+	}
+
+	private static void run(String name, int threads, final long millis, final Request request) throws Exception {
+		/* Warm up */
+		for (int i = 0; i < 200; i++)
+			request.run();
+
+		final AtomicLong requests = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread() {
+				public void run() {
+					long end = System.currentTimeMillis() + millis;
+					try {
+						while (System.currentTimeMillis() < end) {
+							bytes.addAndGet(request.run());
+							requests.incrementAndGet();
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			workers[i].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+
+		System.out.println(String.format("%-26s %9.0f requests/s, %7.0f bytes/response", name, requests.get()
+				* 1000.0 / millis, bytes.get() / (double) requests.get()));
+	}
+
+	/**
+	 * The former delivery: the file read line by line into the response
+	 * writer on every request.
+	 */
+	private static int readLineByLine(File file) throws Exception {
+		StringWriter response = new StringWriter();
+		PrintWriter out = new PrintWriter(response);
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line = null;
+		while ((line = reader.readLine()) != null) {
+			out.append(line);
+			out.append(System.getProperty("line.separator"));
+		}
+		reader.close();
+		out.flush();
+		return response.getBuffer().length();
+	}
+
+	public static class Response {
+		public int status = HttpServletResponse.SC_OK;
+		public Map<String, String> headers = new HashMap<String, String>();
+		public byte[] body;
+	}
+
+	public static Response get(StencilSetJSONPServlet servlet, HttpServletRequest request) throws Exception {
+		final Response response = new Response();
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final ServletOutputStream out = new ServletOutputStream() {
+			public void write(int b) {
+				body.write(b);
+			}
+
+			public void write(byte[] b, int off, int len) {
+				body.write(b, off, len);
+			}
+		};
+		HttpServletResponse httpResponse = (HttpServletResponse) Proxy.newProxyInstance(
+				HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("getOutputStream"))
+							return out;
+						if (name.equals("setStatus"))
+							response.status = (Integer) args[0];
+						else if (name.equals("setHeader"))
+							response.headers.put((String) args[0], (String) args[1]);
+						else if (name.equals("setContentType"))
+							response.headers.put("Content-Type", (String) args[0]);
+						return null;
+					}
+				});
+		servlet.doGet(request, httpResponse);
+		response.body = body.toByteArray();
+		return response;
+	}
+
+	/**
+	 * A GET request of a stencil set with the given parameters and headers,
+	 * each may be null
+	 */
+	public static HttpServletRequest request(String resource, String jsonp, String acceptEncoding,
+			String ifNoneMatch) {
+		final Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("resource", resource);
+		parameters.put("jsonp", jsonp);
+		final Map<String, String> headers = new HashMap<String, String>();
+		headers.put("Accept-Encoding", acceptEncoding);
+		headers.put("If-None-Match", ifNoneMatch);
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getParameter"))
+							return parameters.get(args[0]);
+						if (method.getName().equals("getHeader"))
+							return headers.get(args[0]);
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * Creates the servlet of a web application in the given directory.
+	 */
+	public static StencilSetJSONPServlet createServlet(final File root, final long checkInterval)
+			throws Exception {
+		final ServletContext context = (ServletContext) Proxy.newProxyInstance(ServletContext.class
+				.getClassLoader(), new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getRealPath"))
+					return new File(root, (String) args[0]).getPath();
+				return null;
+			}
+		});
+		ServletConfig config = (ServletConfig) Proxy.newProxyInstance(ServletConfig.class.getClassLoader(),
+				new Class<?>[] { ServletConfig.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getServletContext"))
+							return context;
+						if (method.getName().equals("getInitParameter") && args[0].equals("checkInterval"))
+							return String.valueOf(checkInterval);
+						return null;
+					}
+				});
+		StencilSetJSONPServlet servlet = new StencilSetJSONPServlet();
+		servlet.init(config);
+		return servlet;
+	}
+}
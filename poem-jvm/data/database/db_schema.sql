@@ -196,7 +196,10 @@ CREATE TABLE content (
     erdf text NOT NULL,
     svg text,
     png_large bytea,
-    png_small bytea
+    png_small bytea,
+    pdf bytea,
+    svg_version integer DEFAULT 0 NOT NULL,
+    rendered_version integer
 );
 ALTER TABLE ONLY content ALTER COLUMN erdf SET STORAGE MAIN;
 ALTER TABLE ONLY content ALTER COLUMN svg SET STORAGE MAIN;
@@ -204,6 +207,26 @@ ALTER TABLE ONLY content ALTER COLUMN svg SET STORAGE MAIN;
 
 ALTER TABLE public.content OWNER TO poem;
 
+--
+-- Name: revision; Type: TABLE; Schema: public; Owner: poem; Tablespace: 
+--
+
+CREATE TABLE revision (
+    id serial NOT NULL,
+    representation_id integer NOT NULL,
+    number integer NOT NULL,
+    created timestamp without time zone NOT NULL,
+    author_id integer,
+    snapshot boolean NOT NULL,
+    content bytea NOT NULL,
+    svg bytea NOT NULL
+);
+ALTER TABLE ONLY revision ALTER COLUMN content SET STORAGE EXTERNAL;
+ALTER TABLE ONLY revision ALTER COLUMN svg SET STORAGE EXTERNAL;
+
+
+ALTER TABLE public.revision OWNER TO poem;
+
 --
 -- Name: friend; Type: TABLE; Schema: public; Owner: poem; Tablespace: 
 --
@@ -1255,6 +1278,22 @@ ALTER TABLE ONLY representation
     ADD CONSTRAINT representation_pkey PRIMARY KEY (id);
 
 
+--
+-- Name: revision_pkey; Type: CONSTRAINT; Schema: public; Owner: poem; Tablespace: 
+--
+
+ALTER TABLE ONLY revision
+    ADD CONSTRAINT revision_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: revision_number_key; Type: CONSTRAINT; Schema: public; Owner: poem; Tablespace: 
+--
+
+ALTER TABLE ONLY revision
+    ADD CONSTRAINT revision_number_key UNIQUE (representation_id, number);
+
+
 --
 -- Name: settings_pkey; Type: CONSTRAINT; Schema: public; Owner: poem; Tablespace: 
 --
@@ -1323,6 +1362,27 @@ CREATE INDEX poem_position ON structure USING btree (parent(hierarchy), child_po
 CREATE INDEX rel_idx ON plugin USING btree (rel);
 
 
+--
+-- Name: representation_title_idx; Type: INDEX; Schema: public; Owner: poem; Tablespace: 
+--
+
+CREATE INDEX representation_title_idx ON representation USING btree (title, ident_id);
+
+
+--
+-- Name: representation_updated_idx; Type: INDEX; Schema: public; Owner: poem; Tablespace: 
+--
+
+CREATE INDEX representation_updated_idx ON representation USING btree (updated DESC, ident_id);
+
+
+--
+-- Name: structure_ident_id_idx; Type: INDEX; Schema: public; Owner: poem; Tablespace: 
+--
+
+CREATE INDEX structure_ident_id_idx ON structure USING btree (ident_id);
+
+
 --
 -- Name: subject_idx; Type: INDEX; Schema: public; Owner: poem; Tablespace: 
 --
@@ -1456,6 +1516,22 @@ ALTER TABLE ONLY tag_relation
 -- Name: user_ident_id_pkey; Type: FK CONSTRAINT; Schema: public; Owner: poem
 --
 
+--
+-- Name: revision_author_fkey; Type: FK CONSTRAINT; Schema: public; Owner: poem
+--
+
+ALTER TABLE ONLY revision
+    ADD CONSTRAINT revision_author_fkey FOREIGN KEY (author_id) REFERENCES identity(id) ON DELETE SET NULL;
+
+
+--
+-- Name: revision_representation_fkey; Type: FK CONSTRAINT; Schema: public; Owner: poem
+--
+
+ALTER TABLE ONLY revision
+    ADD CONSTRAINT revision_representation_fkey FOREIGN KEY (representation_id) REFERENCES representation(id) ON DELETE CASCADE;
+
+
 ALTER TABLE ONLY subject
     ADD CONSTRAINT user_ident_id_pkey FOREIGN KEY (ident_id) REFERENCES identity(id) ON DELETE CASCADE;
 
@@ -0,0 +1,9 @@
+-- Adds the indexes for the sorted pages of org.b3mn.poem.util.ModelQuery. The sorts by last change
+-- and by title end with the id of the model, so that PostgreSQL reads the first pages from the index
+-- instead of sorting all models. structure_ident_id_idx finds the rows of the access view of a model.
+
+CREATE INDEX representation_title_idx ON representation USING btree (title, ident_id);
+CREATE INDEX representation_updated_idx ON representation USING btree (updated DESC, ident_id);
+CREATE INDEX structure_ident_id_idx ON structure USING btree (ident_id);
+ANALYZE representation;
+ANALYZE structure;
@@ -0,0 +1,6 @@
+-- Adds the columns of org.b3mn.poem.business.RenderService to the content table. The PNGs of
+-- existing models have no rendered_version, they are served until they are rendered again.
+
+ALTER TABLE content ADD COLUMN pdf bytea;
+ALTER TABLE content ADD COLUMN svg_version integer NOT NULL DEFAULT 0;
+ALTER TABLE content ADD COLUMN rendered_version integer;
@@ -0,0 +1,26 @@
+-- Adds the revision table, which keeps the saved versions of the models, see org.b3mn.poem.Revision.
+-- Content and svg are gzipped snapshots or deltas, so PostgreSQL doesn't need to compress them again.
+
+CREATE TABLE revision
+(
+  id serial NOT NULL,
+  representation_id integer NOT NULL,
+  number integer NOT NULL,
+  created timestamp without time zone NOT NULL,
+  author_id integer,
+  snapshot boolean NOT NULL,
+  content bytea NOT NULL,
+  svg bytea NOT NULL,
+  CONSTRAINT revision_pkey PRIMARY KEY (id),
+  CONSTRAINT revision_number_key UNIQUE (representation_id, number),
+  CONSTRAINT revision_representation_fkey FOREIGN KEY (representation_id)
+      REFERENCES representation (id) MATCH SIMPLE
+      ON UPDATE NO ACTION ON DELETE CASCADE,
+  CONSTRAINT revision_author_fkey FOREIGN KEY (author_id)
+      REFERENCES identity (id) MATCH SIMPLE
+      ON UPDATE NO ACTION ON DELETE SET NULL
+)
+WITH (OIDS=FALSE);
+ALTER TABLE revision OWNER TO poem;
+ALTER TABLE ONLY revision ALTER COLUMN content SET STORAGE EXTERNAL;
+ALTER TABLE ONLY revision ALTER COLUMN svg SET STORAGE EXTERNAL;
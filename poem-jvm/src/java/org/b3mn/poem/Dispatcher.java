@@ -23,12 +23,14 @@
 
 package org.b3mn.poem;
 import java.io.File;
+import java.io.FileInputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,7 +40,11 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.b3mn.poem.business.AccessRightCache;
+import org.b3mn.poem.business.EntityCache;
 import org.b3mn.poem.business.Model;
+import org.b3mn.poem.business.RenderService;
+import org.b3mn.poem.business.SearchIndex;
 import org.b3mn.poem.business.User;
 import org.b3mn.poem.handler.HandlerBase;
 import org.b3mn.poem.util.AccessRight;
@@ -55,6 +61,9 @@ public class Dispatcher extends HttpServlet {
 	private static String filterBrowserRedirectUrl = handlerRootPath + "repository";
 	private static String filterModelRedirectErrorUrl = "/error";
 	private static String filterBrowserRegexPattern = "MSIE \\d+\\.\\d+;";
+	// The patterns are the same for all handlers and requests, so they are compiled only once
+	private static final Pattern filterBrowserPattern = Pattern.compile(filterBrowserRegexPattern);
+	private static final Pattern pathPattern = Pattern.compile("(\\/model\\/([0-9]+))?(\\/[^\\/]+\\/?)$");
 	public static ServletContext servletContext;
 	
 	protected Map<String, HandlerInfo> knownHandlers = new Hashtable<String, HandlerInfo>();
@@ -94,6 +103,24 @@ public class Dispatcher extends HttpServlet {
 		servletContext = this.getServletContext();
 		//reloadFriendTable(); // ToDo: implement a bootloader. this operation isn't necessary at each start
 		
+		// Size and time to live of the entity caches, the defaults are kept if the file is missing
+		try {
+			FileInputStream in = new FileInputStream(this.getServletContext().getRealPath("/WEB-INF/backend.properties"));
+			Properties properties = new Properties();
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+			EntityCache.configure(properties);
+		} catch (Exception e) {
+			System.err.println("The entity caches use their defaults: " + e);
+		}
+		
+		// The search index is kept in memory and written to the file when the servlet is destroyed
+		String index = this.getServletContext().getRealPath("/WEB-INF/search.index");
+		SearchIndex.open(index != null ? new File(index) : null);
+		
 		// load backend.properties
 //		try {
 //			FileInputStream in;
@@ -109,6 +136,13 @@ public class Dispatcher extends HttpServlet {
 //		}
 	}
 	
+	@Override
+	public void destroy() {
+		RenderService.shutdown();
+		SearchIndex.close();
+		super.destroy();
+	}
+	
 	protected void reloadFriendTable()  {
 		Persistance.getSession().createSQLQuery("SELECT * FROM friend_init()").list();
 		Persistance.commit();
@@ -136,6 +170,16 @@ public class Dispatcher extends HttpServlet {
 		} else return null;
 	}
 	
+	// Returns the method that adds the criterion of the filter to a ModelQuery
+	public Method getFilterCriterion(String filterName) {
+		return HandlerInfo.getFilterCriterionMapping().get(filterName);
+	}
+	
+	// Returns the method that adds the criterion of the sort to a ModelQuery
+	public Method getSortCriterion(String sortName) {
+		return HandlerInfo.getSortCriterionMapping().get(sortName);
+	}
+	
 	public Collection<String> getHandlerClassNames() {
 		File handlerDir = new File(this.getServletContext().
 				getRealPath("/WEB-INF/classes/org/b3mn/poem/handler"));
@@ -177,8 +221,7 @@ public class Dispatcher extends HttpServlet {
 
 	private String getModelUri(String path) {
 		// Extract id from the request URL 
-		Pattern pattern = Pattern.compile("(\\/model\\/([0-9]+))?(\\/[^\\/]+\\/?)$");
-		Matcher matcher = pattern.matcher(new StringBuffer(path));
+		Matcher matcher = pathPattern.matcher(path);
 		matcher.find();			
 		String modelUri = matcher.group(1);
 		return modelUri;
@@ -186,8 +229,7 @@ public class Dispatcher extends HttpServlet {
 	
 	private String getHandlerUri(String path) {
 		// Extract handler uri from the request URL 
-		Pattern pattern = Pattern.compile("(\\/model\\/([0-9]+))?(\\/[^\\/]+\\/?)$");
-		Matcher matcher = pattern.matcher(new StringBuffer(path));
+		Matcher matcher = pathPattern.matcher(path);
 		matcher.find();
 		String uri = matcher.group(3);
 		return uri;
@@ -213,9 +255,9 @@ public class Dispatcher extends HttpServlet {
 	protected boolean checkAccess(HandlerInfo handlerInfo, Identity subject, Model model, String requestMethod) {
 		try {
 			// Explicitly check right of the public user
-			AccessRight publicRight = model.getAccessRight(publicUser);
+			AccessRight publicRight = AccessRightCache.getAccessRight(model, publicUser);
 			// Read access right for the user from the requested model
-			AccessRight userRight = model.getAccessRight(subject.getUri());
+			AccessRight userRight = AccessRightCache.getAccessRight(model, subject.getUri());
 			// Read required access right from the handler
 			AccessRight modelRestriction = handlerInfo.getAccessRestriction(requestMethod);
 			// User needs the same or a higher privilege then required by the handler
@@ -227,9 +269,7 @@ public class Dispatcher extends HttpServlet {
 	protected boolean checkBrowser(HandlerInfo handlerInfo, HttpServletRequest request, HttpServletResponse response) {
 		// Validate Browser
 		if (handlerInfo.isFilterBrowser()) {
-			// Extract handler uri from the request URL 
-			Pattern pattern = Pattern.compile(filterBrowserRegexPattern); 
-			return !pattern.matcher(new StringBuffer((String)request.getHeader("user-agent"))).find();
+			return !filterBrowserPattern.matcher((String)request.getHeader("user-agent")).find();
 		} return true;
 	}
 
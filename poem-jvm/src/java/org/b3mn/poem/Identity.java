@@ -23,18 +23,33 @@
 
 package org.b3mn.poem;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
+import org.b3mn.poem.business.AccessRightCache;
+import org.b3mn.poem.business.EntityCache;
+import org.b3mn.poem.business.RenderService;
+import org.b3mn.poem.business.SearchIndex;
 import org.hibernate.Session;
 
 @Entity
 public class Identity {
+	
+	// Identities by uri and id, representations and access rights by the id and the uri of their 
+	// identity. The caches keep copies, see copy(), the access rights are only read.
+	private static final EntityCache<String, Identity> identitiesByUri = new EntityCache<String, Identity>("identity by uri");
+	private static final EntityCache<Integer, Identity> identitiesById = new EntityCache<Integer, Identity>("identity by id");
+	private static final EntityCache<Integer, Representation> representations = new EntityCache<Integer, Representation>("representation");
+	private static final EntityCache<String, List<Access>> accessRights = new EntityCache<String, List<Access>>("access");
         
 	@Id @GeneratedValue(strategy=GenerationType.IDENTITY)
 	private int id; 
@@ -53,25 +68,85 @@ public class Identity {
 		this.uri = uri;
 	}
 	public static Identity instance(String uri) {
-		Identity identity = (Identity) Persistance.getSession().
+		Identity identity = identitiesByUri.get(uri);
+		if (identity != null) return identity.copy();
+		long stamp = identitiesByUri.stamp();
+		identity = (Identity) Persistance.getSession().
 			createSQLQuery("select {identity.*} FROM {identity} where uri=?")
 			.addEntity("identity", Identity.class)
 			.setString(0, uri)
 			.uniqueResult();
 		Persistance.commit();
+		if (identity != null) identitiesByUri.put(uri, identity.copy(), stamp);
 		return identity;
 	}
 	
 	public static Identity instance(int id) {
-		Identity identity =  (Identity) Persistance.getSession().
+		Identity identity = identitiesById.get(id);
+		if (identity != null) return identity.copy();
+		long stamp = identitiesById.stamp();
+		identity =  (Identity) Persistance.getSession().
 			createSQLQuery("select {identity.*} FROM {identity} where id=:id")
 			.addEntity("identity", Identity.class)
 			.setInteger("id", id)
 			.uniqueResult();
 		Persistance.commit();
+		if (identity != null) identitiesById.put(id, identity.copy(), stamp);
 		return identity;
 	}
 	
+	// Drops the cached identity, representation and access rights, has to be called after the
+	// identity was changed or deleted
+	public void invalidate() {
+		identitiesByUri.invalidate(this.uri);
+		identitiesById.invalidate(this.id);
+		invalidateRepresentation(this.id);
+		invalidateAccess();
+	}
+	
+	// Has to be called after the representation of the identity with the given id was changed
+	public static void invalidateRepresentation(int id) {
+		representations.invalidate(id);
+	}
+	
+	// Has to be called after the access rights on the identity were changed
+	public void invalidateAccess() {
+		accessRights.invalidate(this.uri);
+		AccessRightCache.invalidate(this.id);
+	}
+	
+	// Has to be called after the hierarchy or an interaction was changed, which may change the
+	// inherited rights on any identity
+	public static void invalidateAllAccess() {
+		accessRights.clear();
+		AccessRightCache.clear();
+	}
+	
+	protected Identity copy() {
+		Identity copy = new Identity();
+		copy.id = this.id;
+		copy.uri = this.uri;
+		return copy;
+	}
+	
+	// Returns the identities with the given ids, mapped by id
+	@SuppressWarnings("unchecked")
+	public static Map<Integer, Identity> instances(Collection<Integer> ids) {
+		Map<Integer, Identity> identities = new HashMap<Integer, Identity>();
+		for (List<Integer> batch : Persistance.batches(ids)) {
+			List<Identity> list = (List<Identity>) Persistance.getSession().
+				createSQLQuery("select {identity.*} FROM {identity} where id IN (:ids)")
+				.addEntity("identity", Identity.class)
+				.setParameterList("ids", batch)
+				.list();
+			Persistance.commit();
+			for (Identity identity : list) {
+				identities.put(identity.getId(), identity);
+			}
+		}
+		return identities;
+	}
+	
 	public static Identity newModel(Identity owner, String title, String type, String summary, String svg, String content) {
 			Session session = Persistance.getSession();
 			Identity identity = (Identity) session.
@@ -91,6 +166,9 @@ public class Identity {
 			
 			representation.setSvg(svg);
 			representation.setContent(content);
+			Revision.save(representation, owner, content, svg);
+			RenderService.enqueue(representation.getId());
+			SearchIndex.update(identity, representation, content);
 			
 			Structure.instance(identity.getId(), owner.getUserHierarchy());
 			return identity;
@@ -153,13 +231,50 @@ public class Identity {
 	
 	@SuppressWarnings("unchecked")
 	public List<Access> getAccess() {
+		List<Access> cached = accessRights.get(this.getUri());
+		if (cached != null) return new ArrayList<Access>(cached);
+		long stamp = accessRights.stamp();
 		List<Access> list =  (List<Access>) Persistance.getSession().
 		createSQLQuery("select DISTINCT ON(context_name) {access.*} from {access} where object_name=?")
 		.addEntity("access", Access.class)
 	    .setString(0, this.getUri()).list();
 		Persistance.commit();
+		accessRights.put(this.getUri(), new ArrayList<Access>(list), stamp);
 		return list;
 	}
+	// Returns the result of getAccess() for each of the given identities, mapped by uri
+	@SuppressWarnings("unchecked")
+	public static Map<String, List<Access>> getAccess(Collection<Identity> identities) {
+		Map<String, List<Access>> access = new HashMap<String, List<Access>>();
+		List<String> uris = new ArrayList<String>();
+		for (Identity identity : identities) {
+			List<Access> cached = accessRights.get(identity.getUri());
+			if (cached != null) {
+				access.put(identity.getUri(), new ArrayList<Access>(cached));
+			} else {
+				access.put(identity.getUri(), new ArrayList<Access>());
+				uris.add(identity.getUri());
+			}
+		}
+		// Only the rights that are not cached are read
+		long stamp = accessRights.stamp();
+		for (List<String> batch : Persistance.batches(uris)) {
+			List<Access> list = (List<Access>) Persistance.getSession().
+				createSQLQuery("select DISTINCT ON(object_name, context_name) {access.*} from {access} where object_name IN (:uris)")
+				.addEntity("access", Access.class)
+				.setParameterList("uris", batch)
+				.list();
+			Persistance.commit();
+			for (Access right : list) {
+				access.get(right.getObject_name()).add(right);
+			}
+		}
+		for (String uri : uris) {
+			accessRights.put(uri, new ArrayList<Access>(access.get(uri)), stamp);
+		}
+		return access;
+	}
+	
 	/*
 	@SuppressWarnings("unchecked")
 	public Access access(String openId, String rel) {
@@ -204,11 +319,15 @@ public class Identity {
 	}
 	
 	public Representation read() {
-		Representation rep = (Representation)Persistance.getSession().
+		Representation rep = representations.get(this.id);
+		if (rep != null) return rep.copy();
+		long stamp = representations.stamp();
+		rep = (Representation)Persistance.getSession().
 		createSQLQuery("select {representation.*} from {representation} where ident_id = :ident_id")
 		.addEntity("representation", Representation.class)
 	    .setInteger("ident_id", this.id).uniqueResult();
 		Persistance.commit();
+		if (rep != null) representations.put(this.id, rep.copy(), stamp);
 		return rep;
 	}
 	
@@ -233,5 +352,9 @@ public class Identity {
 	public void delete() {
 		Persistance.getSession().delete(this);
 		Persistance.commit();
+		invalidate();
+		// The descendants of the identity in the hierarchy are removed with it
+		invalidateAllAccess();
+		SearchIndex.remove(this.getId());
 	}
 }
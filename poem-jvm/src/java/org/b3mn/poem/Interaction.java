@@ -96,10 +96,13 @@ public class Interaction {
 	public void delete() {
 		Persistance.getSession().delete(this);
 		Persistance.commit();
+		// The interaction may be inherited along the hierarchy
+		Identity.invalidateAllAccess();
 	}
 	public long save() {
 		Persistance.getSession().saveOrUpdate(this);
 		Persistance.commit();
+		Identity.invalidateAllAccess();
 		return this.getId();
 	}
 	public String getUri() {
@@ -0,0 +1,322 @@
+package org.b3mn.poem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.b3mn.poem.util.Stylesheets;
+import org.hibernate.Hibernate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Converts the eRDF content of all models to JSON once, so that Representation.getJson() returns
+// the stored JSON instead of transforming the eRDF on each read. The models are converted in
+// batches of getBatchSize() models by parallel threads. Each converted model is verified: the JSON
+// has to contain a shape for each shape that the canvas of the eRDF renders. Models that fail are
+// reported and keep their eRDF, which is still converted on each read.
+//
+// After each batch, the id of its last model is saved in the checkpoint file, a migration that
+// was interrupted resumes after it. Models that were saved during the migration keep their new
+// content. A run only visits the models after the checkpoint, so models with a lower id that are
+// saved as eRDF later are only converted by a rescan, see setRescan(), which starts again at the
+// first model; deleting the checkpoint file does the same but also drops the counters.
+//
+// Run offline with the classes and the libraries of the backend:
+// java org.b3mn.poem.JsonMigration [-rescan] <WEB-INF directory> <server url> [threads] [checkpoint file]
+public class JsonMigration {
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final Pattern RENDER = Pattern.compile("rel=\"oryx-render\"\\s+href=\"([^\"]*)\"");
+
+	private final String serverUrl;
+	private final File checkpoint;
+	private final int threads;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private boolean rescan = false;
+
+	private final AtomicInteger converted = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private final AtomicInteger changed = new AtomicInteger();
+	// Model id -> reason, also of previous runs
+	private final Map<Long, String> failures = new TreeMap<Long, String>();
+	private long lastId = 0;
+	private long millis = 0;
+
+	public JsonMigration(String serverUrl, File checkpoint, int threads) {
+		this.serverUrl = serverUrl;
+		this.checkpoint = checkpoint;
+		this.threads = threads;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isRescan() {
+		return rescan;
+	}
+
+	// Whether run() starts at the first model instead of the checkpoint, the failures of previous
+	// runs are tried again
+	public void setRescan(boolean rescan) {
+		this.rescan = rescan;
+	}
+
+	// Converts the models after the checkpoint, or all models of a rescan
+	public void run() throws Exception {
+		readCheckpoint();
+		if (rescan) {
+			lastId = 0;
+			synchronized (failures) {
+				failures.clear();
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.currentTimeMillis();
+		try {
+			List<Long> ids;
+			while (!(ids = nextBatch()).isEmpty()) {
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+				for (final Long id : ids) {
+					tasks.add(new Callable<Object>() {
+						public Object call() {
+							migrate(id);
+							return null;
+						}
+					});
+				}
+				for (Future<Object> result : executor.invokeAll(tasks)) {
+					result.get();
+				}
+				lastId = ids.get(ids.size() - 1);
+				writeCheckpoint();
+			}
+		} finally {
+			executor.shutdown();
+			millis += System.currentTimeMillis() - start;
+		}
+	}
+
+	public int getConverted() {
+		return converted.get();
+	}
+
+	// Models that were JSON already
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	// Models that were saved while they were converted
+	public int getChanged() {
+		return changed.get();
+	}
+
+	public Map<Long, String> getFailures() {
+		synchronized (failures) {
+			return new TreeMap<Long, String>(failures);
+		}
+	}
+
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d models converted, %d already JSON, %d changed meanwhile, %d failed in %.1f s "
+				+ "(%.1f models/s)%n", getConverted(), getSkipped(), getChanged(), getFailures().size(), millis / 1000.0,
+				millis > 0 ? (getConverted() + getSkipped() + getChanged()) * 1000.0 / millis : 0.0));
+		for (Map.Entry<Long, String> failure : getFailures().entrySet()) {
+			report.append("content ").append(failure.getKey()).append(": ").append(failure.getValue())
+					.append(String.format("%n"));
+		}
+		return report.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	protected List<Long> nextBatch() {
+		List<Integer> ids = Persistance.getSession()
+			.createSQLQuery("SELECT content.id FROM content WHERE content.id>:last "
+					+ "AND content.erdf ~ '^[[:space:]]*<' ORDER BY content.id LIMIT :limit")
+			.addScalar("id", Hibernate.INTEGER)
+			.setLong("last", lastId)
+			.setInteger("limit", batchSize)
+			.list();
+		Persistance.commit();
+		List<Long> batch = new ArrayList<Long>();
+		for (Integer id : ids) {
+			batch.add(id.longValue());
+		}
+		return batch;
+	}
+
+	protected void migrate(long id) {
+		try {
+			String erdf = (String) Persistance.getSession()
+				.createSQLQuery("SELECT content.erdf FROM content WHERE id=:id")
+				.setLong("id", id)
+				.uniqueResult();
+			Persistance.commit();
+			if ((erdf == null) || Representation.isJson(erdf)) {
+				skipped.incrementAndGet();
+				return;
+			}
+
+			String json = Representation.erdfToJson(erdf, serverUrl);
+			if (json == null) {
+				fail(id, "the eRDF cannot be transformed");
+				return;
+			}
+			json = Representation.checkForWrongUri(json);
+			String problem = verify(erdf, json);
+			if (problem != null) {
+				fail(id, problem);
+				return;
+			}
+
+			// Keeps content that was saved meanwhile
+			int updated = Persistance.getSession()
+				.createSQLQuery("UPDATE content SET erdf=:json WHERE id=:id AND erdf=:erdf")
+				.setString("json", json)
+				.setLong("id", id)
+				.setString("erdf", erdf)
+				.executeUpdate();
+			Persistance.commit();
+			if (updated > 0) {
+				converted.incrementAndGet();
+			} else {
+				changed.incrementAndGet();
+			}
+		} catch (Exception e) {
+			fail(id, e.toString());
+		}
+	}
+
+	// Returns why the JSON doesn't match the eRDF or null
+	protected static String verify(String erdf, String json) {
+		try {
+			JSONObject canvas = new JSONObject(json);
+			if (!canvas.has("resourceId") || !canvas.has("childShapes")) {
+				return "the JSON has no canvas";
+			}
+			List<String> rendered = new ArrayList<String>();
+			Matcher matcher = RENDER.matcher(erdf);
+			while (matcher.find()) {
+				if (!rendered.contains(matcher.group(1))) {
+					rendered.add(matcher.group(1));
+				}
+			}
+			int shapes = countShapes(canvas.getJSONArray("childShapes"));
+			if (shapes != rendered.size()) {
+				return "the eRDF renders " + rendered.size() + " shapes, the JSON has " + shapes;
+			}
+			return null;
+		} catch (JSONException e) {
+			return "invalid JSON: " + e.getMessage();
+		}
+	}
+
+	private static int countShapes(JSONArray shapes) throws JSONException {
+		int count = shapes.length();
+		for (int i = 0; i < shapes.length(); i++) {
+			JSONArray children = shapes.getJSONObject(i).optJSONArray("childShapes");
+			if (children != null) {
+				count += countShapes(children);
+			}
+		}
+		return count;
+	}
+
+	private void fail(long id, String reason) {
+		synchronized (failures) {
+			failures.put(id, reason);
+		}
+	}
+
+	private void readCheckpoint() throws IOException {
+		if (!checkpoint.exists()) {
+			return;
+		}
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(checkpoint);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		lastId = Long.parseLong(properties.getProperty("last_id", "0"));
+		converted.set(Integer.parseInt(properties.getProperty("converted", "0")));
+		skipped.set(Integer.parseInt(properties.getProperty("skipped", "0")));
+		changed.set(Integer.parseInt(properties.getProperty("changed", "0")));
+		millis = Long.parseLong(properties.getProperty("millis", "0"));
+		for (String name : properties.stringPropertyNames()) {
+			if (name.startsWith("failure.")) {
+				fail(Long.parseLong(name.substring("failure.".length())), properties.getProperty(name));
+			}
+		}
+	}
+
+	// Replaces the checkpoint file, so that an interruption leaves the previous one
+	private void writeCheckpoint() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("last_id", String.valueOf(lastId));
+		properties.setProperty("converted", String.valueOf(getConverted()));
+		properties.setProperty("skipped", String.valueOf(getSkipped()));
+		properties.setProperty("changed", String.valueOf(getChanged()));
+		properties.setProperty("millis", String.valueOf(millis));
+		for (Map.Entry<Long, String> failure : getFailures().entrySet()) {
+			properties.setProperty("failure." + failure.getKey(), failure.getValue());
+		}
+		File file = new File(checkpoint.getPath() + ".tmp");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "JsonMigration checkpoint");
+		} finally {
+			out.close();
+		}
+		if (!file.renameTo(checkpoint)) {
+			checkpoint.delete();
+			if (!file.renameTo(checkpoint)) {
+				throw new IOException("Cannot write " + checkpoint);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		boolean rescan = (args.length > 0) && args[0].equals("-rescan");
+		if (rescan) {
+			String[] rest = new String[args.length - 1];
+			System.arraycopy(args, 1, rest, 0, rest.length);
+			args = rest;
+		}
+		if (args.length < 2) {
+			System.err.println("Usage: java org.b3mn.poem.JsonMigration [-rescan] <WEB-INF directory> <server url> "
+					+ "[threads] [checkpoint file]");
+			System.exit(1);
+		}
+		Stylesheets.setDirectory(new File(args[0], "lib"));
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		File checkpoint = new File(args.length > 3 ? args[3] : "json-migration.checkpoint");
+		JsonMigration migration = new JsonMigration(args[1], checkpoint, threads);
+		migration.setRescan(rescan);
+		migration.run();
+		System.out.print(migration.getReport());
+	}
+}
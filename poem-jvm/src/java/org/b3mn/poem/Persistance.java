@@ -23,12 +23,20 @@
 
 package org.b3mn.poem;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.classic.Session;
 import org.hibernate.cfg.AnnotationConfiguration;
 
 
 public class Persistance {
+	// Maximum number of values in the IN list of a query, see batches()
+	public static final int BATCH_SIZE = 500;
+	
 	private static final SessionFactory sessionFactory;
 	
 	static {
@@ -51,4 +59,15 @@ public class Persistance {
 	 public static void commit() {
 		 sessionFactory.getCurrentSession().getTransaction().commit();
 	 }
+	 
+	 // Splits the values of an IN list into parts of at most BATCH_SIZE distinct values,
+	 // so that queries for many objects stay below the parameter limit of the database
+	 public static <T> List<List<T>> batches(Collection<T> values) {
+		 List<T> distinct = new ArrayList<T>(new LinkedHashSet<T>(values));
+		 List<List<T>> batches = new ArrayList<List<T>>();
+		 for (int start = 0; start < distinct.size(); start += BATCH_SIZE) {
+			 batches.add(distinct.subList(start, Math.min(start + BATCH_SIZE, distinct.size())));
+		 }
+		 return batches;
+	 }
 }
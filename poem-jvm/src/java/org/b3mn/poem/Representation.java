@@ -26,11 +26,11 @@ package org.b3mn.poem;
 import java.io.ByteArrayInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Date;
+import java.util.regex.Pattern;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -42,12 +42,14 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.b3mn.poem.business.RenderService;
+import org.b3mn.poem.business.SearchIndex;
 import org.b3mn.poem.util.JsonErdfTransformation;
 import org.b3mn.poem.util.RdfJsonTransformation;
+import org.b3mn.poem.util.Stylesheets;
 import org.hibernate.CacheMode;
 import org.hibernate.HibernateException;
 import org.hibernate.ScrollMode;
@@ -59,6 +61,16 @@ import org.xml.sax.SAXException;
 @Entity
 public class Representation {
 	
+	private static final Pattern WRONG_URI = Pattern.compile("http://[^/^\"]*/oryx/stencilsets/");
+	
+	// Parses the RDF of erdfToJson(), one per thread
+	private static final DocumentBuilderFactory rdfBuilderFactory = DocumentBuilderFactory.newInstance();
+	private static final ThreadLocal<DocumentBuilder> rdfBuilder = new ThreadLocal<DocumentBuilder>();
+	
+	static {
+		rdfBuilderFactory.setNamespaceAware(true);
+	}
+	
 	@Id @GeneratedValue(strategy=GenerationType.IDENTITY)
     private long id;
 	private int ident_id;
@@ -98,10 +110,14 @@ public class Representation {
 		return content;
     }
     /*
-     * Used to identify json
+     * Used to identify json, eRDF may start with whitespace
      */
     static public boolean isJson(String content){
-    	return !content.startsWith("<");
+    	for (int i = 0; i < content.length(); i++) {
+    		if (!Character.isWhitespace(content.charAt(i)))
+    			return content.charAt(i) != '<';
+    	}
+    	return true;
     }
 
     /**
@@ -140,6 +156,15 @@ public class Representation {
     	}
     }
     
+    // Returns the JSON of the content, which may be JSON or eRDF, or null if the eRDF is invalid
+    public static String toJson(String content, String serverUrl) {
+    	if (isJson(content)) {
+    		return checkForWrongUri(content);
+    	}
+    	String json = erdfToJson(content, serverUrl);
+    	return json != null ? checkForWrongUri(json) : null;
+    }
+    
 	public void setContent(String erdf) {
 		// Check whether the content already exists
 		if (contentExists()) {
@@ -173,7 +198,7 @@ public class Representation {
 		if (contentExists()) {
 			// Create and execute UPDATE query
 			Persistance.getSession().
-			createSQLQuery("UPDATE content SET svg=:svg WHERE id=:id").
+			createSQLQuery("UPDATE content SET svg=:svg, svg_version=svg_version+1 WHERE id=:id").
 			setString("svg", svg).
 			setLong("id", id).executeUpdate();
 			Persistance.commit();
@@ -278,6 +303,12 @@ public class Representation {
 	}
 	
     public static void update(int id, String title, String summary, String content, String svg) {
+    	update(id, title, summary, content, svg, null);
+    }
+    
+    // Updates the representation of the model with the given id, a new content or svg is also
+    // saved as Revision of the author
+    public static void update(int id, String title, String summary, String content, String svg, Identity author) {
     	
     	Representation rep = (Representation) Persistance.getSession()
     	.createSQLQuery("select {representation.*} from {representation} where ident_id = :ident_id")
@@ -293,13 +324,17 @@ public class Representation {
 	        rep.setUpdated(date);
 	        Persistance.getSession().flush();
 	        Persistance.commit();
+	        Identity.invalidateRepresentation(id);
 	        
 	        if(content != null) rep.setContent(content);
 	        if(svg != null) {
 	        	rep.setSvg(svg);
-	        	rep.setPngLarge(null); // Pngs has to be rerendered on the next request
-	        	rep.setPngSmall(null);
+	        	RenderService.enqueue(rep.getId()); // The images are served stale until rendered
 	        }
+	        if ((author != null) && ((content != null) || (svg != null))) {
+	        	Revision.save(rep, author, content, svg);
+	        }
+	        SearchIndex.update(Identity.instance(id), rep, content);
 	        
 	    }
         catch(HibernateException ex) {
@@ -307,6 +342,21 @@ public class Representation {
         }
     } 
 	
+	// Returns a detached copy of the meta data, see Identity.read()
+	protected Representation copy() {
+		Representation copy = new Representation();
+		copy.id = this.id;
+		copy.ident_id = this.ident_id;
+		copy.mime_type = this.mime_type;
+		copy.language = this.language;
+		copy.title = this.title;
+		copy.type = this.type;
+		copy.summary = this.summary;
+		copy.created = this.created != null ? (Date) this.created.clone() : null;
+		copy.updated = this.updated != null ? (Date) this.updated.clone() : null;
+		return copy;
+	}
+	
 	public static Representation instance(Identity model) {
 		Representation representation = new Representation();
 		representation.setIdent_id(model.getId());
@@ -350,24 +400,23 @@ public class Representation {
 		"<link rel=\"schema.raziel\" href=\"http://raziel.org/\" />" +
 		"</head><body>" + erdf + "</body></html>";
         
-		InputStream xsltStream = Dispatcher.servletContext.getResourceAsStream("/WEB-INF/lib/extract-rdf.xsl");
-        Source xsltSource = new StreamSource(xsltStream);
         Source erdfSource = new StreamSource(new StringReader(serializedDOM));
 
-        TransformerFactory transFact =
-                TransformerFactory.newInstance();
-        Transformer trans = transFact.newTransformer(xsltSource);
+        Transformer trans = Stylesheets.getTransformer("extract-rdf.xsl");
         StringWriter output = new StringWriter();
         trans.transform(erdfSource, new StreamResult(output));
 		return output.toString();
 	}
 	
 	protected static String erdfToJson(String erdf, String serverUrl){
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		DocumentBuilder builder;
 		try {
-			builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = rdfBuilder.get();
+			if (builder == null) {
+				builder = rdfBuilderFactory.newDocumentBuilder();
+				rdfBuilder.set(builder);
+			} else {
+				builder.reset();
+			}
 			Document rdfDoc = builder.parse(new ByteArrayInputStream(erdfToRdf(erdf).getBytes(("UTF-8"))));
 			return RdfJsonTransformation.toJson(rdfDoc, serverUrl).toString();
 		} catch (ParserConfigurationException e) {
@@ -382,9 +431,9 @@ public class Representation {
 		return null;
 	}
 	
-	private static String checkForWrongUri(String json) {
+	protected static String checkForWrongUri(String json) {
 		//replace old bpmn uris
-		return json.replaceAll("http://[^/^\"]*/oryx/stencilsets/", "/oryx/stencilsets/");
+		return WRONG_URI.matcher(json).replaceAll("/oryx/stencilsets/");
 	}
 
 	public static String jsonToErdf(String json){
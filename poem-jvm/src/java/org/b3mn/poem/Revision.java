@@ -0,0 +1,210 @@
+package org.b3mn.poem;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.b3mn.poem.util.Delta;
+import org.hibernate.Hibernate;
+
+// A saved version of the content and the SVG of a model. Each save of a model adds a revision
+// to the revision table. Every SNAPSHOT_INTERVAL-th revision is stored completely, the others
+// as Delta against the previous revision, both gzipped. A revision is restored from at most
+// SNAPSHOT_INTERVAL rows: the last snapshot and the following deltas.
+public class Revision {
+
+	public static final int SNAPSHOT_INTERVAL = 20;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// Serialize the numbering of the revisions of a representation. Saves of different models only
+	// share a lock if their ids fall onto the same stripe, the unique constraint on
+	// (representation_id, number) guards against other servers.
+	private static final int LOCK_STRIPES = 64;
+	private static final Object[] locks = new Object[LOCK_STRIPES];
+	static {
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	private int number;
+	private Date created;
+	private String author;
+	private String content;
+	private String svg;
+
+	protected Revision(int number, Date created, String author) {
+		this.number = number;
+		this.created = created;
+		this.author = author;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	// The uri of the user that saved the revision
+	public String getAuthor() {
+		return author;
+	}
+
+	// Content and SVG are only loaded by get()
+	public String getContent() {
+		return content;
+	}
+
+	public String getSvg() {
+		return svg;
+	}
+
+	public static boolean isSnapshot(int number) {
+		return (number - 1) % SNAPSHOT_INTERVAL == 0;
+	}
+
+	// Adds a revision of the representation, if content or svg are null, the revision keeps
+	// those of the previous revision or, for the first revision, those stored in the representation
+	public static Revision save(Representation representation, Identity author, String content, String svg) {
+		synchronized (locks[(int) (representation.getId() % LOCK_STRIPES)]) {
+			int last = getLastNumber(representation.getId());
+			int number = last + 1;
+			byte[][] previous = null;
+			if ((last > 0) && (!isSnapshot(number) || (content == null) || (svg == null))) {
+				previous = restore(representation.getId(), last);
+			}
+			byte[] contentData = content != null ? content.getBytes(UTF8)
+					: previous != null ? previous[0] : bytes(representation.getPureContent());
+			byte[] svgData = svg != null ? svg.getBytes(UTF8)
+					: previous != null ? previous[1] : bytes(representation.getSvg());
+
+			boolean snapshot = isSnapshot(number) || (previous == null);
+			if (!snapshot) {
+				contentData = Delta.create(previous[0], contentData);
+				svgData = Delta.create(previous[1], svgData);
+			}
+			Date created = new Date();
+			Persistance.getSession()
+				.createSQLQuery("INSERT INTO revision (representation_id, number, created, author_id, snapshot, content, svg) "
+						+ "VALUES (:representation_id, :number, :created, :author_id, :snapshot, :content, :svg)")
+				.setLong("representation_id", representation.getId())
+				.setInteger("number", number)
+				.setTimestamp("created", created)
+				.setInteger("author_id", author.getId())
+				.setBoolean("snapshot", snapshot)
+				.setBinary("content", Delta.compress(contentData))
+				.setBinary("svg", Delta.compress(svgData))
+				.executeUpdate();
+			Persistance.commit();
+			return new Revision(number, created, author.getUri());
+		}
+	}
+
+	// Returns the revisions of the representation without content, the latest first
+	@SuppressWarnings("unchecked")
+	public static List<Revision> list(Representation representation) {
+		List<Object[]> rows = Persistance.getSession()
+			.createSQLQuery("SELECT revision.number, revision.created, revision.author_id FROM revision "
+					+ "WHERE revision.representation_id=:representation_id ORDER BY revision.number DESC")
+			.addScalar("number", Hibernate.INTEGER)
+			.addScalar("created", Hibernate.TIMESTAMP)
+			.addScalar("author_id", Hibernate.INTEGER)
+			.setLong("representation_id", representation.getId())
+			.list();
+		Persistance.commit();
+
+		Set<Integer> authorIds = new HashSet<Integer>();
+		for (Object[] row : rows) {
+			if (row[2] != null) {
+				authorIds.add((Integer) row[2]);
+			}
+		}
+		Map<Integer, Identity> authors = Identity.instances(authorIds);
+		List<Revision> revisions = new ArrayList<Revision>();
+		for (Object[] row : rows) {
+			Identity author = authors.get(row[2]);
+			revisions.add(new Revision((Integer) row[0], (Date) row[1], author != null ? author.getUri() : null));
+		}
+		return revisions;
+	}
+
+	// Returns the revision with content and SVG or null if it doesn't exist
+	public static Revision get(Representation representation, int number) {
+		Object[] row = (Object[]) Persistance.getSession()
+			.createSQLQuery("SELECT revision.number, revision.created, revision.author_id FROM revision "
+					+ "WHERE revision.representation_id=:representation_id AND revision.number=:number")
+			.addScalar("number", Hibernate.INTEGER)
+			.addScalar("created", Hibernate.TIMESTAMP)
+			.addScalar("author_id", Hibernate.INTEGER)
+			.setLong("representation_id", representation.getId())
+			.setInteger("number", number)
+			.uniqueResult();
+		Persistance.commit();
+		if (row == null) {
+			return null;
+		}
+		Identity author = row[2] != null ? Identity.instance((Integer) row[2]) : null;
+		Revision revision = new Revision(number, (Date) row[1], author != null ? author.getUri() : null);
+		byte[][] data = restore(representation.getId(), number);
+		revision.content = new String(data[0], UTF8);
+		revision.svg = new String(data[1], UTF8);
+		return revision;
+	}
+
+	protected static int getLastNumber(long representationId) {
+		Integer number = (Integer) Persistance.getSession()
+			.createSQLQuery("SELECT revision.number FROM revision WHERE revision.representation_id=:representation_id "
+					+ "ORDER BY revision.number DESC LIMIT 1")
+			.addScalar("number", Hibernate.INTEGER)
+			.setLong("representation_id", representationId)
+			.uniqueResult();
+		Persistance.commit();
+		return number != null ? number : 0;
+	}
+
+	// Returns content and SVG of the revision, from the last snapshot and the following deltas
+	@SuppressWarnings("unchecked")
+	protected static byte[][] restore(long representationId, int number) {
+		int snapshot = number - (number - 1) % SNAPSHOT_INTERVAL;
+		List<Object[]> rows = Persistance.getSession()
+			.createSQLQuery("SELECT revision.number, revision.snapshot, revision.content, revision.svg FROM revision "
+					+ "WHERE revision.representation_id=:representation_id AND revision.number BETWEEN :first AND :last "
+					+ "ORDER BY revision.number")
+			.addScalar("number", Hibernate.INTEGER)
+			.addScalar("snapshot", Hibernate.BOOLEAN)
+			.addScalar("content", Hibernate.BINARY)
+			.addScalar("svg", Hibernate.BINARY)
+			.setLong("representation_id", representationId)
+			.setInteger("first", snapshot)
+			.setInteger("last", number)
+			.list();
+		Persistance.commit();
+
+		if (rows.isEmpty() || !((Boolean) rows.get(0)[1]) || (rows.size() != number - snapshot + 1)) {
+			throw new IllegalStateException("Revision " + number + " of representation " + representationId
+					+ " cannot be restored");
+		}
+		byte[][] data = null;
+		for (Object[] row : rows) {
+			byte[] content = Delta.decompress((byte[]) row[2]);
+			byte[] svg = Delta.decompress((byte[]) row[3]);
+			if (data == null) {
+				data = new byte[][] { content, svg };
+			} else {
+				data = new byte[][] { Delta.apply(data[0], content), Delta.apply(data[1], svg) };
+			}
+		}
+		return data;
+	}
+
+	private static byte[] bytes(String value) {
+		return value != null ? value.getBytes(UTF8) : new byte[0];
+	}
+}
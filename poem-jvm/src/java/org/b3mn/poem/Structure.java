@@ -53,6 +53,9 @@ public class Structure {
 		setInteger("id", owner_id).
 		uniqueResult();
 		Persistance.commit();
+		// The identity may inherit rights at its place in the hierarchy
+		Identity identity = Identity.instance(owner_id);
+		if (identity != null) identity.invalidateAccess();
 		
 		return structure;
 	}
@@ -0,0 +1,49 @@
+package org.b3mn.poem.business;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.b3mn.poem.util.AccessRight;
+
+// Keeps the access rights of subjects on models that the Dispatcher checks for each request. The
+// rights are kept by an EntityCache, so they share the size, the time to live and the clearing
+// with the identities, representations and access lists that Identity caches. The rights of a
+// model are dropped together with its access list by Identity.invalidateAccess(), all rights by
+// Identity.invalidateAllAccess() after the hierarchy or the interactions were changed, because
+// rights are inherited along the hierarchy and may change for any model.
+public class AccessRightCache {
+
+	// Model id -> open id of the subject -> access right
+	private static final EntityCache<Integer, Map<String, AccessRight>> rights =
+		new EntityCache<Integer, Map<String, AccessRight>>("access right");
+
+	public static AccessRight getAccessRight(Model model, String openId) {
+		Map<String, AccessRight> modelRights = rights.get(model.getId());
+		if (modelRights != null) {
+			AccessRight right = modelRights.get(openId);
+			if (right != null) return right;
+		}
+		long stamp = rights.stamp();
+		AccessRight right = model.getAccessRight(openId);
+		if (modelRights != null) {
+			// Expires with the rights that were read first. If the rights of the model were
+			// invalidated meanwhile, the map isn't cached any longer.
+			modelRights.put(openId, right);
+		} else {
+			modelRights = new ConcurrentHashMap<String, AccessRight>();
+			modelRights.put(openId, right);
+			// Not cached if the rights were changed while it was read
+			rights.put(model.getId(), modelRights, stamp);
+		}
+		return right;
+	}
+
+	// Removes the rights of the model with the given id
+	public static void invalidate(int id) {
+		rights.invalidate(id);
+	}
+
+	public static void clear() {
+		rights.clear();
+	}
+}
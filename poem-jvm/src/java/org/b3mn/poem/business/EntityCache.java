@@ -0,0 +1,180 @@
+package org.b3mn.poem.business;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps entities that are read for nearly each request, e.g. identities and representations of
+// models, see Identity, and access rights, see AccessRightCache. Each cache keeps at most
+// getMaxSize() entries and drops the least recently used ones, an entry expires getTtl()
+// milliseconds after it was read from the database.
+//
+// The caches are filled by read-through: get() returns null if the entry is missing or expired,
+// the caller reads the entity and passes it to put() together with the stamp() that it took
+// before the read. Everything that changes a cached entity has to call invalidate() after the
+// change was committed. The time to live limits how long changes that are made outside of POEM,
+// e.g. by database functions or other servers, remain invisible.
+public class EntityCache<K, V> {
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+	public static final long DEFAULT_TTL = 300000;
+
+	// Properties of backend.properties, the time to live is given in seconds
+	public static final String SIZE_PROPERTY = "org.b3mn.poem.cache.size";
+	public static final String TTL_PROPERTY = "org.b3mn.poem.cache.ttl";
+
+	private static volatile int maxSize = DEFAULT_MAX_SIZE;
+	private static volatile long ttl = DEFAULT_TTL;
+
+	private static final List<EntityCache<?, ?>> caches = new ArrayList<EntityCache<?, ?>>();
+
+	private static class CacheEntry<V> {
+		final V value;
+		final long expires;
+
+		CacheEntry(V value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+	private final String name;
+
+	// Key -> entry, in the order of the last access
+	private final Map<K, CacheEntry<V>> entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+			return size() > maxSize;
+		}
+	};
+
+	// Counts the invalidations to detect entities that were read from the database before a change
+	private long invalidations = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public EntityCache(String name) {
+		this.name = name;
+		synchronized (caches) {
+			caches.add(this);
+		}
+	}
+
+	public static int getMaxSize() {
+		return maxSize;
+	}
+
+	public static long getTtl() {
+		return ttl;
+	}
+
+	// Sets the maximum number of entries of each cache and their time to live in milliseconds,
+	// a size of 0 disables the caches
+	public static void configure(int maxSize, long ttl) {
+		EntityCache.maxSize = maxSize;
+		EntityCache.ttl = ttl;
+		clearAll();
+	}
+
+	// Configures the caches with the properties SIZE_PROPERTY and TTL_PROPERTY, missing properties
+	// keep their defaults
+	public static void configure(Properties properties) {
+		String size = properties.getProperty(SIZE_PROPERTY);
+		String seconds = properties.getProperty(TTL_PROPERTY);
+		configure(size != null ? Integer.parseInt(size.trim()) : DEFAULT_MAX_SIZE,
+				seconds != null ? Long.parseLong(seconds.trim()) * 1000 : DEFAULT_TTL);
+	}
+
+	public static void clearAll() {
+		synchronized (caches) {
+			for (EntityCache<?, ?> cache : caches) {
+				cache.clear();
+			}
+		}
+	}
+
+	// Returns the name, size, hits and misses of each cache
+	public static String getStatistics() {
+		StringBuilder statistics = new StringBuilder();
+		synchronized (caches) {
+			for (EntityCache<?, ?> cache : caches) {
+				statistics.append(cache.toString()).append(String.format("%n"));
+			}
+		}
+		return statistics.toString();
+	}
+
+	// Returns the cached entity or null
+	public V get(K key) {
+		synchronized (entries) {
+			CacheEntry<V> entry = entries.get(key);
+			if (entry != null) {
+				if (entry.expires > System.currentTimeMillis()) {
+					hits.incrementAndGet();
+					return entry.value;
+				}
+				entries.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	// Has to be taken before the entity is read from the database
+	public long stamp() {
+		synchronized (entries) {
+			return invalidations;
+		}
+	}
+
+	// Caches the entity, unless the cache was invalidated since the stamp was taken
+	public void put(K key, V value, long stamp) {
+		if (value == null) {
+			return;
+		}
+		synchronized (entries) {
+			if ((stamp == invalidations) && (maxSize > 0)) {
+				entries.put(key, new CacheEntry<V>(value, System.currentTimeMillis() + ttl));
+			}
+		}
+	}
+
+	public void invalidate(K key) {
+		synchronized (entries) {
+			entries.remove(key);
+			invalidations++;
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			invalidations++;
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d entries, %d hits, %d misses", name, size(), getHits(), getMisses());
+	}
+}
@@ -97,6 +97,70 @@ public class Model extends BusinessObject {
 			throw new Exception("Model cannot be initalized");
 	}
 	
+	// Initializes a model with data that was already loaded, see getModels()
+	protected Model(Identity identity, Representation representation, String author) {
+		super(identity);
+		this.representation = representation;
+		this.author = author;
+	}
+	
+	// Returns the models with the given uris that the subject or the public user is allowed to 
+	// read, in the order of the uris. Uris of models that don't exist or may not be read are skipped.
+	// Unlike creating the models one by one, this needs two queries per Persistance.BATCH_SIZE 
+	// models: one for identities and representations and one for the access rights and authors. 
+	@SuppressWarnings("unchecked")
+	public static List<Model> getModels(Identity subject, Collection<String> uris) {
+		Map<String, Model> models = new HashMap<String, Model>();
+		for (List<String> batch : Persistance.batches(uris)) {
+			Session session = Persistance.getSession();
+			List<Object[]> rows = session
+				.createSQLQuery("SELECT {identity.*}, {representation.*} FROM identity, representation " +
+						"WHERE identity.uri IN (:uris) AND representation.ident_id=identity.id")
+				.addEntity("identity", Identity.class)
+				.addEntity("representation", Representation.class)
+				.setParameterList("uris", batch)
+				.list();
+			List<Object[]> rights = session
+				.createSQLQuery("SELECT access.object_name, access.subject_name, access.access_term FROM access " +
+						"WHERE access.object_name IN (:uris) AND " +
+						"(access.subject_name IN (:subjects) OR access.access_term='owner')")
+				.setParameterList("uris", batch)
+				.setParameterList("subjects", new String[] { subject.getUri(), Dispatcher.getPublicUser() })
+				.list();
+			Persistance.commit();
+			
+			// Highest right of the subject and the public user, and the owner of each model
+			Map<String, AccessRight> accessRights = new HashMap<String, AccessRight>();
+			Map<String, String> authors = new HashMap<String, String>();
+			for (Object[] right : rights) {
+				String object = (String) right[0];
+				String term = (String) right[2];
+				if (term.equals("owner")) authors.put(object, (String) right[1]);
+				if (right[1].equals(subject.getUri()) || right[1].equals(Dispatcher.getPublicUser())) {
+					AccessRight accessRight = Enum.valueOf(AccessRight.class, term.toUpperCase());
+					AccessRight current = accessRights.get(object);
+					if ((current == null) || (accessRight.compareTo(current) > 0))
+						accessRights.put(object, accessRight);
+				}
+			}
+			
+			for (Object[] row : rows) {
+				Identity identity = (Identity) row[0];
+				AccessRight accessRight = accessRights.get(identity.getUri());
+				if ((accessRight != null) && (accessRight.compareTo(AccessRight.READ) >= 0)) {
+					models.put(identity.getUri(), 
+							new Model(identity, (Representation) row[1], authors.get(identity.getUri())));
+				}
+			}
+		}
+		List<Model> result = new ArrayList<Model>();
+		for (String uri : uris) {
+			Model model = models.remove(uri);
+			if (model != null) result.add(model);
+		}
+		return result;
+	}
+	
 	public int getId() {
 		return this.identity.getId();
 	}
@@ -109,9 +173,11 @@ public class Model extends BusinessObject {
 		return this.representation.getTitle();
 	}
 	
+	// Saved like any other change of the representation, which updates the time of the last
+	// change, the cache and the SearchIndex
 	public void setTitle(String title) {
-		this.representation.setTitle(title);
-		updateDBObject(representation);
+		Representation.update(getId(), title, null, null, null);
+		this.representation = this.identity.read();
 	}
 	
 	public String getSummary() {
@@ -119,8 +185,8 @@ public class Model extends BusinessObject {
 	}
 	
 	public void setSummary(String summary) {
-		this.representation.setSummary(summary);
-		updateDBObject(representation);
+		Representation.update(getId(), null, summary, null, null);
+		this.representation = this.identity.read();
 	}
 	
 	public String getType() {
@@ -300,6 +366,7 @@ public class Model extends BusinessObject {
 				right.setTerm(term); // Overwrite old term
 				right.save();
 			}
+			this.identity.invalidateAccess();
 			return true;
 		}
 		
@@ -323,6 +390,7 @@ public class Model extends BusinessObject {
 
 						
 				right.delete();
+				this.identity.invalidateAccess();
 				return true; // Deleted
 			} catch (Exception e) { return false; }
 		} else {
@@ -0,0 +1,320 @@
+package org.b3mn.poem.business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.batik.transcoder.Transcoder;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.apache.fop.svg.PDFTranscoder;
+import org.b3mn.poem.Persistance;
+import org.b3mn.poem.Representation;
+import org.hibernate.Hibernate;
+
+// Renders the PNGs and the PDF of models in the background and keeps them in the content table.
+// Saving the SVG of a model increments content.svg_version and enqueues a render job, the job
+// stores the images together with the version of the SVG they were rendered from in
+// content.rendered_version. Until the job is done, getImage() returns the images of the previous
+// SVG (stale-while-revalidate). Only models that have no image yet wait for the job.
+//
+// Each format is rendered and stored on its own. A format that cannot be rendered is stored as
+// null, the version is recorded anyway, so that a broken SVG is not rendered again on each request.
+// getImage() returns FAILED for such a format until the next SVG is saved.
+//
+// The jobs run on a pool of getThreads() threads and wait in a queue of at most getQueueSize()
+// jobs, a job that is already waiting for a model takes the later requests for the model as well.
+// If the queue is full the images stay stale until the next request or save of the model.
+public class RenderService {
+
+	public enum Format {
+		PNG_LARGE("png_large"), PNG_SMALL("png_small"), PDF("pdf");
+
+		private final String column;
+
+		private Format(String column) {
+			this.column = column;
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		public byte[] render(String svg) throws TranscoderException, IOException {
+			Transcoder transcoder;
+			if (this == PDF) {
+				transcoder = new PDFTranscoder();
+			} else {
+				transcoder = new PNGTranscoder();
+				if (this == PNG_SMALL) {
+					transcoder.addTranscodingHint(PNGTranscoder.KEY_MAX_WIDTH, THUMBNAIL_WIDTH);
+					transcoder.addTranscodingHint(PNGTranscoder.KEY_MAX_HEIGHT, THUMBNAIL_HEIGHT);
+				}
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			transcoder.transcode(new TranscoderInput(new ByteArrayInputStream(svg.getBytes("UTF-8"))),
+					new TranscoderOutput(out));
+			return out.toByteArray();
+		}
+	}
+
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	// Returned by getImage() if the current SVG cannot be rendered in the format, compare with ==
+	public static final byte[] FAILED = new byte[0];
+
+	// How long a request for a model without images waits for the render job, in milliseconds
+	public static final long WAIT_TIMEOUT = 30000;
+
+	private static final Float THUMBNAIL_WIDTH = 320f;
+	private static final Float THUMBNAIL_HEIGHT = 240f;
+
+	// Rendering needs much memory, so by default only half of the processors render
+	private static int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	private static int queueSize = DEFAULT_QUEUE_SIZE;
+	private static ThreadPoolExecutor executor = null;
+
+	// Representation id -> job that is waiting in the queue
+	private static final Map<Long, Job> queued = new HashMap<Long, Job>();
+
+	private static final AtomicInteger renders = new AtomicInteger();
+	private static final AtomicInteger coalesced = new AtomicInteger();
+	private static final AtomicInteger rejected = new AtomicInteger();
+	private static final AtomicInteger failures = new AtomicInteger();
+
+	public static class Job implements Runnable {
+
+		private final long id;
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		protected Job(long id) {
+			this.id = id;
+		}
+
+		public void run() {
+			synchronized (queued) {
+				if (queued.get(id) == this) {
+					queued.remove(id);
+				}
+			}
+			try {
+				render(id);
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				done.countDown();
+			}
+		}
+
+		public boolean await(long millis) throws InterruptedException {
+			return done.await(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public static int getThreads() {
+		synchronized (queued) {
+			return threads;
+		}
+	}
+
+	public static int getQueueSize() {
+		synchronized (queued) {
+			return queueSize;
+		}
+	}
+
+	// Sets the number of render threads and the maximum number of waiting jobs. Jobs that are
+	// already queued are finished by the previous threads.
+	public static void configure(int threads, int queueSize) {
+		synchronized (queued) {
+			RenderService.threads = threads;
+			RenderService.queueSize = queueSize;
+			shutdown();
+		}
+	}
+
+	// Stops the render threads after the queued jobs
+	public static void shutdown() {
+		synchronized (queued) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+			queued.clear();
+		}
+	}
+
+	// Enqueues a render job for the representation with the given id, unless one is already
+	// waiting. Returns the job or null if the queue is full.
+	public static Job enqueue(long id) {
+		synchronized (queued) {
+			Job job = queued.get(id);
+			if (job != null) {
+				coalesced.incrementAndGet();
+				return job;
+			}
+			job = new Job(id);
+			// Put before execute, so that a job that starts immediately finds itself in the map
+			queued.put(id, job);
+			try {
+				getExecutor().execute(job);
+			} catch (RejectedExecutionException e) {
+				queued.remove(id);
+				rejected.incrementAndGet();
+				return null;
+			}
+			return job;
+		}
+	}
+
+	// Returns the image of the representation in the format. An image of an older SVG is
+	// returned immediately and rendered again in the background. Returns null if the model has
+	// no SVG and FAILED if the current SVG cannot be rendered in the format.
+	public static byte[] getImage(Representation representation, Format format) throws Exception {
+		Object[] row = image(representation.getId(), format);
+		if (row == null) {
+			return null;
+		}
+		if (row[0] != null) {
+			if (isStale(row)) {
+				enqueue(representation.getId());
+			}
+			return (byte[]) row[0];
+		}
+
+		if (!isStale(row)) {
+			// The current SVG was rendered, but not in this format
+			return FAILED;
+		}
+
+		// The first image of the model
+		Job job = enqueue(representation.getId());
+		if ((job != null) && job.await(WAIT_TIMEOUT)) {
+			row = image(representation.getId(), format);
+			if ((row == null) || (row[0] != null)) {
+				return row != null ? (byte[]) row[0] : null;
+			}
+			if (!isStale(row)) {
+				return FAILED;
+			}
+		}
+		// The queue is full or the job takes too long
+		String svg = representation.getSvg();
+		return ((svg == null) || (svg.length() == 0)) ? null : format.render(svg);
+	}
+
+	// The number of finished render jobs, and of requests that were taken by a waiting job or
+	// rejected because of a full queue
+	public static int getRenders() {
+		return renders.get();
+	}
+
+	public static int getCoalesced() {
+		return coalesced.get();
+	}
+
+	public static int getRejected() {
+		return rejected.get();
+	}
+
+	// The number of formats that could not be rendered
+	public static int getFailures() {
+		return failures.get();
+	}
+
+	private static ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			final AtomicInteger number = new AtomicInteger();
+			executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "poem-render-" + number.incrementAndGet());
+							thread.setDaemon(true);
+							thread.setPriority(Thread.NORM_PRIORITY - 1);
+							return thread;
+						}
+					});
+		}
+		return executor;
+	}
+
+	private static boolean isStale(Object[] row) {
+		return (row[2] == null) || !row[2].equals(row[1]);
+	}
+
+	// Returns the image, the version of the SVG and the version of the rendered images or null
+	// if the model has no SVG
+	private static Object[] image(long id, Format format) {
+		Object[] row = (Object[]) Persistance.getSession()
+			.createSQLQuery("SELECT content." + format.getColumn() + ", content.svg_version, content.rendered_version "
+					+ "FROM content WHERE id=:id AND content.svg<>''")
+			.addScalar(format.getColumn(), Hibernate.BINARY)
+			.addScalar("svg_version", Hibernate.INTEGER)
+			.addScalar("rendered_version", Hibernate.INTEGER)
+			.setLong("id", id)
+			.uniqueResult();
+		Persistance.commit();
+		return row;
+	}
+
+	// Renders the images of the current SVG of the model, unless a later SVG was rendered already
+	private static void render(long id) throws Exception {
+		Object[] row = (Object[]) Persistance.getSession()
+			.createSQLQuery("SELECT content.svg, content.svg_version, content.rendered_version FROM content WHERE id=:id")
+			.addScalar("svg", Hibernate.STRING)
+			.addScalar("svg_version", Hibernate.INTEGER)
+			.addScalar("rendered_version", Hibernate.INTEGER)
+			.setLong("id", id)
+			.uniqueResult();
+		Persistance.commit();
+		if ((row == null) || (row[0] == null) || (((String) row[0]).length() == 0) || !isStale(row)) {
+			return;
+		}
+		String svg = (String) row[0];
+		int version = (Integer) row[1];
+		for (Format format : Format.values()) {
+			byte[] image = null;
+			try {
+				image = format.render(svg);
+			} catch (Exception e) {
+				failures.incrementAndGet();
+				System.err.println("The " + format + " of representation " + id + " cannot be rendered: " + e);
+			}
+			// A later SVG may have been saved or rendered meanwhile
+			if (store(id, version, format.getColumn(), image) == 0) {
+				return;
+			}
+		}
+		Persistance.getSession()
+			.createSQLQuery("UPDATE content SET rendered_version=:version "
+					+ "WHERE id=:id AND svg_version=:version AND (rendered_version IS NULL OR rendered_version<:version)")
+			.setInteger("version", version)
+			.setLong("id", id)
+			.executeUpdate();
+		Persistance.commit();
+		renders.incrementAndGet();
+	}
+
+	private static int store(long id, int version, String column, byte[] image) {
+		int stored = Persistance.getSession()
+			.createSQLQuery("UPDATE content SET " + column + "=:image "
+					+ "WHERE id=:id AND svg_version=:version AND (rendered_version IS NULL OR rendered_version<:version)")
+			.setParameter("image", image, Hibernate.BINARY)
+			.setInteger("version", version)
+			.setLong("id", id)
+			.executeUpdate();
+		Persistance.commit();
+		return stored;
+	}
+}
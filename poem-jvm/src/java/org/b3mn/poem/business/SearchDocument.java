@@ -0,0 +1,223 @@
+package org.b3mn.poem.business;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// The terms of a model in the SearchIndex: the words of title and summary of the representation,
+// the words of the labels and the documentation of the shapes in the JSON and the number of
+// shapes of each stencil type. The frequency of a term is weighted by the field it occurs in.
+public class SearchDocument {
+
+	public static final int TITLE_WEIGHT = 5;
+	public static final int SUMMARY_WEIGHT = 2;
+	public static final int LABEL_WEIGHT = 3;
+	public static final int DOCUMENTATION_WEIGHT = 1;
+
+	// Properties of shapes that are indexed as labels or documentation
+	private static final String[] LABELS = { "name", "title", "text", "label" };
+	private static final String[] DOCUMENTATION = { "documentation", "description" };
+
+	// Words shorter than this aren't indexed
+	private static final int MIN_LENGTH = 2;
+
+	private final int id;
+	private final String uri;
+	private final String title;
+	private final String type;
+	private final long updated;
+
+	// Term -> weighted frequency, of the meta data and of the content
+	private final Map<String, Integer> metaTerms = new HashMap<String, Integer>();
+	private Map<String, Integer> contentTerms = new HashMap<String, Integer>();
+	// Lower case stencil id -> number of shapes
+	private Map<String, Integer> stencils = new HashMap<String, Integer>();
+	private int elements = 0;
+
+	public SearchDocument(int id, String uri, String title, String summary, String type, long updated) {
+		this.id = id;
+		this.uri = uri;
+		this.title = title;
+		this.type = type;
+		this.updated = updated;
+		tokenize(title, TITLE_WEIGHT, metaTerms);
+		tokenize(summary, SUMMARY_WEIGHT, metaTerms);
+	}
+
+	// The id of the identity of the model
+	public int getId() {
+		return id;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	// The number of shapes, without the canvas
+	public int getElements() {
+		return elements;
+	}
+
+	public Map<String, Integer> getStencils() {
+		return Collections.unmodifiableMap(stencils);
+	}
+
+	public int getStencilCount(String stencil) {
+		Integer count = stencils.get(stencil.toLowerCase(Locale.ENGLISH));
+		return count != null ? count : 0;
+	}
+
+	// Returns the weighted frequency of the term in the document
+	public int getFrequency(String term) {
+		Integer meta = metaTerms.get(term);
+		Integer content = contentTerms.get(term);
+		return (meta != null ? meta : 0) + (content != null ? content : 0);
+	}
+
+	// Returns the terms with their weighted frequencies
+	public Map<String, Integer> getTerms() {
+		Map<String, Integer> terms = new HashMap<String, Integer>(contentTerms);
+		for (Map.Entry<String, Integer> term : metaTerms.entrySet()) {
+			Integer frequency = terms.get(term.getKey());
+			terms.put(term.getKey(), term.getValue() + (frequency != null ? frequency : 0));
+		}
+		return terms;
+	}
+
+	// The sum of the weighted frequencies
+	public int getLength() {
+		int length = 0;
+		for (int frequency : metaTerms.values()) {
+			length += frequency;
+		}
+		for (int frequency : contentTerms.values()) {
+			length += frequency;
+		}
+		return length;
+	}
+
+	// Indexes the labels, documentation and stencil types of the shapes of the JSON of the model
+	public void setContent(String json) throws JSONException {
+		contentTerms = new HashMap<String, Integer>();
+		stencils = new HashMap<String, Integer>();
+		elements = 0;
+		JSONObject canvas = new JSONObject(json);
+		addShape(canvas);
+		elements--; // The canvas
+	}
+
+	// Takes the content of a previous version of the model, if only the meta data has changed
+	public void setContent(SearchDocument previous) {
+		contentTerms = previous.contentTerms;
+		stencils = previous.stencils;
+		elements = previous.elements;
+	}
+
+	private void addShape(JSONObject shape) throws JSONException {
+		elements++;
+		JSONObject stencil = shape.optJSONObject("stencil");
+		if ((stencil != null) && (stencil.optString("id").length() > 0)) {
+			String id = stencil.getString("id").toLowerCase(Locale.ENGLISH).intern();
+			Integer count = stencils.get(id);
+			stencils.put(id, count != null ? count + 1 : 1);
+		}
+		JSONObject properties = shape.optJSONObject("properties");
+		if (properties != null) {
+			for (String name : LABELS) {
+				tokenize(properties.optString(name), LABEL_WEIGHT, contentTerms);
+			}
+			for (String name : DOCUMENTATION) {
+				tokenize(properties.optString(name), DOCUMENTATION_WEIGHT, contentTerms);
+			}
+		}
+		JSONArray children = shape.optJSONArray("childShapes");
+		if (children != null) {
+			for (int i = 0; i < children.length(); i++) {
+				JSONObject child = children.optJSONObject(i);
+				if (child != null) {
+					addShape(child);
+				}
+			}
+		}
+	}
+
+	// Adds the lower case words of the text, i.e. the runs of letters and digits, to the terms
+	public static void tokenize(String text, int weight, Map<String, Integer> terms) {
+		if (text == null) {
+			return;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean letter = (i < text.length()) && Character.isLetterOrDigit(text.charAt(i));
+			if (letter && (start < 0)) {
+				start = i;
+			} else if (!letter && (start >= 0)) {
+				if (i - start >= MIN_LENGTH) {
+					// The terms are shared by many documents
+					String term = text.substring(start, i).toLowerCase(Locale.ENGLISH).intern();
+					Integer frequency = terms.get(term);
+					terms.put(term, frequency != null ? frequency + weight : weight);
+				}
+				start = -1;
+			}
+		}
+	}
+
+	protected void write(DataOutput out) throws IOException {
+		out.writeInt(id);
+		out.writeUTF(uri);
+		out.writeUTF(title != null ? title : "");
+		out.writeUTF(type != null ? type : "");
+		out.writeLong(updated);
+		out.writeInt(elements);
+		write(out, metaTerms);
+		write(out, contentTerms);
+		write(out, stencils);
+	}
+
+	protected static SearchDocument read(DataInput in) throws IOException {
+		SearchDocument document = new SearchDocument(in.readInt(), in.readUTF(), in.readUTF(), null, in.readUTF(),
+				in.readLong());
+		document.elements = in.readInt();
+		document.metaTerms.clear();
+		read(in, document.metaTerms);
+		read(in, document.contentTerms);
+		read(in, document.stencils);
+		return document;
+	}
+
+	private static void write(DataOutput out, Map<String, Integer> map) throws IOException {
+		out.writeInt(map.size());
+		for (Map.Entry<String, Integer> entry : map.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	private static void read(DataInput in, Map<String, Integer> map) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			map.put(in.readUTF().intern(), in.readInt());
+		}
+	}
+}
@@ -0,0 +1,582 @@
+package org.b3mn.poem.business;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Persistance;
+import org.b3mn.poem.Representation;
+import org.hibernate.Hibernate;
+import org.json.JSONException;
+
+// An inverted index of the models in memory, for the ranked search of SearchHandler. Each model
+// is a SearchDocument, the index maps each term to the documents that contain it. Stencil types
+// are indexed as terms with the prefix "stencil:", so that structural conditions like
+// "stencil:Task>=5" only look at the models that contain the stencil.
+//
+// A query matches the models that contain all of its words and fulfil all of its conditions. The
+// matches are ranked by BM25 over the weighted term frequencies of SearchDocument.
+//
+// Saving a model updates its document, see update(). open() loads the index from a file and reads
+// the models that were saved since the file was written, or all models if there is no file, in a
+// background thread. close() writes the file again.
+public class SearchIndex {
+
+	public static final int BATCH_SIZE = 100;
+
+	// Parameters of BM25
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+
+	public static final String STENCIL_PREFIX = "stencil:";
+	private static final Pattern CONDITION = Pattern.compile("stencil:([^<>=]+)(?:(>=|<=|>|<|=)(\\d+))?",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final int FILE_VERSION = 1;
+
+	// A document of the index with its score for a query
+	public static class Hit {
+		private final SearchDocument document;
+		private final float score;
+
+		protected Hit(SearchDocument document, float score) {
+			this.document = document;
+			this.score = score;
+		}
+
+		public SearchDocument getDocument() {
+			return document;
+		}
+
+		public String getUri() {
+			return document.getUri();
+		}
+
+		public float getScore() {
+			return score;
+		}
+	}
+
+	// The best hit first, equal scores by the last update
+	private static final Comparator<Hit> RANKING = new Comparator<Hit>() {
+		public int compare(Hit first, Hit second) {
+			if (first.score != second.score) {
+				return first.score > second.score ? -1 : 1;
+			}
+			if (first.document.getUpdated() != second.document.getUpdated()) {
+				return first.document.getUpdated() > second.document.getUpdated() ? -1 : 1;
+			}
+			return first.document.getId() - second.document.getId();
+		}
+	};
+
+	// The documents that contain a term, as numbers of their slots, with the weighted frequency
+	// of the term or the number of shapes of the stencil in each document
+	private static class Postings {
+		int[] slots = new int[4];
+		int[] frequencies = new int[4];
+		int size = 0;
+
+		void add(int slot, int frequency) {
+			if (size == slots.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(slots, 0, grown, 0, size);
+				slots = grown;
+				grown = new int[size * 2];
+				System.arraycopy(frequencies, 0, grown, 0, size);
+				frequencies = grown;
+			}
+			slots[size] = slot;
+			frequencies[size++] = frequency;
+		}
+
+		void remove(int slot) {
+			for (int i = 0; i < size; i++) {
+				if (slots[i] == slot) {
+					size--;
+					slots[i] = slots[size];
+					frequencies[i] = frequencies[size];
+					return;
+				}
+			}
+		}
+	}
+
+	// A condition on the number of shapes of a stencil type
+	private static class Condition {
+		final String stencil;
+		final String operator;
+		final int count;
+
+		Condition(String stencil, String operator, int count) {
+			this.stencil = stencil.toLowerCase(Locale.ENGLISH);
+			this.operator = operator;
+			this.count = count;
+		}
+
+		boolean matches(SearchDocument document) {
+			return matches(document.getStencilCount(stencil));
+		}
+
+		boolean matches(int shapes) {
+			if (operator.equals(">=")) return shapes >= count;
+			if (operator.equals(">")) return shapes > count;
+			if (operator.equals("<=")) return shapes <= count;
+			if (operator.equals("<")) return shapes < count;
+			return shapes == count;
+		}
+
+		// Whether only models that contain the stencil can match
+		boolean needsStencil() {
+			return !matches(0);
+		}
+	}
+
+	private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// The documents by their slot, free slots are reused
+	private static SearchDocument[] slots = new SearchDocument[1024];
+	private static int[] lengths = new int[1024];
+	private static final List<Integer> freeSlots = new ArrayList<Integer>();
+	private static int usedSlots = 0;
+	// Identity id -> slot
+	private static final Map<Integer, Integer> slotsById = new HashMap<Integer, Integer>();
+	private static final Map<String, Postings> postings = new HashMap<String, Postings>();
+	private static long totalLength = 0;
+
+	private static File file = null;
+	private static Thread loader = null;
+	// Whether all models were read from the database
+	private static volatile boolean complete = false;
+	private static volatile boolean closed = false;
+
+	// Loads the index from the file and reads the models that were saved meanwhile in the
+	// background, the file may be null
+	public static synchronized void open(File file) {
+		SearchIndex.file = file;
+		closed = false;
+		long since = 0;
+		if ((file != null) && file.exists()) {
+			try {
+				since = load(file);
+			} catch (IOException e) {
+				System.err.println("The search index " + file + " cannot be read, it is rebuilt: " + e);
+				clear();
+			}
+		}
+		final long modifiedSince = since;
+		loader = new Thread("poem-search-index") {
+			@Override
+			public void run() {
+				try {
+					synchronize(modifiedSince);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		loader.setDaemon(true);
+		loader.setPriority(Thread.MIN_PRIORITY);
+		loader.start();
+	}
+
+	// Stops reading the models and writes the file
+	public static synchronized void close() {
+		closed = true;
+		if (loader != null) {
+			try {
+				loader.join(10000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			loader = null;
+		}
+		if (file != null) {
+			try {
+				save(file);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// Returns whether all models have been indexed since open()
+	public static boolean isComplete() {
+		return complete;
+	}
+
+	public static int size() {
+		lock.readLock().lock();
+		try {
+			return slotsById.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public static SearchDocument get(int id) {
+		lock.readLock().lock();
+		try {
+			Integer slot = slotsById.get(id);
+			return slot != null ? slots[slot] : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Adds the document or replaces the document of the model, unless that one is more recent.
+	// Returns whether the document was added.
+	public static boolean index(SearchDocument document) {
+		lock.writeLock().lock();
+		try {
+			Integer slot = slotsById.get(document.getId());
+			if (slot != null) {
+				if (slots[slot].getUpdated() > document.getUpdated()) {
+					return false;
+				}
+				removeSlot(slot);
+			}
+			add(document);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public static void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			Integer slot = slotsById.get(id);
+			if (slot != null) {
+				removeSlot(slot);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public static void clear() {
+		lock.writeLock().lock();
+		try {
+			slots = new SearchDocument[1024];
+			lengths = new int[1024];
+			freeSlots.clear();
+			usedSlots = 0;
+			slotsById.clear();
+			postings.clear();
+			totalLength = 0;
+			complete = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Indexes a model that was saved, the content is the saved JSON or eRDF or null if only the
+	// meta data of the representation was changed. Errors are printed, they don't fail the save.
+	public static void update(Identity identity, Representation representation, String content) {
+		try {
+			SearchDocument document = new SearchDocument(identity.getId(), identity.getUri(),
+					representation.getTitle(), representation.getSummary(), representation.getType(),
+					representation.getUpdated().getTime());
+			if (content != null) {
+				setContent(document, content);
+			} else {
+				SearchDocument previous = get(identity.getId());
+				if (previous == null) {
+					// The model will be read with its content, unless all models were read already
+					if (!complete) return;
+				} else {
+					document.setContent(previous);
+				}
+			}
+			index(document);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Returns the documents that match the query, the best first, at most limit documents if
+	// the limit is greater than 0
+	public static List<Hit> search(String query, int limit) {
+		Set<String> words = new LinkedHashSet<String>();
+		List<Condition> conditions = new ArrayList<Condition>();
+		for (String token : query.trim().split("\\s+")) {
+			Matcher matcher = CONDITION.matcher(token);
+			if (matcher.matches()) {
+				conditions.add(new Condition(matcher.group(1), matcher.group(2) != null ? matcher.group(2) : ">=",
+						matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 1));
+			} else {
+				Map<String, Integer> terms = new HashMap<String, Integer>();
+				SearchDocument.tokenize(token, 1, terms);
+				words.addAll(terms.keySet());
+			}
+		}
+		if (words.isEmpty() && conditions.isEmpty()) {
+			return new ArrayList<Hit>();
+		}
+
+		lock.readLock().lock();
+		try {
+			// The candidates are the documents of the rarest word or stencil that has to occur
+			Postings candidates = null;
+			int candidateWord = -1;
+			Condition candidateCondition = null;
+			List<String> wordList = new ArrayList<String>(words);
+			float[] idf = new float[wordList.size()];
+			for (int i = 0; i < wordList.size(); i++) {
+				Postings word = postings.get(wordList.get(i));
+				if (word == null) {
+					return new ArrayList<Hit>();
+				}
+				idf[i] = (float) Math.log(1 + (slotsById.size() - word.size + 0.5) / (word.size + 0.5));
+				if ((candidates == null) || (word.size < candidates.size)) {
+					candidates = word;
+					candidateWord = i;
+					candidateCondition = null;
+				}
+			}
+			for (Condition condition : conditions) {
+				if (condition.needsStencil()) {
+					Postings stencil = postings.get(STENCIL_PREFIX + condition.stencil);
+					if (stencil == null) {
+						return new ArrayList<Hit>();
+					}
+					if ((candidates == null) || (stencil.size < candidates.size)) {
+						candidates = stencil;
+						candidateWord = -1;
+						candidateCondition = condition;
+					}
+				}
+			}
+
+			float averageLength = slotsById.isEmpty() ? 1 : Math.max(1, (float) totalLength / slotsById.size());
+			int count = candidates != null ? candidates.size : usedSlots;
+			PriorityQueue<Hit> best = new PriorityQueue<Hit>(limit > 0 ? limit + 1 : 64, Collections.reverseOrder(RANKING));
+			candidates:
+			for (int i = 0; i < count; i++) {
+				int slot = candidates != null ? candidates.slots[i] : i;
+				SearchDocument document = slots[slot];
+				if (document == null) continue;
+				for (Condition condition : conditions) {
+					boolean matches = condition == candidateCondition ? condition.matches(candidates.frequencies[i])
+							: condition.matches(document);
+					if (!matches) continue candidates;
+				}
+				float score = 0;
+				float norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+				for (int w = 0; w < idf.length; w++) {
+					// The frequencies of the other words are looked up in the document
+					int frequency = w == candidateWord ? candidates.frequencies[i] : document.getFrequency(wordList.get(w));
+					if (frequency == 0) continue candidates;
+					score += idf[w] * frequency * (K1 + 1) / (frequency + norm);
+				}
+				if ((limit > 0) && (best.size() == limit)) {
+					Hit worst = best.peek();
+					if ((score < worst.score) || ((score == worst.score) && (document.getUpdated() < worst.document.getUpdated()))) {
+						continue;
+					}
+				}
+				best.add(new Hit(document, score));
+				if ((limit > 0) && (best.size() > limit)) {
+					best.poll();
+				}
+			}
+			List<Hit> hits = new ArrayList<Hit>(best);
+			Collections.sort(hits, RANKING);
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Writes the documents to the file, the postings are built again when it is loaded
+	public static void save(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(tmp))));
+		lock.readLock().lock();
+		try {
+			out.writeInt(FILE_VERSION);
+			out.writeInt(slotsById.size());
+			for (int slot : slotsById.values()) {
+				slots[slot].write(out);
+			}
+		} finally {
+			lock.readLock().unlock();
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException("Cannot write " + file);
+			}
+		}
+	}
+
+	// Replaces the documents with those of the file, returns the time of the last update of them
+	public static long load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+				new FileInputStream(file))));
+		try {
+			if (in.readInt() != FILE_VERSION) {
+				throw new IOException("Unknown version of the search index");
+			}
+			clear();
+			long updated = 0;
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				SearchDocument document = SearchDocument.read(in);
+				updated = Math.max(updated, document.getUpdated());
+				index(document);
+			}
+			return updated;
+		} finally {
+			in.close();
+		}
+	}
+
+	// Removes the documents of deleted models and reads the models that were saved since the
+	// given time, in batches of BATCH_SIZE models
+	@SuppressWarnings("unchecked")
+	protected static void synchronize(long since) {
+		List<Integer> existing = Persistance.getSession()
+			.createSQLQuery("SELECT representation.ident_id FROM representation")
+			.addScalar("ident_id", Hibernate.INTEGER)
+			.list();
+		Persistance.commit();
+		Set<Integer> ids = new HashSet<Integer>(existing);
+		List<Integer> deleted = new ArrayList<Integer>();
+		lock.readLock().lock();
+		try {
+			for (Integer id : slotsById.keySet()) {
+				if (!ids.contains(id)) deleted.add(id);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Integer id : deleted) {
+			remove(id);
+		}
+
+		int last = 0;
+		List<Object[]> rows;
+		do {
+			rows = Persistance.getSession()
+				.createSQLQuery("SELECT identity.id, identity.uri, representation.title, representation.summary, "
+						+ "representation.type, representation.updated, content.erdf FROM identity, representation, content "
+						+ "WHERE representation.ident_id=identity.id AND content.id=representation.id AND identity.id>:last "
+						+ "AND representation.updated>=:since ORDER BY identity.id LIMIT :limit")
+				.addScalar("id", Hibernate.INTEGER)
+				.addScalar("uri", Hibernate.STRING)
+				.addScalar("title", Hibernate.STRING)
+				.addScalar("summary", Hibernate.STRING)
+				.addScalar("type", Hibernate.STRING)
+				.addScalar("updated", Hibernate.TIMESTAMP)
+				.addScalar("erdf", Hibernate.STRING)
+				.setInteger("last", last)
+				.setTimestamp("since", new Date(since))
+				.setInteger("limit", BATCH_SIZE)
+				.list();
+			Persistance.commit();
+			for (Object[] row : rows) {
+				if (closed) return;
+				last = (Integer) row[0];
+				SearchDocument document = new SearchDocument(last, (String) row[1], (String) row[2], (String) row[3],
+						(String) row[4], ((Date) row[5]).getTime());
+				if (row[6] != null) {
+					setContent(document, (String) row[6]);
+				}
+				index(document);
+			}
+		} while (rows.size() == BATCH_SIZE);
+		complete = true;
+	}
+
+	private static void setContent(SearchDocument document, String content) {
+		String json = content.length() > 0 ? Representation.toJson(content, "") : null;
+		if (json != null) {
+			try {
+				document.setContent(json);
+			} catch (JSONException e) {
+				System.err.println("The content of " + document.getUri() + " cannot be indexed: " + e.getMessage());
+			}
+		}
+	}
+
+	private static void add(SearchDocument document) {
+		int slot;
+		if (!freeSlots.isEmpty()) {
+			slot = freeSlots.remove(freeSlots.size() - 1);
+		} else {
+			if (usedSlots == slots.length) {
+				SearchDocument[] grownSlots = new SearchDocument[slots.length * 2];
+				System.arraycopy(slots, 0, grownSlots, 0, slots.length);
+				slots = grownSlots;
+				int[] grownLengths = new int[lengths.length * 2];
+				System.arraycopy(lengths, 0, grownLengths, 0, lengths.length);
+				lengths = grownLengths;
+			}
+			slot = usedSlots++;
+		}
+		slots[slot] = document;
+		lengths[slot] = document.getLength();
+		totalLength += lengths[slot];
+		slotsById.put(document.getId(), slot);
+		for (Map.Entry<String, Integer> term : terms(document).entrySet()) {
+			Postings list = postings.get(term.getKey());
+			if (list == null) {
+				list = new Postings();
+				postings.put(term.getKey(), list);
+			}
+			list.add(slot, term.getValue());
+		}
+	}
+
+	private static void removeSlot(int slot) {
+		SearchDocument document = slots[slot];
+		for (String term : terms(document).keySet()) {
+			Postings list = postings.get(term);
+			if (list != null) {
+				list.remove(slot);
+				if (list.size == 0) postings.remove(term);
+			}
+		}
+		totalLength -= lengths[slot];
+		slots[slot] = null;
+		slotsById.remove(document.getId());
+		freeSlots.add(slot);
+	}
+
+	// Returns the terms of the document and its stencils with the prefix STENCIL_PREFIX
+	private static Map<String, Integer> terms(SearchDocument document) {
+		Map<String, Integer> terms = document.getTerms();
+		for (Map.Entry<String, Integer> stencil : document.getStencils().entrySet()) {
+			terms.put(STENCIL_PREFIX + stencil.getKey(), stencil.getValue());
+		}
+		return terms;
+	}
+}
@@ -36,6 +36,7 @@ import org.b3mn.poem.business.User;
 import org.b3mn.poem.util.AccessRight;
 import org.b3mn.poem.util.FilterMethod;
 import org.b3mn.poem.util.HandlerWithModelContext;
+import org.b3mn.poem.util.ModelQuery;
 import org.b3mn.poem.util.RestrictAccess;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -138,4 +139,24 @@ public class AccessHandler extends  HandlerBase {
 		Persistance.commit();
 		return result;
 	}
+	
+	@FilterMethod(FilterName="friend")
+	public static void filterByFriends(ModelQuery query, String params) {
+		// Models of the user that are shared with all friends
+		query.where("EXISTS (SELECT 1 FROM access WHERE access.object_id=identity.id AND access.subject_id=?)",
+				query.getSubject().getId());
+		for (String friend : params.split(",")) {
+			friend = removeSpaces(friend);
+			query.where("EXISTS (SELECT 1 FROM access WHERE access.object_id=identity.id AND access.subject_name=?)",
+					friend);
+		}
+	}
+	
+	@FilterMethod(FilterName="access")
+	public static void filterByAccessRight(ModelQuery query, String params) {
+		query.where("EXISTS (SELECT 1 FROM access WHERE access.object_id=identity.id "
+				+ "AND (access.subject_id=? AND ? LIKE ('%'||access.access_term||'%') "
+				+ "OR access.subject_name='public' AND ? LIKE '%public%'))",
+				query.getSubject().getId(), params, params);
+	}
 }
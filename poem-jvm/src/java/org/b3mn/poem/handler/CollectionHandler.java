@@ -26,14 +26,18 @@ package org.b3mn.poem.handler;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.b3mn.poem.Access;
 import org.b3mn.poem.Identity;
+import org.b3mn.poem.Plugin;
 import org.b3mn.poem.Representation;
 import org.b3mn.poem.util.HandlerWithoutModelContext;
 import org.json.JSONArray;
@@ -103,10 +107,21 @@ public class CollectionHandler extends HandlerBase {
         List<Representation> models = subject.getModels(type, from, to, owner, 
         		is_shared, is_public, contributor, reader);
         
+        // Load the identities, access rights and plugins of all models at once 
+        // instead of querying them for each model
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Representation model : models) {
+        	ids.add(model.getIdent_id());
+        }
+        Map<Integer, Identity> identities = Identity.instances(ids);
+        Map<String, List<Access>> access = Identity.getAccess(identities.values());
+        List<Plugin> plugins = subject.getServlets();
+        
         // Collect meta data as json
         JSONArray output = new JSONArray();
         for (Representation model : models) {
-        	output.put(this.getModelMetaData(subject, Identity.instance(model.getIdent_id()), req));
+        	Identity identity = identities.get(model.getIdent_id());
+        	output.put(this.getModelMetaData(identity, model, plugins, access.get(identity.getUri()), req));
         }
         // Write json to output stream
         try {
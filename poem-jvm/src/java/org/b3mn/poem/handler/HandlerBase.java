@@ -26,6 +26,7 @@ package org.b3mn.poem.handler;
 import java.io.File;
 import java.io.PrintWriter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -85,8 +86,15 @@ public abstract class HandlerBase {
 	}
 	
 	protected JSONObject getModelMetaData(Identity subject, Identity model, HttpServletRequest req) {
+		return this.getModelMetaData(model, model.read(), subject.getServlets(), model.getAccess(), req);
+	}
+	
+	// Builds the meta data from data that is already loaded, so that the meta data of several models
+	// can be built from a few bulk queries (see CollectionHandler)
+	protected JSONObject getModelMetaData(Identity model, Representation representation, 
+			List<Plugin> plugins, List<Access> rights, HttpServletRequest req) {
 		JSONArray uris = new JSONArray();
-		for (Plugin plugin : subject.getServlets()) {
+		for (Plugin plugin : plugins) {
 			// If the plugin supports export functionality
 			if (plugin.isExport()) {
 				JSONObject jsonPlugin = new JSONObject();
@@ -97,10 +105,10 @@ public abstract class HandlerBase {
 				} catch (JSONException e) {e.printStackTrace();}
 			}
 		}
-		JSONObject info = this.getModelInfo(model, this.getServerPath(req));
+		JSONObject info = this.getModelInfo(model, representation, this.getServerPath(req));
 		
 		JSONArray accessRights = new JSONArray();
-		for (Access right : model.getAccess()) {
+		for (Access right : rights) {
 			try {
 				String[] keys = {"Subject", "Predicate"};
 				JSONObject item = this.toJSON(right, keys);
@@ -123,7 +131,10 @@ public abstract class HandlerBase {
 	
 	// Read the model properties including URIs from the database and returns them as JSONObject
 	protected JSONObject getModelInfo(Identity model, String hostname) {
-		Representation representation = model.read();
+		return this.getModelInfo(model, model.read(), hostname);
+	}
+	
+	protected JSONObject getModelInfo(Identity model, Representation representation, String hostname) {
 		String[] keys =  {"Title", "Summary", "Updated", "Created", "Type"};
 		JSONObject output = this.toJSON(representation, keys);
 	    try {
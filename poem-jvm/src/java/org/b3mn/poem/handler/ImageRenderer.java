@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.batik.transcoder.TranscoderException;
 import org.b3mn.poem.Identity;
 import org.b3mn.poem.Representation;
+import org.b3mn.poem.business.RenderService;
 import org.b3mn.poem.util.ExportHandler;
 
 @ExportHandler(uri="/svg", formatName="SVG", iconUrl="/backend/images/silk/page_white_vector.png")
@@ -44,6 +45,16 @@ public class ImageRenderer extends HandlerBase {
     	try {
     		
     		Representation representation = object.read();
+    		byte[] image = getRenderedImage(representation);
+    		if (image == RenderService.FAILED) {
+    			// Rendering the same SVG again on each request would fail as well
+    			res.sendError(500, "The model cannot be rendered.");
+    			return;
+    		}
+    		if (image != null) {
+    			res.getOutputStream().write(image);
+    			return;
+    		}
 			String SvgRepresentation = representation.getSvg();
     		if ((SvgRepresentation == null) || (SvgRepresentation.length() == 0)){
     			SvgRepresentation = "<svg xmlns=\"http://www.w3.org/2000/svg\" " +
@@ -68,5 +79,11 @@ public class ImageRenderer extends HandlerBase {
     protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
     	out.write(in_s.getBytes("UTF-8"));
     }
+    
+    // Returns the image from the RenderService, RenderService.FAILED if the SVG cannot be rendered
+    // or null to transcode the SVG of the request
+    protected byte[] getRenderedImage(Representation representation) throws Exception {
+    	return null;
+    }
 
 }
@@ -93,7 +93,7 @@ public class LayoutModelHandler extends  HandlerBase {
 	@RestrictAccess(AccessRight.WRITE)
     public void doPost(HttpServletRequest request, HttpServletResponse response, Identity subject, Identity object) throws IOException {
 		// TODO: add some error handling
-		Representation.update(object.getId(), null, null, request.getParameter("data"), request.getParameter("svg"));
+		Representation.update(object.getId(), null, null, request.getParameter("data"), request.getParameter("svg"), subject);
 		response.setStatus(200);
 	}
 
@@ -0,0 +1,50 @@
+package org.b3mn.poem.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.business.Model;
+import org.b3mn.poem.util.HandlerWithoutModelContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Returns the meta data of several models at once, in the format of the ModelInfoHandler (/meta).
+// The model uris are passed as JSON array in the parameter "models", the response maps each uri
+// to the meta data of the model. Models that don't exist or that the user may not read are left out.
+@HandlerWithoutModelContext(uri="/meta_batch")
+public class ModelInfoBatchHandler extends HandlerBase {
+
+	@Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response, Identity subject, Identity object) throws Exception {
+		String models = request.getParameter("models");
+		if (models == null) {
+			response.setStatus(400);
+			response.getWriter().write("Parameter 'models' is missing");
+			return;
+		}
+		JSONArray uriArray = new JSONArray(models);
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < uriArray.length(); i++) {
+			uris.add(uriArray.getString(i));
+		}
+
+		String serverPath = this.getServerPath(request);
+		JSONObject output = new JSONObject();
+		for (Model model : Model.getModels(subject, uris)) {
+			output.put(model.getUri(), ModelInfoHandler.getMetaData(model, serverPath));
+		}
+		response.setContentType("application/json");
+		output.write(response.getWriter());
+		response.setStatus(200);
+	}
+
+	// The list of uris may be too long for the URL of a GET request
+	@Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response, Identity subject, Identity object) throws Exception {
+		this.doGet(request, response, subject, object);
+	}
+}
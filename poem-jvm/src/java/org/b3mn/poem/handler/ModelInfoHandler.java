@@ -33,11 +33,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.b3mn.poem.Identity;
-import org.b3mn.poem.Persistance;
 import org.b3mn.poem.business.Model;
 import org.b3mn.poem.util.FilterMethod;
 import org.b3mn.poem.util.HandlerWithModelContext;
 import org.b3mn.poem.util.JavaBeanJsonTransformation;
+import org.b3mn.poem.util.ModelQuery;
 import org.b3mn.poem.util.SortMethod;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -51,7 +51,12 @@ public class ModelInfoHandler extends  HandlerBase {
 		
 		Model model = new Model(object.getId());
 
-		
+		getMetaData(model, this.getServerPath(request)).write(response.getWriter());
+		response.setStatus(200);
+	}
+	
+	// Returns the meta data of the model as JSON, also used by the ModelInfoBatchHandler
+	static JSONObject getMetaData(Model model, String serverPath) throws JSONException {
 		Collection<String> attributes = new ArrayList<String>();
 		attributes.add("title");			
 		attributes.add("summary");
@@ -60,10 +65,9 @@ public class ModelInfoHandler extends  HandlerBase {
 		attributes.add("lastUpdate");
 		attributes.add("author");
 		JSONObject data = JavaBeanJsonTransformation.toJsonObject(model, attributes);
-		data.put("thumbnailUri", this.getServerPath(request) + model.getUri() + "/thumbnail");
-		data.put("pngUri", this.getServerPath(request) + model.getUri() + "/png");
-		data.write(response.getWriter());
-		response.setStatus(200);
+		data.put("thumbnailUri", serverPath + model.getUri() + "/thumbnail");
+		data.put("pngUri", serverPath + model.getUri() + "/png");
+		return data;
 	}
 	
 	@Override
@@ -84,57 +88,48 @@ public class ModelInfoHandler extends  HandlerBase {
 		this.writeResponse(request, response, object, subject);
 	}
 
-	@SuppressWarnings({ "unchecked" })
 	@FilterMethod(FilterName="type")
 	public static Collection<String> filterByModelType(Identity subject, String params) {
+		ModelQuery query = new ModelQuery(subject);
+		filterByModelType(query, params);
+		return query.list();
+	}
+	
+	@FilterMethod(FilterName="type")
+	public static void filterByModelType(ModelQuery query, String params) {
 		String typeQuery = "";
+		List<String> types = new ArrayList<String>();
 		for (String type : params.split(",")) {
-			type = removeSpaces(type);
-			typeQuery+="representation.type='"+type+"' OR ";
+			typeQuery += "?, ";
+			types.add(removeSpaces(type));
 		}
-		// Remove last OR
-		if (typeQuery.length() > 4) {
-			typeQuery = typeQuery.substring(0, typeQuery.length() - 4);
-		}
-		
-		List<String> results = Persistance.getSession()
-			.createSQLQuery("SELECT identity.uri FROM identity, access, representation "
-			+ "WHERE (access.subject_name='public' OR access.subject_id=:subject_id) AND access.object_id=identity.id AND representation.ident_id=access.object_id "
-			+ "AND (" + typeQuery + ")")
-			.setInteger("subject_id", subject.getId())
-			.list();
-		
-		Persistance.commit();
-		
-		return results;
+		// Remove last comma
+		typeQuery = typeQuery.substring(0, typeQuery.length() - 2);
+		query.where("representation.type IN (" + typeQuery + ")", types.toArray());
 	}
 	
-	@SuppressWarnings("unchecked")
 	@SortMethod(SortName="lastChange")	
 	public static List<String> sortByLastChange(Identity subject) {
-		List<String> results = Persistance.getSession()
-		.createSQLQuery("SELECT identity.uri FROM identity, access, representation "
-		+ "WHERE (access.subject_name='public' OR access.subject_id=:subject_id) AND access.object_id=identity.id AND representation.ident_id=access.object_id " 
-		+ "ORDER BY representation.updated DESC")
-		.setInteger("subject_id", subject.getId())
-		.list();
+		ModelQuery query = new ModelQuery(subject);
+		sortByLastChange(query);
+		return query.list();
+	}
 	
-		Persistance.commit();
-		return results;
+	@SortMethod(SortName="lastChange")	
+	public static void sortByLastChange(ModelQuery query) {
+		query.orderBy("representation.updated DESC");
 	}
 	
-	@SuppressWarnings("unchecked")
 	@SortMethod(SortName="title")	
 	public static List<String> sortByTitle(Identity subject) {
-		List<String> results = Persistance.getSession()
-		.createSQLQuery("SELECT identity.uri FROM identity, access, representation "
-		+ "WHERE (access.subject_name='public' OR access.subject_id=:subject_id) AND access.object_id=identity.id AND representation.ident_id=access.object_id " 
-		+ "ORDER BY representation.title")
-		.setInteger("subject_id", subject.getId())
-		.list();
+		ModelQuery query = new ModelQuery(subject);
+		sortByTitle(query);
+		return query.list();
+	}
 	
-		Persistance.commit();
-		return results;
+	@SortMethod(SortName="title")	
+	public static void sortByTitle(ModelQuery query) {
+		query.orderBy("representation.title");
 	}
 	
 }
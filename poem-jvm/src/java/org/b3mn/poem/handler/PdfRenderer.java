@@ -35,6 +35,7 @@ import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.fop.svg.PDFTranscoder;
 import org.b3mn.poem.Representation;
+import org.b3mn.poem.business.RenderService;
 import org.b3mn.poem.util.ExportHandler;
 
 @ExportHandler(uri="/pdf", formatName="PDF", iconUrl="/backend/images/silk/page_white_acrobat.png")
@@ -47,6 +48,11 @@ public class PdfRenderer extends ImageRenderer{
   		res.setStatus(200);
     }
 
+    @Override
+    protected byte[] getRenderedImage(Representation representation) throws Exception {
+    	return RenderService.getImage(representation, RenderService.Format.PDF);
+    }
+
     @Override
     protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
     	InputStream in = new ByteArrayInputStream(in_s.getBytes("UTF-8"));
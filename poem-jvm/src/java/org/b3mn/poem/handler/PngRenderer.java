@@ -23,19 +23,14 @@
 
 package org.b3mn.poem.handler;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.PNGTranscoder;
 import org.b3mn.poem.Representation;
+import org.b3mn.poem.business.RenderService;
 import org.b3mn.poem.util.ExportHandler;
 
 @ExportHandler(uri="/png", formatName="PNG", iconUrl="/backend/images/silk/picture.png")
@@ -48,31 +43,20 @@ public class PngRenderer extends ImageRenderer {
     }
 
     @Override
-    protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
-    	
-    	byte[] pngData = representation.getPngLarge();
-    	if (pngData != null) {
-			out.write(pngData);
-		} else {    	
-	    	InputStream in = new ByteArrayInputStream(in_s.getBytes("UTF-8"));
-		  	PNGTranscoder transcoder = new PNGTranscoder();
-		  	try {
-		    	TranscoderInput input = new TranscoderInput(in);
+    protected byte[] getRenderedImage(Representation representation) throws Exception {
+    	return RenderService.getImage(representation, getFormat());
+    }
 
-		    	// Setup output
-		    	ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
-		    	try {
-			    	TranscoderOutput output = new TranscoderOutput(outBytes);
-			    	// Do the transformation
-					transcoder.transcode(input, output);
-					representation.setPngLarge(outBytes.toByteArray());
-					out.write(outBytes.toByteArray());
-		    	} finally {
-					out.close();
-		    	}
-		  	} finally {
-		    	in.close();
-			}
-		}
+    @Override
+    protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
+    	try {
+    		out.write(getFormat().render(in_s));
+    	} finally {
+    		out.close();
+    	}
+    }
+    
+    protected RenderService.Format getFormat() {
+    	return RenderService.Format.PNG_LARGE;
     }
 }
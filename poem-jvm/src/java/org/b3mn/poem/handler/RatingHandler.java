@@ -7,11 +7,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.b3mn.poem.Identity;
-import org.b3mn.poem.Persistance;
 import org.b3mn.poem.business.Model;
 import org.b3mn.poem.util.AccessRight;
 import org.b3mn.poem.util.FilterMethod;
 import org.b3mn.poem.util.HandlerWithModelContext;
+import org.b3mn.poem.util.ModelQuery;
 import org.b3mn.poem.util.RestrictAccess;
 import org.b3mn.poem.util.SortMethod;
 import org.json.JSONObject;
@@ -45,38 +45,30 @@ public class RatingHandler extends HandlerBase {
 		writeRating(model, response, subject, object);
 	}
 	
-	@SuppressWarnings("unchecked")
 	@SortMethod(SortName="rating")	
 	public static List<String> sortByRating(Identity subject) {
-		List<String> results = Persistance.getSession()
-		.createSQLQuery("SELECT access.object_name FROM " 	
-		+ "access LEFT JOIN model_rating ON access.object_id=model_rating.object_id "
-		+ "WHERE (access.subject_name='public' OR access.subject_id=:subject_id)  " 
-		+ "GROUP BY access.object_name "
-		+ "ORDER BY avg(model_rating.score) DESC NULLS LAST")
-		.setInteger("subject_id", subject.getId())
-		.list();
+		ModelQuery query = new ModelQuery(subject);
+		sortByRating(query);
+		return query.list();
+	}
 	
-		Persistance.commit();
-		return results;
+	@SortMethod(SortName="rating")	
+	public static void sortByRating(ModelQuery query) {
+		query.orderBy("(SELECT avg(model_rating.score) FROM model_rating " 
+				+ "WHERE model_rating.object_id=identity.id) DESC NULLS LAST");
 	}
 	
-	@SuppressWarnings({ "unchecked" })
 	@FilterMethod(FilterName="rating")
 	public static Collection<String> filterByRating(Identity subject, String params) {
+		ModelQuery query = new ModelQuery(subject);
+		filterByRating(query, params);
+		return query.list();
+	}
+	
+	@FilterMethod(FilterName="rating")
+	public static void filterByRating(ModelQuery query, String params) {
 		float score = Float.parseFloat(params);
-		
-		List<String> results = Persistance.getSession()
-			.createSQLQuery("SELECT access.object_name FROM access, model_rating " 	
-			+ "WHERE (access.subject_name='public' OR access.subject_id=:subject_id)  AND access.object_id=model_rating.object_id " 
-			+ "GROUP BY access.object_name "
-			+ "HAVING avg(model_rating.score) >= :score")
-			.setFloat("score", score)
-			.setInteger("subject_id", subject.getId())
-			.list();
-		
-		Persistance.commit();
-		
-		return results;
+		query.where("(SELECT avg(model_rating.score) FROM model_rating " 
+				+ "WHERE model_rating.object_id=identity.id) >= ?", score);
 	}
 }
@@ -0,0 +1,55 @@
+package org.b3mn.poem.handler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Representation;
+import org.b3mn.poem.Revision;
+import org.b3mn.poem.util.HandlerWithModelContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Lists the saved revisions of a model as JSON array, the latest first. With the parameter
+// "revision" it returns the content of that revision, or its SVG if the parameter "format" is "svg".
+@HandlerWithModelContext(uri="/revisions")
+public class RevisionHandler extends HandlerBase {
+
+	@Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response, Identity subject, Identity object) throws Exception {
+		Representation representation = object.read();
+		String number = request.getParameter("revision");
+		if (number == null) {
+			JSONArray revisions = new JSONArray();
+			for (Revision revision : Revision.list(representation)) {
+				JSONObject json = new JSONObject();
+				json.put("revision", revision.getNumber());
+				json.put("created", revision.getCreated().getTime()); // milliseconds since 1970, UTC
+				json.put("author", revision.getAuthor());
+				revisions.put(json);
+			}
+			response.setContentType("application/json");
+			revisions.write(response.getWriter());
+			response.setStatus(200);
+			return;
+		}
+
+		Revision revision = null;
+		try {
+			revision = Revision.get(representation, Integer.parseInt(number));
+		} catch (NumberFormatException e) {}
+		if (revision == null) {
+			response.setStatus(404);
+			response.getWriter().write("Revision " + number + " doesn't exist");
+			return;
+		}
+		if ("svg".equals(request.getParameter("format"))) {
+			response.setContentType("image/svg+xml");
+			response.getWriter().write(revision.getSvg());
+		} else {
+			response.setContentType(Representation.isJson(revision.getContent()) ? "application/json" : "application/xhtml+xml");
+			response.getWriter().write(revision.getContent());
+		}
+		response.setStatus(200);
+	}
+}
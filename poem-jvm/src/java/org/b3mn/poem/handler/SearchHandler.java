@@ -0,0 +1,97 @@
+package org.b3mn.poem.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.business.Model;
+import org.b3mn.poem.business.SearchIndex;
+import org.b3mn.poem.util.FilterMethod;
+import org.b3mn.poem.util.HandlerWithoutModelContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Searches the models that the user may read with the SearchIndex. The parameter "q" contains the
+// words, which have to occur in the title, summary, labels or documentation of a model, and
+// conditions on the stencil types like "stencil:Task>=5". The response is a JSON array of the
+// matching models, the best first, with their uri, title, type, score and number of shapes. The
+// parameters "offset" and "limit" (default 20) select a page of the result.
+@HandlerWithoutModelContext(uri="/search")
+public class SearchHandler extends HandlerBase {
+
+	public static final int DEFAULT_LIMIT = 20;
+
+	@Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response, Identity subject, Identity object) throws Exception {
+		String query = request.getParameter("q");
+		if ((query == null) || (query.trim().length() == 0)) {
+			response.setStatus(400);
+			response.getWriter().write("Parameter 'q' is missing");
+			return;
+		}
+		int offset = Math.max(0, SortFilterHandler.getIntParameter(request, "offset", 0));
+		int limit = SortFilterHandler.getIntParameter(request, "limit", DEFAULT_LIMIT);
+
+		// The hits that the user may not read are left out, more hits are requested until the
+		// page is full or there are no more hits
+		int wanted = limit < 0 ? -1 : offset + limit;
+		int requested = wanted < 0 ? 0 : wanted * 2;
+		List<SearchIndex.Hit> readable;
+		while (true) {
+			List<SearchIndex.Hit> hits = SearchIndex.search(query, requested);
+			readable = filter(subject, hits);
+			if ((requested <= 0) || (readable.size() >= wanted) || (hits.size() < requested)) {
+				break;
+			}
+			requested *= 4;
+		}
+
+		int from = Math.min(offset, readable.size());
+		int to = limit < 0 ? readable.size() : Math.min(from + limit, readable.size());
+		JSONArray output = new JSONArray();
+		for (SearchIndex.Hit hit : readable.subList(from, to)) {
+			JSONObject model = new JSONObject();
+			model.put("uri", hit.getUri());
+			model.put("title", hit.getDocument().getTitle());
+			model.put("type", hit.getDocument().getType());
+			model.put("score", hit.getScore());
+			model.put("elements", hit.getDocument().getElements());
+			output.put(model);
+		}
+		response.setContentType("application/json");
+		output.write(response.getWriter());
+		response.setStatus(200);
+	}
+
+	// Returns the hits of the models that the subject may read, in their order
+	protected static List<SearchIndex.Hit> filter(Identity subject, List<SearchIndex.Hit> hits) {
+		Map<String, SearchIndex.Hit> hitsByUri = new HashMap<String, SearchIndex.Hit>();
+		List<String> uris = new ArrayList<String>();
+		for (SearchIndex.Hit hit : hits) {
+			hitsByUri.put(hit.getUri(), hit);
+			uris.add(hit.getUri());
+		}
+		List<SearchIndex.Hit> readable = new ArrayList<SearchIndex.Hit>();
+		for (Model model : Model.getModels(subject, uris)) {
+			readable.add(hitsByUri.get(model.getUri()));
+		}
+		return readable;
+	}
+
+	// Restricts the models of the SortFilterHandler (/filter) to those that match the query, the
+	// access rights are checked by the sort method
+	@FilterMethod(FilterName="search")
+	public static Collection<String> searchFilter(Identity subject, String params) {
+		List<String> uris = new ArrayList<String>();
+		for (SearchIndex.Hit hit : SearchIndex.search(params, 0)) {
+			uris.add(hit.getUri());
+		}
+		return uris;
+	}
+}
@@ -37,6 +37,11 @@ import org.b3mn.poem.sketching.*;
 @ExportHandler(uri="/sketch", formatName="Sketch", iconUrl="/backend/images/silk/pencil_go.png")
 public class SketchyRenderer extends PdfRenderer {
 	
+	@Override
+	protected byte[] getRenderedImage(Representation representation) {
+		return null; // Sketches aren't cached
+	}
+	
 	@Override
     protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
     	InputStream in = new ByteArrayInputStream(in_s.getBytes("UTF-8"));
@@ -24,10 +24,14 @@
 package org.b3mn.poem.handler;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
@@ -35,8 +39,14 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.b3mn.poem.Identity;
 import org.b3mn.poem.util.HandlerWithoutModelContext;
+import org.b3mn.poem.util.ModelQuery;
 import org.json.JSONArray;
 
+// Returns the uris of the models the user may see as JSON array, sorted by the parameter "sort"
+// and filtered by all other parameters. The optional parameters "offset" and "limit" return
+// a page of the uris.
+// If the sort and all filters can add their criteria to a ModelQuery, the uris are selected
+// with a single query, otherwise the uris of each filter are intersected.
 @HandlerWithoutModelContext(uri="/filter")
 public class SortFilterHandler extends HandlerBase {
 	
@@ -56,32 +66,90 @@ public class SortFilterHandler extends HandlerBase {
 			sortName = defaultSort; // set default filter
 			sortMethod = getDispatcher().getSortMethod(sortName);
 		}
-
-		Object[] arg = { subject };
-		
-		// Use the LinkedHashSet implementation to remain the order of the entries
-		Set<String> orderedUris = new LinkedHashSet<String>( (List<String>) sortMethod.invoke(null, arg));
 		
-		// Iterate over http parameters
+		int offset = getIntParameter(request, "offset", 0);
+		int limit = getIntParameter(request, "limit", -1);
+
+		// Collect the filters and their parameters
+		Map<String, String> filters = new LinkedHashMap<String, String>();
 		Enumeration<String> e = request.getParameterNames();
 		while (e.hasMoreElements()) {
 			String filterName = (String) e.nextElement();
 			
 			String params = request.getParameter(filterName);
 			// Ignore Filters without parameters
-			if (!filterName.equals("sort") && (params != null) && (params.length() > 0)) {
-				Method filterMethod = getDispatcher().getFilterMethod(filterName.toLowerCase());
+			if (!filterName.equals("sort") && !filterName.equals("offset") && !filterName.equals("limit") 
+					&& (params != null) && (params.length() > 0)) {
+				filterName = filterName.toLowerCase();
 				// If the filter method exists
-				if (filterMethod != null) {
-					Object[] args = { subject,  params };
-					// Invoke the filter method an add the filtered ids to the result set
-					orderedUris.retainAll((Collection<String>) filterMethod.invoke(null, args)); 
+				if (getDispatcher().getFilterMethod(filterName) != null 
+						|| getDispatcher().getFilterCriterion(filterName) != null) {
+					filters.put(filterName, params);
 				}
 			}
 		}
 		
-		JSONArray jsonArray = new JSONArray(orderedUris); // Transform List to json
+		Collection<String> uris;
+		ModelQuery query = createQuery(subject, sortName, filters);
+		if (query != null) {
+			uris = query.page(offset, limit).list();
+		} else {
+			Object[] arg = { subject };
+			
+			// Use the LinkedHashSet implementation to remain the order of the entries
+			Set<String> orderedUris = new LinkedHashSet<String>( (List<String>) sortMethod.invoke(null, arg));
+			
+			for (Map.Entry<String, String> filter : filters.entrySet()) {
+				Method filterMethod = getDispatcher().getFilterMethod(filter.getKey());
+				Object[] args = { subject,  filter.getValue() };
+				// Invoke the filter method an add the filtered ids to the result set
+				// (retainAll looks up each uri in the filtered uris, a list would take quadratic time)
+				orderedUris.retainAll(new HashSet<String>((Collection<String>) filterMethod.invoke(null, args))); 
+			}
+			uris = page(new ArrayList<String>(orderedUris), offset, limit);
+		}
+		
+		JSONArray jsonArray = new JSONArray(uris); // Transform List to json
 		jsonArray.write(response.getWriter()); // Write json to http response
 		response.setStatus(200);
-	}	
+	}
+	
+	// Returns a query with the criteria of the sort and the filters or null if one of them
+	// has no criterion method
+	protected ModelQuery createQuery(Identity subject, String sortName, Map<String, String> filters) throws Exception {
+		Method sortCriterion = getDispatcher().getSortCriterion(sortName);
+		if (sortCriterion == null) {
+			return null;
+		}
+		for (String filterName : filters.keySet()) {
+			if (getDispatcher().getFilterCriterion(filterName) == null) {
+				return null;
+			}
+		}
+		
+		ModelQuery query = new ModelQuery(subject);
+		sortCriterion.invoke(null, query);
+		for (Map.Entry<String, String> filter : filters.entrySet()) {
+			getDispatcher().getFilterCriterion(filter.getKey()).invoke(null, query, filter.getValue());
+		}
+		return query;
+	}
+	
+	protected static List<String> page(List<String> uris, int offset, int limit) {
+		int from = Math.min(offset, uris.size());
+		int to = limit < 0 ? uris.size() : Math.min(from + limit, uris.size());
+		return uris.subList(from, to);
+	}
+	
+	protected static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+		String value = request.getParameter(name);
+		if (value == null || value.length() == 0) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(Integer.parseInt(value), 0);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
 }
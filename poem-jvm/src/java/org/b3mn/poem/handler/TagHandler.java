@@ -36,6 +36,7 @@ import org.b3mn.poem.business.Model;
 import org.b3mn.poem.business.User;
 import org.b3mn.poem.util.FilterMethod;
 import org.b3mn.poem.util.HandlerWithModelContext;
+import org.b3mn.poem.util.ModelQuery;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -131,5 +132,18 @@ public class TagHandler extends HandlerBase {
 		}
 		return finalUris;
 	}
+	
+	@FilterMethod(FilterName="tags")
+	public static void tagFilter(ModelQuery query, String params) {
+		for (String tag : params.split(",")) {
+			tag = StringEscapeUtils.unescapeHtml(tag);
+			tag = removeSpaces(tag);
+			
+			query.where("EXISTS (SELECT 1 FROM tag_relation, tag_definition "
+					+ "WHERE tag_relation.object_id=identity.id "
+					+ "AND tag_relation.tag_id=tag_definition.id "
+					+ "AND tag_definition.name=?)", tag);
+		}
+	}
 
 }
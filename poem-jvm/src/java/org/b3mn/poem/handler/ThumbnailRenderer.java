@@ -23,55 +23,15 @@
 
 package org.b3mn.poem.handler;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-
-import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.PNGTranscoder;
-import org.b3mn.poem.Representation;
+import org.b3mn.poem.business.RenderService;
 import org.b3mn.poem.util.HandlerWithModelContext;
 
 
 @HandlerWithModelContext(uri="/thumbnail")
 public class ThumbnailRenderer extends PngRenderer {
 	
-	private static float HEIGHT = 240f;
-	private static float WIDTH = 320f;
-	
 	@Override
-	protected void transcode(String in_s, OutputStream out, Representation representation) throws TranscoderException, IOException {
-
-		byte[] pngData = representation.getPngSmall();
-		if (pngData != null) {
-			out.write(pngData);
-		} else {    	
-			InputStream in = new ByteArrayInputStream(in_s.getBytes("UTF-8"));
-			PNGTranscoder transcoder = new PNGTranscoder();
-			try {
-				TranscoderInput input = new TranscoderInput(in);
-
-				// Setup output
-				ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
-				try {
-					TranscoderOutput output = new TranscoderOutput(outBytes);
-					
-					transcoder.addTranscodingHint(PNGTranscoder.KEY_MAX_WIDTH, WIDTH);
-					transcoder.addTranscodingHint(PNGTranscoder.KEY_MAX_HEIGHT, HEIGHT);
-					// Do the transformation
-					transcoder.transcode(input, output);
-					representation.setPngSmall(outBytes.toByteArray());
-					out.write(outBytes.toByteArray());
-				} finally {
-					out.close();
-				}
-			} finally {
-				in.close();
-			}
-		}
+	protected RenderService.Format getFormat() {
+		return RenderService.Format.PNG_SMALL;
 	}
 }
@@ -0,0 +1,157 @@
+package org.b3mn.poem.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/* Binary deltas between two versions of a byte array, e.g. the contents of two revisions of a model.
+ *
+ * A delta lists the operations that build the target from the source: copy a range of the
+ * source or insert new bytes. Ranges of the source are found by looking up each block of
+ * BLOCK_SIZE bytes of the target in a hash table of the blocks of the source, a match is then
+ * extended in both directions. Deltas and snapshots are stored gzipped, see compress().
+ */
+public class Delta {
+
+	public static final int BLOCK_SIZE = 16;
+
+	private static final int COPY = 0;
+	private static final int INSERT = 1;
+
+	public static byte[] create(byte[] source, byte[] target) {
+		// Hash table of the positions of the source blocks, -1 is empty
+		int tableSize = Integer.highestOneBit(Math.max(source.length / BLOCK_SIZE, 1) * 2) * 2;
+		int[] table = new int[tableSize];
+		Arrays.fill(table, -1);
+		for (int i = 0; i + BLOCK_SIZE <= source.length; i += BLOCK_SIZE) {
+			int slot = hash(source, i) & (tableSize - 1);
+			if (table[slot] < 0) {
+				table[slot] = i;
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream delta = new DataOutputStream(bytes);
+		try {
+			delta.writeInt(target.length);
+			int insertStart = 0; // Start of the bytes that weren't found in the source
+			int i = 0;
+			while (i + BLOCK_SIZE <= target.length) {
+				int candidate = table[hash(target, i) & (tableSize - 1)];
+				if ((candidate >= 0) && equal(source, candidate, target, i, BLOCK_SIZE)) {
+					// Extend the match backwards into the inserted bytes and forwards
+					int start = i;
+					int sourceStart = candidate;
+					while ((start > insertStart) && (sourceStart > 0) && (target[start - 1] == source[sourceStart - 1])) {
+						start--;
+						sourceStart--;
+					}
+					int end = i + BLOCK_SIZE;
+					int sourceEnd = candidate + BLOCK_SIZE;
+					while ((end < target.length) && (sourceEnd < source.length) && (target[end] == source[sourceEnd])) {
+						end++;
+						sourceEnd++;
+					}
+					writeInsert(delta, target, insertStart, start);
+					delta.writeByte(COPY);
+					delta.writeInt(sourceStart);
+					delta.writeInt(end - start);
+					i = end;
+					insertStart = end;
+				} else {
+					i++;
+				}
+			}
+			writeInsert(delta, target, insertStart, target.length);
+			delta.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // Doesn't happen with a ByteArrayOutputStream
+		}
+		return bytes.toByteArray();
+	}
+
+	public static byte[] apply(byte[] source, byte[] delta) {
+		try {
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(delta));
+			byte[] target = new byte[input.readInt()];
+			int position = 0;
+			while (position < target.length) {
+				int operation = input.readByte();
+				int length;
+				if (operation == COPY) {
+					int offset = input.readInt();
+					length = input.readInt();
+					System.arraycopy(source, offset, target, position, length);
+				} else if (operation == INSERT) {
+					length = input.readInt();
+					input.readFully(target, position, length);
+				} else {
+					throw new IllegalArgumentException("Invalid delta operation " + operation);
+				}
+				position += length;
+			}
+			return target;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid delta", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Delta doesn't match the source", e);
+		}
+	}
+
+	public static byte[] compress(byte[] data) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			GZIPOutputStream output = new GZIPOutputStream(bytes);
+			output.write(data);
+			output.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static byte[] decompress(byte[] data) {
+		try {
+			GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(data));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length * 4);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid compressed data", e);
+		}
+	}
+
+	private static void writeInsert(DataOutputStream delta, byte[] target, int start, int end) throws IOException {
+		if (end > start) {
+			delta.writeByte(INSERT);
+			delta.writeInt(end - start);
+			delta.write(target, start, end - start);
+		}
+	}
+
+	private static int hash(byte[] data, int offset) {
+		int hash = 0;
+		for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+			hash = 31 * hash + data[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equal(byte[] first, int firstOffset, byte[] second, int secondOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			if (first[firstOffset + i] != second[secondOffset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
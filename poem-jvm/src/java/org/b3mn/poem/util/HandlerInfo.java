@@ -47,6 +47,9 @@ public class HandlerInfo {
 	
 	private static Map<String, Method> filterMapping = new HashMap<String, Method>();
 	private static Map<String, Method> sortMapping = new HashMap<String, Method>();
+	// Methods that add the criteria of a filter or sort to a ModelQuery
+	private static Map<String, Method> filterCriterionMapping = new HashMap<String, Method>();
+	private static Map<String, Method> sortCriterionMapping = new HashMap<String, Method>();
 	
 	protected Class<? extends HandlerBase> handlerClass = null;
 	protected HandlerBase handlerInstance = null;
@@ -59,6 +62,14 @@ public class HandlerInfo {
 		return sortMapping;
 	}
 
+	public static Map<String, Method> getFilterCriterionMapping() {
+		return filterCriterionMapping;
+	}
+
+	public static Map<String, Method> getSortCriterionMapping() {
+		return sortCriterionMapping;
+	}
+
 	public ExportInfo getExportInfo() {
 		return exportInfo;
 	}
@@ -169,48 +180,56 @@ public class HandlerInfo {
 			// Iterate over all public methods of the class
 			for (Method method : handlerClass.getMethods()) {  
 				// Find filtering methods ************************************************************
-				// Check if the method is static, annotated with the FilterMethod annotation,
-				// returns a collection and has the right parameters
+				// Check if the method is static, annotated with the FilterMethod annotation
+				// and has two parameters
 				if ((method.getAnnotation(FilterMethod.class) != null) && 
-						(isSuperclass(method.getReturnType(),Collection.class)) && 
 						(method.getParameterTypes().length == 2) &&
 						((method.getModifiers() & Modifier.STATIC) != 0)) {
-					// Check: 1st parameter: Identity, 2nd String
+					// Check: 1st parameter: Identity, 2nd String, returns a collection
 					if ((method.getParameterTypes()[0].equals(Identity.class)) && 
+							(method.getGenericParameterTypes()[1].equals(String.class)) && 
+							(isSuperclass(method.getReturnType(),Collection.class))) {
+						HandlerInfo.filterMapping.put(getFilterName(method), method);
+					}
+					// Check: 1st parameter: ModelQuery, 2nd String
+					if ((method.getParameterTypes()[0].equals(ModelQuery.class)) && 
 							(method.getGenericParameterTypes()[1].equals(String.class))) {
-						// If no filter name is supplied by the annotation, use the method name
-						// Note: filter names are case-insensitive
-						String filterName = method.getName().toLowerCase();
-						
-						if (!method.getAnnotation(FilterMethod.class).FilterName().equals("")) {
-							filterName = method.getAnnotation(FilterMethod.class).FilterName().toLowerCase();
-						}
-						HandlerInfo.filterMapping.put(filterName, method);
+						HandlerInfo.filterCriterionMapping.put(getFilterName(method), method);
 					}
 				}
 				// Find sorting methods ************************************************************
-				// Check if the method is static, annotated with the SortMethod annotation,
-				// returns a list and has the right parameters  
+				// Check if the method is static, annotated with the SortMethod annotation
+				// and has one parameter
 				if ((method.getAnnotation(SortMethod.class) != null) && 
-						(isSuperclass(method.getReturnType(),List.class)) && 
 						(method.getParameterTypes().length == 1) &&
 						((method.getModifiers() & Modifier.STATIC) != 0)) {
-					// Check: 1st and only parameter: Identity
-					if (method.getParameterTypes()[0].equals(Identity.class)) {			
-						// If no filter name is supplied by the annotation, use the method name
-						// Note: filter names are case-insensitive
-						String sortName = method.getName().toLowerCase();
-
-						if (!method.getAnnotation(SortMethod.class).SortName().equals("")) {
-							sortName = method.getAnnotation(SortMethod.class).SortName().toLowerCase();
-						}
-						HandlerInfo.sortMapping.put(sortName, method);
+					// Check: 1st and only parameter: Identity, returns a list
+					if (method.getParameterTypes()[0].equals(Identity.class) && 
+							(isSuperclass(method.getReturnType(),List.class))) {
+						HandlerInfo.sortMapping.put(getSortName(method), method);
+					}
+					// Check: 1st and only parameter: ModelQuery
+					if (method.getParameterTypes()[0].equals(ModelQuery.class)) {
+						HandlerInfo.sortCriterionMapping.put(getSortName(method), method);
 					}
 				}											
 			}
 		}
 	}
 
+	// If no filter name is supplied by the annotation, use the method name
+	// Note: filter names are case-insensitive
+	private static String getFilterName(Method method) {
+		String filterName = method.getAnnotation(FilterMethod.class).FilterName();
+		return (filterName.equals("") ? method.getName() : filterName).toLowerCase();
+	}
+	
+	// The same holds for sort names
+	private static String getSortName(Method method) {
+		String sortName = method.getAnnotation(SortMethod.class).SortName();
+		return (sortName.equals("") ? method.getName() : sortName).toLowerCase();
+	}
+
 	public AccessRight getAccessRestriction(String operation) {
 		operation = operation.toLowerCase();
 		AccessRight right = this.accessRights.get(operation);
@@ -0,0 +1,120 @@
+package org.b3mn.poem.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Persistance;
+import org.hibernate.SQLQuery;
+
+/* Builds a single SQL query for the uris of the models a subject may see, with the
+ * criteria of the requested filters and sort order and an optional page.
+ *
+ * Filters and sorts add their criteria with methods that are annotated with
+ * FilterMethod or SortMethod like the methods that return the filtered or sorted uris:
+ *
+ * 	@FilterMethod(FilterName="type")
+ * 	public static void filterByModelType(ModelQuery query, String params)
+ *
+ * 	@SortMethod(SortName="title")
+ * 	public static void sortByTitle(ModelQuery query)
+ *
+ * Criteria are SQL expressions over the tables identity and representation of the
+ * model. Their values are passed as JDBC parameters (?) in the order of the expression.
+ *
+ * The sorts by last change and title are read from the indexes of
+ * poem-jvm/data/database/migrate_to_model_query.sql, which end with the id like getSql().
+ */
+public class ModelQuery {
+
+	protected Identity subject;
+
+	protected List<String> conditions = new ArrayList<String>();
+	protected List<Object> conditionValues = new ArrayList<Object>();
+	protected List<String> orders = new ArrayList<String>();
+	protected List<Object> orderValues = new ArrayList<Object>();
+	protected int limit = -1;
+	protected int offset = 0;
+
+	public ModelQuery(Identity subject) {
+		this.subject = subject;
+	}
+
+	public Identity getSubject() {
+		return subject;
+	}
+
+	// Adds a condition that the models have to fulfill, e.g. "representation.type=?"
+	public ModelQuery where(String condition, Object... values) {
+		conditions.add("(" + condition + ")");
+		Collections.addAll(conditionValues, values);
+		return this;
+	}
+
+	// Adds an expression to sort by, e.g. "representation.title" or "representation.updated DESC".
+	// Expressions added later only order models that are equal in the former ones.
+	public ModelQuery orderBy(String expression, Object... values) {
+		orders.add(expression);
+		Collections.addAll(orderValues, values);
+		return this;
+	}
+
+	// Restricts the result to a page of the sorted models, a negative limit returns all models after the offset
+	public ModelQuery page(int offset, int limit) {
+		this.offset = offset;
+		this.limit = limit;
+		return this;
+	}
+
+	public String getSql() {
+		StringBuilder sql = new StringBuilder(
+				"SELECT identity.uri FROM identity, representation " +
+				"WHERE representation.ident_id=identity.id AND identity.id IN " +
+				"(SELECT access.object_id FROM access WHERE access.subject_name='public' OR access.subject_id=?)");
+		for (String condition : conditions) {
+			sql.append(" AND ").append(condition);
+		}
+		sql.append(" ORDER BY ");
+		for (String order : orders) {
+			sql.append(order).append(", ");
+		}
+		// Models that are equal in all sort criteria keep the same order on each page
+		sql.append("identity.id");
+		if (limit >= 0) {
+			sql.append(" LIMIT ?");
+		}
+		if (offset > 0) {
+			sql.append(" OFFSET ?");
+		}
+		return sql.toString();
+	}
+
+	// The values of the parameters of getSql() in their order
+	public List<Object> getParameters() {
+		List<Object> parameters = new ArrayList<Object>();
+		parameters.add(subject.getId());
+		parameters.addAll(conditionValues);
+		parameters.addAll(orderValues);
+		if (limit >= 0) {
+			parameters.add(limit);
+		}
+		if (offset > 0) {
+			parameters.add(offset);
+		}
+		return parameters;
+	}
+
+	// Runs the query and returns the uris of the models
+	@SuppressWarnings("unchecked")
+	public List<String> list() {
+		SQLQuery query = Persistance.getSession().createSQLQuery(getSql());
+		List<Object> parameters = getParameters();
+		for (int i = 0; i < parameters.size(); i++) {
+			query.setParameter(i, parameters.get(i));
+		}
+		List<String> uris = query.list();
+		Persistance.commit();
+		return uris;
+	}
+}
@@ -28,7 +28,8 @@ public class RdfJsonTransformation {
 	
 	private static String hostUrl;
 
-	public static JSONObject toJson(Document rdfDoc, String requestUrl) {
+	// Synchronized because the state of a transformation is kept in the static fields
+	public static synchronized JSONObject toJson(Document rdfDoc, String requestUrl) {
 		
 		canvas = new JSONObject();
 		objects = new HashMap<String,JSONObject>();
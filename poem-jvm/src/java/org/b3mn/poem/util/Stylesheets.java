@@ -0,0 +1,147 @@
+package org.b3mn.poem.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.TransformerFactoryConfigurationError;
+import javax.xml.transform.stream.StreamSource;
+
+import org.b3mn.poem.Dispatcher;
+
+// The XSLT stylesheets of POEM in WEB-INF/lib, e.g. extract-rdf.xsl. Each stylesheet is compiled
+// once to Templates, each thread gets its own Transformer of a stylesheet, which is reset before
+// it is returned. The Transformers must not be kept or passed to other threads.
+//
+// The stylesheets are compiled by Saxon if it is on the classpath and enabled with setUseSaxon()
+// or the system property org.b3mn.poem.saxon=true, otherwise by the default JAXP processor.
+public class Stylesheets {
+
+	public static final String SAXON_FACTORY = "net.sf.saxon.TransformerFactoryImpl";
+
+	private static File directory = null;
+	private static TransformerFactory factory = null;
+	private static boolean useSaxon = Boolean.getBoolean("org.b3mn.poem.saxon");
+
+	// Stylesheet name -> compiled stylesheet
+	private static final Map<String, Templates> templates = new ConcurrentHashMap<String, Templates>();
+
+	private static final ThreadLocal<Map<String, Transformer>> transformers = new ThreadLocal<Map<String, Transformer>>() {
+		@Override
+		protected Map<String, Transformer> initialValue() {
+			return new HashMap<String, Transformer>();
+		}
+	};
+
+	// Counts the changes of the configuration, the Transformers of threads are created again after a change
+	private static volatile int generation = 0;
+	private static final ThreadLocal<Integer> threadGeneration = new ThreadLocal<Integer>();
+
+	// Sets the directory of the stylesheets for the use without servlet container, e.g. WEB-INF/lib
+	public static synchronized void setDirectory(File directory) {
+		Stylesheets.directory = directory;
+		reset();
+	}
+
+	// Enables or disables Saxon, returns whether Saxon is used
+	public static synchronized boolean setUseSaxon(boolean useSaxon) {
+		Stylesheets.useSaxon = useSaxon;
+		reset();
+		return isSaxon();
+	}
+
+	public static synchronized boolean isSaxon() {
+		return getFactory().getClass().getName().equals(SAXON_FACTORY);
+	}
+
+	// Returns the Transformer of the calling thread for the stylesheet with the given name
+	public static Transformer getTransformer(String name) throws TransformerConfigurationException {
+		Map<String, Transformer> threadTransformers = transformers.get();
+		Integer current = generation;
+		if (!current.equals(threadGeneration.get())) {
+			threadTransformers.clear();
+			threadGeneration.set(current);
+		}
+		Transformer transformer = threadTransformers.get(name);
+		if (transformer == null) {
+			transformer = getTemplates(name).newTransformer();
+			threadTransformers.put(name, transformer);
+		} else {
+			transformer.reset();
+		}
+		return transformer;
+	}
+
+	public static Templates getTemplates(String name) throws TransformerConfigurationException {
+		Templates compiled = templates.get(name);
+		if (compiled == null) {
+			synchronized (Stylesheets.class) {
+				compiled = templates.get(name);
+				if (compiled == null) {
+					StreamSource source = getSource(name);
+					try {
+						compiled = getFactory().newTemplates(source);
+					} finally {
+						close(source);
+					}
+					templates.put(name, compiled);
+				}
+			}
+		}
+		return compiled;
+	}
+
+	private static StreamSource getSource(String name) throws TransformerConfigurationException {
+		if (directory != null) {
+			File file = new File(directory, name);
+			if (!file.exists()) {
+				throw new TransformerConfigurationException("Stylesheet " + name + " not found in " + directory);
+			}
+			return new StreamSource(file);
+		}
+		InputStream in = Dispatcher.servletContext.getResourceAsStream("/WEB-INF/lib/" + name);
+		if (in == null) {
+			throw new TransformerConfigurationException("Stylesheet " + name + " not found in WEB-INF/lib");
+		}
+		return new StreamSource(in);
+	}
+
+	private static void close(StreamSource source) {
+		if (source.getInputStream() != null) {
+			try {
+				source.getInputStream().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static TransformerFactory getFactory() {
+		if (factory == null) {
+			if (useSaxon) {
+				try {
+					factory = TransformerFactory.newInstance(SAXON_FACTORY, Stylesheets.class.getClassLoader());
+				} catch (TransformerFactoryConfigurationError e) {
+					System.err.println("Saxon is not available, using the default XSLT processor: " + e);
+				}
+			}
+			if (factory == null) {
+				factory = TransformerFactory.newInstance();
+			}
+		}
+		return factory;
+	}
+
+	private static void reset() {
+		factory = null;
+		templates.clear();
+		generation++;
+	}
+}
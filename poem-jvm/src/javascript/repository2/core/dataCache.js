@@ -103,6 +103,18 @@ Repository.Core.DataCache = {
 		query.callback 		= callback;
 		query.cacheMisses 	= cacheMisses;
 		
+		// Fetch the meta data of several models with a single request
+		if (fetchDataUri == "/meta" && cacheMisses.length > 1) {
+			Ext.Ajax.request({
+				url		: "meta_batch",
+				method	: "POST",
+				params	: { models : Ext.util.JSON.encode(cacheMisses) },
+				success	: this.batchReturnHandler.bind(this, query),
+				failure	: function(){/*console.log(arguments)*/}
+			});
+			return;
+		}
+		
 		cacheMisses.each(function(modelId) {
 			// Remove leading slash from model uri
 			var requestUrl = modelId.substring(1) +  fetchDataUri 
@@ -132,6 +144,24 @@ Repository.Core.DataCache = {
 		queryData.cacheMisses = queryData.cacheMisses.without( modelId );
 		this.updateObject(queryData.fetchDataUri, modelId, returnedData, true); // Force update event only when at last request 
 
+		this._finishQuery(queryData, response);
+	},
+	
+	// Handles the response of /meta_batch, which maps the model ids to their data
+	batchReturnHandler : function(queryData, response, options) {
+
+		var respText 		= response.responseText;
+		var returnedData 	= respText.length > 0 ? Ext.util.JSON.decode(respText) : {};
+
+		queryData.cacheMisses.each(function(modelId) {
+			this.updateObject(queryData.fetchDataUri, modelId, returnedData[modelId] || null, true);
+		}.bind(this));
+		queryData.cacheMisses = [];
+
+		this._finishQuery(queryData, response);
+	},
+	
+	_finishQuery : function(queryData, response) {
 		// Everything returned from server
 		if (queryData.cacheMisses.length == 0) {
 			var queriedData = new Hash()
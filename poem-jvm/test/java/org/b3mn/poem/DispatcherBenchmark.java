@@ -0,0 +1,110 @@
+package org.b3mn.poem;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.b3mn.poem.business.EntityCache;
+import org.b3mn.poem.business.User;
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.mock.MockDispatcher;
+
+/**
+ * Measures the overhead of the Dispatcher per request, for a handler that
+ * does nothing, with and without the {@link EntityCache}. The requests go to
+ * random models of 100 users, each model is read by the owner and another
+ * user.
+ *
+ * The models are kept by the {@link MockDatabase}, because there is no
+ * embedded database in the libraries of POEM. Each statement takes the given
+ * round trip time.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.DispatcherBenchmark [models] [round trip microseconds]</code>
+ */
+public class DispatcherBenchmark {
+
+	private static final int USERS = 100;
+	private static final int REQUESTS = 20000;
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		long roundTrip = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+		MockDatabase.install();
+		MockDatabase.clear();
+		Random random = new Random(42);
+		MockDatabase.addIdentity(Dispatcher.getPublicUser());
+		List<User> users = new ArrayList<User>();
+		for (int i = 0; i < USERS; i++) {
+			MockDatabase.addIdentity("user" + i);
+			users.add(new User("user" + i));
+		}
+		List<User> readers = new ArrayList<User>();
+		List<String> paths = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			int owner = random.nextInt(USERS);
+			String uri = MockDatabase.addModel("user" + owner, "Model " + i, "bpmn", new Date());
+			int reader = (owner + 1 + random.nextInt(USERS - 1)) % USERS;
+			MockDatabase.grant("user" + reader, uri, "read");
+			readers.add(users.get(random.nextBoolean() ? owner : reader));
+			paths.add(uri + "/read");
+		}
+		System.out.println(count + " models, " + REQUESTS + " requests");
+
+		patterns();
+
+		MockDispatcher dispatcher = new MockDispatcher();
+		for (long micros : new long[] { 0, roundTrip }) {
+			MockDatabase.roundTripMicros = micros;
+			for (int size : new int[] { 0, EntityCache.DEFAULT_MAX_SIZE }) {
+				EntityCache.configure(size, EntityCache.DEFAULT_TTL);
+				int requests = micros == 0 ? REQUESTS : REQUESTS / 10;
+				// warm up, with each model once
+				for (int i = 0; i < count; i++)
+					dispatcher.get(readers.get(i), paths.get(i));
+				MockDatabase.statements.set(0);
+				long start = System.nanoTime();
+				for (int i = 0; i < requests; i++) {
+					int model = random.nextInt(count);
+					if (dispatcher.get(readers.get(model), paths.get(model)) != 200)
+						throw new IllegalStateException("Access denied to " + paths.get(model));
+				}
+				double micro = (System.nanoTime() - start) / 1e3 / requests;
+				System.out.println(String.format("%-14s %3d us per statement: %8.1f us, %.2f statements per request",
+						size == 0 ? "without cache" : "with cache", micros, micro,
+						MockDatabase.statements.get() / (double) requests));
+			}
+		}
+	}
+
+	/* Compiling the pattern of the request path per request, as the Dispatcher did it, and once */
+	private static void patterns() {
+		String regex = "(\\/model\\/([0-9]+))?(\\/[^\\/]+\\/?)$";
+		String path = "/model/4711/read";
+		int sum = 0;
+		for (int round = 0; round < 2; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < REQUESTS * 10; i++) {
+				Matcher matcher = Pattern.compile(regex).matcher(new StringBuffer(path));
+				matcher.find();
+				sum += matcher.group(3).length();
+			}
+			double compiled = (System.nanoTime() - start) / 1e3 / (REQUESTS * 10);
+			Pattern pattern = Pattern.compile(regex);
+			start = System.nanoTime();
+			for (int i = 0; i < REQUESTS * 10; i++) {
+				Matcher matcher = pattern.matcher(path);
+				matcher.find();
+				sum += matcher.group(3).length();
+			}
+			double precompiled = (System.nanoTime() - start) / 1e3 / (REQUESTS * 10);
+			if (round == 1)
+				System.out.println(String.format("path pattern: %.2f us compiled per match, %.2f us precompiled (%d)",
+						compiled, precompiled, sum));
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package org.b3mn.poem;
+
+import java.io.File;
+
+import org.b3mn.poem.util.Stylesheets;
+
+/**
+ * Measures the eRDF to RDF to JSON conversions per second of
+ * {@link Representation#erdfToJson(String, String)} for models of different
+ * sizes. The conversions run once with extract-rdf.xsl compiled for each
+ * conversion, like before {@link Stylesheets}, and once with the stylesheet
+ * compiled once and the transformer of the thread reused. If Saxon is on the
+ * classpath, the compiled stylesheet is measured with Saxon as well.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.ErdfConversionBenchmark [seconds per run]</code>
+ */
+public class ErdfConversionBenchmark {
+
+	private static final String SERVER_URL = "http://localhost:8080";
+	private static final File STYLESHEETS = new File("poem-jvm/lib");
+	private static final int[] SHAPES = { 10, 50, 200 };
+
+	public static void main(String[] args) throws Exception {
+		long millis = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+
+		Stylesheets.setDirectory(STYLESHEETS);
+		for (int shapes : SHAPES) {
+			String erdf = JsonMigrationTest.erdf(shapes);
+			double perCall = run(erdf, millis, true);
+			double compiled = run(erdf, millis, false);
+			System.out.println(String.format("%4d shapes: compiled per conversion %8.1f/s, compiled once %8.1f/s (%.1fx)",
+					shapes, perCall, compiled, compiled / perCall));
+		}
+
+		if (Stylesheets.setUseSaxon(true)) {
+			for (int shapes : SHAPES) {
+				String erdf = JsonMigrationTest.erdf(shapes);
+				System.out.println(String.format("%4d shapes: Saxon, compiled once %8.1f/s", shapes,
+						run(erdf, millis, false)));
+			}
+		} else {
+			System.out.println("Saxon is not on the classpath");
+		}
+		Stylesheets.setUseSaxon(false);
+	}
+
+	// Returns the conversions per second
+	private static double run(String erdf, long millis, boolean compileEachTime) {
+		// Warm up
+		for (int i = 0; i < 20; i++)
+			convert(erdf, compileEachTime);
+		int conversions = 0;
+		long start = System.currentTimeMillis();
+		long elapsed;
+		do {
+			convert(erdf, compileEachTime);
+			conversions++;
+			elapsed = System.currentTimeMillis() - start;
+		} while (elapsed < millis);
+		return conversions * 1000.0 / elapsed;
+	}
+
+	private static void convert(String erdf, boolean compileEachTime) {
+		if (compileEachTime) {
+			// Drops the compiled stylesheet and the transformer factory
+			Stylesheets.setDirectory(STYLESHEETS);
+		}
+		if (Representation.erdfToJson(erdf, SERVER_URL) == null)
+			throw new IllegalStateException("The eRDF cannot be transformed");
+	}
+}
@@ -0,0 +1,160 @@
+package org.b3mn.poem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.util.Stylesheets;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonMigrationTest {
+
+	private static final String SERVER_URL = "http://localhost:8080";
+
+	private List<Representation> models;
+	private File checkpoint;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		Stylesheets.setDirectory(new File("poem-jvm/lib"));
+		MockDatabase.addIdentity("alice");
+		models = new ArrayList<Representation>();
+		for (int i = 0; i < 20; i++) {
+			Representation representation = Identity.instance(
+					MockDatabase.addModel("alice", "Model " + i, "epc", new Date())).read();
+			representation.setContent(erdf(1 + i % 7));
+			models.add(representation);
+		}
+		checkpoint = File.createTempFile("json-migration", ".checkpoint");
+		checkpoint.delete();
+	}
+
+	@After
+	public void tearDown() {
+		Stylesheets.setDirectory(null);
+		checkpoint.delete();
+	}
+
+	@Test
+	public void testVerify() throws Exception {
+		String erdf = erdf(3);
+		String json = Representation.erdfToJson(erdf, SERVER_URL);
+		assertNull(JsonMigration.verify(erdf, json));
+		assertEquals(3, new JSONObject(json).getJSONArray("childShapes").length());
+		assertNotNull(JsonMigration.verify(erdf(4), json));
+		assertNotNull(JsonMigration.verify(erdf, "{\"resourceId\":\"oryx-canvas123\"}"));
+		assertNotNull(JsonMigration.verify(erdf, "<div/>"));
+	}
+
+	@Test
+	public void testMigration() throws Exception {
+		String expected = models.get(3).getJson(SERVER_URL);
+		models.get(5).setContent("{\"resourceId\":\"canvas\",\"childShapes\":[]}");
+		models.get(7).setContent("<div class=\"processdata\"><div class=\"-oryx-canvas\" id=\"oryx-canvas123\">");
+		models.get(8).setContent("\n  " + erdf(2));
+
+		JsonMigration migration = new JsonMigration(SERVER_URL, checkpoint, 4);
+		migration.setBatchSize(6);
+		migration.run();
+		assertEquals(18, migration.getConverted());
+		assertEquals(0, migration.getChanged());
+		assertEquals(1, migration.getFailures().size());
+		assertTrue(migration.getFailures().containsKey(models.get(7).getId()));
+		assertTrue(migration.getReport().startsWith("18 models converted, 0 already JSON, 0 changed meanwhile, 1 failed"));
+
+		// Reads return the stored JSON
+		String stored = models.get(3).getPureContent();
+		assertTrue(Representation.isJson(stored));
+		assertEquals(expected, stored);
+		assertEquals(expected, models.get(3).getJson(SERVER_URL));
+		assertTrue(!Representation.isJson(models.get(7).getPureContent()));
+
+		// A second run finds nothing to do
+		migration = new JsonMigration(SERVER_URL, checkpoint, 4);
+		migration.run();
+		assertEquals(18, migration.getConverted());
+		assertEquals(1, migration.getFailures().size());
+		assertTrue(Representation.isJson(models.get(8).getPureContent()));
+
+		// Models before the checkpoint are only converted by a rescan
+		models.get(2).setContent(erdf(2));
+		migration = new JsonMigration(SERVER_URL, checkpoint, 4);
+		migration.run();
+		assertTrue(!Representation.isJson(models.get(2).getPureContent()));
+		migration.setRescan(true);
+		migration.run();
+		assertEquals(19, migration.getConverted());
+		assertTrue(Representation.isJson(models.get(2).getPureContent()));
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		// An interrupted migration that converted the first 10 models
+		Properties properties = new Properties();
+		properties.setProperty("last_id", String.valueOf(models.get(9).getId()));
+		properties.setProperty("converted", "10");
+		OutputStream out = new FileOutputStream(checkpoint);
+		properties.store(out, null);
+		out.close();
+
+		JsonMigration migration = new JsonMigration(SERVER_URL, checkpoint, 2);
+		migration.run();
+		assertEquals(20, migration.getConverted());
+		assertTrue(!Representation.isJson(models.get(9).getPureContent()));
+		assertTrue(Representation.isJson(models.get(10).getPureContent()));
+
+		Properties saved = new Properties();
+		saved.load(new java.io.FileInputStream(checkpoint));
+		assertEquals(String.valueOf(models.get(19).getId()), saved.getProperty("last_id"));
+	}
+
+	/* An EPC of events and functions connected by control flows, as the editor saves it */
+	static String erdf(int shapes) {
+		StringBuilder erdf = new StringBuilder("<div class=\"processdata\"><div class=\"-oryx-canvas\" "
+				+ "id=\"oryx-canvas123\" style=\"display: none; width: 1200px; height: 600px;\">"
+				+ "<span class=\"oryx-type\">http://b3mn.org/stencilset/epc#Diagram</span>"
+				+ "<span class=\"oryx-title\">EPC</span><span class=\"oryx-mode\">writable</span>"
+				+ "<span class=\"oryx-mode\">fullscreen</span>"
+				+ "<a rel=\"oryx-stencilset\" href=\"/oryx/stencilsets/epc/epc.json\"/>");
+		for (int i = 0; i < shapes; i++)
+			erdf.append("<a rel=\"oryx-render\" href=\"#oryx_").append(i).append("\"/>");
+		erdf.append("</div>");
+		for (int i = 0; i < shapes; i++) {
+			erdf.append("<div id=\"oryx_").append(i).append("\">");
+			if (i % 2 == 0) {
+				erdf.append("<span class=\"oryx-type\">http://b3mn.org/stencilset/epc#")
+						.append(i % 4 == 0 ? "Event" : "Function").append("</span>")
+						.append("<span class=\"oryx-title\">Shape ").append(i).append("</span>")
+						.append("<span class=\"oryx-description\">Description of shape ").append(i).append("</span>")
+						.append("<span class=\"oryx-bgcolor\">%23ffafff</span>")
+						.append("<span class=\"oryx-bounds\">").append(100 * i).append(",77,").append(100 * i + 100)
+						.append(",137</span>");
+			} else {
+				erdf.append("<span class=\"oryx-type\">http://b3mn.org/stencilset/epc#ControlFlow</span>")
+						.append("<span class=\"oryx-bounds\">").append(100 * i).append(",107,").append(100 * i + 100)
+						.append(",107</span><span class=\"oryx-dockers\">50 30 50 30  #</span>");
+				if (i + 1 < shapes)
+					erdf.append("<a rel=\"raziel-target\" href=\"#oryx_").append(i + 1).append("\"/>");
+			}
+			if (i + 1 < shapes)
+				erdf.append("<a rel=\"raziel-outgoing\" href=\"#oryx_").append(i + 1).append("\"/>");
+			erdf.append("<a rel=\"raziel-parent\" href=\"#oryx-canvas123\"/></div>");
+		}
+		return erdf.append("</div>").toString();
+	}
+}
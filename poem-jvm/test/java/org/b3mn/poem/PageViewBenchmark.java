@@ -0,0 +1,89 @@
+package org.b3mn.poem;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.b3mn.poem.business.EntityCache;
+import org.b3mn.poem.business.User;
+import org.b3mn.poem.handler.InfoHandler;
+import org.b3mn.poem.handler.MetaHandler;
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.mock.MockDispatcher;
+
+/**
+ * Counts the statements per page view of a model, with and without the
+ * {@link EntityCache}. A page view resolves the user, as the
+ * AuthenticationFilter does it for each request, and requests the info and
+ * the info with access rights of the model, like the repository does it for
+ * a selected model. The page views go to random models of 100 users, each
+ * model is viewed by the owner and another user. The access rights that the
+ * Dispatcher checks are cached by the {@link EntityCache} as well.
+ *
+ * The models are kept by the {@link MockDatabase}, because there is no
+ * embedded database in the libraries of POEM. Each statement takes the given
+ * round trip time.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.PageViewBenchmark [models] [page views] [round trip microseconds]</code>
+ */
+public class PageViewBenchmark {
+
+	private static final int USERS = 100;
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int views = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+		long roundTrip = args.length > 2 ? Long.parseLong(args[2]) : 200;
+
+		MockDatabase.install();
+		MockDatabase.clear();
+		Random random = new Random(42);
+		MockDatabase.addIdentity(Dispatcher.getPublicUser());
+		for (int i = 0; i < USERS; i++)
+			MockDatabase.addIdentity("user" + i);
+		List<String> viewers = new ArrayList<String>();
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			int owner = random.nextInt(USERS);
+			String uri = MockDatabase.addModel("user" + owner, "Model " + i, "bpmn", new Date());
+			int reader = (owner + 1 + random.nextInt(USERS - 1)) % USERS;
+			MockDatabase.grant("user" + reader, uri, "read");
+			viewers.add("user" + (random.nextBoolean() ? owner : reader));
+			uris.add(uri);
+		}
+		System.out.println(count + " models, " + views + " page views, " + roundTrip + " us per statement");
+
+		MockDispatcher dispatcher = new MockDispatcher();
+		dispatcher.addHandler(new InfoHandler());
+		dispatcher.addHandler(new MetaHandler());
+		for (int size : new int[] { 0, EntityCache.DEFAULT_MAX_SIZE }) {
+			EntityCache.configure(size, EntityCache.DEFAULT_TTL);
+			// warm up, with each model once
+			MockDatabase.roundTripMicros = 0;
+			for (int i = 0; i < count; i++)
+				view(dispatcher, viewers.get(i), uris.get(i));
+			MockDatabase.roundTripMicros = roundTrip;
+			MockDatabase.statements.set(0);
+			long start = System.nanoTime();
+			for (int i = 0; i < views; i++) {
+				int model = random.nextInt(count);
+				view(dispatcher, viewers.get(model), uris.get(model));
+			}
+			double micros = (System.nanoTime() - start) / 1e3 / views;
+			System.out.println(String.format("%-19s %8.1f us, %.2f statements per page view",
+					size == 0 ? "without EntityCache" : "with EntityCache", micros,
+					MockDatabase.statements.get() / (double) views));
+		}
+		System.out.print(EntityCache.getStatistics());
+	}
+
+	private static void view(MockDispatcher dispatcher, String openId, String uri) throws Exception {
+		User user = new User(openId);
+		for (String handler : new String[] { "/info", "/info-access" }) {
+			if (dispatcher.get(user, uri + handler) != 200)
+				throw new IllegalStateException("Access denied to " + uri + handler);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package org.b3mn.poem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.b3mn.poem.business.Model;
+import org.b3mn.poem.business.RenderService;
+import org.b3mn.poem.handler.ModelInfoHandler;
+import org.b3mn.poem.handler.RatingHandler;
+import org.b3mn.poem.mock.PostgresDatabase;
+import org.b3mn.poem.util.ModelQuery;
+import org.b3mn.poem.util.Stylesheets;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the PostgreSQL specific SQL of POEM, which the other tests only run
+ * against the MockDatabase, on a real database. The test is skipped unless
+ * the system property poem.test.url names a scratch database, see
+ * {@link PostgresDatabase}. Persistance can only use one database per JVM, so
+ * it has to run on its own:
+ *
+ * <pre>
+ * java -Dpoem.test.url=jdbc:postgresql://localhost/poem_test -Dpoem.test.user=poem \
+ *     -cp ... org.junit.runner.JUnitCore org.b3mn.poem.PostgresQueryTest
+ * </pre>
+ *
+ * or with the target test.backend.postgres.run of poem-jvm/test.xml.
+ */
+public class PostgresQueryTest {
+
+	private Identity alice;
+
+	@Before
+	public void setUp() throws Exception {
+		Assume.assumeTrue(PostgresDatabase.isConfigured());
+		PostgresDatabase.install();
+		PostgresDatabase.reset();
+		PostgresDatabase.addIdentity("public");
+		PostgresDatabase.addIdentity("alice");
+		PostgresDatabase.addIdentity("bob");
+		alice = Identity.instance("alice");
+	}
+
+	@After
+	public void tearDown() {
+		Stylesheets.setDirectory(null);
+	}
+
+	/**
+	 * The filters and sorts of the ModelQuery with the tie-break by id,
+	 * NULLS LAST and LIMIT / OFFSET.
+	 */
+	@Test
+	public void testModelQuery() throws Exception {
+		String[] types = { "bpmn", "epc", "petrinet" };
+		List<String> models = new ArrayList<String>();
+		for (int i = 0; i < 12; i++) {
+			String uri = PostgresDatabase.addModel(i % 2 == 0 ? "alice" : "bob", "Model " + (i % 4), types[i % 3],
+					new Date(1200000000000L + (i % 3) * 60000L));
+			if (i % 3 == 1)
+				PostgresDatabase.grant("public", uri, "read");
+			models.add(uri);
+		}
+		// Alice sees her models 0, 2, 4, 6, 8, 10 and the public models 1, 7
+
+		ModelQuery query = new ModelQuery(alice);
+		ModelInfoHandler.filterByModelType(query, "bpmn, epc");
+		ModelInfoHandler.sortByTitle(query);
+		List<String> all = query.list();
+		// bpmn 0, 6 and epc 1, 4, 7, 10 by title and id
+		assertEquals(uris(models, 0, 4, 1, 6, 10, 7), all);
+		assertEquals(all.subList(2, 5), query.page(2, 3).list());
+		assertEquals(all.subList(4, 6), query.page(4, -1).list());
+		assertEquals(Collections.emptyList(), query.page(10, 5).list());
+
+		// Unrated models last, in the order of their ids
+		PostgresDatabase.update("INSERT INTO model_rating (subject_id, object_id, score) VALUES (?, ?, 2), "
+				+ "(?, ?, 5), (?, ?, 3)", alice.getId(), id(models.get(6)), alice.getId(), id(models.get(10)),
+				Identity.instance("bob").getId(), id(models.get(10)));
+		query = new ModelQuery(alice);
+		RatingHandler.sortByRating(query);
+		assertEquals(uris(models, 10, 6, 0, 1, 2, 4, 7, 8), query.list());
+		query = new ModelQuery(alice);
+		RatingHandler.filterByRating(query, "2");
+		ModelInfoHandler.sortByLastChange(query);
+		assertEquals(uris(models, 10, 6), query.list());
+	}
+
+	/**
+	 * The IN lists of more than one batch and DISTINCT ON of the access
+	 * rights.
+	 */
+	@Test
+	public void testBatches() throws Exception {
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < Persistance.BATCH_SIZE + 10; i++)
+			uris.add(PostgresDatabase.addModel("alice", "Model " + i, "bpmn", new Date()));
+		String shared = uris.get(Persistance.BATCH_SIZE + 5);
+		PostgresDatabase.grant("bob", shared, "read");
+		PostgresDatabase.grant("bob", shared, "write");
+
+		List<String> loaded = new ArrayList<String>();
+		for (Model model : Model.getModels(alice, uris))
+			loaded.add(model.getUri());
+		assertEquals(uris, loaded);
+
+		List<Identity> identities = new ArrayList<Identity>();
+		for (String uri : uris)
+			identities.add(Identity.instance(uri));
+		Map<String, List<Access>> access = Identity.getAccess(identities);
+		assertEquals(uris.size(), access.size());
+		assertEquals(1, access.get(uris.get(0)).size());
+		assertEquals(2, access.get(shared).size());
+	}
+
+	/**
+	 * The regular expression that finds the models with eRDF.
+	 */
+	@Test
+	public void testJsonMigration() throws Exception {
+		Stylesheets.setDirectory(new File("poem-jvm/lib"));
+		List<Representation> models = new ArrayList<Representation>();
+		for (int i = 0; i < 4; i++)
+			models.add(Identity.instance(PostgresDatabase.addModel("alice", "Model " + i, "epc", new Date())).read());
+		models.get(0).setContent(JsonMigrationTest.erdf(2));
+		models.get(1).setContent("\n  " + JsonMigrationTest.erdf(3));
+		models.get(2).setContent("{\"resourceId\":\"canvas\",\"childShapes\":[]}");
+
+		File checkpoint = File.createTempFile("json-migration", ".checkpoint");
+		checkpoint.delete();
+		try {
+			JsonMigration migration = new JsonMigration("http://localhost:8080", checkpoint, 2);
+			migration.run();
+			assertEquals(2, migration.getConverted());
+			assertTrue(migration.getFailures().isEmpty());
+			assertTrue(Representation.isJson(models.get(0).getPureContent()));
+			assertTrue(Representation.isJson(models.get(1).getPureContent()));
+		} finally {
+			checkpoint.delete();
+		}
+	}
+
+	/**
+	 * The conditional updates of the RenderService.
+	 */
+	@Test
+	public void testRenderService() throws Exception {
+		Representation model = Identity.instance(PostgresDatabase.addModel("alice", "Model", "bpmn", new Date()))
+				.read();
+		model.setSvg("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"200\" height=\"100\">"
+				+ "<rect x=\"10\" y=\"10\" width=\"180\" height=\"80\" fill=\"white\" stroke=\"black\"/></svg>");
+		byte[] png = RenderService.getImage(model, RenderService.Format.PNG_LARGE);
+		assertEquals("PNG", new String(png, 1, 3, "US-ASCII"));
+		assertEquals(1, PostgresDatabase.query("SELECT rendered_version FROM content WHERE id=?", id(model)));
+
+		// A broken SVG is recorded as rendered, without images
+		model.setSvg("<svg xmlns=\"http://www.w3.org/2000/svg\"><broken></svg>");
+		assertTrue(RenderService.enqueue(model.getId()).await(RenderService.WAIT_TIMEOUT));
+		assertEquals(2, PostgresDatabase.query("SELECT rendered_version FROM content WHERE id=?", id(model)));
+		assertSame(RenderService.FAILED, RenderService.getImage(model, RenderService.Format.PDF));
+	}
+
+	private static List<String> uris(List<String> models, int... indexes) {
+		List<String> uris = new ArrayList<String>();
+		for (int index : indexes)
+			uris.add(models.get(index));
+		return uris;
+	}
+
+	private static int id(String uri) {
+		return Integer.parseInt(uri.substring("/model/".length()));
+	}
+
+	private static int id(Representation model) {
+		return model.getIdent_id();
+	}
+}
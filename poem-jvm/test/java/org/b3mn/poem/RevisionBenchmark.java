@@ -0,0 +1,131 @@
+package org.b3mn.poem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.util.Delta;
+
+/**
+ * Simulates an editing session on a model and compares the bytes kept by
+ * the revision table with full copies of each saved version. Each save adds,
+ * moves or renames a shape, like the saves of the editor. The latencies of
+ * saving a revision and of fetching the revisions of the session are
+ * reported as percentiles.
+ *
+ * The revisions are kept by the {@link MockDatabase}, because there is no
+ * embedded database in the libraries of POEM. Each statement takes the given
+ * round trip time.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.RevisionBenchmark [saves] [round trip microseconds]</code>
+ */
+public class RevisionBenchmark {
+
+	private static final int START_SHAPES = 50;
+
+	public static void main(String[] args) throws Exception {
+		int saves = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		long roundTrip = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+		MockDatabase.install();
+		MockDatabase.clear();
+		MockDatabase.addIdentity("alice");
+		Identity alice = Identity.instance("alice");
+		Representation representation = Identity.instance(
+				MockDatabase.addModel("alice", "Model", "bpmn", new Date())).read();
+		MockDatabase.roundTripMicros = roundTrip;
+
+		Random random = new Random(42);
+		List<int[]> shapes = new ArrayList<int[]>();
+		for (int i = 0; i < START_SHAPES; i++)
+			shapes.add(new int[] { random.nextInt(2000), random.nextInt(1000), 0 });
+
+		long fullBytes = 0;
+		long compressedBytes = 0;
+		long[] saveMicros = new long[saves];
+		for (int i = 0; i < saves; i++) {
+			int change = random.nextInt(3);
+			if (change == 0) {
+				shapes.add(new int[] { random.nextInt(2000), random.nextInt(1000), 0 });
+			} else {
+				int[] shape = shapes.get(random.nextInt(shapes.size()));
+				if (change == 1) {
+					shape[0] += random.nextInt(200) - 100;
+					shape[1] += random.nextInt(200) - 100;
+				} else {
+					shape[2]++;
+				}
+			}
+			String content = content(shapes);
+			String svg = svg(shapes);
+			fullBytes += content.getBytes("UTF-8").length + svg.getBytes("UTF-8").length;
+			compressedBytes += Delta.compress(content.getBytes("UTF-8")).length
+					+ Delta.compress(svg.getBytes("UTF-8")).length;
+			long start = System.nanoTime();
+			Revision.save(representation, alice, content, svg);
+			saveMicros[i] = (System.nanoTime() - start) / 1000;
+		}
+
+		long[] getMicros = new long[saves];
+		for (int i = 0; i < saves; i++) {
+			long start = System.nanoTime();
+			Revision.get(representation, i + 1);
+			getMicros[i] = (System.nanoTime() - start) / 1000;
+		}
+
+		System.out.println(saves + " saves, " + shapes.size() + " shapes at the end, snapshot every "
+				+ Revision.SNAPSHOT_INTERVAL + " revisions, " + roundTrip + " us per statement");
+		System.out.println(String.format("full copies       %10d bytes", fullBytes));
+		System.out.println(String.format("gzipped copies    %10d bytes", compressedBytes));
+		System.out.println(String.format("revision table    %10d bytes (%.1f%% of the full copies)",
+				MockDatabase.revisionBytes(), 100.0 * MockDatabase.revisionBytes() / fullBytes));
+		report("save", saveMicros);
+		report("get", getMicros);
+	}
+
+	private static void report(String name, long[] micros) {
+		List<Long> sorted = new ArrayList<Long>();
+		for (long value : micros)
+			sorted.add(value);
+		Collections.sort(sorted);
+		System.out.println(String.format("%-5s p50 %6d us, p90 %6d us, p99 %6d us, max %6d us", name,
+				percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted.get(sorted.size() - 1)));
+	}
+
+	private static long percentile(List<Long> sorted, int percent) {
+		return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100));
+	}
+
+	private static String content(List<int[]> shapes) {
+		StringBuilder content = new StringBuilder("{\"resourceId\":\"canvas\",\"stencil\":{\"id\":\"BPMNDiagram\"},"
+				+ "\"childShapes\":[");
+		for (int i = 0; i < shapes.size(); i++) {
+			int[] shape = shapes.get(i);
+			if (i > 0)
+				content.append(',');
+			content.append("{\"resourceId\":\"sid-").append(i).append("\",\"properties\":{\"name\":\"Task ")
+					.append(i).append(" version ").append(shape[2])
+					.append("\",\"documentation\":\"\",\"tasktype\":\"None\"},\"stencil\":{\"id\":\"Task\"},")
+					.append("\"childShapes\":[],\"outgoing\":[],\"bounds\":{\"upperLeft\":{\"x\":").append(shape[0])
+					.append(",\"y\":").append(shape[1]).append("},\"lowerRight\":{\"x\":").append(shape[0] + 100)
+					.append(",\"y\":").append(shape[1] + 80).append("}}}");
+		}
+		return content.append("]}").toString();
+	}
+
+	private static String svg(List<int[]> shapes) {
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\"><g>");
+		for (int i = 0; i < shapes.size(); i++) {
+			int[] shape = shapes.get(i);
+			svg.append("<g transform=\"translate(").append(shape[0]).append(", ").append(shape[1])
+					.append(")\"><rect width=\"100\" height=\"80\" rx=\"10\" stroke=\"black\" fill=\"white\"/>")
+					.append("<text x=\"50\" y=\"40\">Task ").append(i).append(" version ").append(shape[2])
+					.append("</text></g>");
+		}
+		return svg.append("</g></svg>").toString();
+	}
+}
@@ -0,0 +1,128 @@
+package org.b3mn.poem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.util.Delta;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RevisionTest {
+
+	private Identity alice;
+	private Representation representation;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		MockDatabase.addIdentity("alice");
+		String uri = MockDatabase.addModel("alice", "Model", "bpmn", new Date());
+		alice = Identity.instance("alice");
+		representation = Identity.instance(uri).read();
+	}
+
+	@Test
+	public void testDelta() throws Exception {
+		Random random = new Random(42);
+		byte[] source = new byte[5000];
+		random.nextBytes(source);
+
+		// an insert in the middle, a removed range and a changed end
+		byte[] target = new byte[5100];
+		System.arraycopy(source, 0, target, 0, 2000);
+		System.arraycopy("inserted".getBytes("UTF-8"), 0, target, 2000, 8);
+		System.arraycopy(source, 2000, target, 2008, 2500);
+		for (int i = 4508; i < target.length; i++)
+			target[i] = (byte) i;
+		byte[] delta = Delta.create(source, target);
+		assertArrayEquals(target, Delta.apply(source, delta));
+		assertTrue(delta.length < 1000);
+
+		byte[] unrelated = new byte[300];
+		random.nextBytes(unrelated);
+		assertArrayEquals(unrelated, Delta.apply(source, Delta.create(source, unrelated)));
+		assertArrayEquals(new byte[0], Delta.apply(source, Delta.create(source, new byte[0])));
+		assertArrayEquals(source, Delta.apply(new byte[0], Delta.create(new byte[0], source)));
+		assertArrayEquals(source, Delta.decompress(Delta.compress(source)));
+	}
+
+	@Test
+	public void testSaveAndGet() {
+		int count = 2 * Revision.SNAPSHOT_INTERVAL + 5;
+		for (int i = 1; i <= count; i++)
+			Revision.save(representation, alice, content(i), "<svg>" + i + "</svg>");
+
+		List<Revision> revisions = Revision.list(representation);
+		assertEquals(count, revisions.size());
+		assertEquals(count, revisions.get(0).getNumber());
+		assertEquals("alice", revisions.get(0).getAuthor());
+		assertNull(revisions.get(0).getContent());
+
+		for (int i = 1; i <= count; i++) {
+			Revision revision = Revision.get(representation, i);
+			assertEquals(content(i), revision.getContent());
+			assertEquals("<svg>" + i + "</svg>", revision.getSvg());
+		}
+		assertNull(Revision.get(representation, count + 1));
+	}
+
+	@Test
+	public void testRestoreIsBounded() {
+		for (int i = 1; i <= 3 * Revision.SNAPSHOT_INTERVAL; i++)
+			Revision.save(representation, alice, content(i), "<svg/>");
+		assertTrue(Revision.isSnapshot(2 * Revision.SNAPSHOT_INTERVAL + 1));
+
+		// the revision, its author, the snapshot and the deltas up to the revision
+		MockDatabase.rows.set(0);
+		Revision.get(representation, 2 * Revision.SNAPSHOT_INTERVAL);
+		assertEquals(2 + Revision.SNAPSHOT_INTERVAL, MockDatabase.rows.get());
+		// the author is cached now
+		MockDatabase.rows.set(0);
+		Revision.get(representation, 2 * Revision.SNAPSHOT_INTERVAL + 1);
+		assertEquals(1 + 1, MockDatabase.rows.get());
+	}
+
+	@Test
+	public void testKeepPrevious() {
+		Revision.save(representation, alice, content(1), "<svg>1</svg>");
+		Revision.save(representation, alice, null, "<svg>2</svg>");
+		Revision.save(representation, alice, content(3), null);
+		assertEquals(content(1), Revision.get(representation, 2).getContent());
+		assertEquals("<svg>2</svg>", Revision.get(representation, 2).getSvg());
+		assertEquals(content(3), Revision.get(representation, 3).getContent());
+		assertEquals("<svg>2</svg>", Revision.get(representation, 3).getSvg());
+	}
+
+	/**
+	 * The first revision of a model that was saved before there were
+	 * revisions keeps the stored SVG.
+	 */
+	@Test
+	public void testKeepStored() {
+		representation.setSvg("<svg>0</svg>");
+		Revision.save(representation, alice, content(1), null);
+		assertEquals("<svg>0</svg>", Revision.get(representation, 1).getSvg());
+	}
+
+	/* A model that grows by a shape with each revision */
+	static String content(int shapes) {
+		StringBuilder content = new StringBuilder("{\"resourceId\":\"canvas\",\"childShapes\":[");
+		for (int i = 0; i < shapes; i++) {
+			if (i > 0)
+				content.append(',');
+			content.append("{\"resourceId\":\"sid-").append(i).append("\",\"properties\":{\"name\":\"Task ")
+					.append(i).append("\"},\"stencil\":{\"id\":\"Task\"},\"bounds\":{\"upperLeft\":{\"x\":")
+					.append(100 * i).append(",\"y\":100},\"lowerRight\":{\"x\":").append(100 * i + 80)
+					.append(",\"y\":180}}}");
+		}
+		return content.append("]}").toString();
+	}
+}
@@ -0,0 +1,186 @@
+package org.b3mn.poem.business;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.mock.MockDispatcher;
+import org.b3mn.poem.util.AccessRight;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccessRightCacheTest {
+
+	private List<Model> models;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		EntityCache.configure(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL);
+		MockDatabase.addIdentity("public");
+		MockDatabase.addIdentity("alice");
+		MockDatabase.addIdentity("bob");
+		models = new ArrayList<Model>();
+		for (int i = 0; i < 5; i++)
+			models.add(new Model(MockDatabase.addModel("alice", "Model " + i, "bpmn", new Date())));
+	}
+
+	@After
+	public void tearDown() {
+		MockDatabase.roundTripMicros = 0;
+		EntityCache.configure(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL);
+	}
+
+	@Test
+	public void testCaching() {
+		MockDatabase.statements.set(0);
+		assertEquals(AccessRight.OWNER, AccessRightCache.getAccessRight(models.get(0), "alice"));
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(models.get(0), "bob"));
+		assertEquals(2, MockDatabase.statements.get());
+		assertEquals(AccessRight.OWNER, AccessRightCache.getAccessRight(models.get(0), "alice"));
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(models.get(0), "bob"));
+		assertEquals(2, MockDatabase.statements.get());
+	}
+
+	@Test
+	public void testInvalidate() {
+		Model model = models.get(1);
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(model, "bob"));
+		MockDatabase.grant("bob", model.getUri(), "write");
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(model, "bob"));
+		AccessRightCache.invalidate(model.getId());
+		assertEquals(AccessRight.WRITE, AccessRightCache.getAccessRight(model, "bob"));
+
+		// Other models are kept
+		AccessRightCache.getAccessRight(models.get(2), "bob");
+		AccessRightCache.invalidate(model.getId());
+		MockDatabase.statements.set(0);
+		AccessRightCache.getAccessRight(models.get(2), "bob");
+		assertEquals(0, MockDatabase.statements.get());
+	}
+
+	/**
+	 * Rights inherited along the hierarchy may change for any model, all
+	 * rights are dropped.
+	 */
+	@Test
+	public void testInvalidateAll() {
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(models.get(1), "bob"));
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(models.get(2), "bob"));
+		MockDatabase.grant("bob", models.get(1).getUri(), "read");
+		MockDatabase.grant("bob", models.get(2).getUri(), "write");
+		// as Interaction.save() does it
+		Identity.invalidateAllAccess();
+		assertEquals(AccessRight.READ, AccessRightCache.getAccessRight(models.get(1), "bob"));
+		assertEquals(AccessRight.WRITE, AccessRightCache.getAccessRight(models.get(2), "bob"));
+	}
+
+	@Test
+	public void testTtl() throws Exception {
+		EntityCache.configure(EntityCache.DEFAULT_MAX_SIZE, 20);
+		assertEquals(AccessRight.NONE, AccessRightCache.getAccessRight(models.get(1), "bob"));
+		MockDatabase.grant("bob", models.get(1).getUri(), "read");
+		Thread.sleep(40);
+		assertEquals(AccessRight.READ, AccessRightCache.getAccessRight(models.get(1), "bob"));
+	}
+
+	@Test
+	public void testMaxSize() {
+		EntityCache.configure(3, EntityCache.DEFAULT_TTL);
+		for (Model model : models)
+			AccessRightCache.getAccessRight(model, "alice");
+		MockDatabase.statements.set(0);
+		for (Model model : models.subList(2, 5))
+			AccessRightCache.getAccessRight(model, "alice");
+		assertEquals(0, MockDatabase.statements.get());
+		AccessRightCache.getAccessRight(models.get(0), "alice");
+		assertEquals(1, MockDatabase.statements.get());
+
+		EntityCache.configure(0, EntityCache.DEFAULT_TTL);
+		AccessRightCache.getAccessRight(models.get(0), "alice");
+		AccessRightCache.getAccessRight(models.get(0), "alice");
+		assertEquals(3, MockDatabase.statements.get());
+	}
+
+	/**
+	 * Readers fill the cache while a writer changes the right of bob and
+	 * invalidates the model. Rights read before a change must not be cached
+	 * after it.
+	 */
+	@Test
+	public void testConcurrentInvalidation() throws Exception {
+		MockDatabase.roundTripMicros = 50;
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			final Random random = new Random(i);
+			Thread reader = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (running.get())
+							AccessRightCache.getAccessRight(models.get(random.nextInt(models.size())), "bob");
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			};
+			reader.start();
+			readers.add(reader);
+		}
+
+		String[] terms = { "read", "write" };
+		Random random = new Random(42);
+		try {
+			for (int i = 0; i < 200; i++) {
+				Model model = models.get(random.nextInt(models.size()));
+				String term = terms[i % 2];
+				MockDatabase.revoke("bob", model.getUri());
+				MockDatabase.grant("bob", model.getUri(), term);
+				AccessRightCache.invalidate(model.getId());
+				// Let the readers finish the statements that started before the change
+				Thread.sleep(1);
+				assertEquals(AccessRight.valueOf(term.toUpperCase()), AccessRightCache.getAccessRight(model,
+						"bob"));
+			}
+		} finally {
+			running.set(false);
+			for (Thread reader : readers)
+				reader.join();
+		}
+		assertEquals(null, failure.get());
+
+		// The cache agrees with the database
+		for (Model model : models)
+			assertEquals(model.getAccessRight("bob"), AccessRightCache.getAccessRight(model, "bob"));
+	}
+
+	@Test
+	public void testDispatcher() throws Exception {
+		MockDispatcher dispatcher = new MockDispatcher();
+		User bob = new User("bob");
+		String path = models.get(3).getUri() + "/read";
+		assertEquals(403, dispatcher.get(bob, path));
+
+		MockDatabase.grant("bob", models.get(3).getUri(), "read");
+		assertEquals(403, dispatcher.get(bob, path));
+		// as Model.addAccessRight() does it
+		AccessRightCache.invalidate(models.get(3).getId());
+		assertEquals(200, dispatcher.get(bob, path));
+
+		// The model, the representation and the rights are cached
+		MockDatabase.statements.set(0);
+		assertEquals(200, dispatcher.get(bob, path));
+		assertEquals(0, MockDatabase.statements.get());
+	}
+}
@@ -0,0 +1,130 @@
+package org.b3mn.poem.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.Properties;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Representation;
+import org.b3mn.poem.mock.MockDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityCacheTest {
+
+	private Identity model;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		EntityCache.configure(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL);
+		MockDatabase.addIdentity("public");
+		MockDatabase.addIdentity("alice");
+		MockDatabase.addIdentity("bob");
+		model = Identity.instance(MockDatabase.addModel("alice", "Model", "bpmn", new Date()));
+	}
+
+	@After
+	public void tearDown() {
+		EntityCache.configure(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_TTL);
+	}
+
+	@Test
+	public void testReadThrough() {
+		MockDatabase.statements.set(0);
+		for (int i = 0; i < 3; i++) {
+			assertEquals("alice", Identity.instance("alice").getUri());
+			assertEquals(model.getUri(), Identity.instance(model.getId()).getUri());
+			assertEquals("Model", model.read().getTitle());
+			assertEquals(1, model.getAccess().size());
+		}
+		assertEquals(4, MockDatabase.statements.get());
+		// Missing identities aren't cached, they may be created later
+		assertNull(Identity.instance("carol"));
+		assertNull(Identity.instance("carol"));
+		assertEquals(6, MockDatabase.statements.get());
+	}
+
+	/**
+	 * The callers may change the entities, the cache keeps its own copies.
+	 */
+	@Test
+	public void testCopies() {
+		Representation representation = model.read();
+		representation.setTitle("Changed");
+		assertEquals("Model", model.read().getTitle());
+		model.read().setTitle("Changed");
+		assertEquals("Model", model.read().getTitle());
+		model.getAccess().clear();
+		assertEquals(1, model.getAccess().size());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		assertEquals("Model", model.read().getTitle());
+		Representation.update(model.getId(), "Title", null, null, null);
+		assertEquals("Title", model.read().getTitle());
+
+		new Model(model).setSummary("Summary");
+		assertEquals("Summary", model.read().getSummary());
+
+		assertEquals(1, model.getAccess().size());
+		MockDatabase.grant("bob", model.getUri(), "read");
+		assertEquals(1, model.getAccess().size());
+		model.invalidateAccess();
+		assertEquals(2, model.getAccess().size());
+	}
+
+	/**
+	 * An entity that was read before it was invalidated isn't cached.
+	 */
+	@Test
+	public void testStamp() {
+		EntityCache<String, String> cache = new EntityCache<String, String>("test");
+		long stamp = cache.stamp();
+		cache.invalidate("key");
+		cache.put("key", "outdated", stamp);
+		assertNull(cache.get("key"));
+		cache.put("key", "value", cache.stamp());
+		assertEquals("value", cache.get("key"));
+	}
+
+	@Test
+	public void testConfiguration() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty(EntityCache.SIZE_PROPERTY, "2");
+		properties.setProperty(EntityCache.TTL_PROPERTY, "60");
+		EntityCache.configure(properties);
+		assertEquals(2, EntityCache.getMaxSize());
+		assertEquals(60000, EntityCache.getTtl());
+
+		// The least recently used identity is dropped
+		Identity.instance("public");
+		Identity.instance("alice");
+		Identity.instance("bob");
+		MockDatabase.statements.set(0);
+		Identity.instance("bob");
+		Identity.instance("alice");
+		assertEquals(0, MockDatabase.statements.get());
+		Identity.instance("public");
+		assertEquals(1, MockDatabase.statements.get());
+
+		// Expired entries are read again
+		EntityCache.configure(10, 20);
+		Identity.instance("alice");
+		Thread.sleep(40);
+		MockDatabase.statements.set(0);
+		Identity.instance("alice");
+		assertEquals(1, MockDatabase.statements.get());
+
+		// Disabled
+		EntityCache.configure(0, EntityCache.DEFAULT_TTL);
+		Identity.instance("alice");
+		Identity.instance("alice");
+		assertEquals(3, MockDatabase.statements.get());
+	}
+}
@@ -0,0 +1,160 @@
+package org.b3mn.poem.business;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.b3mn.poem.Access;
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.handler.HandlerBase;
+import org.b3mn.poem.handler.ModelInfoBatchHandler;
+import org.b3mn.poem.handler.ModelInfoHandler;
+import org.b3mn.poem.mock.MockDatabase;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModelBulkLoadingTest {
+
+	private Identity alice;
+	private String own;
+	private String shared;
+	private String publicModel;
+	private String foreign;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		MockDatabase.addIdentity("public");
+		MockDatabase.addIdentity("alice");
+		MockDatabase.addIdentity("bob");
+		own = MockDatabase.addModel("alice", "Own", "bpmn", new Date(1000000000000L));
+		shared = MockDatabase.addModel("bob", "Shared", "epc", new Date(1100000000000L));
+		MockDatabase.grant("alice", shared, "write");
+		publicModel = MockDatabase.addModel("bob", "Public", "bpmn", new Date(1200000000000L));
+		MockDatabase.grant("public", publicModel, "read");
+		foreign = MockDatabase.addModel("bob", "Foreign", "bpmn", new Date(1300000000000L));
+		alice = Identity.instance("alice");
+	}
+
+	@Test
+	public void testGetModels() throws Exception {
+		MockDatabase.statements.set(0);
+		List<Model> models = Model.getModels(alice, Arrays.asList(publicModel, foreign, own, "/model/99", shared,
+				own));
+		assertEquals(2, MockDatabase.statements.get());
+
+		List<String> uris = new ArrayList<String>();
+		for (Model model : models)
+			uris.add(model.getUri());
+		assertEquals(Arrays.asList(publicModel, own, shared), uris);
+		for (Model model : models) {
+			Model single = new Model(model.getUri());
+			assertEquals(single.getTitle(), model.getTitle());
+			assertEquals(single.getType(), model.getType());
+			assertEquals(single.getLastUpdate(), model.getLastUpdate());
+			assertEquals(single.getAuthor(), model.getAuthor());
+		}
+		assertEquals("bob", models.get(2).getAuthor());
+	}
+
+	@Test
+	public void testBatches() throws Exception {
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < 750; i++)
+			uris.add(MockDatabase.addModel("alice", "Model " + i, "bpmn", new Date()));
+		MockDatabase.statements.set(0);
+		assertEquals(750, Model.getModels(alice, uris).size());
+		assertEquals(4, MockDatabase.statements.get());
+	}
+
+	@Test
+	public void testCollectionQueries() throws Exception {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (String uri : new String[] { own, shared, publicModel })
+			ids.add(Identity.instance(uri).getId());
+		MockDatabase.statements.set(0);
+		Map<Integer, Identity> identities = Identity.instances(ids);
+		Map<String, List<Access>> access = Identity.getAccess(identities.values());
+		assertEquals(2, MockDatabase.statements.get());
+
+		assertEquals(3, identities.size());
+		for (Identity identity : identities.values()) {
+			List<Access> expected = identity.getAccess();
+			assertEquals(expected.size(), access.get(identity.getUri()).size());
+			for (int i = 0; i < expected.size(); i++)
+				assertEquals(expected.get(i).getUri(), access.get(identity.getUri()).get(i).getUri());
+		}
+		assertEquals(2, access.get(shared).size());
+	}
+
+	@Test
+	public void testBatchHandler() throws Exception {
+		HandlerBase single = new ModelInfoHandler();
+		HandlerBase batch = new ModelInfoBatchHandler();
+		String models = new JSONArray(Arrays.asList(own, foreign, shared)).toString();
+		JSONObject output = new JSONObject(get(batch, alice, models, null));
+
+		assertEquals(2, output.length());
+		for (String uri : new String[] { own, shared }) {
+			JSONObject expected = new JSONObject(get(single, alice, null, Identity.instance(uri)));
+			assertEquals(expected.toString(), output.getJSONObject(uri).toString());
+		}
+	}
+
+	/**
+	 * Runs a GET request of the handler and returns the response.
+	 */
+	static String get(HandlerBase handler, Identity subject, String models, Identity object) throws Exception {
+		final Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("models", models);
+		HttpServletRequest request = (HttpServletRequest) proxy(HttpServletRequest.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getParameter"))
+					return parameters.get(args[0]);
+				if (name.equals("getScheme"))
+					return "http";
+				if (name.equals("getServerName"))
+					return "localhost";
+				if (name.equals("getServerPort"))
+					return 8080;
+				if (name.equals("getServletPath"))
+					return "/poem";
+				return null;
+			}
+		});
+		StringWriter body = new StringWriter();
+		final PrintWriter writer = new PrintWriter(body);
+		HttpServletResponse response = (HttpServletResponse) proxy(HttpServletResponse.class,
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getWriter"))
+							return writer;
+						return null;
+					}
+				});
+		handler.doGet(request, response, subject, object);
+		writer.flush();
+		return body.toString();
+	}
+
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(ModelBulkLoadingTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+}
@@ -0,0 +1,103 @@
+package org.b3mn.poem.business;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.b3mn.poem.Dispatcher;
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.handler.HandlerBase;
+import org.b3mn.poem.handler.ModelInfoBatchHandler;
+import org.b3mn.poem.handler.ModelInfoHandler;
+import org.b3mn.poem.mock.MockDatabase;
+import org.json.JSONArray;
+
+/**
+ * Compares loading the meta data of a page of models with one /meta request
+ * per model, as the repository does it, with one /meta_batch request. A
+ * /meta request runs the queries of the Dispatcher (the model and the access
+ * rights of the user and the public user) and of the ModelInfoHandler (the
+ * model again and its author).
+ *
+ * The models are kept by the {@link MockDatabase}, because there is no
+ * embedded database in the libraries of POEM. Each statement takes the given
+ * round trip time.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.business.ModelInfoBenchmark [models] [round trip microseconds]</code>
+ */
+public class ModelInfoBenchmark {
+
+	private static final int USERS = 100;
+	private static final int[] PAGE_SIZES = { 20, 100, 500 };
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		long roundTrip = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+		MockDatabase.install();
+		MockDatabase.clear();
+		Random random = new Random(42);
+		MockDatabase.addIdentity(Dispatcher.getPublicUser());
+		for (int i = 0; i < USERS; i++)
+			MockDatabase.addIdentity("user" + i);
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			String owner = "user" + random.nextInt(USERS);
+			String uri = MockDatabase.addModel(owner, "Model " + i, "bpmn", new Date(1200000000000L + i * 60000L));
+			if (random.nextInt(10) == 0)
+				MockDatabase.grant(Dispatcher.getPublicUser(), uri, "read");
+			else if (!owner.equals("user0"))
+				MockDatabase.grant("user0", uri, "read");
+			uris.add(uri);
+		}
+		Identity user = Identity.instance("user0");
+		System.out.println(count + " models, " + roundTrip + " us per statement");
+
+		HandlerBase single = new ModelInfoHandler();
+		HandlerBase batch = new ModelInfoBatchHandler();
+		for (int pageSize : PAGE_SIZES) {
+			List<List<String>> pages = new ArrayList<List<String>>();
+			for (int i = 0; i < 5; i++) {
+				int start = random.nextInt(count - pageSize);
+				pages.add(uris.subList(start, start + pageSize));
+			}
+			// warm up without round trips
+			MockDatabase.roundTripMicros = 0;
+			for (List<String> page : pages) {
+				perModel(single, user, page);
+				ModelBulkLoadingTest.get(batch, user, new JSONArray(page).toString(), null);
+			}
+			MockDatabase.roundTripMicros = roundTrip;
+
+			MockDatabase.statements.set(0);
+			long start = System.nanoTime();
+			for (List<String> page : pages)
+				perModel(single, user, page);
+			report("/meta per model", pageSize, pages.size(), start);
+
+			MockDatabase.statements.set(0);
+			start = System.nanoTime();
+			for (List<String> page : pages)
+				ModelBulkLoadingTest.get(batch, user, new JSONArray(page).toString(), null);
+			report("/meta_batch", pageSize, pages.size(), start);
+		}
+	}
+
+	/* The work of the Dispatcher and the ModelInfoHandler for each model of the page */
+	private static void perModel(HandlerBase handler, Identity user, List<String> page) throws Exception {
+		for (String uri : page) {
+			Model model = new Model(uri);
+			model.getAccessRight(Dispatcher.getPublicUser());
+			model.getAccessRight(user.getUri());
+			ModelBulkLoadingTest.get(handler, user, null, model.getIdentity());
+		}
+	}
+
+	private static void report(String name, int pageSize, int pages, long start) {
+		double millis = (System.nanoTime() - start) / 1e6 / pages;
+		System.out.println(String.format("%-16s page of %3d models: %8.1f ms, %5d statements", name, pageSize,
+				millis, MockDatabase.statements.get() / pages));
+	}
+}
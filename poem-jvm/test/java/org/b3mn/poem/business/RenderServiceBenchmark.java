@@ -0,0 +1,177 @@
+package org.b3mn.poem.business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Representation;
+import org.b3mn.poem.mock.MockDatabase;
+
+/**
+ * Compares the latency of the image requests of the PngRenderer,
+ * ThumbnailRenderer and PdfRenderer under load, when the images are rendered
+ * synchronously by the first request after a save (and PDFs by every
+ * request) as before, with the {@link RenderService}, that renders after
+ * the saves in the background and returns stale images meanwhile.
+ *
+ * Client threads send requests for random models: 10% save a new SVG, the
+ * others get the PNG (60%), the thumbnail (30%) or the PDF (10%). The
+ * models are kept by the {@link MockDatabase}, because there is no embedded
+ * database in the libraries of POEM, each statement takes the given round
+ * trip time. The images are rendered by Batik and FOP.
+ *
+ * Run from the project root:
+ * <code>java org.b3mn.poem.business.RenderServiceBenchmark [clients] [requests per client] [render threads]</code>
+ */
+public class RenderServiceBenchmark {
+
+	private static final int MODELS = 20;
+	private static final long ROUND_TRIP = 200;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+		MockDatabase.install();
+		MockDatabase.clear();
+		MockDatabase.addIdentity("alice");
+		List<Representation> models = new ArrayList<Representation>();
+		for (int i = 0; i < MODELS; i++)
+			models.add(Identity.instance(MockDatabase.addModel("alice", "Model " + i, "bpmn", new Date())).read());
+		RenderService.configure(threads, RenderService.DEFAULT_QUEUE_SIZE);
+
+		System.out.println(clients + " clients, " + requests + " requests each, " + MODELS + " models, "
+				+ ROUND_TRIP + " us per statement, " + threads + " render threads");
+		prepare(models, false);
+		run("synchronous", models, clients, requests, false);
+		prepare(models, true);
+		int renders = RenderService.getRenders();
+		int coalesced = RenderService.getCoalesced();
+		run("RenderService", models, clients, requests, true);
+		long start = System.nanoTime();
+		for (Representation representation : models)
+			RenderService.enqueue(representation.getId()).await(RenderService.WAIT_TIMEOUT);
+		System.out.println(String.format("%d background renders, %d coalesced requests, the last done %.1f s "
+				+ "after the requests", RenderService.getRenders() - renders, RenderService.getCoalesced() - coalesced,
+				(System.nanoTime() - start) / 1e9));
+	}
+
+	/* Saves the first SVG of the models and renders their images, which warms up Batik and FOP */
+	private static void prepare(List<Representation> models, boolean service) throws Exception {
+		MockDatabase.roundTripMicros = 0;
+		for (int i = 0; i < models.size(); i++) {
+			Representation representation = models.get(i);
+			save(representation, svg(new Random(i), 30), service);
+			if (service)
+				RenderService.enqueue(representation.getId()).await(RenderService.WAIT_TIMEOUT);
+			request(representation, RenderService.Format.PNG_LARGE, service);
+			request(representation, RenderService.Format.PNG_SMALL, service);
+		}
+		MockDatabase.roundTripMicros = ROUND_TRIP;
+	}
+
+	private static void run(String name, final List<Representation> models, int clients, final int requests,
+			final boolean service) throws Exception {
+		final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+		final AtomicInteger saves = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		long start = System.nanoTime();
+		for (int i = 0; i < clients; i++) {
+			final Random random = new Random(i);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < requests; j++) {
+							Representation representation = models.get(random.nextInt(models.size()));
+							int kind = random.nextInt(100);
+							if (kind < 10) {
+								save(representation, svg(random, 20 + random.nextInt(20)), service);
+								saves.incrementAndGet();
+								continue;
+							}
+							RenderService.Format format = kind < 64 ? RenderService.Format.PNG_LARGE
+									: kind < 91 ? RenderService.Format.PNG_SMALL : RenderService.Format.PDF;
+							long begin = System.nanoTime();
+							request(representation, format, service);
+							latencies.add((System.nanoTime() - begin) / 1000);
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads)
+			thread.join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		List<Long> sorted = new ArrayList<Long>(latencies);
+		Collections.sort(sorted);
+		System.out.println(String.format("%-13s %5d gets, %4d saves in %5.1f s: p50 %7.1f ms, p90 %7.1f ms, "
+				+ "p99 %7.1f ms, max %7.1f ms", name, sorted.size(), saves.get(), seconds, percentile(sorted, 50),
+				percentile(sorted, 90), percentile(sorted, 99), sorted.get(sorted.size() - 1) / 1000.0));
+	}
+
+	/* A GET of the image as the renderers answered it before or with the RenderService */
+	private static byte[] request(Representation representation, RenderService.Format format, boolean service)
+			throws Exception {
+		if (service)
+			return RenderService.getImage(representation, format);
+		if (format == RenderService.Format.PDF)
+			return format.render(representation.getSvg());
+		byte[] image = format == RenderService.Format.PNG_LARGE ? representation.getPngLarge()
+				: representation.getPngSmall();
+		if (image == null) {
+			image = format.render(representation.getSvg());
+			if (format == RenderService.Format.PNG_LARGE)
+				representation.setPngLarge(image);
+			else
+				representation.setPngSmall(image);
+		}
+		return image;
+	}
+
+	/* The save of Representation.update() before and with the RenderService */
+	private static void save(Representation representation, String svg, boolean service) {
+		representation.setSvg(svg);
+		if (service) {
+			RenderService.enqueue(representation.getId());
+		} else {
+			representation.setPngLarge(null);
+			representation.setPngSmall(null);
+		}
+	}
+
+	private static double percentile(List<Long> sorted, int percent) {
+		return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100)) / 1000.0;
+	}
+
+	/* A process model with tasks and sequence flows */
+	private static String svg(Random random, int shapes) {
+		StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1600\" "
+				+ "height=\"800\"><g>");
+		int x = 0;
+		int y = 0;
+		for (int i = 0; i < shapes; i++) {
+			int nextX = random.nextInt(1500);
+			int nextY = random.nextInt(700);
+			svg.append("<g transform=\"translate(").append(nextX).append(", ").append(nextY)
+					.append(")\"><rect width=\"100\" height=\"80\" rx=\"10\" stroke=\"black\" fill=\"#ffffcc\"/>")
+					.append("<text x=\"10\" y=\"40\" font-size=\"12\">Task ").append(i).append("</text></g>");
+			if (i > 0)
+				svg.append("<path d=\"M").append(x + 100).append(" ").append(y + 40).append(" L").append(nextX)
+						.append(" ").append(nextY + 40).append("\" stroke=\"black\" fill=\"none\"/>");
+			x = nextX;
+			y = nextY;
+		}
+		return svg.append("</g></svg>").toString();
+	}
+}
@@ -0,0 +1,132 @@
+package org.b3mn.poem.business;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Representation;
+import org.b3mn.poem.mock.MockDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderServiceTest {
+
+	private Representation first;
+	private Representation second;
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		RenderService.configure(1, 1);
+		MockDatabase.addIdentity("alice");
+		first = Identity.instance(MockDatabase.addModel("alice", "First", "bpmn", new Date())).read();
+		second = Identity.instance(MockDatabase.addModel("alice", "Second", "bpmn", new Date())).read();
+	}
+
+	@After
+	public void tearDown() {
+		RenderService.configure(1, RenderService.DEFAULT_QUEUE_SIZE);
+	}
+
+	@Test
+	public void testRender() throws Exception {
+		assertNull(RenderService.getImage(first, RenderService.Format.PNG_LARGE));
+
+		// wider than a thumbnail
+		first.setSvg(svg(1000));
+		assertTrue(RenderService.enqueue(first.getId()).await(RenderService.WAIT_TIMEOUT));
+		assertEquals(1, MockDatabase.getContent(first.getIdent_id(), "rendered_version"));
+		byte[] png = (byte[]) MockDatabase.getContent(first.getIdent_id(), "png_large");
+		assertEquals("PNG", new String(png, 1, 3, "US-ASCII"));
+		assertEquals("%PDF", new String((byte[]) MockDatabase.getContent(first.getIdent_id(), "pdf"), 0, 4,
+				"US-ASCII"));
+		assertTrue(((byte[]) MockDatabase.getContent(first.getIdent_id(), "png_small")).length < png.length);
+		assertArrayEquals(png, RenderService.getImage(first, RenderService.Format.PNG_LARGE));
+	}
+
+	@Test
+	public void testFirstRequestWaits() throws Exception {
+		first.setSvg(svg(200));
+		byte[] pdf = RenderService.getImage(first, RenderService.Format.PDF);
+		assertEquals("%PDF", new String(pdf, 0, 4, "US-ASCII"));
+		assertArrayEquals(pdf, (byte[]) MockDatabase.getContent(first.getIdent_id(), "pdf"));
+	}
+
+	/**
+	 * An SVG that cannot be rendered is recorded as rendered, without images.
+	 */
+	@Test
+	public void testFailure() throws Exception {
+		first.setSvg(svg(200));
+		assertNotNull(RenderService.getImage(first, RenderService.Format.PNG_LARGE));
+		int failures = RenderService.getFailures();
+		first.setSvg("<svg xmlns=\"http://www.w3.org/2000/svg\"><broken></svg>");
+		assertTrue(RenderService.enqueue(first.getId()).await(RenderService.WAIT_TIMEOUT));
+		assertEquals(failures + 3, RenderService.getFailures());
+		assertEquals(2, MockDatabase.getContent(first.getIdent_id(), "rendered_version"));
+
+		// Neither the image of the previous SVG nor another attempt
+		int renders = RenderService.getRenders();
+		assertSame(RenderService.FAILED, RenderService.getImage(first, RenderService.Format.PNG_LARGE));
+		assertSame(RenderService.FAILED, RenderService.getImage(first, RenderService.Format.PDF));
+		assertEquals(renders, RenderService.getRenders());
+		assertEquals(failures + 3, RenderService.getFailures());
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		first.setSvg(svg(200));
+		byte[] old = RenderService.getImage(first, RenderService.Format.PNG_LARGE);
+
+		// The stale image is returned, until the job of the request rendered the new SVG
+		first.setSvg(svg(400));
+		RenderService.Job job;
+		synchronized (MockDatabase.class) {
+			assertArrayEquals(old, RenderService.getImage(first, RenderService.Format.PNG_LARGE));
+			job = RenderService.enqueue(first.getId());
+		}
+		assertTrue(job.await(RenderService.WAIT_TIMEOUT));
+		assertEquals(2, MockDatabase.getContent(first.getIdent_id(), "rendered_version"));
+		assertFalse(Arrays.equals(old, RenderService.getImage(first, RenderService.Format.PNG_LARGE)));
+	}
+
+	@Test
+	public void testCoalesceAndReject() throws Exception {
+		first.setSvg(svg(200));
+		second.setSvg(svg(300));
+		int coalesced = RenderService.getCoalesced();
+		int rejected = RenderService.getRejected();
+		RenderService.Job job;
+		// The worker waits for the database in the job of the first model
+		synchronized (MockDatabase.class) {
+			assertNotNull(RenderService.enqueue(first.getId()));
+			job = RenderService.enqueue(second.getId());
+			assertSame(job, RenderService.enqueue(second.getId()));
+			assertSame(job, RenderService.enqueue(second.getId()));
+			// The queue holds one job
+			Representation third = Identity.instance(MockDatabase.addModel("alice", "Third", "bpmn",
+					new Date())).read();
+			assertNull(RenderService.enqueue(third.getId()));
+		}
+		assertEquals(coalesced + 2, RenderService.getCoalesced());
+		assertEquals(rejected + 1, RenderService.getRejected());
+		assertTrue(job.await(RenderService.WAIT_TIMEOUT));
+		assertNotNull(MockDatabase.getContent(second.getIdent_id(), "png_large"));
+	}
+
+	static String svg(int width) {
+		return "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"100\">"
+				+ "<rect x=\"10\" y=\"10\" width=\"" + (width - 20) + "\" height=\"80\" rx=\"10\" "
+				+ "fill=\"white\" stroke=\"black\"/><text x=\"20\" y=\"50\">Task</text></svg>";
+	}
+}
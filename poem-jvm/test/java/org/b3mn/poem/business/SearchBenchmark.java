@@ -0,0 +1,214 @@
+package org.b3mn.poem.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the {@link SearchIndex} with synthetic models: the time to build
+ * the index, the time to index a saved model and the latency of queries,
+ * compared with a scan over the text of all models, as a LIKE '%word%' query
+ * on the database would do it.
+ *
+ * The words of titles, labels and documentation are drawn from a vocabulary
+ * with a Zipf distribution, so that some words occur in most models and
+ * others in a few. Each model has 5 to 60 shapes of BPMN stencil types.
+ *
+ * Run from the project root (with -Xmx1g):
+ * <code>java org.b3mn.poem.business.SearchBenchmark [models] [queries]</code>
+ */
+public class SearchBenchmark {
+
+	private static final int VOCABULARY = 20000;
+	private static final String[] SYLLABLES = { "ka", "ro", "mi", "ten", "sul", "va", "de", "lor", "pin", "ex",
+		"bra", "to", "ne", "gus", "li", "fa", "mon", "der", "qu", "is" };
+	private static final String[] STENCILS = { "Task", "Task", "Task", "Task", "SequenceFlow", "SequenceFlow",
+		"SequenceFlow", "Exclusive_Databased_Gateway", "StartEvent", "EndEvent", "Pool", "Lane", "DataObject",
+		"TextAnnotation", "IntermediateTimerEvent", "Subprocess" };
+
+	private static String[] words;
+	private static double[] cumulative;
+
+	// A model as the scan sees it, the text and the stencils of its JSON
+	private static class Row {
+		final int id;
+		final long updated;
+		final String text;
+		final Map<String, Integer> stencils = new HashMap<String, Integer>();
+
+		Row(int id, long updated, String text) {
+			this.id = id;
+			this.updated = updated;
+			this.text = text;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+		Random random = new Random(42);
+		vocabulary(random);
+		List<SearchDocument> documents = new ArrayList<SearchDocument>();
+		List<Row> rows = new ArrayList<Row>();
+		for (int i = 0; i < count; i++) {
+			model(random, i + 1, System.currentTimeMillis() - random.nextInt(1000000000), documents, rows);
+		}
+
+		System.gc();
+		long memory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+		long start = System.nanoTime();
+		for (SearchDocument document : documents) {
+			SearchIndex.index(document);
+		}
+		long build = System.nanoTime() - start;
+		System.gc();
+		long used = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - memory;
+		System.out.println(String.format("%d models, built in %.2f s, about %d MB heap for the postings", count, build / 1e9,
+				used >> 20));
+
+		// A saved model replaces its document
+		long[] updates = new long[1000];
+		for (int i = 0; i < updates.length; i++) {
+			List<SearchDocument> saved = new ArrayList<SearchDocument>();
+			model(random, 1 + random.nextInt(count), System.currentTimeMillis(), saved, new ArrayList<Row>());
+			start = System.nanoTime();
+			SearchIndex.index(saved.get(0));
+			updates[i] = System.nanoTime() - start;
+		}
+		System.out.println(String.format("update of a model: %s", percentiles(updates)));
+
+		String[][] cases = {
+			{ "common word", words[4] },
+			{ "medium word", words[300] },
+			{ "rare word", words[8000] },
+			{ "two words", words[20] + " " + words[200] },
+			{ "stencil condition", "stencil:Task>=25" },
+			{ "word and condition", words[50] + " stencil:Exclusive_Databased_Gateway>=3" },
+		};
+		System.out.println(String.format("%-20s %8s %28s %28s", "query", "hits", "index (top 20)", "scan"));
+		for (String[] query : cases) {
+			int hits = SearchIndex.search(query[1], 0).size();
+			long[] index = new long[queries];
+			long[] scan = new long[Math.max(1, queries / 10)];
+			for (int i = 0; i < index.length; i++) {
+				start = System.nanoTime();
+				SearchIndex.search(query[1], 20);
+				index[i] = System.nanoTime() - start;
+			}
+			for (int i = 0; i < scan.length; i++) {
+				start = System.nanoTime();
+				int scanned = scan(rows, query[1]);
+				scan[i] = System.nanoTime() - start;
+				if (scanned < hits)
+					throw new IllegalStateException("The scan found " + scanned + " models for " + query[1]);
+			}
+			System.out.println(String.format("%-20s %8d %28s %28s", query[0], hits, percentiles(index),
+					percentiles(scan)));
+		}
+	}
+
+	private static void vocabulary(Random random) {
+		words = new String[VOCABULARY];
+		cumulative = new double[VOCABULARY];
+		Map<String, Boolean> used = new HashMap<String, Boolean>();
+		double sum = 0;
+		for (int i = 0; i < VOCABULARY; i++) {
+			String word;
+			do {
+				StringBuilder builder = new StringBuilder();
+				// The common words are short
+				for (int s = i < 100 ? 1 + random.nextInt(2) : 2 + random.nextInt(3); s > 0; s--)
+					builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+				word = builder.toString();
+			} while (used.put(word, true) != null);
+			words[i] = word;
+			sum += 1.0 / (i + 1);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < VOCABULARY; i++)
+			cumulative[i] /= sum;
+	}
+
+	private static String word(Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		return words[Math.min(index < 0 ? -index - 1 : index, VOCABULARY - 1)];
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++)
+			text.append(i > 0 ? " " : "").append(word(random));
+		return text.toString();
+	}
+
+	private static void model(Random random, int id, long updated, List<SearchDocument> documents, List<Row> rows)
+			throws Exception {
+		String title = words(random, 2 + random.nextInt(3));
+		StringBuilder text = new StringBuilder(title);
+		StringBuilder json = new StringBuilder("{\"resourceId\":\"canvas\",\"properties\":{},"
+				+ "\"stencil\":{\"id\":\"BPMNDiagram\"},\"childShapes\":[");
+		Map<String, Integer> stencils = new HashMap<String, Integer>();
+		int shapes = 5 + random.nextInt(56);
+		for (int i = 0; i < shapes; i++) {
+			String stencil = STENCILS[random.nextInt(STENCILS.length)];
+			String name = stencil.equals("SequenceFlow") ? "" : words(random, 1 + random.nextInt(3));
+			String documentation = random.nextInt(10) < 3 ? words(random, 8) : "";
+			json.append(i > 0 ? "," : "").append("{\"resourceId\":\"s").append(i).append("\",\"properties\":{\"name\":\"")
+				.append(name).append("\",\"documentation\":\"").append(documentation)
+				.append("\"},\"stencil\":{\"id\":\"").append(stencil).append("\"},\"childShapes\":[]}");
+			text.append(' ').append(name).append(' ').append(documentation);
+			String key = stencil.toLowerCase(Locale.ENGLISH);
+			Integer shapeCount = stencils.get(key);
+			stencils.put(key, shapeCount != null ? shapeCount + 1 : 1);
+		}
+		json.append("]}");
+		SearchDocument document = new SearchDocument(id, "/model/" + id, title, null, "bpmn", updated);
+		document.setContent(json.toString());
+		documents.add(document);
+		Row row = new Row(id, updated, text.toString().toLowerCase(Locale.ENGLISH));
+		row.stencils.putAll(stencils);
+		rows.add(row);
+	}
+
+	// Returns the number of models whose text contains all words and that fulfil the conditions
+	private static int scan(List<Row> rows, String query) {
+		List<String> words = new ArrayList<String>();
+		List<String[]> conditions = new ArrayList<String[]>();
+		for (String token : query.split(" ")) {
+			if (token.startsWith("stencil:")) {
+				String[] condition = token.substring("stencil:".length()).split(">=");
+				condition[0] = condition[0].toLowerCase(Locale.ENGLISH);
+				conditions.add(condition);
+			} else {
+				words.add(token);
+			}
+		}
+		List<Row> matches = new ArrayList<Row>();
+		rows:
+		for (Row row : rows) {
+			for (String word : words) {
+				if (!row.text.contains(word))
+					continue rows;
+			}
+			for (String[] condition : conditions) {
+				Integer shapes = row.stencils.get(condition[0]);
+				if (shapes == null || shapes < Integer.parseInt(condition[1]))
+					continue rows;
+			}
+			matches.add(row);
+		}
+		return matches.size();
+	}
+
+	private static String percentiles(long[] nanos) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		return String.format("p50 %8.1f us, p99 %8.1f us", sorted[sorted.length / 2] / 1e3,
+				sorted[Math.min(sorted.length - 1, sorted.length * 99 / 100)] / 1e3);
+	}
+}
@@ -0,0 +1,201 @@
+package org.b3mn.poem.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.Representation;
+import org.b3mn.poem.mock.MockDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		SearchIndex.clear();
+		MockDatabase.addIdentity("public");
+		MockDatabase.addIdentity("alice");
+	}
+
+	@After
+	public void tearDown() {
+		SearchIndex.clear();
+	}
+
+	/**
+	 * Returns the JSON of a model with a shape for each pair of stencil id
+	 * and name.
+	 */
+	private static String json(String... shapes) {
+		StringBuilder json = new StringBuilder("{\"resourceId\":\"canvas\",\"properties\":{\"name\":\"\"},"
+				+ "\"stencil\":{\"id\":\"BPMNDiagram\"},\"childShapes\":[");
+		for (int i = 0; i < shapes.length; i += 2) {
+			if (i > 0)
+				json.append(',');
+			json.append("{\"resourceId\":\"shape").append(i).append("\",\"properties\":{\"name\":\"")
+				.append(shapes[i + 1]).append("\",\"documentation\":\"\"},\"stencil\":{\"id\":\"")
+				.append(shapes[i]).append("\"},\"childShapes\":[]}");
+		}
+		return json.append("]}").toString();
+	}
+
+	private static SearchDocument document(int id, String title, long updated, String... shapes) throws Exception {
+		SearchDocument document = new SearchDocument(id, "/model/" + id, title, null, "bpmn", updated);
+		document.setContent(json(shapes));
+		SearchIndex.index(document);
+		return document;
+	}
+
+	private static List<Integer> search(String query) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (SearchIndex.Hit hit : SearchIndex.search(query, 10))
+			ids.add(hit.getDocument().getId());
+		return ids;
+	}
+
+	@Test
+	public void testContent() throws Exception {
+		SearchDocument document = new SearchDocument(1, "/model/1", "Invoice process", "Handles invoices", "bpmn", 0);
+		document.setContent("{\"resourceId\":\"canvas\",\"properties\":{\"documentation\":\"Accounting\"},"
+				+ "\"stencil\":{\"id\":\"BPMNDiagram\"},\"childShapes\":[{\"resourceId\":\"pool\","
+				+ "\"properties\":{\"name\":\"Accounting\"},\"stencil\":{\"id\":\"Pool\"},\"childShapes\":["
+				+ "{\"resourceId\":\"task\",\"properties\":{\"name\":\"Check invoice\"},\"stencil\":{\"id\":\"Task\"},"
+				+ "\"childShapes\":[]}]}]}");
+		assertEquals(2, document.getElements());
+		assertEquals(1, document.getStencilCount("Task"));
+		assertEquals(1, document.getStencilCount("pool"));
+		assertEquals(0, document.getStencilCount("Event"));
+		assertEquals(SearchDocument.TITLE_WEIGHT + SearchDocument.LABEL_WEIGHT, document.getFrequency("invoice"));
+		assertEquals(SearchDocument.LABEL_WEIGHT + SearchDocument.DOCUMENTATION_WEIGHT, document.getFrequency("accounting"));
+		assertEquals(SearchDocument.SUMMARY_WEIGHT, document.getFrequency("invoices"));
+		assertEquals(0, document.getFrequency("a"));
+	}
+
+	@Test
+	public void testRanking() throws Exception {
+		document(1, "Travel", 1, "Task", "Book hotel");
+		document(2, "Hotel booking", 2, "Task", "Book hotel");
+		document(3, "Hotel", 3, "Task", "Pay invoice");
+		document(4, "Invoice", 4);
+
+		assertEquals(3, SearchIndex.search("hotel", 0).size());
+		// The title weighs more than a label
+		assertEquals(Integer.valueOf(1), search("hotel").get(2));
+		// All words have to occur
+		assertEquals(1, search("hotel invoice").size());
+		assertEquals(Integer.valueOf(3), search("Hotel, invoice!").get(0));
+		assertTrue(search("hotel unknown").isEmpty());
+		assertTrue(search("  ").isEmpty());
+		assertEquals(1, SearchIndex.search("hotel", 1).size());
+	}
+
+	@Test
+	public void testStencilConditions() throws Exception {
+		document(1, "Small", 1, "Task", "First");
+		document(2, "Large", 2, "Task", "First", "Task", "Second", "Task", "Third", "StartEvent", "Start");
+		document(3, "Empty", 3);
+
+		assertEquals(2, search("stencil:task").size());
+		assertEquals(Integer.valueOf(2), search("stencil:Task>=2").get(0));
+		assertEquals(1, search("stencil:Task>=2").size());
+		assertEquals(Integer.valueOf(1), search("stencil:Task=1").get(0));
+		assertEquals(Integer.valueOf(1), search("first stencil:Task<2").get(0));
+		assertEquals(1, search("first stencil:Task<2").size());
+		// Models without tasks have less than two
+		assertEquals(2, search("stencil:Task<2").size());
+		// Only conditions: the recently changed models first
+		assertEquals(Integer.valueOf(3), search("stencil:Task<2").get(0));
+		assertTrue(search("stencil:Gateway").isEmpty());
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		Identity model = Identity.instance(MockDatabase.addModel("alice", "Order", "bpmn", new Date(0)));
+		// Not indexed yet, the content will be read with the model
+		Representation.update(model.getId(), "Order", null, null, null);
+		assertNull(SearchIndex.get(model.getId()));
+
+		Representation.update(model.getId(), null, null, json("Task", "Ship goods"), null);
+		assertEquals(1, search("order ship").size());
+
+		Representation.update(model.getId(), "Delivery", null, null, null);
+		assertEquals("Delivery", SearchIndex.get(model.getId()).getTitle());
+		// The content is kept if only the meta data changes
+		assertEquals(1, search("delivery ship").size());
+
+		Representation.update(model.getId(), null, null, json("Task", "Send goods"), null);
+		assertTrue(search("ship").isEmpty());
+		assertEquals(1, search("delivery send").size());
+
+		// Changes of /model_info
+		new Model(model).setTitle("Shipment");
+		new Model(model).setSummary("Urgent");
+		assertEquals(1, search("shipment urgent send").size());
+
+		// An older document doesn't replace a newer one
+		SearchDocument outdated = new SearchDocument(model.getId(), model.getUri(), "Outdated", null, "bpmn", 0);
+		assertFalse(SearchIndex.index(outdated));
+		assertTrue(search("outdated").isEmpty());
+
+		SearchIndex.remove(model.getId());
+		assertTrue(search("delivery").isEmpty());
+		assertNull(SearchIndex.get(model.getId()));
+		assertEquals(0, SearchIndex.size());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		document(1, "Hotel", 10, "Task", "Book room");
+		document(2, "Invoice", 20, "Task", "Pay");
+		File file = File.createTempFile("search", ".index");
+		try {
+			SearchIndex.save(file);
+			SearchIndex.clear();
+			assertEquals(20, SearchIndex.load(file));
+			assertEquals(2, SearchIndex.size());
+			assertEquals(Integer.valueOf(1), search("room stencil:Task").get(0));
+			assertEquals("Invoice", SearchIndex.get(2).getTitle());
+			assertEquals(1, SearchIndex.get(2).getElements());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSynchronize() throws Exception {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < SearchIndex.BATCH_SIZE + 10; i++) {
+			String uri = MockDatabase.addModel("alice", "Model " + i, "bpmn", new Date(i * 1000L));
+			int id = Identity.instance(uri).getId();
+			MockDatabase.setContent(id, "erdf", json("Task", "Task " + i));
+			ids.add(id);
+		}
+		// A deleted model
+		SearchIndex.index(new SearchDocument(100000, "/model/100000", "Deleted", null, "bpmn", 0));
+
+		SearchIndex.synchronize(0);
+		assertTrue(SearchIndex.isComplete());
+		assertEquals(SearchIndex.BATCH_SIZE + 10, SearchIndex.size());
+		assertNull(SearchIndex.get(100000));
+		assertEquals(1, search("task 57").size());
+		assertEquals(ids.get(57), search("task 57").get(0));
+
+		// Only the models that were changed since the given time are read again
+		SearchIndex.remove(ids.get(1));
+		SearchIndex.remove(ids.get(100));
+		SearchIndex.synchronize(50 * 1000L);
+		assertNull(SearchIndex.get(ids.get(1)));
+		assertEquals("Model 100", SearchIndex.get(ids.get(100)).getTitle());
+	}
+}
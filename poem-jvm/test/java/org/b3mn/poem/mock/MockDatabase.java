@@ -0,0 +1,785 @@
+package org.b3mn.poem.mock;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.b3mn.poem.business.EntityCache;
+
+/**
+ * An in-memory database for the tests and benchmarks of the persistence code.
+ * There is no embedded database in the libraries of POEM, so this JDBC driver
+ * for the URL {@link #URL} keeps identities, representations, contents,
+ * revisions and the rows of the access view in maps and answers the SQL statements that the POEM
+ * classes send through Hibernate for them. Statements it doesn't know fail
+ * with an SQLException naming the statement. It does not check the
+ * PostgreSQL specific SQL, that is tested against a real database by
+ * {@link PostgresDatabase} and org.b3mn.poem.PostgresQueryTest.
+ *
+ * Each executed statement is counted in {@link #statements}, the rows it
+ * returns in {@link #rows}. A statement takes
+ * {@link #roundTripMicros}, like the round trip to a database server.
+ * {@link #install()} points {@link org.b3mn.poem.Persistance} to this
+ * database, it has to be called before Persistance is used.
+ */
+public class MockDatabase implements Driver {
+
+	public static final String URL = "jdbc:poem-mock:";
+
+	public static volatile long roundTripMicros = 0;
+
+	public static final AtomicInteger statements = new AtomicInteger();
+
+	/* The number of rows returned by the statements */
+	public static final AtomicLong rows = new AtomicLong();
+
+	private static final Pattern SELECT_ITEM = Pattern.compile("^(?:(\\w+)\\.)?(\\w+)(?: as (\\w+))?$");
+
+	private static final String MODEL_QUERY = "select identity.uri from identity, representation "
+			+ "where representation.ident_id=identity.id and identity.id in (select access.object_id from access "
+			+ "where access.subject_name='public' or access.subject_id=?)";
+
+	private static final Pattern TYPE_CONDITION = Pattern.compile("^ and \\(representation\\.type in \\(((?:\\?, )*\\?)\\)\\)");
+
+	/* Tables by primary key, rows map "table.column" to the value */
+	private static final Map<Integer, Map<String, Object>> identities = new LinkedHashMap<Integer, Map<String, Object>>();
+	private static final Map<String, Integer> identityIds = new HashMap<String, Integer>();
+	private static final Map<Integer, Map<String, Object>> representations = new HashMap<Integer, Map<String, Object>>();
+	private static final Map<Long, Map<String, Object>> contents = new HashMap<Long, Map<String, Object>>();
+	private static final List<Map<String, Object>> access = new ArrayList<Map<String, Object>>();
+	private static final Map<Object, List<Map<String, Object>>> accessByObject = new HashMap<Object, List<Map<String, Object>>>();
+	/* Revisions by representation id, in the order of their numbers */
+	private static final Map<Long, List<Map<String, Object>>> revisions = new HashMap<Long, List<Map<String, Object>>>();
+
+	private static boolean installed = false;
+
+	/**
+	 * Registers the driver and initializes Persistance with a Hibernate
+	 * configuration for this database.
+	 */
+	public static synchronized void install() throws Exception {
+		if (installed)
+			return;
+		DriverManager.registerDriver(new MockDatabase());
+		TestPersistance.install(MockDatabase.class.getName(), URL, null, null);
+		installed = true;
+	}
+
+	/**
+	 * Removes all rows, the entities that POEM has cached from them and
+	 * resets the statement counter.
+	 */
+	public static synchronized void clear() {
+		EntityCache.clearAll();
+		identities.clear();
+		identityIds.clear();
+		representations.clear();
+		contents.clear();
+		access.clear();
+		accessByObject.clear();
+		revisions.clear();
+		statements.set(0);
+		rows.set(0);
+	}
+
+	/**
+	 * Adds an identity, e.g. of a user.
+	 *
+	 * @return The id of the identity
+	 */
+	public static synchronized int addIdentity(String uri) {
+		int id = identities.size() + 1;
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("identity.id", id);
+		row.put("identity.uri", uri);
+		identities.put(id, row);
+		identityIds.put(uri, id);
+		return id;
+	}
+
+	/**
+	 * Adds a model with the uri /model/&lt;id&gt;, its representation and the
+	 * access right of the owner.
+	 *
+	 * @return The uri of the model
+	 */
+	public static synchronized String addModel(String owner, String title, String type, Date updated) {
+		int id = addIdentity("/model/new");
+		String uri = "/model/" + id;
+		identities.get(id).put("identity.uri", uri);
+		identityIds.remove("/model/new");
+		identityIds.put(uri, id);
+
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("representation.id", (long) id);
+		row.put("representation.ident_id", id);
+		row.put("representation.mime_type", "deprecated");
+		row.put("representation.language", "deprecated");
+		row.put("representation.title", title);
+		row.put("representation.type", type);
+		row.put("representation.summary", "Summary of " + title);
+		row.put("representation.created", new Timestamp(updated.getTime() - 3600000));
+		row.put("representation.updated", new Timestamp(updated.getTime()));
+		representations.put(id, row);
+
+		Map<String, Object> content = new HashMap<String, Object>();
+		content.put("content.id", (long) id);
+		content.put("content.erdf", "");
+		content.put("content.svg", "");
+		content.put("content.svg_version", 0);
+		for (String column : new String[] { "png_large", "png_small", "pdf", "rendered_version" })
+			content.put("content." + column, null);
+		contents.put((long) id, content);
+
+		grant(owner, uri, "owner");
+		return uri;
+	}
+
+	/**
+	 * Adds a row to the access view, the subject is the context of the
+	 * right, or "ownership" for owners.
+	 */
+	public static synchronized void grant(String subject, String object, String term) {
+		if (!identityIds.containsKey(subject))
+			addIdentity(subject);
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("access.access_id", (long) access.size() + 1);
+		row.put("access.access_scheme", "http://b3mn.org/http");
+		row.put("access.access_term", term);
+		row.put("access.context_id", (long) identityIds.get(subject));
+		row.put("access.context_name", term.equals("owner") ? "ownership" : subject);
+		row.put("access.subject_id", (long) identityIds.get(subject));
+		row.put("access.subject_name", subject);
+		row.put("access.object_id", (long) identityIds.get(object));
+		row.put("access.object_name", object);
+		access.add(row);
+		List<Map<String, Object>> rights = accessByObject.get(object);
+		if (rights == null) {
+			rights = new ArrayList<Map<String, Object>>();
+			accessByObject.put(object, rights);
+		}
+		rights.add(row);
+	}
+
+	/**
+	 * Removes the rows of the subject from the access view of the object.
+	 */
+	public static synchronized void revoke(String subject, String object) {
+		List<Map<String, Object>> rights = accessByObject.get(object);
+		if (rights == null)
+			return;
+		for (Iterator<Map<String, Object>> i = rights.iterator(); i.hasNext();) {
+			Map<String, Object> right = i.next();
+			if (right.get("access.subject_name").equals(subject)) {
+				i.remove();
+				access.remove(right);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes stored in the content and svg columns of
+	 * the revision table.
+	 */
+	public static synchronized long revisionBytes() {
+		long bytes = 0;
+		for (List<Map<String, Object>> rows : revisions.values()) {
+			for (Map<String, Object> row : rows)
+				bytes += ((byte[]) row.get("revision.content")).length + ((byte[]) row.get("revision.svg")).length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the value of a column of the content table, e.g. "png_large".
+	 */
+	public static synchronized Object getContent(int id, String column) {
+		return contents.get((long) id).get("content." + column);
+	}
+
+	/**
+	 * Sets the value of a column of the content table, e.g. "erdf".
+	 */
+	public static synchronized void setContent(int id, String column, Object value) {
+		contents.get((long) id).put("content." + column, value);
+	}
+
+	/**
+	 * Executes an insert or update of POEM and returns the number of inserted rows.
+	 */
+	private static synchronized int update(String sql, List<Object> parameters) throws SQLException {
+		if (sql.equals("insert into revision (representation_id, number, created, author_id, snapshot, content, svg) "
+				+ "values (?, ?, ?, ?, ?, ?, ?)")) {
+			// Revision.save()
+			Long representation = ((Number) parameters.get(0)).longValue();
+			List<Map<String, Object>> rows = revisions.get(representation);
+			if (rows == null) {
+				rows = new ArrayList<Map<String, Object>>();
+				revisions.put(representation, rows);
+			}
+			Object number = parameters.get(1);
+			for (Map<String, Object> row : rows) {
+				if (row.get("revision.number").equals(number))
+					throw new SQLException("Duplicate key revision_number_key");
+			}
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("revision.id", revisionCount() + 1);
+			row.put("revision.representation_id", representation);
+			row.put("revision.number", number);
+			row.put("revision.created", parameters.get(2));
+			row.put("revision.author_id", parameters.get(3));
+			row.put("revision.snapshot", parameters.get(4));
+			row.put("revision.content", parameters.get(5));
+			row.put("revision.svg", parameters.get(6));
+			rows.add(row);
+			return 1;
+		}
+		if (sql.equals("update content set svg=?, svg_version=svg_version+1 where id=?")) {
+			// Representation.setSvg()
+			Map<String, Object> content = contents.get(parameters.get(1));
+			if (content == null)
+				return 0;
+			content.put("content.svg", parameters.get(0));
+			content.put("content.svg_version", (Integer) content.get("content.svg_version") + 1);
+			return 1;
+		}
+		if (sql.equals("update content set erdf=? where id=?") || sql.equals("update content set erdf=? where id=? and erdf=?")) {
+			// Representation.setContent(), JsonMigration
+			Map<String, Object> content = contents.get(parameters.get(1));
+			if (content == null || (parameters.size() > 2 && !parameters.get(2).equals(content.get("content.erdf"))))
+				return 0;
+			content.put("content.erdf", parameters.get(0));
+			return 1;
+		}
+		if (sql.matches("update content set (png_large|png_small)=\\? where id=\\?")) {
+			// Representation.setPngLarge(), setPngSmall()
+			Map<String, Object> content = contents.get(parameters.get(1));
+			if (content == null)
+				return 0;
+			content.put("content." + sql.substring("update content set ".length(), sql.indexOf('=')),
+					parameters.get(0));
+			return 1;
+		}
+		if (sql.matches("update content set (png_large|png_small|pdf|rendered_version)=\\? where id=\\? "
+				+ "and svg_version=\\? and \\(rendered_version is null or rendered_version<\\?\\)")) {
+			// RenderService
+			Map<String, Object> content = contents.get(parameters.get(1));
+			Integer rendered = (Integer) (content == null ? null : content.get("content.rendered_version"));
+			if (content == null || !parameters.get(2).equals(content.get("content.svg_version"))
+					|| (rendered != null && rendered >= (Integer) parameters.get(3)))
+				return 0;
+			content.put("content." + sql.substring("update content set ".length(), sql.indexOf('=')),
+					parameters.get(0));
+			return 1;
+		}
+		if (sql.startsWith("update representation set ") && sql.endsWith(" where id=?")) {
+			// Hibernate, for Representation.update() and Model.setTitle()
+			Map<String, Object> representation = representations.get(
+					((Number) parameters.get(parameters.size() - 1)).intValue());
+			if (representation == null)
+				return 0;
+			String[] columns = sql.substring("update representation set ".length(), sql.length() - " where id=?".length())
+					.split(", ");
+			for (int i = 0; i < columns.length; i++)
+				representation.put("representation." + columns[i].substring(0, columns[i].indexOf('=')), parameters.get(i));
+			return 1;
+		}
+		throw new SQLException("Unknown statement: " + sql);
+	}
+
+	private static int revisionCount() {
+		int count = 0;
+		for (List<Map<String, Object>> rows : revisions.values())
+			count += rows.size();
+		return count;
+	}
+
+	/**
+	 * Answers a statement of POEM, the parameters are the values of the
+	 * question marks in their order.
+	 */
+	private static synchronized List<Map<String, Object>> query(String sql, List<Object> parameters)
+			throws SQLException {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+
+		if (sql.contains("from identity, representation where identity.uri in (")) {
+			// Model.getModels()
+			for (Object uri : parameters) {
+				Integer id = identityIds.get(uri);
+				if (id != null && representations.containsKey(id))
+					rows.add(join(identities.get(id), representations.get(id)));
+			}
+		} else if (sql.contains("from identity where uri=?")) {
+			add(rows, identities.get(identityIds.get(parameters.get(0))));
+		} else if (sql.contains("from identity where id=?")) {
+			add(rows, identities.get(parameters.get(0)));
+		} else if (sql.contains("from identity where id in (")) {
+			for (Object id : new HashSet<Object>(parameters))
+				add(rows, identities.get(id));
+		} else if (sql.contains("from representation where ident_id = ?")) {
+			add(rows, representations.get(parameters.get(0)));
+		} else if (sql.contains("from subject where ident_id=?")) {
+			// User, all identities are users without OpenID attributes
+			if (identities.containsKey(parameters.get(0)))
+				rows.add(subject(parameters.get(0)));
+		} else if (sql.startsWith("select access.access_term from access, identity where access.object_id=? "
+				+ "and access.subject_id=identity.id and identity.uri=?")) {
+			// Model.getAccessRight()
+			for (Map<String, Object> right : rights(parameters.get(0))) {
+				if (right.get("access.subject_name").equals(parameters.get(1)))
+					rows.add(right);
+			}
+		} else if (sql.startsWith("select identity.uri from access, identity where access.object_id=? "
+				+ "and access.subject_id=identity.id and access.access_term='owner'")) {
+			// Model.getAuthor()
+			for (Map<String, Object> right : rights(parameters.get(0))) {
+				if (right.get("access.access_term").equals("owner"))
+					rows.add(join(right, identities.get(identityIds.get(right.get("access.subject_name")))));
+			}
+		} else if (sql.contains("from access where access.object_name in (")
+				&& sql.endsWith("and (access.subject_name in (?, ?) or access.access_term='owner')")) {
+			// Model.getModels()
+			Collection<Object> objects = new HashSet<Object>(parameters.subList(0, parameters.size() - 2));
+			Collection<Object> subjects = parameters.subList(parameters.size() - 2, parameters.size());
+			for (Object object : objects) {
+				for (Map<String, Object> right : rights(identityIds.get(object))) {
+					if (subjects.contains(right.get("access.subject_name"))
+							|| right.get("access.access_term").equals("owner"))
+						rows.add(right);
+				}
+			}
+		} else if (sql.startsWith("select distinct on(context_name) ") && sql.endsWith("from access where object_name=?")) {
+			// Identity.getAccess()
+			distinctContexts(rows, new HashSet<Object>(parameters));
+		} else if (sql.startsWith("select distinct on(object_name, context_name) ")
+				&& sql.contains("from access where object_name in (")) {
+			// Identity.getAccess(Collection)
+			distinctContexts(rows, new HashSet<Object>(parameters));
+		} else if (sql.startsWith(MODEL_QUERY)) {
+			// ModelQuery
+			modelQuery(rows, sql, parameters);
+		} else if (sql.equals("select content.id from content where content.id>? "
+				+ "and content.erdf ~ '^[[:space:]]*<' order by content.id limit ?")) {
+			// JsonMigration
+			List<Long> ids = new ArrayList<Long>(contents.keySet());
+			Collections.sort(ids);
+			for (Long id : ids) {
+				Map<String, Object> content = contents.get(id);
+				if (id > ((Number) parameters.get(0)).longValue() && ((String) content.get("content.erdf")).trim().startsWith("<")
+						&& rows.size() < ((Number) parameters.get(1)).intValue())
+					rows.add(content);
+			}
+		} else if (sql.matches("select [\\w., ]+ from content where id=\\?")) {
+			// Representation, RenderService
+			add(rows, contents.get(parameters.get(0)));
+		} else if (sql.matches("select [\\w., ]+ from content where id=\\? and content.svg<>''")) {
+			// RenderService.getImage()
+			Map<String, Object> content = contents.get(parameters.get(0));
+			if (content != null && !"".equals(content.get("content.svg")))
+				rows.add(content);
+		} else if (sql.equals("select representation.ident_id from representation")) {
+			// SearchIndex.synchronize()
+			rows.addAll(representations.values());
+		} else if (sql.startsWith("select identity.id, identity.uri, representation.title, representation.summary, ")
+				&& sql.endsWith("from identity, representation, content where representation.ident_id=identity.id "
+						+ "and content.id=representation.id and identity.id>? and representation.updated>=? "
+						+ "order by identity.id limit ?")) {
+			// SearchIndex.synchronize()
+			List<Integer> ids = new ArrayList<Integer>(representations.keySet());
+			Collections.sort(ids);
+			for (Integer id : ids) {
+				Map<String, Object> representation = representations.get(id);
+				if (id > ((Number) parameters.get(0)).intValue()
+						&& !((Date) representation.get("representation.updated")).before((Date) parameters.get(1))
+						&& rows.size() < ((Number) parameters.get(2)).intValue())
+					rows.add(join(join(identities.get(id), representation), contents.get(representation.get("representation.id"))));
+			}
+		} else if (sql.matches("select [\\w., ]+ from plugin")) {
+			// Identity.getServlets(), there are no plugins
+		} else if (sql.startsWith("select revision.") && sql.contains(" from revision where revision.representation_id=?")) {
+			// Revision
+			revisions(rows, sql, parameters);
+		} else {
+			throw new SQLException("Unknown statement: " + sql);
+		}
+		return rows;
+	}
+
+	/*
+	 * Answers the statements of ModelQuery with the type filter and the
+	 * sorts by last change and title
+	 */
+	private static void modelQuery(List<Map<String, Object>> rows, String sql, final List<Object> parameters)
+			throws SQLException {
+		String rest = sql.substring(MODEL_QUERY.length());
+		int parameter = 1;
+		Set<Object> types = null;
+		Matcher matcher;
+		while ((matcher = TYPE_CONDITION.matcher(rest)).find()) {
+			int count = matcher.group(1).split(", ").length;
+			Set<Object> matching = new HashSet<Object>(parameters.subList(parameter, parameter + count));
+			if (types != null)
+				matching.retainAll(types);
+			types = matching;
+			parameter += count;
+			rest = rest.substring(matcher.end());
+		}
+		if (!rest.startsWith(" order by "))
+			throw new SQLException("Unknown statement: " + sql);
+		boolean offset = rest.endsWith(" offset ?");
+		if (offset)
+			rest = rest.substring(0, rest.length() - " offset ?".length());
+		boolean limit = rest.endsWith(" limit ?");
+		if (limit)
+			rest = rest.substring(0, rest.length() - " limit ?".length());
+		final String[] orders = rest.substring(" order by ".length()).split(", ");
+		for (String order : orders) {
+			if (!order.equals("representation.updated desc") && !order.equals("representation.title")
+					&& !order.equals("identity.id"))
+				throw new SQLException("Unknown order " + order + " in " + sql);
+		}
+
+		long subject = ((Number) parameters.get(0)).longValue();
+		Set<Object> visible = new HashSet<Object>();
+		for (Map<String, Object> right : access) {
+			if (right.get("access.subject_name").equals("public")
+					|| ((Number) right.get("access.subject_id")).longValue() == subject)
+				visible.add(right.get("access.object_name"));
+		}
+		List<Map<String, Object>> models = new ArrayList<Map<String, Object>>();
+		for (Map.Entry<Integer, Map<String, Object>> representation : representations.entrySet()) {
+			Map<String, Object> identity = identities.get(representation.getKey());
+			if (visible.contains(identity.get("identity.uri"))
+					&& (types == null || types.contains(representation.getValue().get("representation.type"))))
+				models.add(join(identity, representation.getValue()));
+		}
+		Collections.sort(models, new Comparator<Map<String, Object>>() {
+			@SuppressWarnings("unchecked")
+			public int compare(Map<String, Object> first, Map<String, Object> second) {
+				for (String order : orders) {
+					String column = order.split(" ")[0];
+					int result = ((Comparable<Object>) first.get(column)).compareTo(second.get(column));
+					if (result != 0)
+						return order.endsWith(" desc") ? -result : result;
+				}
+				return 0;
+			}
+		});
+		int from = offset ? Math.min(((Number) parameters.get(parameters.size() - 1)).intValue(), models.size()) : 0;
+		int to = models.size();
+		if (limit)
+			to = Math.min(from + ((Number) parameters.get(parameter)).intValue(), to);
+		models = models.subList(from, to);
+		rows.addAll(models);
+	}
+
+	/* Answers the statements of Revision */
+	private static void revisions(List<Map<String, Object>> rows, String sql, List<Object> parameters)
+			throws SQLException {
+		List<Map<String, Object>> revisions = MockDatabase.revisions.get(((Number) parameters.get(0)).longValue());
+		if (revisions == null)
+			return;
+		if (sql.endsWith(" where revision.representation_id=? order by revision.number desc")) {
+			for (int i = revisions.size() - 1; i >= 0; i--)
+				rows.add(revisions.get(i));
+		} else if (sql.endsWith(" where revision.representation_id=? order by revision.number desc limit 1")) {
+			rows.add(revisions.get(revisions.size() - 1));
+		} else if (sql.endsWith(" where revision.representation_id=? and revision.number=?")) {
+			for (Map<String, Object> revision : revisions) {
+				if (revision.get("revision.number").equals(parameters.get(1)))
+					rows.add(revision);
+			}
+		} else if (sql.endsWith(" where revision.representation_id=? and revision.number between ? and ? "
+				+ "order by revision.number")) {
+			int first = ((Number) parameters.get(1)).intValue();
+			int last = ((Number) parameters.get(2)).intValue();
+			for (Map<String, Object> revision : revisions) {
+				int number = (Integer) revision.get("revision.number");
+				if (number >= first && number <= last)
+					rows.add(revision);
+			}
+		} else {
+			throw new SQLException("Unknown statement: " + sql);
+		}
+	}
+
+	private static Map<String, Object> subject(Object id) {
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("subject.ident_id", id);
+		for (String column : new String[] { "nickname", "email", "fullname", "dob", "gender", "postcode",
+				"first_login", "last_login", "language_code", "country_code", "password", "visibility" })
+			row.put("subject." + column, null);
+		row.put("subject.login_count", 0);
+		return row;
+	}
+
+	private static void distinctContexts(List<Map<String, Object>> rows, Set<Object> objects) {
+		for (Object object : objects) {
+			Set<Object> contexts = new HashSet<Object>();
+			for (Map<String, Object> right : rights(identityIds.get(object))) {
+				if (contexts.add(right.get("access.context_name")))
+					rows.add(right);
+			}
+		}
+	}
+
+	/* The access rows of the object with the given id */
+	private static List<Map<String, Object>> rights(Object id) {
+		Map<String, Object> identity = identities.get(id);
+		List<Map<String, Object>> rights = identity == null ? null : accessByObject.get(identity.get("identity.uri"));
+		return rights == null ? new ArrayList<Map<String, Object>>() : rights;
+	}
+
+	private static void add(List<Map<String, Object>> rows, Map<String, Object> row) {
+		if (row != null)
+			rows.add(row);
+	}
+
+	private static Map<String, Object> join(Map<String, Object> first, Map<String, Object> second) {
+		Map<String, Object> row = new HashMap<String, Object>(first);
+		row.putAll(second);
+		return row;
+	}
+
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url))
+			return null;
+		return (Connection) proxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("prepareStatement"))
+					return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+				if (method.getName().equals("getAutoCommit"))
+					return true;
+				if (method.getName().equals("getMetaData"))
+					return proxy(DatabaseMetaData.class, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							return defaultValue(proxy, method, args);
+						}
+					});
+				return defaultValue(proxy, method, args);
+			}
+		});
+	}
+
+	public boolean acceptsURL(String url) {
+		return url.startsWith(URL);
+	}
+
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	public java.util.logging.Logger getParentLogger() {
+		return null;
+	}
+
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(MockDatabase.class.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+
+	/* The result of methods that don't matter for the mock */
+	private static Object defaultValue(Object proxy, Method method, Object[] args) {
+		if (method.getName().equals("hashCode"))
+			return System.identityHashCode(proxy);
+		if (method.getName().equals("equals"))
+			return proxy == args[0];
+		Class<?> type = method.getReturnType();
+		if (type == boolean.class)
+			return false;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		return null;
+	}
+
+	private static class StatementHandler implements InvocationHandler {
+
+		private final String sql;
+		private final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+
+		StatementHandler(String sql) {
+			this.sql = sql.replaceAll("\\s+", " ").trim().toLowerCase();
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+				return null;
+			}
+			if (name.equals("clearParameters")) {
+				parameters.clear();
+				return null;
+			}
+			if (name.equals("executeQuery")) {
+				statements.incrementAndGet();
+				// half of the round trip to the database and half back
+				if (roundTripMicros > 0)
+					LockSupport.parkNanos(roundTripMicros * 500);
+				List<Object> values = new ArrayList<Object>();
+				for (int i = 1; i <= parameters.size(); i++)
+					values.add(parameters.get(i));
+				List<Map<String, Object>> result = query(sql, values);
+				rows.addAndGet(result.size());
+				if (roundTripMicros > 0)
+					LockSupport.parkNanos(roundTripMicros * 500);
+				return proxy(ResultSet.class, new ResultSetHandler(columns(sql), result));
+			}
+			if (name.equals("executeUpdate")) {
+				statements.incrementAndGet();
+				if (roundTripMicros > 0)
+					LockSupport.parkNanos(roundTripMicros * 1000);
+				List<Object> values = new ArrayList<Object>();
+				for (int i = 1; i <= parameters.size(); i++)
+					values.add(parameters.get(i));
+				return update(sql, values);
+			}
+			if (name.startsWith("execute"))
+				throw new SQLException("Not supported: " + name + " " + sql);
+			return defaultValue(proxy, method, args);
+		}
+
+		/* Maps the labels of the selected columns to "table.column" */
+		private static List<String[]> columns(String sql) throws SQLException {
+			String select = sql.substring("select ".length(), sql.indexOf(" from "));
+			select = select.replaceFirst("^distinct on\\([^)]*\\) ", "");
+			List<String[]> columns = new ArrayList<String[]>();
+			for (String item : select.split(", ")) {
+				Matcher matcher = SELECT_ITEM.matcher(item.trim());
+				if (!matcher.matches())
+					throw new SQLException("Unknown column " + item + " in " + sql);
+				String column = matcher.group(1) == null ? matcher.group(2) : matcher.group(1) + "."
+						+ matcher.group(2);
+				columns.add(new String[] { matcher.group(3) == null ? matcher.group(2) : matcher.group(3), column });
+			}
+			return columns;
+		}
+	}
+
+	private static class ResultSetHandler implements InvocationHandler {
+
+		private final List<String[]> columns;
+		private final List<Map<String, Object>> rows;
+		private int row = -1;
+		private boolean wasNull = false;
+
+		ResultSetHandler(List<String[]> columns, List<Map<String, Object>> rows) {
+			this.columns = columns;
+			this.rows = rows;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("next"))
+				return ++row < rows.size();
+			if (name.equals("wasNull"))
+				return wasNull;
+			if (name.equals("getMetaData"))
+				return proxy(ResultSetMetaData.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("getColumnCount"))
+							return columns.size();
+						if (name.equals("getColumnName") || name.equals("getColumnLabel"))
+							return columns.get((Integer) args[0] - 1)[0];
+						if (name.equals("getColumnType")) {
+							Object value = rows.isEmpty() ? null : value(columns.get((Integer) args[0] - 1)[0], 0);
+							return value instanceof Long ? Types.BIGINT : value instanceof Integer ? Types.INTEGER
+									: value instanceof Date ? Types.TIMESTAMP : value instanceof Boolean ? Types.BOOLEAN
+									: value instanceof byte[] ? Types.VARBINARY : Types.VARCHAR;
+						}
+						return defaultValue(proxy, method, args);
+					}
+				});
+			if (name.equals("findColumn"))
+				return index((String) args[0]) + 1;
+			if (name.startsWith("get") && args != null && args.length == 1) {
+				String label = args[0] instanceof Integer ? columns.get((Integer) args[0] - 1)[0] : (String) args[0];
+				Object value = value(label, row);
+				wasNull = value == null;
+				Class<?> type = method.getReturnType();
+				if (type == int.class)
+					return value == null ? 0 : ((Number) value).intValue();
+				if (type == long.class)
+					return value == null ? 0L : ((Number) value).longValue();
+				if (type == java.math.BigDecimal.class)
+					return value == null ? null : new java.math.BigDecimal(value.toString());
+				if (type == boolean.class)
+					return value == null ? false : (Boolean) value;
+				if (type == byte[].class)
+					return value;
+				if (type == String.class)
+					return value == null ? null : value.toString();
+				if (type == Timestamp.class || type == java.sql.Date.class)
+					return value;
+				if (type == Object.class)
+					return value;
+				throw new SQLException("Not supported: " + method);
+			}
+			return defaultValue(proxy, method, args);
+		}
+
+		private int index(String label) throws SQLException {
+			for (int i = 0; i < columns.size(); i++) {
+				if (columns.get(i)[0].equalsIgnoreCase(label))
+					return i;
+			}
+			throw new SQLException("Unknown column " + label);
+		}
+
+		private Object value(String label, int row) throws SQLException {
+			String column = columns.get(index(label))[1];
+			Map<String, Object> values = rows.get(row);
+			if (values.containsKey(column))
+				return values.get(column);
+			// columns without table
+			for (Map.Entry<String, Object> value : values.entrySet()) {
+				if (value.getKey().endsWith("." + column))
+					return value.getValue();
+			}
+			throw new SQLException("Unknown column " + column);
+		}
+	}
+}
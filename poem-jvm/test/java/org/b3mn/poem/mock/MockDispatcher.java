@@ -0,0 +1,114 @@
+package org.b3mn.poem.mock;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.b3mn.poem.Dispatcher;
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.business.User;
+import org.b3mn.poem.handler.HandlerBase;
+import org.b3mn.poem.util.HandlerInfo;
+import org.b3mn.poem.util.HandlerWithModelContext;
+
+/**
+ * A Dispatcher for the {@link ReadHandler} and the handlers added with
+ * {@link #addHandler(HandlerBase)}, which can be called without a servlet
+ * container. Persistance has to be installed with
+ * {@link MockDatabase#install()}.
+ */
+public class MockDispatcher extends Dispatcher {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * A handler that requires the read right on the model and does nothing.
+	 */
+	@HandlerWithModelContext(uri = "/read")
+	public static class ReadHandler extends HandlerBase {
+
+		@Override
+		public void doGet(HttpServletRequest request, HttpServletResponse response, Identity subject,
+				Identity object) throws Exception {
+			response.setStatus(200);
+		}
+	}
+
+	public MockDispatcher() {
+		HandlerInfo info = new HandlerInfo(ReadHandler.class);
+		info.setHandlerInstance(new ReadHandler());
+		knownHandlers.put(info.getUri(), info);
+	}
+
+	/**
+	 * Adds a handler of POEM, e.g. the InfoHandler.
+	 */
+	public void addHandler(HandlerBase handler) {
+		HandlerInfo info = new HandlerInfo(handler.getClass());
+		info.setHandlerInstance(handler);
+		knownHandlers.put(info.getUri(), info);
+	}
+
+	/**
+	 * Dispatches a GET request of the user for the path, e.g.
+	 * /model/42/read, and returns the status of the response.
+	 */
+	public int get(final User user, final String path) throws Exception {
+		final HttpSession session = (HttpSession) proxy(HttpSession.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getAttribute") && args[0].equals("openid"))
+					return user.getOpenId();
+				return null;
+			}
+		});
+		HttpServletRequest request = (HttpServletRequest) proxy(HttpServletRequest.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getPathInfo"))
+					return path;
+				if (name.equals("getMethod"))
+					return "GET";
+				if (name.equals("getSession"))
+					return session;
+				if (name.equals("getAttribute") && args[0].equals("user"))
+					return user;
+				if (name.equals("getDateHeader"))
+					return -1L;
+				if (name.equals("getScheme"))
+					return "http";
+				if (name.equals("getServerName"))
+					return "localhost";
+				if (name.equals("getServerPort"))
+					return 8080;
+				if (name.equals("getServletPath"))
+					return "/poem";
+				return null;
+			}
+		});
+		final int[] status = { 200 };
+		final PrintWriter writer = new PrintWriter(new StringWriter());
+		HttpServletResponse response = (HttpServletResponse) proxy(HttpServletResponse.class,
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("setStatus"))
+							status[0] = (Integer) args[0];
+						if (method.getName().equals("getWriter"))
+							return writer;
+						return null;
+					}
+				});
+		service(request, response);
+		return status[0];
+	}
+
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(MockDispatcher.class.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+}
@@ -0,0 +1,196 @@
+package org.b3mn.poem.mock;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.b3mn.poem.business.EntityCache;
+
+/**
+ * A PostgreSQL database for the tests of the PostgreSQL specific SQL of POEM,
+ * which {@link MockDatabase} only imitates. The tests run if the system
+ * property {@link #URL_PROPERTY} names a scratch database, e.g.
+ * jdbc:postgresql://localhost/poem_test, {@link #USER_PROPERTY} and
+ * {@link #PASSWORD_PROPERTY} are optional. {@link #reset()} drops and
+ * creates the tables of POEM that the tests need, so the database must not
+ * be used otherwise. The JDBC 3 driver in poem-jvm/lib needs
+ * <code>ALTER DATABASE poem_test SET bytea_output='escape'</code> on
+ * PostgreSQL 9.0 and later.
+ *
+ * The tables are those of poem-jvm/data/database/db_schema.sql and its
+ * migrations, except that access is a table instead of the view over
+ * interaction and structure, the rows are added by {@link #grant}.
+ */
+public class PostgresDatabase {
+
+	public static final String URL_PROPERTY = "poem.test.url";
+	public static final String USER_PROPERTY = "poem.test.user";
+	public static final String PASSWORD_PROPERTY = "poem.test.password";
+
+	private static final String[] TABLES = {
+			"CREATE TABLE identity (id serial PRIMARY KEY, uri text NOT NULL)",
+			"CREATE TABLE representation (id serial PRIMARY KEY, ident_id integer NOT NULL, "
+					+ "mime_type text NOT NULL, language text DEFAULT 'en_US' NOT NULL, "
+					+ "title text DEFAULT '' NOT NULL, summary text DEFAULT '' NOT NULL, "
+					+ "created timestamp with time zone DEFAULT now() NOT NULL, "
+					+ "updated timestamp with time zone DEFAULT now() NOT NULL, "
+					+ "type text DEFAULT 'undefined' NOT NULL)",
+			"CREATE TABLE content (id integer PRIMARY KEY, erdf text NOT NULL, svg text, png_large bytea, "
+					+ "png_small bytea, pdf bytea, svg_version integer DEFAULT 0 NOT NULL, rendered_version integer)",
+			"CREATE TABLE revision (id serial PRIMARY KEY, representation_id integer NOT NULL, "
+					+ "number integer NOT NULL, created timestamp without time zone NOT NULL, author_id integer, "
+					+ "snapshot boolean NOT NULL, content bytea NOT NULL, svg bytea NOT NULL, "
+					+ "UNIQUE (representation_id, number))",
+			"CREATE TABLE model_rating (id serial PRIMARY KEY, subject_id integer NOT NULL, "
+					+ "object_id integer NOT NULL, score integer NOT NULL)",
+			"CREATE TABLE plugin (rel text NOT NULL, title text NOT NULL, description text NOT NULL, "
+					+ "java_class text NOT NULL, is_export boolean NOT NULL)",
+			"CREATE TABLE access (access_id serial, context_id integer NOT NULL, context_name text NOT NULL, "
+					+ "subject_id integer NOT NULL, subject_name text NOT NULL, object_id integer NOT NULL, "
+					+ "object_name text NOT NULL, access_term text NOT NULL, access_scheme text NOT NULL)",
+			"CREATE INDEX representation_title_idx ON representation (title, ident_id)",
+			"CREATE INDEX representation_updated_idx ON representation (updated DESC, ident_id)",
+			// stands in for the lookup of the view through structure_ident_id_idx and object_idx
+			"CREATE INDEX access_object_idx ON access (object_id)" };
+
+	private static Connection connection = null;
+
+	/**
+	 * Returns whether a database is configured by the system properties.
+	 */
+	public static boolean isConfigured() {
+		return System.getProperty(URL_PROPERTY) != null;
+	}
+
+	/**
+	 * Initializes Persistance with the configured database.
+	 */
+	public static synchronized void install() throws Exception {
+		Class.forName("org.postgresql.Driver");
+		TestPersistance.install("org.postgresql.Driver", System.getProperty(URL_PROPERTY),
+				System.getProperty(USER_PROPERTY), System.getProperty(PASSWORD_PROPERTY));
+	}
+
+	/**
+	 * Drops and creates the tables and removes the entities that POEM has
+	 * cached from the previous rows.
+	 */
+	public static synchronized void reset() throws SQLException {
+		EntityCache.clearAll();
+		Statement statement = getConnection().createStatement();
+		try {
+			statement.execute("DROP TABLE IF EXISTS identity, representation, content, revision, model_rating, "
+					+ "plugin, access");
+			for (String table : TABLES)
+				statement.execute(table);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Adds an identity, e.g. of a user.
+	 *
+	 * @return The id of the identity
+	 */
+	public static synchronized int addIdentity(String uri) throws SQLException {
+		return ((Number) query("INSERT INTO identity (uri) VALUES (?) RETURNING id", uri)).intValue();
+	}
+
+	/**
+	 * Adds a model with the uri /model/&lt;id&gt;, its representation, empty
+	 * content and the access right of the owner.
+	 *
+	 * @return The uri of the model
+	 */
+	public static synchronized String addModel(String owner, String title, String type, Date updated)
+			throws SQLException {
+		int id = addIdentity("/model/new");
+		String uri = "/model/" + id;
+		update("UPDATE identity SET uri=? WHERE id=?", uri, id);
+		update("INSERT INTO representation (id, ident_id, mime_type, language, title, summary, created, updated, "
+				+ "type) VALUES (?, ?, 'deprecated', 'deprecated', ?, ?, ?, ?, ?)", id, id, title, "Summary of "
+				+ title, new Timestamp(updated.getTime() - 3600000), new Timestamp(updated.getTime()), type);
+		update("INSERT INTO content (id, erdf, svg) VALUES (?, '', '')", id);
+		grant(owner, uri, "owner");
+		return uri;
+	}
+
+	/**
+	 * Adds a row to the access table, the subject is the context of the
+	 * right, or "ownership" for owners.
+	 */
+	public static synchronized void grant(String subject, String object, String term) throws SQLException {
+		Object subjectId = query("SELECT id FROM identity WHERE uri=?", subject);
+		if (subjectId == null)
+			subjectId = addIdentity(subject);
+		update("INSERT INTO access (context_id, context_name, subject_id, subject_name, object_id, object_name, "
+				+ "access_term, access_scheme) SELECT ?, ?, ?, ?, id, uri, ?, 'http://b3mn.org/http' "
+				+ "FROM identity WHERE uri=?", subjectId, term.equals("owner") ? "ownership" : subject, subjectId,
+				subject, term, object);
+	}
+
+	/**
+	 * Executes an insert, update or delete and returns the number of rows.
+	 */
+	public static synchronized int update(String sql, Object... parameters) throws SQLException {
+		PreparedStatement statement = prepare(sql, parameters);
+		try {
+			return statement.executeUpdate();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Executes a query and returns the first column of its first row or null
+	 * if there is none.
+	 */
+	public static synchronized Object query(String sql, Object... parameters) throws SQLException {
+		PreparedStatement statement = prepare(sql, parameters);
+		try {
+			ResultSet result = statement.executeQuery();
+			return result.next() ? result.getObject(1) : null;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Executes a query and returns the first column of its rows, e.g. the
+	 * lines of an EXPLAIN.
+	 */
+	public static synchronized List<Object> list(String sql, Object... parameters) throws SQLException {
+		PreparedStatement statement = prepare(sql, parameters);
+		try {
+			ResultSet result = statement.executeQuery();
+			List<Object> column = new ArrayList<Object>();
+			while (result.next())
+				column.add(result.getObject(1));
+			return column;
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static PreparedStatement prepare(String sql, Object... parameters) throws SQLException {
+		PreparedStatement statement = getConnection().prepareStatement(sql);
+		for (int i = 0; i < parameters.length; i++)
+			statement.setObject(i + 1, parameters[i]);
+		return statement;
+	}
+
+	private static Connection getConnection() throws SQLException {
+		if (connection == null)
+			connection = DriverManager.getConnection(System.getProperty(URL_PROPERTY),
+					System.getProperty(USER_PROPERTY), System.getProperty(PASSWORD_PROPERTY));
+		return connection;
+	}
+}
@@ -0,0 +1,102 @@
+package org.b3mn.poem.mock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Initializes {@link org.b3mn.poem.Persistance} for the tests with a
+ * Hibernate configuration for a given database, instead of the
+ * hibernate.cfg.xml of the web application. Persistance is initialized once
+ * per JVM, so all tests of a JVM use the same database.
+ */
+public class TestPersistance {
+
+	private static String installedUrl = null;
+
+	/* Keeps the level of the logger, which is only weakly referenced by the LogManager */
+	private static final Logger hibernateLogger = Logger.getLogger("org.hibernate");
+
+	/**
+	 * Initializes Persistance with the JDBC driver and url, unless it was
+	 * initialized with the url already.
+	 *
+	 * @throws IllegalStateException
+	 *             If Persistance uses another database
+	 */
+	public static synchronized void install(String driver, String url, String user, String password)
+			throws Exception {
+		if (url.equals(installedUrl))
+			return;
+		if (installedUrl != null)
+			throw new IllegalStateException("Persistance uses " + installedUrl + " already, run the tests for "
+					+ url + " in another JVM");
+		hibernateLogger.setLevel(Level.WARNING);
+
+		// Hibernate reads hibernate.cfg.xml through the context class loader
+		File directory = File.createTempFile("poem-test", "");
+		directory.delete();
+		directory.mkdirs();
+		directory.deleteOnExit();
+		write(new File(directory, "hibernate.cfg.xml"), "<?xml version='1.0' encoding='utf-8'?>\n"
+				+ "<!DOCTYPE hibernate-configuration PUBLIC \"-//Hibernate/Hibernate Configuration DTD 3.0//EN\" "
+				+ "\"http://hibernate.sourceforge.net/hibernate-configuration-3.0.dtd\">\n"
+				+ "<hibernate-configuration><session-factory>\n"
+				+ "<property name=\"connection.driver_class\">" + driver + "</property>\n"
+				+ "<property name=\"connection.url\">" + url + "</property>\n"
+				+ (user != null ? "<property name=\"connection.username\">" + user + "</property>\n" : "")
+				+ (password != null ? "<property name=\"connection.password\">" + password + "</property>\n" : "")
+				+ "<property name=\"connection.pool_size\">20</property>\n"
+				+ "<property name=\"dialect\">org.hibernate.dialect.PostgreSQLDialect</property>\n"
+				+ "<property name=\"current_session_context_class\">thread</property>\n"
+				+ "<property name=\"cache.provider_class\">org.hibernate.cache.NoCacheProvider</property>\n"
+				+ "<mapping class=\"org.b3mn.poem.Identity\"/>\n"
+				+ "<mapping class=\"org.b3mn.poem.Representation\"/>\n"
+				+ "<mapping class=\"org.b3mn.poem.Subject\"/>\n"
+				+ "<mapping class=\"org.b3mn.poem.Plugin\"/>\n"
+				+ "<mapping resource=\"TestAccess.hbm.xml\"/>\n"
+				+ "</session-factory></hibernate-configuration>\n");
+		// the mapping of poem-jvm/data/Access.hbm.xml
+		write(new File(directory, "TestAccess.hbm.xml"), "<?xml version=\"1.0\"?>\n"
+				+ "<!DOCTYPE hibernate-mapping PUBLIC \"-//Hibernate/Hibernate Mapping DTD 3.0//EN\" "
+				+ "\"http://hibernate.sourceforge.net/hibernate-mapping-3.0.dtd\">\n"
+				+ "<hibernate-mapping package=\"org.b3mn.poem\"><class name=\"Access\" table=\"access\"><composite-id>\n"
+				+ "<key-property name=\"access_id\" type=\"long\" column=\"access_id\"/>\n"
+				+ "<key-property name=\"context_id\" type=\"long\" column=\"context_id\"/>\n"
+				+ "<key-property name=\"context_name\" type=\"java.lang.String\" column=\"context_name\"/>\n"
+				+ "<key-property name=\"subject_id\" type=\"long\" column=\"subject_id\"/>\n"
+				+ "<key-property name=\"subject_name\" type=\"java.lang.String\" column=\"subject_name\"/>\n"
+				+ "<key-property name=\"object_id\" type=\"long\" column=\"object_id\"/>\n"
+				+ "<key-property name=\"object_name\" type=\"java.lang.String\" column=\"object_name\"/>\n"
+				+ "<key-property name=\"access_term\" type=\"java.lang.String\" column=\"access_term\"/>\n"
+				+ "<key-property name=\"access_scheme\" type=\"java.lang.String\" column=\"access_scheme\"/>\n"
+				+ "</composite-id></class></hibernate-mapping>\n");
+		new File(directory, "hibernate.cfg.xml").deleteOnExit();
+		new File(directory, "TestAccess.hbm.xml").deleteOnExit();
+
+		Thread thread = Thread.currentThread();
+		ClassLoader loader = thread.getContextClassLoader();
+		thread.setContextClassLoader(new URLClassLoader(new URL[] { directory.toURI().toURL() },
+				TestPersistance.class.getClassLoader()));
+		try {
+			Class.forName("org.b3mn.poem.Persistance", true, TestPersistance.class.getClassLoader());
+		} finally {
+			thread.setContextClassLoader(loader);
+		}
+		installedUrl = url;
+	}
+
+	private static void write(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.b3mn.poem.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.b3mn.poem.Dispatcher;
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.handler.ModelInfoHandler;
+import org.b3mn.poem.mock.MockDatabase;
+import org.b3mn.poem.mock.PostgresDatabase;
+
+/**
+ * Compares a page of the model list of the repository (sorted by last change
+ * and filtered by model type) as the SortFilterHandler computed it before,
+ * with one result set for the sort and each filter that are intersected in
+ * memory, with a single paged ModelQuery.
+ *
+ * If the system property poem.test.url names a scratch database, the models
+ * are kept by PostgreSQL, see {@link PostgresDatabase}, and the plan of the
+ * ModelQuery is printed. Otherwise they are kept by the {@link MockDatabase}.
+ * It sorts and filters the models in memory, so the times contain the work of
+ * the database, but not its indexes and query planner. Each statement takes
+ * the given round trip time.
+ *
+ * Run from the project root:
+ * <code>java [-Dpoem.test.url=...] org.b3mn.poem.util.ModelQueryBenchmark [round trip microseconds] [page size]</code>
+ */
+public class ModelQueryBenchmark {
+
+	private static final int USERS = 100;
+	private static final int[] MODELS = { 10000, 50000, 100000 };
+	private static final String[] TYPES = { "bpmn", "epc", "petrinet", "uml", "fmc" };
+	private static final int VIEWS = 10;
+
+	public static void main(String[] args) throws Exception {
+		long roundTrip = args.length > 0 ? Long.parseLong(args[0]) : 200;
+		int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		ModelQueryTest.registerHandlers();
+		boolean postgres = PostgresDatabase.isConfigured();
+		if (postgres)
+			PostgresDatabase.install();
+		else
+			MockDatabase.install();
+		for (int count : MODELS) {
+			if (postgres) {
+				addModels(count);
+				System.out.println(count + " models in PostgreSQL, pages of " + pageSize);
+			} else {
+				MockDatabase.clear();
+				Random random = new Random(42);
+				MockDatabase.addIdentity(Dispatcher.getPublicUser());
+				for (int i = 0; i < USERS; i++)
+					MockDatabase.addIdentity("user" + i);
+				for (int i = 0; i < count; i++) {
+					String owner = "user" + random.nextInt(USERS);
+					String uri = MockDatabase.addModel(owner, "Model " + i, TYPES[random.nextInt(TYPES.length)],
+							new Date(1200000000000L + random.nextInt(count) * 60000L));
+					if (random.nextInt(2) == 0)
+						MockDatabase.grant(Dispatcher.getPublicUser(), uri, "read");
+				}
+				System.out.println(count + " models, " + roundTrip + " us per statement, pages of " + pageSize);
+			}
+			Identity user = Identity.instance("user0");
+
+			// warm up without round trips
+			MockDatabase.roundTripMicros = 0;
+			for (int i = 0; i < 3; i++) {
+				intersected(user, i * pageSize, pageSize);
+				ModelQueryTest.filter(user, "sort", "lastChange", "type", "bpmn,epc", "offset",
+						String.valueOf(i * pageSize), "limit", String.valueOf(pageSize));
+			}
+			MockDatabase.roundTripMicros = roundTrip;
+
+			MockDatabase.statements.set(0);
+			MockDatabase.rows.set(0);
+			long start = System.nanoTime();
+			for (int i = 0; i < VIEWS; i++)
+				intersected(user, i * pageSize, pageSize);
+			report("intersected", start, postgres);
+
+			MockDatabase.statements.set(0);
+			MockDatabase.rows.set(0);
+			start = System.nanoTime();
+			for (int i = 0; i < VIEWS; i++)
+				ModelQueryTest.filter(user, "sort", "lastChange", "type", "bpmn,epc", "offset",
+						String.valueOf(i * pageSize), "limit", String.valueOf(pageSize));
+			report("ModelQuery", start, postgres);
+
+			if (postgres) {
+				// The plan of the last page
+				ModelQuery query = new ModelQuery(user);
+				ModelInfoHandler.filterByModelType(query, "bpmn,epc");
+				ModelInfoHandler.sortByLastChange(query);
+				query.page((VIEWS - 1) * pageSize, pageSize);
+				for (Object line : PostgresDatabase.list("EXPLAIN ANALYZE " + query.getSql(), query.getParameters()
+						.toArray()))
+					System.out.println("  " + line);
+			}
+		}
+	}
+
+	/*
+	 * Fills the database with the models of the users like the MockDatabase
+	 * above, in a few statements
+	 */
+	private static void addModels(int count) throws Exception {
+		PostgresDatabase.reset();
+		PostgresDatabase.addIdentity(Dispatcher.getPublicUser());
+		for (int i = 0; i < USERS; i++)
+			PostgresDatabase.addIdentity("user" + i);
+		PostgresDatabase.query("SELECT setseed(0.42)");
+		PostgresDatabase.update("INSERT INTO identity (uri) SELECT '/model/new' || i FROM generate_series(1, ?) i",
+				count);
+		PostgresDatabase.update("UPDATE identity SET uri='/model/' || id WHERE uri LIKE '/model/new%'");
+		StringBuilder types = new StringBuilder();
+		for (String type : TYPES)
+			types.append(types.length() > 0 ? "," : "").append(type);
+		PostgresDatabase.update("INSERT INTO representation (id, ident_id, mime_type, language, title, summary, "
+				+ "created, updated, type) SELECT id, id, 'deprecated', 'deprecated', 'Model ' || id, '', "
+				+ "updated - interval '1 hour', updated, (string_to_array(?, ','))[1 + floor(random() * ?)::int] "
+				+ "FROM (SELECT id, timestamp '2008-01-10 21:20' + floor(random() * ?) * interval '1 minute' AS updated "
+				+ "FROM identity WHERE uri LIKE '/model/%') model", types.toString(), TYPES.length, count);
+		PostgresDatabase.update("INSERT INTO content (id, erdf, svg) SELECT id, '', '' FROM representation");
+		PostgresDatabase.update("INSERT INTO access (context_id, context_name, subject_id, subject_name, "
+				+ "object_id, object_name, access_term, access_scheme) SELECT owner.id, 'ownership', owner.id, "
+				+ "owner.uri, model.id, model.uri, 'owner', 'http://b3mn.org/http' FROM identity owner, "
+				+ "(SELECT id, uri, 'user' || floor(random() * ?)::int AS owner FROM identity WHERE uri LIKE '/model/%') "
+				+ "model WHERE owner.uri=model.owner", USERS);
+		PostgresDatabase.update("INSERT INTO access (context_id, context_name, subject_id, subject_name, "
+				+ "object_id, object_name, access_term, access_scheme) SELECT public.id, public.uri, public.id, "
+				+ "public.uri, model.id, model.uri, 'read', 'http://b3mn.org/http' FROM identity model, identity public "
+				+ "WHERE model.uri LIKE '/model/%' AND public.uri=? AND random() < 0.5", Dispatcher.getPublicUser());
+		PostgresDatabase.update("ANALYZE");
+	}
+
+	/* The former work of the SortFilterHandler: all sorted uris, all filtered uris and their intersection */
+	private static List<String> intersected(Identity user, int offset, int limit) {
+		Set<String> uris = new LinkedHashSet<String>(ModelInfoHandler.sortByLastChange(user));
+		uris.retainAll(ModelInfoHandler.filterByModelType(user, "bpmn,epc"));
+		List<String> page = new ArrayList<String>(uris);
+		return page.subList(Math.min(offset, page.size()), Math.min(offset + limit, page.size()));
+	}
+
+	private static void report(String name, long start, boolean postgres) {
+		double millis = (System.nanoTime() - start) / 1e6 / VIEWS;
+		if (postgres)
+			System.out.println(String.format("%-12s %8.1f ms per view", name, millis));
+		else
+			System.out.println(String.format("%-12s %8.1f ms, %2d statements, %7d rows per view", name, millis,
+					MockDatabase.statements.get() / VIEWS, MockDatabase.rows.get() / VIEWS));
+	}
+}
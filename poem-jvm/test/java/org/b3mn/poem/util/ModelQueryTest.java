@@ -0,0 +1,171 @@
+package org.b3mn.poem.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.b3mn.poem.Dispatcher;
+import org.b3mn.poem.Identity;
+import org.b3mn.poem.handler.AccessHandler;
+import org.b3mn.poem.handler.ModelInfoHandler;
+import org.b3mn.poem.handler.RatingHandler;
+import org.b3mn.poem.handler.SortFilterHandler;
+import org.b3mn.poem.handler.TagHandler;
+import org.b3mn.poem.mock.MockDatabase;
+import org.json.JSONArray;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ModelQueryTest {
+
+	private Identity alice;
+	private List<String> models;
+
+	/**
+	 * Registers the filter and sort methods of the handlers like the
+	 * Dispatcher does it for the handlers of the web application.
+	 */
+	@BeforeClass
+	public static void registerHandlers() {
+		new Dispatcher() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Collection<String> getHandlerClassNames() {
+				return Arrays.asList(ModelInfoHandler.class.getName(), RatingHandler.class.getName(),
+						TagHandler.class.getName(), AccessHandler.class.getName());
+			}
+		};
+		new HandlerInfo(SortFilterHandler.class);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		MockDatabase.install();
+		MockDatabase.clear();
+		MockDatabase.addIdentity("public");
+		MockDatabase.addIdentity("alice");
+		MockDatabase.addIdentity("bob");
+		models = new ArrayList<String>();
+		String[] types = { "bpmn", "epc", "petrinet" };
+		for (int i = 0; i < 30; i++) {
+			String owner = i % 2 == 0 ? "alice" : "bob";
+			String uri = MockDatabase.addModel(owner, "Model " + (i % 7), types[i % 3],
+					new Date(1200000000000L + (i % 5) * 60000L));
+			if (i % 3 == 1)
+				MockDatabase.grant("public", uri, "read");
+			models.add(uri);
+		}
+		alice = Identity.instance("alice");
+	}
+
+	@Test
+	public void testSql() {
+		ModelQuery query = new ModelQuery(alice);
+		ModelInfoHandler.filterByModelType(query, "bpmn, epc");
+		ModelInfoHandler.sortByTitle(query);
+		query.page(40, 20);
+
+		assertEquals("SELECT identity.uri FROM identity, representation WHERE representation.ident_id=identity.id "
+				+ "AND identity.id IN (SELECT access.object_id FROM access WHERE access.subject_name='public' "
+				+ "OR access.subject_id=?) AND (representation.type IN (?, ?)) "
+				+ "ORDER BY representation.title, identity.id LIMIT ? OFFSET ?", query.getSql());
+		assertEquals(Arrays.<Object> asList(alice.getId(), "bpmn", "epc", 20, 40), query.getParameters());
+	}
+
+	@Test
+	public void testRegistration() {
+		for (String filter : new String[] { "type", "rating", "tags", "friend", "access" }) {
+			assertNotNull(filter, HandlerInfo.getFilterMapping().get(filter));
+			assertNotNull(filter, HandlerInfo.getFilterCriterionMapping().get(filter));
+		}
+		for (String sort : new String[] { "lastchange", "title", "rating" }) {
+			assertNotNull(sort, HandlerInfo.getSortMapping().get(sort));
+			assertNotNull(sort, HandlerInfo.getSortCriterionMapping().get(sort));
+		}
+	}
+
+	@Test
+	public void testSortFilterHandler() throws Exception {
+		// The result of the sort and filter methods intersected in memory
+		Set<String> expected = new LinkedHashSet<String>(ModelInfoHandler.sortByTitle(alice));
+		expected.retainAll(ModelInfoHandler.filterByModelType(alice, "bpmn,petrinet"));
+		List<String> all = new ArrayList<String>(expected);
+		assertEquals(10, all.size());
+
+		MockDatabase.statements.set(0);
+		assertEquals(all, filter(alice, "sort", "title", "type", "bpmn,petrinet"));
+		assertEquals(1, MockDatabase.statements.get());
+
+		assertEquals(all.subList(5, 10), filter(alice, "sort", "title", "type", "bpmn,petrinet", "offset", "5",
+				"limit", "5"));
+		assertEquals(all.subList(6, 10), filter(alice, "sort", "title", "type", "bpmn,petrinet", "offset", "6",
+				"limit", "10"));
+		assertEquals(Collections.emptyList(), filter(alice, "sort", "title", "type", "bpmn,petrinet", "offset",
+				"20"));
+
+		// The default sort
+		List<String> lastChange = ModelInfoHandler.sortByLastChange(alice);
+		assertEquals(lastChange.subList(0, 3), filter(alice, "limit", "3"));
+	}
+
+	/**
+	 * Returns the uris of a GET request of the SortFilterHandler with the given
+	 * names and values of parameters.
+	 */
+	static List<String> filter(Identity subject, String... parameters) throws Exception {
+		final Map<String, String> values = new TreeMap<String, String>();
+		for (int i = 0; i < parameters.length; i += 2)
+			values.put(parameters[i], parameters[i + 1]);
+		HttpServletRequest request = (HttpServletRequest) proxy(HttpServletRequest.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getParameter"))
+					return values.get(args[0]);
+				if (method.getName().equals("getParameterNames"))
+					return Collections.enumeration(values.keySet());
+				return null;
+			}
+		});
+		StringWriter body = new StringWriter();
+		final PrintWriter writer = new PrintWriter(body);
+		HttpServletResponse response = (HttpServletResponse) proxy(HttpServletResponse.class,
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getWriter"))
+							return writer;
+						return null;
+					}
+				});
+		new SortFilterHandler().doGet(request, response, subject, null);
+		writer.flush();
+
+		JSONArray array = new JSONArray(body.toString());
+		List<String> uris = new ArrayList<String>();
+		for (int i = 0; i < array.length(); i++)
+			uris.add(array.getString(i));
+		return uris;
+	}
+
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(ModelQueryTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+}
@@ -0,0 +1,95 @@
+package org.b3mn.poem.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StylesheetsTest {
+
+	private static final File DIRECTORY = new File("poem-jvm/lib");
+	private static final String STYLESHEET = "extract-rdf.xsl";
+
+	private static final String ERDF = "<html xmlns=\"http://www.w3.org/1999/xhtml\">"
+			+ "<head profile=\"http://purl.org/NET/erdf/profile\">"
+			+ "<link rel=\"schema.oryx\" href=\"http://oryx-editor.org/\" /></head><body>"
+			+ "<div id=\"oryx_1\"><span class=\"oryx-type\">http://b3mn.org/stencilset/epc#Event</span>"
+			+ "<span class=\"oryx-title\">Start</span></div></body></html>";
+
+	@Before
+	public void setUp() {
+		Stylesheets.setDirectory(DIRECTORY);
+	}
+
+	@After
+	public void tearDown() {
+		Stylesheets.setDirectory(null);
+	}
+
+	/**
+	 * Each thread reuses its own transformer of a stylesheet, the stylesheet
+	 * is compiled once for all threads.
+	 */
+	@Test
+	public void testTransformerPerThread() throws Exception {
+		final Transformer transformer = Stylesheets.getTransformer(STYLESHEET);
+		assertSame(transformer, Stylesheets.getTransformer(STYLESHEET));
+
+		final Transformer[] other = new Transformer[1];
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					other[0] = Stylesheets.getTransformer(STYLESHEET);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotSame(transformer, other[0]);
+		assertSame(Stylesheets.getTemplates(STYLESHEET), Stylesheets.getTemplates(STYLESHEET));
+	}
+
+	/**
+	 * A changed configuration compiles the stylesheet again and replaces the
+	 * transformers of the threads.
+	 */
+	@Test
+	public void testReset() throws Exception {
+		Transformer transformer = Stylesheets.getTransformer(STYLESHEET);
+		Stylesheets.setDirectory(DIRECTORY);
+		assertNotSame(transformer, Stylesheets.getTransformer(STYLESHEET));
+	}
+
+	/**
+	 * A reused transformer returns the same output as a stylesheet that is
+	 * compiled for the transformation.
+	 */
+	@Test
+	public void testSameOutput() throws Exception {
+		Transformer uncompiled = TransformerFactory.newInstance().newTransformer(
+				new StreamSource(new File(DIRECTORY, STYLESHEET)));
+		String expected = transform(uncompiled);
+		assertEquals(expected, transform(Stylesheets.getTransformer(STYLESHEET)));
+		assertEquals(expected, transform(Stylesheets.getTransformer(STYLESHEET)));
+	}
+
+	private static String transform(Transformer transformer) throws Exception {
+		StringWriter output = new StringWriter();
+		transformer.transform(new StreamSource(new StringReader(ERDF)), new StreamResult(output));
+		return output.toString();
+	}
+}